@@ -0,0 +1,102 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import richmond.swe.dotsalary.DotsalaryApplication;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated data and application context shared by benchmarks.
+ * @author richmondchng
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Random salary between 0.01 and 4000.00, same range as /users defaults.
+     * @param random random
+     * @return salary
+     */
+    static BigDecimal salary(final Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt(400_000), 2);
+    }
+
+    /**
+     * Write CSV file with header and rows of unique names.
+     * @param rows number of rows
+     * @return temporary file, to be deleted by caller
+     * @throws IOException if file cannot be written
+     */
+    static Path writeCsv(final int rows) throws IOException {
+        final Path file = Files.createTempFile("benchmark-", ".csv");
+        final Random random = new Random(rows);
+        try(final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("NAME,SALARY\n");
+            for(int i = 0; i < rows; i++) {
+                writer.write("User " + i + "," + salary(random) + "\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Start application without web server, on its own in-memory database.
+     * Properties are passed as command line arguments, so they override application.properties.
+     * @param properties extra properties, key=value
+     * @return application context, to be closed by caller
+     */
+    static ConfigurableApplicationContext start(final String... properties) {
+        return run(List.of("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"), properties);
+    }
+
+    /**
+     * Start application without web server, with persistent profile on a database in directory.
+     * @param storageDir database directory
+     * @param properties extra properties, key=value
+     * @return application context, to be closed by caller
+     */
+    static ConfigurableApplicationContext startPersistent(final Path storageDir, final String... properties) {
+        return run(List.of("--spring.profiles.active=persistent", "--dotsalary.storage-dir=" + storageDir),
+                properties);
+    }
+
+    private static ConfigurableApplicationContext run(final List<String> base, final String... properties) {
+        final List<String> args = new ArrayList<>(base);
+        args.add("--logging.level.root=WARN");
+        for(String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(DotsalaryApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Insert users named prefix + number, in JDBC batches.
+     * @param jdbcTemplate jdbc template
+     * @param prefix name prefix
+     * @param count number of users
+     * @param random random for salaries
+     */
+    static void insertUsers(final JdbcTemplate jdbcTemplate, final String prefix, final int count,
+                            final Random random) {
+        final List<Object[]> rows = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            rows.add(new Object[] { prefix + i, salary(random) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (NAME, SALARY) VALUES (?, ?)", rows);
+    }
+}
@@ -0,0 +1,83 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.UserService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to upload a generated CSV file of new users in STREAMING mode with the JPA engine, into an empty table,
+ * with default configuration and with the bulk profile.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkIngestBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"default", "bulk"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private FileProcessorService fileProcessorService;
+    private JdbcTemplate jdbcTemplate;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.writeCsv(rows);
+        context = BenchmarkData.start("spring.profiles.active=" + profile, "dotsalary.persistence.engine=JPA");
+        userService = context.getBean(UserService.class);
+        fileProcessorService = context.getBean(FileProcessorService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    /**
+     * Remove users inserted by previous iteration, so each upload inserts all rows.
+     */
+    @Setup(Level.Iteration)
+    public void resetUsers() {
+        jdbcTemplate.update("TRUNCATE TABLE users");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int streamPersistRecords() throws IOException {
+        return userService.streamPersistRecords(consumer -> {
+            try(final InputStream inputStream = Files.newInputStream(file)) {
+                return fileProcessorService.process(inputStream, 1000, consumer);
+            }
+        });
+    }
+}
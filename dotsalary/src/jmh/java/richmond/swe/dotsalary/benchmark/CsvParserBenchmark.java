@@ -0,0 +1,98 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.csv.CsvTokenizer;
+import richmond.swe.dotsalary.service.csv.UserCsvReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse a generated CSV file held in memory, with UserCsvReader against the previous Scanner and String.split
+ * parser, so the gain of the tokenizer is measured without file IO.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CsvParserBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    // SCANNER for the previous parser, TOKENIZER for UserCsvReader
+    @Param({"SCANNER", "TOKENIZER"})
+    private String parser;
+
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Path file = BenchmarkData.writeCsv(rows);
+        data = Files.readAllBytes(file);
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public int parse(final Blackhole blackhole) throws IOException {
+        if("SCANNER".equals(parser)) {
+            return parseWithScanner(blackhole);
+        }
+        final UserCsvReader reader = new UserCsvReader(new CsvTokenizer(new ByteArrayInputStream(data)));
+        reader.readHeader();
+        int count = 0;
+        UserBean bean;
+        while((bean = reader.next()) != null) {
+            blackhole.consume(bean);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Same steps as the previous FileProcessorService.
+     */
+    private int parseWithScanner(final Blackhole blackhole) {
+        final Scanner scanner = new Scanner(new ByteArrayInputStream(data));
+        blackhole.consume(scanner.nextLine().split(","));
+        int count = 0;
+        while(scanner.hasNext()) {
+            final String line = scanner.nextLine();
+            if(StringUtils.isBlank(line)) {
+                break;
+            }
+            final String[] record = line.split(",");
+            if(record.length != 2 || StringUtils.isBlank(record[0])) {
+                throw new IllegalArgumentException("Invalid line " + (count + 1));
+            }
+            blackhole.consume(UserBean.builder()
+                    .name(record[0])
+                    .salary(new BigDecimal(record[1]))
+                    .build());
+            count++;
+        }
+        return count;
+    }
+}
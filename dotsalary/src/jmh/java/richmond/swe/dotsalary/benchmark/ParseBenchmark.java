@@ -0,0 +1,67 @@
+package richmond.swe.dotsalary.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import richmond.swe.dotsalary.service.FileProcessorService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse generated CSV files through FileProcessorService.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParseBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    // SEQUENTIAL for process, PARALLEL for processParallel
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    private String parser;
+
+    private final FileProcessorService fileProcessorService = new FileProcessorService(new SimpleMeterRegistry());
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.writeCsv(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int process(final Blackhole blackhole) throws IOException {
+        if("PARALLEL".equals(parser)) {
+            return fileProcessorService.processParallel(file, 1000, 1024 * 1024, blackhole::consume);
+        }
+        try(final InputStream inputStream = Files.newInputStream(file)) {
+            return fileProcessorService.process(inputStream, 1000, blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to persist a batch of records through UserService.bulkPersistRecords, against embedded H2.
+ * Part of the batch matches existing names (updates), the rest are new names (inserts).
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PersistBenchmark {
+
+    private static final String EXISTING = "Existing ";
+
+    @Param({"10000"})
+    private int records;
+
+    // percentage of records that match existing names
+    @Param({"0", "50", "100"})
+    private int overlap;
+
+    @Param({"JPA", "JDBC"})
+    private String engine;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private JdbcTemplate jdbcTemplate;
+    private long baselineMaxId;
+    private List<UserBean> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start("dotsalary.persistence.engine=" + engine);
+        userService = context.getBean(UserService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        final Random random = new Random(42);
+        BenchmarkData.insertUsers(jdbcTemplate, EXISTING, records, random);
+        baselineMaxId = jdbcTemplate.queryForObject("SELECT MAX(ID) FROM users", Long.class);
+
+        final int existing = records * overlap / 100;
+        batch = new ArrayList<>(records);
+        for(int i = 0; i < records; i++) {
+            final String name = i < existing ? EXISTING + i : "New " + i;
+            batch.add(UserBean.builder().name(name).salary(BenchmarkData.salary(random)).build());
+        }
+        Collections.shuffle(batch, random);
+    }
+
+    /**
+     * Remove users inserted by previous invocation, so each invocation has the same overlap.
+     */
+    @Setup(Level.Invocation)
+    public void resetUsers() {
+        jdbcTemplate.update("DELETE FROM users WHERE ID > ?", baselineMaxId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int bulkPersistRecords() {
+        return userService.bulkPersistRecords(batch);
+    }
+}
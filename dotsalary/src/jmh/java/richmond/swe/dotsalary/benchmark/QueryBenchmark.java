@@ -0,0 +1,90 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.index.UserIndex;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get a page of users through UserQueryService.getUsers, for each sort field and offset depth, with and without
+ * the result cache.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QueryBenchmark {
+
+    private static final BigDecimal MIN = BigDecimal.ZERO;
+    private static final BigDecimal MAX = BigDecimal.valueOf(4000);
+    private static final int LIMIT = 100;
+
+    @Param({"100000"})
+    private int users;
+
+    // SortField name, NONE for no sort
+    @Param({"NONE", "NAME", "SALARY"})
+    private String sort;
+
+    @Param({"0", "1000", "50000"})
+    private int offset;
+
+    @Param({"DATABASE", "MEMORY"})
+    private String engine;
+
+    // IndexStorage name, for MEMORY engine
+    @Param({"HEAP"})
+    private String storage;
+
+    // 0 to measure the query engine, otherwise repeated queries are answered from the result cache
+    @Param({"0", "1000"})
+    private int cacheSize;
+
+    private ConfigurableApplicationContext context;
+    private UserQueryService userQueryService;
+    private String sortParam;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start("dotsalary.query.engine=" + engine,
+                "dotsalary.query.index-storage=" + storage,
+                "dotsalary.query.cache-size=" + cacheSize);
+        userQueryService = context.getBean(UserQueryService.class);
+        BenchmarkData.insertUsers(context.getBean(JdbcTemplate.class), "User ", users, new Random(42));
+        // users inserted behind the service, load them into index
+        context.getBean(UserIndex.class).onApplicationReady();
+        sortParam = "NONE".equals(sort) ? null : sort;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<UserBean> getUsers() {
+        return userQueryService.getUsers(MIN, MAX, offset, LIMIT, sortParam);
+    }
+}
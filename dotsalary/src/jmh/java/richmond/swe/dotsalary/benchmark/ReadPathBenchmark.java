@@ -0,0 +1,110 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.hibernate.jpa.QueryHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.repository.OffsetPageRequest;
+import richmond.swe.dotsalary.data.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read a page of 100k users through UserRepository, by how rows are materialized.
+ * Run with "-prof gc" to compare allocation per page.
+ *
+ * MANAGED reads entities with an unhinted query in a read-write transaction, as GET /users did before read only
+ * queries; entities are kept in the persistence context and dirty checked on commit. ENTITY reads entities through
+ * the read only finder. TUPLE reads JPA tuples, and ROW reads straight into rows through a constructor
+ * projection.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReadPathBenchmark {
+
+    private static final BigDecimal MIN = BigDecimal.ZERO;
+    private static final BigDecimal MAX = BigDecimal.valueOf(4000);
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"MANAGED", "ENTITY", "TUPLE", "ROW"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start();
+        userRepository = context.getBean(UserRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        BenchmarkData.insertUsers(context.getBean(JdbcTemplate.class), "User ", users, new Random(42));
+        pageable = OffsetPageRequest.builder()
+                .limit(users)
+                .sort(SortField.SALARY)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<?> readPage() {
+        switch(path) {
+            case "MANAGED":
+                return transactionTemplate.execute(status -> entityManager.createQuery(
+                                "from UserEntity t where t.salary BETWEEN :min AND :max order by t.salary, t.id",
+                                UserEntity.class)
+                        .setParameter("min", MIN)
+                        .setParameter("max", MAX)
+                        .setMaxResults(users)
+                        .getResultList());
+            case "ENTITY":
+                return userRepository.findBySalary(MIN, MAX, pageable);
+            case "TUPLE":
+                return entityManager.createQuery("select t.id, t.name, t.salary from UserEntity t"
+                                + " where t.salary BETWEEN :min AND :max order by t.salary, t.id", Tuple.class)
+                        .setHint(QueryHints.HINT_READONLY, true)
+                        .setParameter("min", MIN)
+                        .setParameter("max", MAX)
+                        .setMaxResults(users)
+                        .getResultList();
+            default:
+                return userRepository.findRowsBySalary(MIN, MAX, pageable);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package richmond.swe.dotsalary.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import richmond.swe.dotsalary.controller.dto.UsersDTO;
+import richmond.swe.dotsalary.data.Salary;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to filter and serialize a /users response of 100k users, by salary representation.
+ * Run with "-prof gc" to compare allocation per response.
+ *
+ * DECIMAL holds salaries as BigDecimal with 8 decimal places, as read from the SALARY column, and serializes them
+ * through Jackson. FIXED_POINT holds salaries as {@link Salary} and formats the scaled long directly.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SalaryBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"DECIMAL", "FIXED_POINT"})
+    private String salary;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Object response;
+
+    /**
+     * New salaries for each call, as read from the database for each query, since BigDecimal caches its string.
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+        final Random random = new Random(42);
+        final List<DecimalUserDTO> decimalUsers = new ArrayList<>();
+        final List<UsersDTO.UserDTO> fixedPointUsers = new ArrayList<>();
+        for(int i = 0; i < users; i++) {
+            final BigDecimal value = BenchmarkData.salary(random).setScale(Salary.SCALE);
+            decimalUsers.add(new DecimalUserDTO("User " + i, value));
+            fixedPointUsers.add(UsersDTO.UserDTO.builder().name("User " + i).salary(Salary.valueOf(value)).build());
+        }
+        if("DECIMAL".equals(salary)) {
+            response = new DecimalUsersDTO(decimalUsers);
+        } else {
+            response = UsersDTO.builder().results(fixedPointUsers).build();
+        }
+    }
+
+    @Benchmark
+    public int countPositive() {
+        int count = 0;
+        if(response instanceof DecimalUsersDTO) {
+            for(DecimalUserDTO user : ((DecimalUsersDTO) response).results) {
+                if(BigDecimal.ZERO.compareTo(user.salary) < 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        for(UsersDTO.UserDTO user : ((UsersDTO) response).getResults()) {
+            if(user.getSalary().signum() > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Response as before fixed point salaries.
+     */
+    public static class DecimalUsersDTO {
+        @JsonProperty("results")
+        public final List<DecimalUserDTO> results;
+
+        DecimalUsersDTO(final List<DecimalUserDTO> results) {
+            this.results = results;
+        }
+    }
+
+    public static class DecimalUserDTO {
+        @JsonProperty("name")
+        public final String name;
+        @JsonProperty("salary")
+        public final BigDecimal salary;
+
+        DecimalUserDTO(final String name, final BigDecimal salary) {
+            this.name = name;
+            this.salary = salary;
+        }
+    }
+}
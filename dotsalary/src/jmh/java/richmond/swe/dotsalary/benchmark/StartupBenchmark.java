@@ -0,0 +1,71 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to start the application with the persistent profile, by number of users already in the database, and by
+ * query engine, since MEMORY loads all users into the index on start up.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StartupBenchmark {
+
+    @Param({"0", "100000", "1000000"})
+    private int users;
+
+    @Param({"DATABASE", "MEMORY"})
+    private String engine;
+
+    private Path storageDir;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("benchmark-storage");
+        try(ConfigurableApplicationContext context = BenchmarkData.startPersistent(storageDir)) {
+            BenchmarkData.insertUsers(context.getBean(JdbcTemplate.class), "User ", users, new Random(42));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(storageDir);
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        context = BenchmarkData.startPersistent(storageDir, "dotsalary.query.engine=" + engine);
+        return context;
+    }
+}
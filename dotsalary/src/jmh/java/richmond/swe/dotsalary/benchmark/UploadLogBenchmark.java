@@ -0,0 +1,100 @@
+package richmond.swe.dotsalary.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until UserService.bulkPersistRecords acknowledges chunks of records, with the JDBC engine, committing to the
+ * database or appending to the upload log. Measured for a steady stream of chunks, and for a burst of chunks within
+ * the apply queue capacity.
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UploadLogBenchmark {
+
+    private static final int BURST = 50;
+
+    @Param({"1000"})
+    private int records;
+
+    @Param({"false", "true"})
+    private boolean writeAheadLog;
+
+    private Path logDir;
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private List<UserBean> chunk;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logDir = Files.createTempDirectory("benchmark-log");
+        context = BenchmarkData.start("dotsalary.persistence.engine=JDBC",
+                "dotsalary.persistence.write-ahead-log=" + writeAheadLog,
+                "dotsalary.persistence.log-dir=" + logDir);
+        userService = context.getBean(UserService.class);
+        final Random random = new Random(42);
+        chunk = new ArrayList<>(records);
+        for(int i = 0; i < records; i++) {
+            chunk.add(UserBean.builder().name("User " + random.nextInt(100_000))
+                    .salary(BenchmarkData.salary(random)).build());
+        }
+    }
+
+    /**
+     * Let logged chunks be applied, so each burst starts with an empty apply queue.
+     */
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        if(writeAheadLog) {
+            Thread.sleep(5000);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(logDir);
+    }
+
+    @Benchmark
+    public int bulkPersistRecords() {
+        return userService.bulkPersistRecords(chunk);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BURST)
+    @Measurement(iterations = 5, batchSize = BURST)
+    public int burst() {
+        return userService.bulkPersistRecords(chunk);
+    }
+}
@@ -2,8 +2,11 @@ package richmond.swe.dotsalary;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(DotsalaryProperties.class)
 public class DotsalaryApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,175 @@
+package richmond.swe.dotsalary.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Application properties, prefix "dotsalary".
+ * @author richmondchng
+ */
+@Getter
+@ConfigurationProperties(prefix = "dotsalary")
+public class DotsalaryProperties {
+
+    private final Upload upload = new Upload();
+    private final Persistence persistence = new Persistence();
+    private final Query query = new Query();
+    private final Jobs jobs = new Jobs();
+
+    /**
+     * Properties for /upload.
+     */
+    @Getter
+    @Setter
+    public static class Upload {
+        /**
+         * How uploaded records are handed to persistence.
+         */
+        private UploadMode mode = UploadMode.BATCH;
+        /**
+         * Number of records persisted at a time, when not in BATCH mode.
+         */
+        private int chunkSize = 1000;
+        /**
+         * Approximate number of bytes of file parsed per task, in PARALLEL mode.
+         */
+        private int parallelChunkBytes = 1024 * 1024;
+        /**
+         * Number of records sorted in memory per run, when removing repeated names on disk before persisting
+         * chunked uploads, 0 to persist chunks as parsed.
+         */
+        private int dedupRunSize = 0;
+        /**
+         * Directory where sorted runs are kept while removing repeated names, defaults to system temp directory.
+         */
+        private String dedupSpillDir = System.getProperty("java.io.tmpdir");
+        /**
+         * Number of threads persisting records while the file is parsed, in PIPELINED mode.
+         */
+        private int pipelineWorkers = 2;
+        /**
+         * Number of chunks queued per worker before the parser waits, in PIPELINED mode.
+         */
+        private int pipelineQueueCapacity = 4;
+        /**
+         * Max number of connections held by PIPELINED uploads at a time, one per worker until the upload commits, so
+         * uploads beyond it wait instead of holding part of the connection pool. Should be below the pool size.
+         */
+        private int pipelineConnections = 8;
+        /**
+         * Milliseconds since the last checkpoint of a CHUNKED upload after which its claim is stale, and another
+         * attempt of the same file may take it over. Should be longer than persisting a chunk takes.
+         */
+        private long checkpointClaimTimeout = 5L * 60 * 1000;
+        /**
+         * Milliseconds since the last checkpoint of a CHUNKED upload after which the checkpoint is deleted, when the
+         * file is not uploaded again. Should be longer than the claim timeout.
+         */
+        private long checkpointTtl = 7L * 24 * 60 * 60 * 1000;
+    }
+
+    /**
+     * Properties for persisting uploaded records.
+     */
+    @Getter
+    @Setter
+    public static class Persistence {
+        /**
+         * How records are written to the database.
+         */
+        private PersistenceEngine engine = PersistenceEngine.JPA;
+        /**
+         * Number of statements per JDBC batch, for JDBC engine.
+         */
+        private int batchSize = 500;
+        /**
+         * Max number of names per IN clause, when looking up existing records.
+         */
+        private int lookupChunkSize = 1000;
+        /**
+         * Acknowledge uploaded records once written to the upload log, and apply them to the database in the
+         * background.
+         */
+        private boolean writeAheadLog = false;
+        /**
+         * Directory of upload log segments and snapshots.
+         */
+        private String logDir = "./upload-log";
+        /**
+         * Segment size in bytes after which a new segment is started, and closed segments are compacted into a
+         * snapshot.
+         */
+        private long logCompactBytes = 64L * 1024 * 1024;
+        /**
+         * Number of logged uploads waiting to be applied to the database, before further uploads wait.
+         */
+        private int logApplyQueueCapacity = 100;
+    }
+
+    /**
+     * Properties for /users.
+     */
+    @Getter
+    @Setter
+    public static class Query {
+        /**
+         * How /users queries are answered.
+         */
+        private QueryEngine engine = QueryEngine.DATABASE;
+        /**
+         * Where columns of the in-memory index are kept, for MEMORY engine.
+         */
+        private IndexStorage indexStorage = IndexStorage.HEAP;
+        /**
+         * Directory of memory-mapped index files, for MAPPED index storage, defaults to system temp directory.
+         */
+        private String indexDir = System.getProperty("java.io.tmpdir");
+        /**
+         * Milliseconds from a commit until changes are applied to the in-memory index, together with changes
+         * committed in the meantime, for MEMORY engine.
+         */
+        private long indexRefreshInterval = 100;
+        /**
+         * Number of /users results cached, 0 to disable cache.
+         */
+        private int cacheSize = 1000;
+        /**
+         * Results with more users than this are not cached.
+         */
+        private int cacheMaxResults = 10000;
+        /**
+         * Write /users results as JSON bytes serialized once per cached result, with ETag of the data version.
+         */
+        private boolean preSerialized = false;
+        /**
+         * Read salaries near min and max of /users/stats from the salary index on each request, so count and sum are
+         * exact, instead of estimating them from salary statistics.
+         */
+        private boolean statsExactEdges = false;
+    }
+
+    /**
+     * Properties for asynchronous upload jobs.
+     */
+    @Getter
+    @Setter
+    public static class Jobs {
+        /**
+         * Number of jobs processed at the same time.
+         */
+        private int threads = 2;
+        /**
+         * Number of jobs waiting to be processed, further uploads are rejected.
+         */
+        private int queueCapacity = 10;
+        /**
+         * Directory where uploaded files are kept until processed, defaults to system temp directory.
+         */
+        private String spoolDir = System.getProperty("java.io.tmpdir");
+        /**
+         * Number of finished jobs kept for status queries.
+         */
+        private int maxRetained = 1000;
+    }
+}
@@ -0,0 +1,20 @@
+package richmond.swe.dotsalary.config;
+
+/**
+ * Enum for where columns of the in-memory user index are kept.
+ * @author richmondchng
+ */
+public enum IndexStorage {
+    /**
+     * Primitive arrays on the Java heap.
+     */
+    HEAP,
+    /**
+     * Direct buffers outside the Java heap, limited by -XX:MaxDirectMemorySize.
+     */
+    DIRECT,
+    /**
+     * Memory-mapped temporary files, paged in and out by the operating system.
+     */
+    MAPPED
+}
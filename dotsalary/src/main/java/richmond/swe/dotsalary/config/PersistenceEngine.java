@@ -0,0 +1,16 @@
+package richmond.swe.dotsalary.config;
+
+/**
+ * Enum for engine used to persist uploaded records.
+ * @author richmondchng
+ */
+public enum PersistenceEngine {
+    /**
+     * Load existing entities, update them and save through JPA.
+     */
+    JPA,
+    /**
+     * Upsert with batched JDBC MERGE statements, without loading entities.
+     */
+    JDBC
+}
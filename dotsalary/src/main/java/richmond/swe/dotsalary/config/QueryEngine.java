@@ -0,0 +1,16 @@
+package richmond.swe.dotsalary.config;
+
+/**
+ * Enum for engine used to answer /users queries.
+ * @author richmondchng
+ */
+public enum QueryEngine {
+    /**
+     * Query database through JPA.
+     */
+    DATABASE,
+    /**
+     * Query in-memory sorted index, refreshed after uploads are committed.
+     */
+    MEMORY
+}
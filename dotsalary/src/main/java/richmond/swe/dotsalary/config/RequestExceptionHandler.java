@@ -10,6 +10,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import richmond.swe.dotsalary.controller.dto.UploadDTO;
 import richmond.swe.dotsalary.exception.BulkRecordProcessException;
 import richmond.swe.dotsalary.exception.FileProcessException;
+import richmond.swe.dotsalary.exception.UploadJobNotFoundException;
+import richmond.swe.dotsalary.exception.UploadJobRejectedException;
 
 /**
  * Exception handler.
@@ -64,6 +66,36 @@ public class RequestExceptionHandler {
                         .build());
     }
 
+    /**
+     * Error handling for UploadJobNotFoundException.
+     *
+     * @param ex UploadJobNotFoundException
+     * @return ResponseEntity
+     */
+    @ExceptionHandler(value = {UploadJobNotFoundException.class})
+    public ResponseEntity<ErrorBody> handleUploadJobNotFoundException(final UploadJobNotFoundException ex) {
+        log.error("UploadJobNotFoundException when processing request {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ErrorBody.builder()
+                        .error(ex.getMessage())
+                        .build());
+    }
+
+    /**
+     * Error handling for UploadJobRejectedException.
+     *
+     * @param ex UploadJobRejectedException
+     * @return ResponseEntity
+     */
+    @ExceptionHandler(value = {UploadJobRejectedException.class})
+    public ResponseEntity<ErrorBody> handleUploadJobRejectedException(final UploadJobRejectedException ex) {
+        log.error("UploadJobRejectedException when processing request {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ErrorBody.builder()
+                        .error(ex.getMessage())
+                        .build());
+    }
+
     @Builder
     @Getter
     static class ErrorBody {
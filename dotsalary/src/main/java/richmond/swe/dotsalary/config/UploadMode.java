@@ -0,0 +1,31 @@
+package richmond.swe.dotsalary.config;
+
+/**
+ * Enum for upload processing mode.
+ * @author richmondchng
+ */
+public enum UploadMode {
+    /**
+     * Parse the whole file, then persist all records.
+     */
+    BATCH,
+    /**
+     * Persist records in chunks while the file is being parsed, in a single transaction.
+     */
+    STREAMING,
+    /**
+     * Spool file to disk, parse chunks of the file on multiple threads, and persist records in chunks as they are
+     * parsed, in a single transaction.
+     */
+    PARALLEL,
+    /**
+     * Persist records in chunks while the file is being parsed, committing each chunk with a checkpoint, so a failed
+     * upload of the same file resumes after the last committed chunk.
+     */
+    CHUNKED,
+    /**
+     * Persist records on worker threads while the file is being parsed, with records partitioned by name between
+     * workers. Parser waits when workers fall behind. Workers commit only if the whole file succeeded.
+     */
+    PIPELINED
+}
@@ -0,0 +1,131 @@
+package richmond.swe.dotsalary.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.controller.dto.UploadDTO;
+import richmond.swe.dotsalary.exception.BulkRecordProcessException;
+import richmond.swe.dotsalary.exception.FileProcessException;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.csv.UserCsvDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Non-blocking controller for upload, when running as a reactive web application.
+ *
+ * File content is decoded as it arrives, and records are persisted in chunks on a scheduler for blocking calls, all
+ * within a single transaction, same as the STREAMING upload mode, so a file that fails part way keeps nothing. The
+ * blocking thread and its transaction are held until the whole file has arrived.
+ * @author richmondchng
+ */
+@AllArgsConstructor
+@RestController
+@RequestMapping("/upload")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveUploadController {
+
+    private static final String FILE_PART = "file";
+
+    private final UserService userService;
+    private final DotsalaryProperties properties;
+
+    /**
+     * Upload and process CSV file.
+     * @param parts multipart parts, with the csv text file in part "file"
+     * @return success = 1 if success, 0 if failed
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<UploadDTO> uploadData(@RequestBody final Flux<Part> parts) {
+        // parts are consumed in order, other parts are drained
+        return parts.concatMap(part -> FILE_PART.equals(part.name()) && part instanceof FilePart
+                        ? persistFile((FilePart) part).flux()
+                        : part.content().doOnNext(DataBufferUtils::release).thenMany(Flux.empty()))
+                .next()
+                .switchIfEmpty(Mono.error(() -> new FileProcessException("Missing file part", null)))
+                .map(result -> UploadDTO.builder().success(result).build());
+    }
+
+    /**
+     * Decode and persist file content in chunks, within a single transaction.
+     * Decoded chunks are taken one at a time as they are persisted, so no more than one chunk is read ahead.
+     * @param file file part
+     * @return 1 if success
+     */
+    private Mono<Integer> persistFile(final FilePart file) {
+        final MediaType contentType = file.headers().getContentType();
+        if(contentType == null || !"text/csv".equalsIgnoreCase(contentType.toString())) {
+            return file.content().doOnNext(DataBufferUtils::release)
+                    .then(Mono.error(() -> new FileProcessException("Not a CSV file", null)));
+        }
+        final int chunkSize = properties.getUpload().getChunkSize();
+        final Flux<List<UserBean>> chunks = Flux.defer(() -> {
+                    final UserCsvDecoder decoder = new UserCsvDecoder();
+                    return file.content()
+                            .concatMapIterable(buffer -> decode(decoder, buffer))
+                            .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.finish())));
+                })
+                .onErrorMap(e -> {
+                    log.error("Exception caught {}", e.getMessage(), e);
+                    return new FileProcessException(e.getMessage(), e);
+                })
+                .buffer(chunkSize);
+        return Mono.fromCallable(() -> userService.streamPersistRecords(consumer -> forEachChunk(chunks, consumer)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof FileProcessException) && !(e instanceof BulkRecordProcessException),
+                        e -> {
+                            log.error("Exception caught {}", e.getMessage(), e);
+                            return new BulkRecordProcessException(e.getMessage(), e);
+                        });
+    }
+
+    /**
+     * Hand chunks to consumer, blocking until each chunk is decoded.
+     * Closing the stream cancels the file content, when the consumer fails before the file is completely read.
+     * @param chunks decoded chunks
+     * @param consumer chunk consumer
+     * @return number of records
+     */
+    private static int forEachChunk(final Flux<List<UserBean>> chunks,
+                                    final Consumer<Collection<UserBean>> consumer) {
+        int count = 0;
+        try(Stream<List<UserBean>> stream = chunks.toStream(1)) {
+            final Iterator<List<UserBean>> iterator = stream.iterator();
+            while(iterator.hasNext()) {
+                final List<UserBean> chunk = iterator.next();
+                consumer.accept(chunk);
+                count += chunk.size();
+            }
+        }
+        return count;
+    }
+
+    private static List<UserBean> decode(final UserCsvDecoder decoder, final DataBuffer buffer) {
+        try {
+            final ByteBuffer bytes = buffer.asByteBuffer();
+            return decoder.decode(bytes);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package richmond.swe.dotsalary.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import richmond.swe.dotsalary.controller.dto.UsersDTO;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.bean.UserPageBean;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking controller for users, when running as a reactive web application.
+ *
+ * Users are read a page at a time with keyset pagination, on a scheduler for blocking calls, and each page is only read
+ * when the client has taken the previous one. A slow client holds neither a thread nor a database connection
+ * between pages. Clients continue from the "next" cursor rather than by offset.
+ * @author richmondchng
+ */
+@AllArgsConstructor
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUsersController {
+
+    // users read per database round trip
+    static final int PAGE_SIZE = 1000;
+
+    private static final byte[] PREFIX = "{\"results\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    private final UserQueryService userQueryService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Controller to get users, writing users to the response as they are read.
+     * Same response as the servlet /users with a cursor, sorted by the sort field then by id, with the cursor for the
+     * next page in "next" when limit is reached before the last page. Offset is not supported, as each page skipped
+     * would be read.
+     * @param min min salary
+     * @param max max salary
+     * @param offset not supported, rejected when passed
+     * @param limit number of users to get, upper bound
+     * @param sort sort by field ascending
+     * @param cursor keyset pagination, empty for first page, then "next" from previous response
+     * @return streamed list of users
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getUsers(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
+                                    @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max,
+                                    @RequestParam(name = "offset", required = false) final Integer offset,
+                                    @RequestParam(name = "limit", required = false) final Integer limit,
+                                    @RequestParam(name = "sort", required = false) final String sort,
+                                    @RequestParam(name = "cursor", required = false, defaultValue = "") final String cursor) {
+        if(offset != null) {
+            throw new IllegalArgumentException("Offset not supported, use cursor");
+        }
+        if(limit != null && limit < 1) {
+            throw new IllegalArgumentException("Invalid limit parameter");
+        }
+        // read first page before response is started, so invalid parameters are returned as errors
+        // pages are sized to end at limit, so the cursor of the last page read continues after the last user written
+        final long needed = limit == null ? Long.MAX_VALUE : limit;
+        return readPage(min, max, pageSize(needed), sort, cursor).flatMapMany(first -> {
+            final long[] remaining = {needed};
+            final String[] next = {null};
+            final Flux<UserBean> users = Mono.just(first).expand(page -> {
+                remaining[0] -= page.getResults().size();
+                next[0] = page.getNext();
+                return page.getNext() == null || remaining[0] <= 0 ? Mono.empty()
+                        : readPage(min, max, pageSize(remaining[0]), sort, page.getNext());
+            })
+                    .concatMapIterable(UserPageBean::getResults, 1);
+            return writeUsers(users, () -> next[0], DefaultDataBufferFactory.sharedInstance);
+        });
+    }
+
+    private static int pageSize(final long remaining) {
+        return (int) Math.min(PAGE_SIZE, remaining);
+    }
+
+    private Mono<UserPageBean> readPage(final BigDecimal min, final BigDecimal max, final int pageSize,
+                                        final String sort, final String cursor) {
+        return Mono.fromCallable(() -> userQueryService.getUsersPage(min, max, pageSize, sort, cursor))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Write users as {"results":[{"name":...,"salary":...},...],"next":...}, one buffer per page of users.
+     * @param users users
+     * @param next cursor for next page, taken once all users are written, null if none
+     * @param bufferFactory buffer factory
+     * @return response buffers
+     */
+    private Flux<DataBuffer> writeUsers(final Flux<UserBean> users, final Supplier<String> next,
+                                        final DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            final boolean[] first = {true};
+            final Flux<DataBuffer> body = users.buffer(PAGE_SIZE).map(page -> {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for(UserBean user : page) {
+                    if(!first[0]) {
+                        bytes.write(',');
+                    }
+                    first[0] = false;
+                    bytes.writeBytes(serialize(user));
+                }
+                return bufferFactory.wrap(bytes.toByteArray());
+            });
+            return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(PREFIX)), body,
+                    Mono.fromSupplier(() -> bufferFactory.wrap(suffix(next.get()))));
+        });
+    }
+
+    private byte[] suffix(final String next) {
+        if(next == null) {
+            return SUFFIX;
+        }
+        try {
+            return ("],\"next\":" + objectMapper.writeValueAsString(next) + "}").getBytes(StandardCharsets.UTF_8);
+        } catch(JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize cursor", e);
+        }
+    }
+
+    private byte[] serialize(final UserBean user) {
+        try {
+            return objectMapper.writeValueAsBytes(UsersDTO.UserDTO.builder()
+                    .name(user.getName())
+                    .salary(user.getSalary())
+                    .build());
+        } catch(JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize user", e);
+        }
+    }
+}
@@ -2,21 +2,30 @@ package richmond.swe.dotsalary.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.UploadMode;
 import richmond.swe.dotsalary.controller.dto.UploadDTO;
 import richmond.swe.dotsalary.exception.BulkRecordProcessException;
 import richmond.swe.dotsalary.exception.FileProcessException;
 import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.PipelinedUploadService;
+import richmond.swe.dotsalary.service.RecordChunkSource;
+import richmond.swe.dotsalary.service.ResumableUploadService;
 import richmond.swe.dotsalary.service.UserService;
 import richmond.swe.dotsalary.service.bean.UserBean;
 
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 /**
  * Controller for upload.
@@ -25,11 +34,15 @@ import java.util.Collection;
 @AllArgsConstructor
 @RestController
 @RequestMapping("/upload")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Slf4j
 public class UploadController {
 
     private final FileProcessorService fileProcessorService;
     private final UserService userService;
+    private final ResumableUploadService resumableUploadService;
+    private final PipelinedUploadService pipelinedUploadService;
+    private final DotsalaryProperties properties;
 
     /**
      * Upload and process CSV file.
@@ -38,6 +51,15 @@ public class UploadController {
      */
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<UploadDTO> uploadData(@RequestParam(name = "file") final MultipartFile file)  {
+        if(properties.getUpload().getMode() == UploadMode.STREAMING
+                || properties.getUpload().getMode() == UploadMode.PARALLEL
+                || properties.getUpload().getMode() == UploadMode.PIPELINED) {
+            return ResponseEntity.ok(UploadDTO.builder().success(streamData(file)).build());
+        }
+        if(properties.getUpload().getMode() == UploadMode.CHUNKED) {
+            return ResponseEntity.ok(UploadDTO.builder().success(chunkedData(file)).build());
+        }
+
         final Collection<UserBean> records;
         try {
             records = fileProcessorService.process(file);
@@ -58,4 +80,75 @@ public class UploadController {
 
         return ResponseEntity.ok(UploadDTO.builder().success(result).build());
     }
+
+    /**
+     * Parse and persist CSV file in chunks, in a single transaction.
+     * In PARALLEL mode, chunks of the file are parsed on multiple threads.
+     * In PIPELINED mode, chunks are persisted on worker threads, each in its own transaction.
+     * @param file csv text file
+     * @return 1 if success, 0 if failed
+     */
+    private int streamData(final MultipartFile file) {
+        final int chunkSize = properties.getUpload().getChunkSize();
+        final boolean parallel = properties.getUpload().getMode() == UploadMode.PARALLEL;
+        final int chunkBytes = properties.getUpload().getParallelChunkBytes();
+        final RecordChunkSource source = persister -> parallel
+                ? fileProcessorService.processParallel(file, chunkSize, chunkBytes,
+                        chunk -> persistChunk(persister, chunk))
+                : fileProcessorService.process(file, chunkSize, chunk -> persistChunk(persister, chunk));
+        try {
+            if(properties.getUpload().getMode() == UploadMode.PIPELINED) {
+                return pipelinedUploadService.persistRecords(source);
+            }
+            return userService.streamPersistRecords(source);
+        } catch(BulkRecordProcessException e) {
+            throw e;
+        } catch(TransactionException e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            throw new BulkRecordProcessException(e.getMessage(), e);
+        } catch(Exception e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            throw new FileProcessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse and persist CSV file in chunks, committing each chunk with a checkpoint.
+     * A failed upload of the same file resumes after the last committed chunk.
+     * @param file csv text file
+     * @return 1 if success, 0 if failed
+     */
+    private int chunkedData(final MultipartFile file) {
+        final int chunkSize = properties.getUpload().getChunkSize();
+        try {
+            final String uploadId;
+            try(final InputStream inputStream = file.getInputStream()) {
+                uploadId = resumableUploadService.uploadId(inputStream);
+            }
+            return resumableUploadService.persistRecords(uploadId, persister ->
+                    fileProcessorService.process(file, chunkSize, chunk -> persistChunk(persister, chunk)));
+        } catch(BulkRecordProcessException e) {
+            throw e;
+        } catch(TransactionException e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            throw new BulkRecordProcessException(e.getMessage(), e);
+        } catch(Exception e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            throw new FileProcessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hand chunk to persister, so that persistence errors are not mistaken for file errors.
+     * @param persister chunk persister
+     * @param chunk records
+     */
+    private void persistChunk(final Consumer<Collection<UserBean>> persister, final Collection<UserBean> chunk) {
+        try {
+            persister.accept(chunk);
+        } catch(Exception e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            throw new BulkRecordProcessException(e.getMessage(), e);
+        }
+    }
 }
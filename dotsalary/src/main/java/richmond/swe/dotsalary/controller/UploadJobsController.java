@@ -0,0 +1,66 @@
+package richmond.swe.dotsalary.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import richmond.swe.dotsalary.controller.dto.UploadJobDTO;
+import richmond.swe.dotsalary.service.bean.UploadJobBean;
+import richmond.swe.dotsalary.service.job.UploadJobService;
+
+import java.io.IOException;
+
+/**
+ * Controller for asynchronous upload jobs.
+ * @author richmondchng
+ */
+@AllArgsConstructor
+@RestController
+@RequestMapping("/upload/jobs")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UploadJobsController {
+
+    private final UploadJobService uploadJobService;
+
+    /**
+     * Accept CSV file for processing in the background.
+     * @param file csv text file
+     * @return job id and status
+     * @throws IOException if file cannot be spooled
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadJobDTO> submitJob(@RequestParam(name = "file") final MultipartFile file)
+            throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(mapToBean(uploadJobService.submit(file)));
+    }
+
+    /**
+     * Get job status.
+     * @param id job id
+     * @return job status and row counts
+     */
+    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadJobDTO> getJob(@PathVariable(name = "id") final String id) {
+        return ResponseEntity.ok(mapToBean(uploadJobService.getJob(id)));
+    }
+
+    private UploadJobDTO mapToBean(final UploadJobBean serviceBean) {
+        return UploadJobDTO.builder()
+                .jobId(serviceBean.getId())
+                .status(serviceBean.getStatus().name())
+                .rowsParsed(serviceBean.getRowsParsed())
+                .rowsPersisted(serviceBean.getRowsPersisted())
+                .rowsSkipped(serviceBean.getRowsSkipped())
+                .elapsedMillis(serviceBean.getElapsedMillis())
+                .error(serviceBean.getError())
+                .build();
+    }
+}
@@ -1,18 +1,44 @@
 package richmond.swe.dotsalary.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.controller.dto.SalaryHistogramDTO;
+import richmond.swe.dotsalary.controller.dto.SalarySerializer;
+import richmond.swe.dotsalary.controller.dto.SalaryStatsDTO;
+import richmond.swe.dotsalary.controller.dto.UserCountDTO;
 import richmond.swe.dotsalary.controller.dto.UsersDTO;
-import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.UserRowSource;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.UserStatsService;
+import richmond.swe.dotsalary.service.bean.SalaryBucketBean;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
 import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.bean.UserPageBean;
+import richmond.swe.dotsalary.service.cache.UserQueryResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -22,9 +48,13 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @RestController
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UsersController {
 
-    private final UserService userService;
+    private final UserQueryService userQueryService;
+    private final UserStatsService userStatsService;
+    private final ObjectMapper objectMapper;
+    private final DotsalaryProperties properties;
 
     /**
      * Controller to get users.
@@ -33,18 +63,186 @@ public class UsersController {
      * @param offset offset to start, lower bound
      * @param limit number of users to get, upper bound
      * @param sort sort by field ascending
+     * @param cursor keyset pagination, empty for first page, then "next" from previous page; offset is not used
+     * @param webRequest request, for If-None-Match of pre-serialized responses
      * @return list of users
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<UsersDTO> getUsers(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
-                                             @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max,
-                                             @RequestParam(name = "offset", required = false, defaultValue = "0") final Integer offset,
-                                             @RequestParam(name = "limit", required = false) final Integer limit,
-                                             @RequestParam(name = "sort", required = false) final String sort) {
-        final Collection<UserBean> results = userService.getUsers(min, max, offset, limit, sort);
+    public ResponseEntity<?> getUsers(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
+                                      @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max,
+                                      @RequestParam(name = "offset", required = false, defaultValue = "0") final Integer offset,
+                                      @RequestParam(name = "limit", required = false) final Integer limit,
+                                      @RequestParam(name = "sort", required = false) final String sort,
+                                      @RequestParam(name = "cursor", required = false) final String cursor,
+                                      final WebRequest webRequest) {
+        if(cursor != null) {
+            final UserPageBean page = userQueryService.getUsersPage(min, max, limit, sort, cursor);
+            return ResponseEntity.ok(UsersDTO.builder()
+                    .results(page.getResults().stream().map(this::mapToBean).collect(Collectors.toList()))
+                    .next(page.getNext())
+                    .build());
+        }
+        if(properties.getQuery().isPreSerialized()) {
+            return getUsersSerialized(min, max, offset, limit, sort, webRequest);
+        }
+        final Collection<UserBean> results = userQueryService.getUsers(min, max, offset, limit, sort);
         return ResponseEntity.ok(mapToBeans(results));
     }
 
+    /**
+     * Get users as JSON bytes, serialized once per cached result and tagged with the data version.
+     * Parameters are checked first, then 304 is returned without querying when If-None-Match matches the current
+     * version, following the If-None-Match rules of weak tags, lists of tags and "*".
+     */
+    private ResponseEntity<byte[]> getUsersSerialized(final BigDecimal min, final BigDecimal max, final Integer offset,
+                                                      final Integer limit, final String sort,
+                                                      final WebRequest webRequest) {
+        userQueryService.checkUsersQuery(min, max, offset, limit, sort);
+        final String eTag = toETag(userQueryService.getDataVersion());
+        if(webRequest.checkNotModified(eTag)) {
+            // 304 with ETag already set on the response
+            return null;
+        }
+        if("*".equals(StringUtils.trim(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH)))) {
+            // matches any current version, not matched by checkNotModified
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .build();
+        }
+        final UserQueryResult result = userQueryService.getUsersResult(min, max, offset, limit, sort);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(toETag(result.getVersion()))
+                .body(result.serialize(this::serialize));
+    }
+
+    /**
+     * Serialize users, same as the response of {@link #getUsers} when not pre-serialized.
+     * @param results user beans
+     * @return JSON bytes
+     */
+    private byte[] serialize(final Collection<UserBean> results) {
+        try {
+            return objectMapper.writeValueAsBytes(mapToBeans(results));
+        } catch(JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize users", e);
+        }
+    }
+
+    private static String toETag(final long version) {
+        return "\"" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * Controller to count users.
+     * @param min min salary
+     * @param max max salary
+     * @return number of users
+     */
+    @GetMapping(path = "/count", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserCountDTO> countUsers(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
+                                                   @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max) {
+        return ResponseEntity.ok(UserCountDTO.builder()
+                .count(userStatsService.countUsers(min, max))
+                .build());
+    }
+
+    /**
+     * Controller to count users in salary buckets of equal width.
+     * @param min min salary
+     * @param max max salary
+     * @param width bucket width
+     * @return buckets with users
+     */
+    @GetMapping(path = "/histogram", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SalaryHistogramDTO> getSalaryHistogram(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
+                                                                 @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max,
+                                                                 @RequestParam(name = "width", required = false, defaultValue = "100") final BigDecimal width) {
+        final List<SalaryBucketBean> buckets = userStatsService.getSalaryHistogram(min, max, width);
+        return ResponseEntity.ok(SalaryHistogramDTO.builder()
+                .buckets(buckets.stream()
+                        .map(b -> SalaryHistogramDTO.BucketDTO.builder()
+                                .from(b.getFrom())
+                                .to(b.getTo())
+                                .count(b.getCount())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build());
+    }
+
+    /**
+     * Controller to get salary statistics of users, without listing users.
+     * @param min min salary
+     * @param max max salary
+     * @return count, sum, min, max, mean and percentiles of salaries
+     */
+    @GetMapping(path = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SalaryStatsDTO> getSalaryStats(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
+                                                         @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max) {
+        final SalaryStatsBean stats = userStatsService.getSalaryStats(min, max);
+        final Map<String, BigDecimal> percentiles = new LinkedHashMap<>();
+        stats.getPercentiles().forEach((percentile, salary) -> percentiles.put("p" + percentile, salary));
+        return ResponseEntity.ok(SalaryStatsDTO.builder()
+                .count(stats.getCount())
+                .sum(stats.getSum())
+                .min(stats.getMin())
+                .max(stats.getMax())
+                .mean(stats.getMean())
+                .percentiles(percentiles)
+                .build());
+    }
+
+    /**
+     * Controller to get users, writing each user to the response as it is read.
+     * Same response as {@link #getUsers}, without holding the results in memory.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start, lower bound
+     * @param limit number of users to get, upper bound
+     * @param sort sort by field ascending
+     * @return streamed list of users
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(name = "min", required = false, defaultValue = "0") final BigDecimal min,
+                                                             @RequestParam(name = "max", required = false, defaultValue = "4000") final BigDecimal max,
+                                                             @RequestParam(name = "offset", required = false, defaultValue = "0") final Integer offset,
+                                                             @RequestParam(name = "limit", required = false) final Integer limit,
+                                                             @RequestParam(name = "sort", required = false) final String sort) {
+        // check parameters before response is started
+        final UserRowSource source = userQueryService.streamUsers(min, max, offset, limit, sort);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> writeUsers(source, outputStream));
+    }
+
+    /**
+     * Write users as {"results":[{"name":...,"salary":...},...]}.
+     * @param source source of user rows
+     * @param outputStream response output stream
+     * @throws IOException if response cannot be written
+     */
+    private void writeUsers(final UserRowSource source, final OutputStream outputStream) throws IOException {
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("results");
+            source.forEachRow((id, name, salary) -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", name);
+                    generator.writeFieldName("salary");
+                    SalarySerializer.write(salary, generator);
+                    generator.writeEndObject();
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     private UsersDTO mapToBeans(final Collection<UserBean> serviceBeans) {
         return UsersDTO.builder()
                 .results(serviceBeans.stream()
@@ -0,0 +1,34 @@
+package richmond.swe.dotsalary.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Response for /users/histogram
+ * @author richmondchng
+ */
+@Builder
+@Getter
+public class SalaryHistogramDTO {
+
+    // buckets with users, in ascending order
+    @JsonProperty("buckets")
+    private Collection<BucketDTO> buckets;
+
+    @Builder
+    @Getter
+    public static class BucketDTO {
+        // inclusive
+        @JsonProperty("from")
+        private BigDecimal from;
+        // exclusive
+        @JsonProperty("to")
+        private BigDecimal to;
+        @JsonProperty("count")
+        private long count;
+    }
+}
@@ -0,0 +1,40 @@
+package richmond.swe.dotsalary.controller.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import richmond.swe.dotsalary.data.Salary;
+
+import java.io.IOException;
+
+/**
+ * Writes salary as a JSON number with 8 decimal places, formatted from the scaled long without BigDecimal.
+ * @author richmondchng
+ */
+public class SalarySerializer extends StdSerializer<Salary> {
+
+    // reused for each salary written on the thread
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[Salary.MAX_CHARS]);
+
+    public SalarySerializer() {
+        super(Salary.class);
+    }
+
+    @Override
+    public void serialize(final Salary value, final JsonGenerator generator, final SerializerProvider provider)
+            throws IOException {
+        write(value, generator);
+    }
+
+    /**
+     * Write salary as a JSON number.
+     * @param value salary
+     * @param generator JSON generator
+     * @throws IOException if salary cannot be written
+     */
+    public static void write(final Salary value, final JsonGenerator generator) throws IOException {
+        final char[] buffer = BUFFER.get();
+        // written as is, without going through String
+        generator.writeRawValue(buffer, 0, value.getChars(buffer, 0));
+    }
+}
@@ -0,0 +1,42 @@
+package richmond.swe.dotsalary.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Response for /users/stats
+ * @author richmondchng
+ */
+@Builder
+@Getter
+public class SalaryStatsDTO {
+
+    @JsonProperty("count")
+    private long count;
+
+    @JsonProperty("sum")
+    private BigDecimal sum;
+
+    // min, max, mean and percentiles only when count is more than 0
+    @JsonProperty("min")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal min;
+
+    @JsonProperty("max")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal max;
+
+    @JsonProperty("mean")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal mean;
+
+    // salary by percentile, e.g. "p50"
+    @JsonProperty("percentiles")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, BigDecimal> percentiles;
+}
@@ -0,0 +1,38 @@
+package richmond.swe.dotsalary.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Response for /upload/jobs
+ * @author richmondchng
+ */
+@Builder
+@Getter
+public class UploadJobDTO {
+
+    @JsonProperty("jobId")
+    private String jobId;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("rowsParsed")
+    private long rowsParsed;
+
+    @JsonProperty("rowsPersisted")
+    private long rowsPersisted;
+
+    @JsonProperty("rowsSkipped")
+    private long rowsSkipped;
+
+    // since job was accepted
+    @JsonProperty("elapsedMillis")
+    private long elapsedMillis;
+
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+}
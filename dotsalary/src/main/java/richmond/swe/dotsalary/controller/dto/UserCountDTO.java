@@ -0,0 +1,17 @@
+package richmond.swe.dotsalary.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Response for /users/count
+ * @author richmondchng
+ */
+@Builder
+@Getter
+public class UserCountDTO {
+
+    @JsonProperty("count")
+    private long count;
+}
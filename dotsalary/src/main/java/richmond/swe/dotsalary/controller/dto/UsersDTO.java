@@ -1,10 +1,12 @@
 package richmond.swe.dotsalary.controller.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Builder;
 import lombok.Getter;
+import richmond.swe.dotsalary.data.Salary;
 
-import java.math.BigDecimal;
 import java.util.Collection;
 
 /**
@@ -18,12 +20,18 @@ public class UsersDTO {
     @JsonProperty("results")
     private Collection<UserDTO> results;
 
+    // cursor for next page, only for keyset pagination
+    @JsonProperty("next")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+
     @Builder
     @Getter
     public static class UserDTO {
         @JsonProperty("name")
         private String name;
         @JsonProperty("salary")
-        private BigDecimal salary;
+        @JsonSerialize(using = SalarySerializer.class)
+        private Salary salary;
     }
 }
@@ -0,0 +1,146 @@
+package richmond.swe.dotsalary.data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Salary as a fixed point number, held as a long scaled to 8 decimal places, same as the SALARY DECIMAL(12,8) column.
+ *
+ * Comparison and formatting work on the long directly, without arbitrary precision arithmetic. Salaries are converted
+ * to and from BigDecimal only where JDBC, JPA or request parameters need it.
+ * @author richmondchng
+ */
+public final class Salary implements Comparable<Salary> {
+
+    // same scale as SALARY DECIMAL(12,8)
+    public static final int SCALE = 8;
+    // max chars of a formatted salary, sign, 19 digits and point
+    public static final int MAX_CHARS = 21;
+
+    private static final long UNITS_PER_ONE = 100_000_000L;
+    // largest salary the SALARY DECIMAL(12,8) column holds, scaled
+    public static final long MAX_COLUMN_UNITS = 999_999_999_999L;
+
+    public static final Salary ZERO = new Salary(0);
+
+    private final long units;
+
+    private Salary(final long units) {
+        this.units = units;
+    }
+
+    /**
+     * Create salary from long scaled to 8 decimal places.
+     * @param units scaled salary
+     * @return salary
+     */
+    public static Salary ofUnits(final long units) {
+        return units == 0 ? ZERO : new Salary(units);
+    }
+
+    /**
+     * Create salary from decimal, rounded half up to 8 decimal places.
+     * @param value decimal value
+     * @return salary
+     * @throws ArithmeticException if value is out of range
+     */
+    public static Salary valueOf(final BigDecimal value) {
+        final BigDecimal scaled = value.setScale(SCALE, RoundingMode.HALF_UP);
+        if(scaled.unscaledValue().bitLength() >= Long.SIZE) {
+            throw new ArithmeticException("Salary out of range");
+        }
+        return ofUnits(scaled.unscaledValue().longValue());
+    }
+
+    /**
+     * Convert decimal to long scaled to 8 decimal places, clamped to range of long.
+     * @param value decimal value
+     * @param roundingMode rounding for values with more than 8 decimal places
+     * @return scaled salary
+     */
+    public static long toUnits(final BigDecimal value, final RoundingMode roundingMode) {
+        final BigDecimal scaled = value.setScale(SCALE, roundingMode);
+        if(scaled.unscaledValue().bitLength() < Long.SIZE) {
+            return scaled.unscaledValue().longValue();
+        }
+        return scaled.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    /**
+     * Get salary as long scaled to 8 decimal places.
+     * @return scaled salary
+     */
+    public long getUnits() {
+        return units;
+    }
+
+    /**
+     * Get sign of salary.
+     * @return -1, 0 or 1 as salary is negative, zero or positive
+     */
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    /**
+     * Get salary as decimal, with 8 decimal places.
+     * @return decimal value
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    /**
+     * Write salary with 8 decimal places, e.g. 3000.50000000, into buffer.
+     * @param buffer buffer with at least {@link #MAX_CHARS} chars from offset
+     * @param offset start offset
+     * @return number of chars written
+     */
+    public int getChars(final char[] buffer, final int offset) {
+        // work on negative values, so Long.MIN_VALUE does not overflow
+        long value = units < 0 ? units : -units;
+        final int digits = Math.max(SCALE + 1, digitCount(value));
+        final int length = digits + 1 + (units < 0 ? 1 : 0);
+        int p = offset + length;
+        for(int i = 0; i < digits; i++) {
+            if(i == SCALE) {
+                buffer[--p] = '.';
+            }
+            buffer[--p] = (char) ('0' - value % 10);
+            value /= 10;
+        }
+        if(units < 0) {
+            buffer[--p] = '-';
+        }
+        return length;
+    }
+
+    private static int digitCount(final long negative) {
+        int count = 1;
+        for(long v = negative / 10; v != 0; v /= 10) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int compareTo(final Salary other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Salary && ((Salary) other).units == units;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    @Override
+    public String toString() {
+        final char[] buffer = new char[MAX_CHARS];
+        return new String(buffer, 0, getChars(buffer, 0));
+    }
+}
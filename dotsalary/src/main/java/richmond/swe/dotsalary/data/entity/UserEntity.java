@@ -29,4 +29,7 @@ public class UserEntity {
     private String name;
     @Column(name="SALARY")
     private BigDecimal salary;
+    // upper case name, computed by database
+    @Column(name="NAME_KEY", insertable = false, updatable = false)
+    private String nameKey;
 }
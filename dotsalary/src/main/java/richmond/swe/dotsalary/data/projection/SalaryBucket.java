@@ -0,0 +1,22 @@
+package richmond.swe.dotsalary.data.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Number of users in a salary bucket, aggregated by the database.
+ * @author richmondchng
+ */
+public interface SalaryBucket {
+
+    /**
+     * Bucket number, salary divided by bucket width and rounded down.
+     * @return bucket number
+     */
+    BigDecimal getBucket();
+
+    /**
+     * Number of users with salary in bucket.
+     * @return number of users
+     */
+    long getUsers();
+}
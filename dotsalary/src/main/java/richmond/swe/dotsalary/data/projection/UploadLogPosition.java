@@ -0,0 +1,17 @@
+package richmond.swe.dotsalary.data.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Position in the upload log, after the last append applied to users.
+ * @author richmondchng
+ */
+@Getter
+@AllArgsConstructor
+public class UploadLogPosition {
+    // number of segment file
+    private final long segment;
+    // bytes of the segment applied, Long.MAX_VALUE for a segment compacted into a snapshot
+    private final long position;
+}
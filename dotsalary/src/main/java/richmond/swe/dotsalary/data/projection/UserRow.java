@@ -0,0 +1,29 @@
+package richmond.swe.dotsalary.data.projection;
+
+import lombok.Getter;
+import richmond.swe.dotsalary.data.Salary;
+
+import java.math.BigDecimal;
+
+/**
+ * Id, name and salary of a user, read through a JPQL constructor expression without loading the entity.
+ * @author richmondchng
+ */
+@Getter
+public class UserRow {
+    private final long id;
+    private final String name;
+    private final Salary salary;
+
+    /**
+     * Constructor for JPQL constructor projection, salary is read as decimal.
+     * @param id user id
+     * @param name user name
+     * @param salary user salary
+     */
+    public UserRow(final long id, final String name, final BigDecimal salary) {
+        this.id = id;
+        this.name = name;
+        this.salary = Salary.valueOf(salary);
+    }
+}
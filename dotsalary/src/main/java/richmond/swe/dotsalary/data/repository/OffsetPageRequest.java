@@ -35,7 +35,8 @@ public class OffsetPageRequest extends PageRequest {
     public static class OffsetPageRequestBuilder {
         private int offset = 0;
         private int limit = Integer.MAX_VALUE;
-        private Sort sort = Sort.unsorted();
+        // no sort field, keep records in id order so that pages do not depend on index used
+        private Sort sort = Sort.by("id").ascending();
 
         private OffsetPageRequestBuilder() {}
 
@@ -50,7 +51,18 @@ public class OffsetPageRequest extends PageRequest {
         }
 
         public OffsetPageRequestBuilder sort(final SortField sort) {
-            this.sort = sort.getField() == null ? Sort.unsorted() : Sort.by(sort.getField()).ascending();
+            this.sort = sort.getField() == null ? Sort.by("id").ascending() : Sort.by(sort.getField()).ascending();
+            return this;
+        }
+
+        /**
+         * Sort by field ascending, then by id, so that records have a stable order for keyset pagination.
+         * @param sort sort field
+         * @return OffsetPageRequestBuilder
+         */
+        public OffsetPageRequestBuilder sortThenById(final SortField sort) {
+            this.sort = sort.getField() == null ? Sort.by("id").ascending()
+                    : Sort.by(sort.getField()).ascending().and(Sort.by("id").ascending());
             return this;
         }
 
@@ -0,0 +1,103 @@
+package richmond.swe.dotsalary.data.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for upload checkpoints, the last committed data line of each upload, through plain JDBC.
+ *
+ * An attempt claims the checkpoint of its upload before persisting, and only the owner of the claim saves or deletes
+ * it, so two attempts of the same upload do not persist the same lines. Each save refreshes the claim.
+ * @author richmondchng
+ */
+@Repository
+@AllArgsConstructor
+public class UploadCheckpointRepository {
+
+    private static final String TAKE_OVER_CHECKPOINT = "UPDATE upload_checkpoint"
+            + " SET OWNER = ?, UPDATED_AT = CURRENT_TIMESTAMP WHERE UPLOAD_ID = ?"
+            + " AND (OWNER IS NULL OR UPDATED_AT < DATEADD('MILLISECOND', -?, CURRENT_TIMESTAMP))";
+    private static final String INSERT_CHECKPOINT = "INSERT INTO upload_checkpoint"
+            + " (UPLOAD_ID, LINE_NUMBER, OWNER, UPDATED_AT) VALUES (?, 0, ?, CURRENT_TIMESTAMP)";
+    private static final String SAVE_CHECKPOINT = "UPDATE upload_checkpoint"
+            + " SET LINE_NUMBER = ?, UPDATED_AT = CURRENT_TIMESTAMP WHERE UPLOAD_ID = ? AND OWNER = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Find last committed data line of upload.
+     * @param uploadId upload id
+     * @return line number, 0 if upload has no checkpoint
+     */
+    public int findLineNumber(final String uploadId) {
+        final List<Integer> results = jdbcTemplate.queryForList(
+                "SELECT LINE_NUMBER FROM upload_checkpoint WHERE UPLOAD_ID = ?", Integer.class, uploadId);
+        return results.isEmpty() ? 0 : results.get(0);
+    }
+
+    /**
+     * Claim checkpoint of upload for an attempt, inserting it at line 0 if absent.
+     * A checkpoint claimed by another attempt is only taken over once released, or once its claim is stale.
+     * @param uploadId upload id
+     * @param owner id of attempt
+     * @param claimTimeout milliseconds since the last save after which a claim is stale
+     * @return true if claimed, false if claimed by another attempt
+     */
+    public boolean claim(final String uploadId, final String owner, final long claimTimeout) {
+        if(jdbcTemplate.update(TAKE_OVER_CHECKPOINT, owner, uploadId, claimTimeout) > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(INSERT_CHECKPOINT, uploadId, owner);
+            return true;
+        } catch(DuplicateKeyException e) {
+            // held by another attempt, or inserted by one in between
+            return false;
+        }
+    }
+
+    /**
+     * Update last committed data line of upload, and refresh the claim.
+     * @param uploadId upload id
+     * @param owner id of attempt
+     * @param lineNumber number of data lines committed
+     * @return true if saved, false if the claim was taken over by another attempt
+     */
+    public boolean save(final String uploadId, final String owner, final int lineNumber) {
+        return jdbcTemplate.update(SAVE_CHECKPOINT, lineNumber, uploadId, owner) > 0;
+    }
+
+    /**
+     * Release claim of upload, keeping its line number, so the next attempt resumes without waiting for the claim
+     * to be stale.
+     * @param uploadId upload id
+     * @param owner id of attempt
+     */
+    public void release(final String uploadId, final String owner) {
+        jdbcTemplate.update("UPDATE upload_checkpoint SET OWNER = NULL WHERE UPLOAD_ID = ? AND OWNER = ?",
+                uploadId, owner);
+    }
+
+    /**
+     * Delete checkpoint of upload, if still claimed by the attempt.
+     * @param uploadId upload id
+     * @param owner id of attempt
+     */
+    public void delete(final String uploadId, final String owner) {
+        jdbcTemplate.update("DELETE FROM upload_checkpoint WHERE UPLOAD_ID = ? AND OWNER = ?", uploadId, owner);
+    }
+
+    /**
+     * Delete checkpoints not saved for longer than TTL, of uploads that were not uploaded again.
+     * @param ttl milliseconds since the last save
+     * @return number of checkpoints deleted
+     */
+    public int deleteExpired(final long ttl) {
+        return jdbcTemplate.update(
+                "DELETE FROM upload_checkpoint WHERE UPDATED_AT < DATEADD('MILLISECOND', -?, CURRENT_TIMESTAMP)", ttl);
+    }
+}
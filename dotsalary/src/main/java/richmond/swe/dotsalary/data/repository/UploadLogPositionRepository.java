@@ -0,0 +1,42 @@
+package richmond.swe.dotsalary.data.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import richmond.swe.dotsalary.data.projection.UploadLogPosition;
+
+import java.util.List;
+
+/**
+ * Repository for the position of the last append applied from the upload log, through plain JDBC.
+ * @author richmondchng
+ */
+@Repository
+@AllArgsConstructor
+public class UploadLogPositionRepository {
+
+    private static final String MERGE_POSITION = "MERGE INTO upload_log_position (ID, SEGMENT_NUMBER, SEGMENT_POSITION)"
+            + " KEY (ID) VALUES (1, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Find position after the last applied append.
+     * @return position, null if nothing has been applied
+     */
+    public UploadLogPosition findPosition() {
+        final List<UploadLogPosition> results = jdbcTemplate.query(
+                "SELECT SEGMENT_NUMBER, SEGMENT_POSITION FROM upload_log_position WHERE ID = 1",
+                (rs, rowNum) -> new UploadLogPosition(rs.getLong(1), rs.getLong(2)));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Insert or update position after the last applied append, in the transaction that applied it.
+     * @param segment number of segment file
+     * @param position bytes of the segment applied
+     */
+    public void save(final long segment, final long position) {
+        jdbcTemplate.update(MERGE_POSITION, segment, position);
+    }
+}
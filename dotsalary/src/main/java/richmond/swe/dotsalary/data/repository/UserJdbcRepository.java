@@ -0,0 +1,155 @@
+package richmond.swe.dotsalary.data.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.entity.UserEntity;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+/**
+ * User repository for bulk statements through plain JDBC.
+ * @author richmondchng
+ */
+@Repository
+@AllArgsConstructor
+public class UserJdbcRepository {
+
+    // match on upper case name, insert if not found, otherwise update salary only
+    private static final String MERGE_USER = "MERGE INTO users t"
+            + " USING (SELECT CAST(? AS VARCHAR(128)) AS NAME, CAST(? AS DECIMAL(12,8)) AS SALARY) s"
+            + " ON t.NAME_KEY = UPPER(s.NAME)"
+            + " WHEN MATCHED THEN UPDATE SET SALARY = s.SALARY"
+            + " WHEN NOT MATCHED THEN INSERT (NAME, SALARY) VALUES (s.NAME, s.SALARY)";
+
+    private static final String SELECT_USERS = "SELECT ID, NAME, SALARY FROM users";
+
+    // rows fetched per round trip when streaming
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Read records between minimum and maximum salary, one row at a time through a forward only cursor.
+     * Same order as JPA queries, sorted by field then by id.
+     * @param min minimum salary (inclusive)
+     * @param max maximum salary (inclusive)
+     * @param offset number of records to skip
+     * @param limit max number of records, null for no limit
+     * @param sort sort by field ascending
+     * @param handler row handler
+     */
+    public void findBySalary(final BigDecimal min, final BigDecimal max, final int offset, final Integer limit,
+                             final SortField sort, final UserRowHandler handler) {
+        final StringBuilder sql = new StringBuilder(SELECT_USERS)
+                .append(" WHERE SALARY >= ? AND SALARY <= ? ORDER BY ");
+        if(sort == SortField.NAME) {
+            sql.append("NAME, ");
+        } else if(sort == SortField.SALARY) {
+            sql.append("SALARY, ");
+        }
+        sql.append("ID");
+        if(limit != null) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        sql.append(" OFFSET ").append(offset);
+
+        jdbcTemplate.query(con -> {
+            final PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setBigDecimal(1, min);
+            ps.setBigDecimal(2, max);
+            return ps;
+        }, rs -> {
+            handler.handle(rs.getLong(1), rs.getString(2), Salary.valueOf(rs.getBigDecimal(3)));
+        });
+    }
+
+    /**
+     * Read all records.
+     * @param handler row handler
+     */
+    public void findAll(final UserRowHandler handler) {
+        jdbcTemplate.query(SELECT_USERS, rs -> {
+            handler.handle(rs.getLong(1), rs.getString(2), Salary.valueOf(rs.getBigDecimal(3)));
+        });
+    }
+
+    /**
+     * Read salaries of all records, from the salary index without reading names.
+     * @param handler salary handler
+     */
+    public void findAllSalaries(final Consumer<BigDecimal> handler) {
+        jdbcTemplate.query("SELECT SALARY FROM users ORDER BY SALARY", rs -> {
+            handler.accept(rs.getBigDecimal(1));
+        });
+    }
+
+    /**
+     * Read salaries between from and to, from the salary index without reading names.
+     * @param from min salary (inclusive)
+     * @param to max salary (inclusive)
+     * @param handler salary handler
+     */
+    public void findSalaries(final BigDecimal from, final BigDecimal to, final Consumer<BigDecimal> handler) {
+        jdbcTemplate.query("SELECT SALARY FROM users WHERE SALARY >= ? AND SALARY <= ?", rs -> {
+            handler.accept(rs.getBigDecimal(1));
+        }, from, to);
+    }
+
+    /**
+     * Read records by upper case names, through the NAME_KEY index.
+     * @param names upper case names
+     * @param handler row handler
+     */
+    public void findAllByNameKeys(final Collection<String> names, final UserRowHandler handler) {
+        if(names.isEmpty()) {
+            return;
+        }
+        final String placeholders = String.join(",", Collections.nCopies(names.size(), "?"));
+        jdbcTemplate.query(SELECT_USERS + " WHERE NAME_KEY IN (" + placeholders + ")", rs -> {
+            handler.handle(rs.getLong(1), rs.getString(2), Salary.valueOf(rs.getBigDecimal(3)));
+        }, names.toArray());
+    }
+
+    /**
+     * Read records by upper case names, through the NAME_KEY index, locking them until the transaction ends, so
+     * their salaries are not changed by another upload before they are merged.
+     * @param names upper case names
+     * @param handler row handler
+     */
+    public void lockAllByNameKeys(final Collection<String> names, final UserRowHandler handler) {
+        if(names.isEmpty()) {
+            return;
+        }
+        final String placeholders = String.join(",", Collections.nCopies(names.size(), "?"));
+        jdbcTemplate.query(SELECT_USERS + " WHERE NAME_KEY IN (" + placeholders + ") FOR UPDATE", rs -> {
+            handler.handle(rs.getLong(1), rs.getString(2), Salary.valueOf(rs.getBigDecimal(3)));
+        }, names.toArray());
+    }
+
+    /**
+     * Insert or update records in JDBC batches. Records are merged in order.
+     * @param records records to merge
+     * @param batchSize number of statements per batch
+     * @return number of records merged
+     */
+    public int mergeAll(final Collection<UserEntity> records, final int batchSize) {
+        if(records.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(MERGE_USER, records, batchSize, (ps, record) -> {
+            ps.setString(1, record.getName());
+            ps.setBigDecimal(2, record.getSalary());
+        });
+        return records.size();
+    }
+}
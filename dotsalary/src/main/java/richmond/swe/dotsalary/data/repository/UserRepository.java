@@ -2,20 +2,31 @@ package richmond.swe.dotsalary.data.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.projection.SalaryBucket;
+import richmond.swe.dotsalary.data.projection.UserRow;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Set;
 
 /**
  * User repository.
+ * Queries for /users run in read only transactions, so results are not flushed or dirty checked.
  * @author richmondchng
  */
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
+    // rows fetched per round trip by read only queries
+    String FETCH_SIZE = "1000";
+
     /**
      * Find records between minimum and maximum salary.
      * @param min minimum salary (inclusive)
@@ -23,9 +34,126 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
      * @param pageable pagination configuration
      * @return list of entity beans
      */
+    @Transactional(readOnly = true)
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = FETCH_SIZE)
+    })
     @Query(value = "from UserEntity t where salary BETWEEN :min AND :max")
     List<UserEntity> findBySalary(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max, final Pageable pageable);
 
-    @Query(value = "from UserEntity t where upper(t.name) IN :names")
+    /**
+     * Find records between minimum and maximum salary, read straight into rows without loading entities.
+     * @param min minimum salary (inclusive)
+     * @param max maximum salary (inclusive)
+     * @param pageable pagination configuration
+     * @return list of user rows
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = FETCH_SIZE)
+    })
+    @Query(value = "select new richmond.swe.dotsalary.data.projection.UserRow(t.id, t.name, t.salary)"
+            + " from UserEntity t where t.salary BETWEEN :min AND :max")
+    List<UserRow> findRowsBySalary(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max,
+                                   final Pageable pageable);
+
+    /**
+     * Count records between minimum and maximum salary.
+     * @param min minimum salary (inclusive)
+     * @param max maximum salary (inclusive)
+     * @return number of records
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select count(t) from UserEntity t where t.salary BETWEEN :min AND :max")
+    long countBySalary(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max);
+
+    /**
+     * Count records between minimum and maximum salary, grouped into buckets of equal width.
+     * Only buckets with records are returned.
+     * @param min minimum salary (inclusive)
+     * @param max maximum salary (inclusive)
+     * @param width bucket width, more than 0
+     * @return buckets in ascending order
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT FLOOR(SALARY / :width) AS BUCKET, COUNT(*) AS USERS FROM users"
+            + " WHERE SALARY BETWEEN :min AND :max GROUP BY BUCKET ORDER BY BUCKET", nativeQuery = true)
+    List<SalaryBucket> findSalaryHistogram(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max,
+                                           @Param("width") final BigDecimal width);
+
+    /**
+     * Find records between minimum and maximum salary, after the given salary and id.
+     * For keyset pagination sorted by salary, then id.
+     * @param min minimum salary (inclusive), should not be less than salary
+     * @param max maximum salary (inclusive)
+     * @param salary salary of last record of previous page
+     * @param id id of last record of previous page
+     * @param pageable pagination configuration
+     * @return list of entity beans
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = FETCH_SIZE)
+    })
+    @Query(value = "from UserEntity t where t.salary >= :min AND t.salary <= :max"
+            + " AND (t.salary > :salary OR t.id > :id)")
+    List<UserEntity> findBySalaryAfterSalary(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max,
+                                             @Param("salary") final BigDecimal salary, @Param("id") final long id,
+                                             final Pageable pageable);
+
+    /**
+     * Find records between minimum and maximum salary, after the given name and id.
+     * For keyset pagination sorted by name, then id.
+     * @param min minimum salary (inclusive)
+     * @param max maximum salary (inclusive)
+     * @param name name of last record of previous page
+     * @param id id of last record of previous page
+     * @param pageable pagination configuration
+     * @return list of entity beans
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = FETCH_SIZE)
+    })
+    @Query(value = "from UserEntity t where t.salary BETWEEN :min AND :max"
+            + " AND t.name >= :name AND (t.name > :name OR t.id > :id)")
+    List<UserEntity> findBySalaryAfterName(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max,
+                                           @Param("name") final String name, @Param("id") final long id,
+                                           final Pageable pageable);
+
+    /**
+     * Find records between minimum and maximum salary, after the given id.
+     * For keyset pagination sorted by id.
+     * @param min minimum salary (inclusive)
+     * @param max maximum salary (inclusive)
+     * @param id id of last record of previous page
+     * @param pageable pagination configuration
+     * @return list of entity beans
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = FETCH_SIZE)
+    })
+    @Query(value = "from UserEntity t where t.salary BETWEEN :min AND :max AND t.id > :id")
+    List<UserEntity> findBySalaryAfterId(@Param("min") final BigDecimal min, @Param("max") final BigDecimal max,
+                                         @Param("id") final long id, final Pageable pageable);
+
+    /**
+     * Find records by upper case names, through the NAME_KEY index, locking them until the transaction ends, so
+     * their salaries are not changed by another upload before they are updated.
+     * @param names upper case names
+     * @return list of entity beans
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "from UserEntity t where t.nameKey IN :names")
     List<UserEntity> findAllByNames(@Param("names") final Set<String> names);
 }
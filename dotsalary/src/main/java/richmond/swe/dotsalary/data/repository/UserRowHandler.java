@@ -0,0 +1,19 @@
+package richmond.swe.dotsalary.data.repository;
+
+import richmond.swe.dotsalary.data.Salary;
+
+/**
+ * Callback for user rows read through JDBC, without creating entities.
+ * @author richmondchng
+ */
+@FunctionalInterface
+public interface UserRowHandler {
+
+    /**
+     * Handle one row.
+     * @param id user id
+     * @param name user name
+     * @param salary user salary
+     */
+    void handle(long id, String name, Salary salary);
+}
@@ -0,0 +1,12 @@
+package richmond.swe.dotsalary.exception;
+
+/**
+ * Upload job does not exist, or is no longer retained.
+ * @author richmondchng
+ */
+public class UploadJobNotFoundException extends RuntimeException {
+
+    public UploadJobNotFoundException(final String message) {
+        super(message);
+    }
+}
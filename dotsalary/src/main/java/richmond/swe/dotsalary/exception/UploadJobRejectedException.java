@@ -0,0 +1,12 @@
+package richmond.swe.dotsalary.exception;
+
+/**
+ * Upload job cannot be accepted, e.g. job queue is full.
+ * @author richmondchng
+ */
+public class UploadJobRejectedException extends RuntimeException {
+
+    public UploadJobRejectedException(final String message, final Throwable e) {
+        super(message, e);
+    }
+}
@@ -1,17 +1,26 @@
 package richmond.swe.dotsalary.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.csv.CsvTokenizer;
+import richmond.swe.dotsalary.service.csv.ParallelUserCsvParser;
+import richmond.swe.dotsalary.service.csv.UserCsvReader;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.text.MessageFormat;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Service to process uploaded file.
@@ -19,75 +28,170 @@ import java.util.Scanner;
  */
 @Service
 @Slf4j
+@AllArgsConstructor
 public class FileProcessorService {
 
-    private static final String ERROR_NOT_TWO_HEADERS = "Expect 2 columns, but found {0} column(s)";
-    private static final String ERROR_FIRST_HEADER_NOT_NAME = "First column should be NAME";
-    private static final String ERROR_SECOND_HEADER_NOT_NAME = "Second column should be SALARY";
-
-    private static final String ERROR_NOT_TWO_FIELD = "{0}. Expect line to contain 2 fields, but found {1} field(s)";
-    private static final String ERROR_FIRST_FIELD_INVALID = "{0}. NAME field is blank";
-    private static final String ERROR_SECOND_FIELD_INVALID = "{0}. SALARY field is not numeric";
+    private final MeterRegistry meterRegistry;
 
+    /**
+     * Process uploaded file.
+     * @param file csv text file
+     * @return collection of user beans
+     * @throws IOException if file cannot be read
+     */
     public Collection<UserBean> process(final MultipartFile file) throws IOException {
+        final Collection<UserBean> results = new ArrayList<>();
+        process(file, Integer.MAX_VALUE, results::addAll);
+        return results;
+    }
+
+    /**
+     * Process uploaded file, handing records to consumer in chunks as they are parsed.
+     * Each chunk is a new collection, so consumer should not hold on to chunks it is done with.
+     * @param file csv text file
+     * @param chunkSize maximum number of records per chunk
+     * @param consumer chunk consumer
+     * @return number of records parsed
+     * @throws IOException if file cannot be read
+     */
+    public int process(final MultipartFile file, final int chunkSize, final Consumer<Collection<UserBean>> consumer)
+            throws IOException {
         if(!"text/csv".equalsIgnoreCase(file.getContentType())) {
             throw new IllegalArgumentException("Not a CSV file");
         }
+        try(final InputStream inputStream = file.getInputStream()) {
+            return process(inputStream, chunkSize, consumer);
+        }
+    }
 
-        // read file
-        final Scanner scanner = new Scanner(file.getInputStream());
-
-        final String[] headers = convertToArray(scanner.nextLine());
-        if(headers == null) {
-            throw new IllegalArgumentException(MessageFormat.format(ERROR_NOT_TWO_HEADERS, 0));
+    /**
+     * Process CSV content, handing records to consumer in chunks as they are parsed.
+     * @param inputStream csv content, not closed
+     * @param chunkSize maximum number of records per chunk
+     * @param consumer chunk consumer
+     * @return number of records parsed
+     * @throws IOException if content cannot be read
+     */
+    public int process(final InputStream inputStream, final int chunkSize,
+                       final Consumer<Collection<UserBean>> consumer) throws IOException {
+        if(chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size should be at least 1");
         }
-        if(headers.length != 2) {
-            throw new IllegalArgumentException(MessageFormat.format(ERROR_NOT_TWO_HEADERS, headers.length));
+        final ConsumerTimer timer = new ConsumerTimer(consumer);
+        final int rows = parse(inputStream, chunkSize, timer);
+        recordParse("sequential", timer, rows);
+        return rows;
+    }
+
+    /**
+     * Parse CSV content on the calling thread.
+     */
+    private int parse(final InputStream inputStream, final int chunkSize,
+                      final Consumer<Collection<UserBean>> consumer) throws IOException {
+        final UserCsvReader reader = new UserCsvReader(new CsvTokenizer(inputStream));
+        reader.readHeader();
+
+        Collection<UserBean> chunk = new ArrayList<>();
+        UserBean record;
+        while((record = reader.next()) != null) {
+            chunk.add(record);
+            if(chunk.size() >= chunkSize) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>();
+            }
         }
-        if(!"NAME".equalsIgnoreCase(headers[0])) {
-            throw new IllegalArgumentException(ERROR_FIRST_HEADER_NOT_NAME);
+        if(!chunk.isEmpty()) {
+            consumer.accept(chunk);
         }
-        if(!"SALARY".equalsIgnoreCase(headers[1])) {
-            throw new IllegalArgumentException(ERROR_SECOND_HEADER_NOT_NAME);
+        return reader.getLineNumber();
+    }
+
+    /**
+     * Process uploaded file on multiple threads. File is spooled to a temporary file, which is removed afterwards.
+     * Records are handed to consumer in file order, on the calling thread.
+     * @param file csv text file
+     * @param chunkSize maximum number of records per chunk
+     * @param chunkBytes approximate number of bytes of file parsed per task
+     * @param consumer chunk consumer
+     * @return number of records parsed
+     * @throws IOException if file cannot be read
+     */
+    public int processParallel(final MultipartFile file, final int chunkSize, final int chunkBytes,
+                               final Consumer<Collection<UserBean>> consumer) throws IOException {
+        if(!"text/csv".equalsIgnoreCase(file.getContentType())) {
+            throw new IllegalArgumentException("Not a CSV file");
         }
-        final Collection<UserBean> results = new ArrayList<>();
-        int line = 0;
-        while(scanner.hasNext()) {
-            final String[] record = convertToArray(scanner.nextLine());
-            if(record == null) {
-                // has no fields, this should be the end of file
-                break;
+        final Path spoolFile = Files.createTempFile("upload-", ".csv");
+        try {
+            try(final InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, spoolFile, StandardCopyOption.REPLACE_EXISTING);
             }
-            line = line + 1;
-            results.add(mapToUserBean(line, record));
+            return processParallel(spoolFile, chunkSize, chunkBytes, consumer);
+        } finally {
+            Files.deleteIfExists(spoolFile);
         }
-        return results;
     }
 
-    private String[] convertToArray(final String line) {
-        if(!StringUtils.isBlank(line)) {
-            return line.split(",");
-        }
-        return null;
+    /**
+     * Process CSV file on multiple threads, parsing memory mapped chunks of the file on the common fork join pool.
+     * Line numbers in error messages are the same as {@link #process(InputStream, int, Consumer)}.
+     * @param file csv file
+     * @param chunkSize maximum number of records per chunk
+     * @param chunkBytes approximate number of bytes of file parsed per task
+     * @param consumer chunk consumer
+     * @return number of records parsed
+     * @throws IOException if file cannot be read
+     */
+    public int processParallel(final Path file, final int chunkSize, final int chunkBytes,
+                               final Consumer<Collection<UserBean>> consumer) throws IOException {
+        final ConsumerTimer timer = new ConsumerTimer(consumer);
+        final int rows = new ParallelUserCsvParser(ForkJoinPool.commonPool(), chunkBytes).parse(file, chunkSize, timer);
+        recordParse("parallel", timer, rows);
+        return rows;
     }
 
-    private UserBean mapToUserBean(final int lineNumber, final String[] record) {
-        if(record.length != 2) {
-            throw new IllegalArgumentException(MessageFormat.format(ERROR_NOT_TWO_FIELD, lineNumber, record.length));
+    /**
+     * Record parse time (without time spent in consumer), rows parsed, and rows per second including consumer.
+     * @param parser parser tag
+     * @param timer consumer timer, started with parsing
+     * @param rows number of rows parsed
+     */
+    private void recordParse(final String parser, final ConsumerTimer timer, final int rows) {
+        final long elapsedNanos = System.nanoTime() - timer.startNanos;
+        meterRegistry.timer("dotsalary.upload.parse", "parser", parser)
+                .record(elapsedNanos - timer.consumerNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("dotsalary.upload.rows", "parser", parser).increment(rows);
+        if(elapsedNanos > 0) {
+            DistributionSummary.builder("dotsalary.upload.throughput")
+                    .description("Rows per second of each uploaded file, parsed and persisted")
+                    .baseUnit("rows/s")
+                    .tag("parser", parser)
+                    .register(meterRegistry)
+                    .record(rows * 1e9 / elapsedNanos);
         }
-        final String name = record[0];
-        if(StringUtils.isBlank(name)) {
-            throw new IllegalArgumentException(MessageFormat.format(ERROR_FIRST_FIELD_INVALID, lineNumber));
+    }
+
+    /**
+     * Consumer that keeps the time spent in the wrapped consumer, so it can be taken out of parse time.
+     * Consumer is called on one thread at a time.
+     */
+    private static class ConsumerTimer implements Consumer<Collection<UserBean>> {
+        private final Consumer<Collection<UserBean>> consumer;
+        private final long startNanos = System.nanoTime();
+        private long consumerNanos;
+
+        private ConsumerTimer(final Consumer<Collection<UserBean>> consumer) {
+            this.consumer = consumer;
         }
-        final BigDecimal salary;
-        try {
-            salary = new BigDecimal((record[1]));
-        } catch(NumberFormatException nfe) {
-            throw new IllegalArgumentException(MessageFormat.format(ERROR_SECOND_FIELD_INVALID, lineNumber));
+
+        @Override
+        public void accept(final Collection<UserBean> chunk) {
+            final long start = System.nanoTime();
+            try {
+                consumer.accept(chunk);
+            } finally {
+                consumerNanos += System.nanoTime() - start;
+            }
         }
-        return UserBean.builder()
-                .name(name)
-                .salary(salary)
-                .build();
     }
 }
@@ -0,0 +1,94 @@
+package richmond.swe.dotsalary.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import richmond.swe.dotsalary.data.SortField;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last record of a page, as sort key and id.
+ * Encoded into an opaque token that clients pass back to get the next page.
+ * @author richmondchng
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = ":";
+    private static final String ERROR_INVALID_CURSOR = "Invalid cursor parameter";
+
+    private final SortField sort;
+    private final long id;
+    // sort key, name or salary, null if sorted by id only
+    private final String key;
+
+    /**
+     * Create cursor for the last record of a page.
+     * @param sort sort field
+     * @param id id of record
+     * @param name name of record
+     * @param salary salary of record
+     * @return cursor
+     */
+    public static KeysetCursor of(final SortField sort, final long id, final String name, final BigDecimal salary) {
+        switch(sort) {
+            case NAME:
+                return new KeysetCursor(sort, id, name);
+            case SALARY:
+                return new KeysetCursor(sort, id, salary.toPlainString());
+            default:
+                return new KeysetCursor(sort, id, null);
+        }
+    }
+
+    /**
+     * Decode token.
+     * @param token encoded cursor
+     * @return cursor
+     */
+    public static KeysetCursor decode(final String token) {
+        final String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch(IllegalArgumentException e) {
+            throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+        }
+        // sort:id[:key], key last because names may contain separator
+        final String[] parts = value.split(SEPARATOR, 3);
+        try {
+            final SortField sort = SortField.valueOf(parts[0]);
+            final long id = Long.parseLong(parts[1]);
+            final String key = parts.length > 2 ? parts[2] : null;
+            if(sort == SortField.SALARY) {
+                // check salary is numeric
+                new BigDecimal(key);
+            }
+            if(sort != SortField.NONE && key == null) {
+                throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+            }
+            return new KeysetCursor(sort, id, key);
+        } catch(RuntimeException e) {
+            throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+        }
+    }
+
+    /**
+     * Encode into token.
+     * @return token
+     */
+    public String encode() {
+        final String value = key == null ? sort.name() + SEPARATOR + id : sort.name() + SEPARATOR + id + SEPARATOR + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get salary sort key.
+     * @return salary
+     */
+    public BigDecimal getSalary() {
+        return new BigDecimal(key);
+    }
+}
@@ -0,0 +1,306 @@
+package richmond.swe.dotsalary.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.exception.BulkRecordProcessException;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.log.UploadLog;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service to persist uploads on worker threads while the file is being parsed.
+ *
+ * Records are partitioned by upper case name into one bounded queue per worker, so repeated names are persisted by
+ * the same worker in file order, and workers never write the same user. The parser blocks when a queue is full, so it
+ * does not run ahead of the database by more than the queue capacity.
+ *
+ * Each worker persists its partition in its own transaction, same as STREAMING mode. Workers commit only after the
+ * whole file is parsed and every worker has persisted its partition, and none has failed; otherwise all workers roll
+ * back. The upload is all or nothing only up to commit: workers commit their own transactions one after another, so
+ * if a commit fails, workers that committed before it keep their partitions.
+ *
+ * Each worker holds a connection until every worker of its upload is done, so an upload takes one connection permit
+ * per worker before it starts, and waits while other PIPELINED uploads hold them. Since permits are fewer than pooled
+ * connections, workers of one upload never wait for a connection held by a worker waiting on them.
+ *
+ * When the upload log is enabled, records are appended to the log by UploadLogService instead, and applied on its
+ * single apply thread, so there are no workers.
+ * @author richmondchng
+ */
+@Slf4j
+@Service
+public class PipelinedUploadService {
+
+    // marks end of records on a worker queue
+    private static final List<UserBean> END = Collections.emptyList();
+
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final DotsalaryProperties properties;
+    private final UploadLog uploadLog;
+    private final ExecutorService executor;
+    // connections held by workers of running uploads, fair so uploads start in order
+    private final Semaphore connections;
+
+    public PipelinedUploadService(final UserService userService, final TransactionTemplate transactionTemplate,
+                                  final DotsalaryProperties properties, final UploadLog uploadLog) {
+        this.userService = userService;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.uploadLog = uploadLog;
+        // workers of an upload wait for each other before committing, so they are not queued behind other uploads
+        this.executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("upload-pipeline-"));
+        this.connections = new Semaphore(properties.getUpload().getPipelineConnections(), true);
+    }
+
+    /**
+     * Persist records supplied in chunks, on worker threads while the source is being read.
+     * @param source source of record chunks, in file order
+     * @return 1 if successful, 0 if failure
+     * @throws IOException if records cannot be read from source
+     */
+    public int persistRecords(final RecordChunkSource source) throws IOException {
+        if(uploadLog.isEnabled()) {
+            return userService.streamPersistRecords(source);
+        }
+        final DotsalaryProperties.Upload upload = properties.getUpload();
+        final int workers = upload.getPipelineWorkers();
+        if(workers > upload.getPipelineConnections()) {
+            throw new IllegalArgumentException("Pipeline workers should be at most pipeline connections");
+        }
+        final Pipeline pipeline = new Pipeline(workers, upload.getPipelineQueueCapacity(), upload.getChunkSize());
+        try {
+            connections.acquire(workers);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for connections", e);
+        }
+        try {
+            return persistRecords(source, pipeline);
+        } finally {
+            connections.release(workers);
+        }
+    }
+
+    /**
+     * Persist records on one worker per queue of pipeline, while the source is being read.
+     */
+    private int persistRecords(final RecordChunkSource source, final Pipeline pipeline) throws IOException {
+        final List<Future<?>> futures = new ArrayList<>();
+        for(BlockingQueue<List<UserBean>> queue : pipeline.queues) {
+            futures.add(executor.submit(() -> work(pipeline, queue)));
+        }
+        try {
+            source.forEachChunk(pipeline::add);
+            pipeline.flush();
+        } catch(IOException | RuntimeException e) {
+            pipeline.fail(e);
+            throw e;
+        } finally {
+            pipeline.finish();
+            for(Future<?> future : futures) {
+                await(future);
+            }
+        }
+        if(pipeline.error != null) {
+            throw new BulkRecordProcessException(pipeline.error.getMessage(), pipeline.error);
+        }
+        return 1;
+    }
+
+    /**
+     * Persist batches of one queue in a transaction, committed only if the whole upload succeeded.
+     * On failure, the rest of the queue is drained so the parser is not blocked.
+     */
+    private void work(final Pipeline pipeline, final BlockingQueue<List<UserBean>> queue) {
+        final boolean[] ended = new boolean[1];
+        final boolean[] done = new boolean[1];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    userService.streamPersistRecords(persister -> {
+                        int count = 0;
+                        List<UserBean> batch;
+                        while((batch = take(queue)) != END) {
+                            persister.accept(batch);
+                            count += batch.size();
+                        }
+                        ended[0] = true;
+                        return count;
+                    });
+                } catch(IOException e) {
+                    // recorded before this worker is counted as done, so other workers see it
+                    pipeline.fail(e);
+                    throw new UncheckedIOException(e);
+                } catch(RuntimeException e) {
+                    pipeline.fail(e);
+                    throw e;
+                } finally {
+                    done[0] = true;
+                    pipeline.done();
+                }
+                pipeline.await();
+                if(pipeline.error != null) {
+                    status.setRollbackOnly();
+                }
+            });
+        } catch(RuntimeException e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            pipeline.fail(e);
+            if(!done[0]) {
+                pipeline.done();
+            }
+            while(!ended[0]) {
+                ended[0] = take(queue) == END;
+            }
+        }
+    }
+
+    private static List<UserBean> take(final BlockingQueue<List<UserBean>> queue) {
+        try {
+            return queue.take();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for records", e);
+        }
+    }
+
+    private static void await(final Future<?> future) {
+        try {
+            future.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for workers", e);
+        } catch(ExecutionException e) {
+            // worker failures are recorded on the pipeline
+            log.error("Exception caught {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop worker threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues of one upload, and its outcome.
+     */
+    private static class Pipeline {
+        private final List<BlockingQueue<List<UserBean>>> queues = new ArrayList<>();
+        // records of each worker not yet queued
+        private final List<List<UserBean>> batches = new ArrayList<>();
+        private final int batchSize;
+        // counted down when all records are queued, or parsing failed
+        private final CountDownLatch parsed = new CountDownLatch(1);
+        // counted down by each worker when it has persisted its queue, or failed
+        private final CountDownLatch persisted;
+        private volatile Exception error;
+
+        private Pipeline(final int workers, final int queueCapacity, final int batchSize) {
+            if(workers < 1) {
+                throw new IllegalArgumentException("Pipeline workers should be at least 1");
+            }
+            if(queueCapacity < 1) {
+                throw new IllegalArgumentException("Pipeline queue capacity should be at least 1");
+            }
+            for(int i = 0; i < workers; i++) {
+                queues.add(new ArrayBlockingQueue<>(queueCapacity));
+                batches.add(new ArrayList<>());
+            }
+            this.batchSize = batchSize;
+            this.persisted = new CountDownLatch(workers);
+        }
+
+        /**
+         * Partition records by upper case name, queueing each batch when full.
+         * Stops the parser if a worker has failed.
+         */
+        private void add(final Collection<UserBean> records) {
+            if(error != null) {
+                throw new BulkRecordProcessException(error.getMessage(), error);
+            }
+            for(UserBean record : records) {
+                final int worker = Math.floorMod(record.getName().toUpperCase().hashCode(), queues.size());
+                final List<UserBean> batch = batches.get(worker);
+                batch.add(record);
+                if(batch.size() >= batchSize) {
+                    put(worker, batch);
+                    batches.set(worker, new ArrayList<>());
+                }
+            }
+        }
+
+        private void flush() {
+            for(int worker = 0; worker < queues.size(); worker++) {
+                if(!batches.get(worker).isEmpty()) {
+                    put(worker, batches.get(worker));
+                    batches.set(worker, new ArrayList<>());
+                }
+            }
+        }
+
+        private void put(final int worker, final List<UserBean> batch) {
+            try {
+                // blocks while worker is behind
+                queues.get(worker).put(batch);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing records", e);
+            }
+        }
+
+        /**
+         * End each queue and release workers waiting to commit.
+         */
+        private void finish() {
+            for(int worker = 0; worker < queues.size(); worker++) {
+                put(worker, END);
+            }
+            parsed.countDown();
+        }
+
+        private synchronized void fail(final Exception e) {
+            if(error == null) {
+                error = e;
+            }
+        }
+
+        private void done() {
+            persisted.countDown();
+        }
+
+        /**
+         * Wait until the whole file is parsed, and every worker has persisted its queue or failed.
+         */
+        private void await() {
+            try {
+                parsed.await();
+                persisted.await();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for upload", e);
+            }
+        }
+    }
+}
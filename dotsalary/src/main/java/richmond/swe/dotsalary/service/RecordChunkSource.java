@@ -0,0 +1,23 @@
+package richmond.swe.dotsalary.service;
+
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Source of user records, supplied one chunk at a time.
+ * @author richmondchng
+ */
+@FunctionalInterface
+public interface RecordChunkSource {
+
+    /**
+     * Supply all records to consumer, one chunk at a time.
+     * @param consumer chunk consumer
+     * @return number of records supplied
+     * @throws IOException if records cannot be read
+     */
+    int forEachChunk(Consumer<Collection<UserBean>> consumer) throws IOException;
+}
@@ -0,0 +1,128 @@
+package richmond.swe.dotsalary.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.data.repository.UploadCheckpointRepository;
+import richmond.swe.dotsalary.exception.BulkRecordProcessException;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Service to persist uploads in chunks, committing each chunk in its own transaction.
+ *
+ * Each chunk is committed together with a checkpoint of the number of data lines committed so far, keyed by upload
+ * id. When an upload with the same id fails and is uploaded again, lines up to the checkpoint are parsed but not
+ * persisted again. The checkpoint is deleted when the upload completes.
+ *
+ * Each attempt claims the checkpoint before persisting, and an attempt of a file already being uploaded is rejected,
+ * unless the other attempt has not checkpointed for longer than the claim timeout. Checkpoints of files that are not
+ * uploaded again are deleted after the checkpoint TTL.
+ *
+ * Unlike STREAMING mode, records committed before a failure stay committed, and other readers see the upload one
+ * chunk at a time.
+ * @author richmondchng
+ */
+@Service
+@Slf4j
+@AllArgsConstructor
+public class ResumableUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserService userService;
+    private final UploadCheckpointRepository uploadCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DotsalaryProperties properties;
+
+    /**
+     * Get upload id of content, SHA-256 of the content in hex, so the same file resumes from its checkpoint.
+     * @param inputStream content, not closed
+     * @return upload id
+     * @throws IOException if content cannot be read
+     */
+    public String uploadId(final InputStream inputStream) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while((read = inputStream.read(buffer)) > 0) {
+            digest.update(buffer, 0, read);
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    /**
+     * Persist records supplied in chunks, committing each chunk with a checkpoint.
+     * Chunks up to the checkpoint of a previous attempt of the same upload are skipped. The claim is released if the
+     * upload fails, so the next attempt resumes straight away.
+     * @param uploadId upload id
+     * @param source source of record chunks, in file order
+     * @return 1 if successful, 0 if failure
+     * @throws IOException if records cannot be read from source
+     */
+    public int persistRecords(final String uploadId, final RecordChunkSource source) throws IOException {
+        final DotsalaryProperties.Upload upload = properties.getUpload();
+        final int expired = uploadCheckpointRepository.deleteExpired(upload.getCheckpointTtl());
+        if(expired > 0) {
+            log.info("Deleted {} expired upload checkpoints", expired);
+        }
+        final String owner = UUID.randomUUID().toString();
+        if(!uploadCheckpointRepository.claim(uploadId, owner, upload.getCheckpointClaimTimeout())) {
+            throw new BulkRecordProcessException("Upload " + uploadId + " is already in progress", null);
+        }
+        boolean completed = false;
+        try {
+            persistRecords(uploadId, owner, source);
+            completed = true;
+        } finally {
+            if(!completed) {
+                uploadCheckpointRepository.release(uploadId, owner);
+            }
+        }
+        uploadCheckpointRepository.delete(uploadId, owner);
+        return 1;
+    }
+
+    private void persistRecords(final String uploadId, final String owner, final RecordChunkSource source)
+            throws IOException {
+        final int checkpoint = uploadCheckpointRepository.findLineNumber(uploadId);
+        if(checkpoint > 0) {
+            log.info("Resuming upload {} after line {}", uploadId, checkpoint);
+        }
+        final int[] lines = new int[1];
+        source.forEachChunk(chunk -> {
+            final int from = lines[0];
+            lines[0] += chunk.size();
+            if(lines[0] <= checkpoint) {
+                // committed by a previous attempt
+                return;
+            }
+            final Collection<UserBean> records = from >= checkpoint ? chunk
+                    : new ArrayList<>(chunk).subList(checkpoint - from, chunk.size());
+            final int lineNumber = lines[0];
+            transactionTemplate.executeWithoutResult(status -> {
+                userService.bulkPersistRecords(records);
+                if(!uploadCheckpointRepository.save(uploadId, owner, lineNumber)) {
+                    // claim went stale and was taken over, roll back the chunk
+                    throw new BulkRecordProcessException("Upload " + uploadId
+                            + " was taken over by another attempt", null);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package richmond.swe.dotsalary.service;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.log.UploadLog;
+import richmond.swe.dotsalary.service.log.UploadSpool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service to write uploads through the upload log, when it is enabled.
+ * Uploads are acknowledged once written to the log, and applied to the database in the background, in log order.
+ * @author richmondchng
+ */
+@Service
+@AllArgsConstructor
+public class UploadLogService {
+
+    private final UploadLog uploadLog;
+    private final UserWriter userWriter;
+
+    /**
+     * Check if uploads are written to the log.
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return uploadLog.isEnabled();
+    }
+
+    /**
+     * Append records to the upload log, to be applied to the database in the background, in log order.
+     * @param records collection of UserBeans
+     * @return completed once records are applied and committed, exceptionally if they are not applied
+     * @throws IOException if records cannot be written to the log or synced
+     */
+    public CompletableFuture<Void> appendRecords(final Collection<UserBean> records) throws IOException {
+        final CompletableFuture<Void> applied = uploadLog.append(records, userWriter::applyRecords);
+        // counted once, when the upload is accepted, not when applied or replayed
+        userWriter.countSkipped(records);
+        return applied;
+    }
+
+    /**
+     * Append records supplied in chunks to the upload log as one upload.
+     * Chunks are spooled to disk as they are read, and appended once the source is completely read, so a source that
+     * fails part way appends nothing.
+     * @param source source of record chunks
+     * @return completed once records are applied and committed, exceptionally if they are not applied
+     * @throws IOException if records cannot be read from source, or written to the log or synced
+     */
+    public CompletableFuture<Void> appendChunks(final RecordChunkSource source) throws IOException {
+        try(UploadSpool spool = uploadLog.spool()) {
+            final long[] skipped = { 0 };
+            try {
+                source.forEachChunk(chunk -> {
+                    try {
+                        spool.addAll(chunk);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    skipped[0] += chunk.stream().filter(b -> b.getSalary().signum() <= 0).count();
+                });
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+            final CompletableFuture<Void> applied = uploadLog.append(spool, userWriter::applyRecords);
+            // counted once, when the upload is accepted, not when applied or replayed
+            userWriter.countSkipped(skipped[0]);
+            return applied;
+        }
+    }
+
+    /**
+     * Apply records in the upload log to the database, when the upload log is enabled.
+     * Runs before the index and statistics are loaded on application ready.
+     * @throws IOException if log cannot be read
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() throws IOException {
+        if(uploadLog.isEnabled()) {
+            uploadLog.replay(userWriter::applyRecords);
+        }
+    }
+}
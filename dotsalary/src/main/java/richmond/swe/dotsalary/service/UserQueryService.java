@@ -0,0 +1,286 @@
+package richmond.swe.dotsalary.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.QueryEngine;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.repository.OffsetPageRequest;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.bean.UserPageBean;
+import richmond.swe.dotsalary.service.cache.UserQueryCache;
+import richmond.swe.dotsalary.service.cache.UserQueryKey;
+import richmond.swe.dotsalary.service.cache.UserQueryResult;
+import richmond.swe.dotsalary.service.index.UserIndex;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service to query users, from the database or the in-memory index, with offset or keyset pagination.
+ * @author richmondchng
+ */
+@Service
+@AllArgsConstructor
+public class UserQueryService {
+
+    private final UserRepository userRepository;
+    private final UserJdbcRepository userJdbcRepository;
+    private final DotsalaryProperties properties;
+    private final UserIndex userIndex;
+    private final MeterRegistry meterRegistry;
+    private final UserQueryCache userQueryCache;
+
+    /**
+     * Get users.
+     * Results are cached by parameters until the next upload is committed.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start, lower bound
+     * @param limit number of users to get, upper bound
+     * @param sort sort by field ascending
+     * @return collection of user beans
+     */
+    public Collection<UserBean> getUsers(final BigDecimal min, final BigDecimal max, final Integer offset,
+                                         final Integer limit, final String sort) {
+        return getUsersResult(min, max, offset, limit, sort).getResults();
+    }
+
+    /**
+     * Get users, with the data version they were read at.
+     * Results are cached by parameters until the next upload is committed, and may be shared between callers.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start, lower bound
+     * @param limit number of users to get, upper bound
+     * @param sort sort by field ascending
+     * @return query result
+     */
+    public UserQueryResult getUsersResult(final BigDecimal min, final BigDecimal max, final Integer offset,
+                                          final Integer limit, final String sort) {
+        final SortField sortField = checkUsersQuery(min, max, offset, limit, sort);
+
+        final UserQueryKey key = UserQueryKey.of(min, max, offset, limit, sortField);
+        final UserQueryResult cached = userQueryCache.get(key);
+        if(cached != null) {
+            return cached;
+        }
+        // read version before query, so results are not cached if users change while querying
+        final long version = userQueryCache.getVersion();
+        return userQueryCache.put(key, version, queryUsers(min, max, offset, limit, sortField));
+    }
+
+    /**
+     * Check parameters of a users query, without querying.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start, lower bound
+     * @param limit number of users to get, upper bound
+     * @param sort sort by field ascending
+     * @return sort field
+     * @throws IllegalArgumentException if a parameter is missing or invalid
+     */
+    public SortField checkUsersQuery(final BigDecimal min, final BigDecimal max, final Integer offset,
+                                     final Integer limit, final String sort) {
+        if(min == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter min");
+        }
+        if(max == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter max");
+        }
+        if(offset == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter offset");
+        }
+        if(offset < 0) {
+            throw new IllegalArgumentException("Invalid offset parameter");
+        }
+        if(limit != null && limit < 1) {
+            throw new IllegalArgumentException("Invalid limit parameter");
+        }
+        return getSortField(sort);
+    }
+
+    /**
+     * Get current data version, bumped after each upload is committed.
+     * @return data version
+     */
+    public long getDataVersion() {
+        return userQueryCache.getVersion();
+    }
+
+    /**
+     * Query users from the query engine.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start, lower bound
+     * @param limit number of users to get, upper bound
+     * @param sortField sort by field ascending
+     * @return list of user beans
+     */
+    private List<UserBean> queryUsers(final BigDecimal min, final BigDecimal max, final int offset,
+                                      final Integer limit, final SortField sortField) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+
+        if(properties.getQuery().getEngine() == QueryEngine.MEMORY) {
+            final List<UserBean> results = userIndex.getUsers(min, max, offset, limit, sortField);
+            recordQuery(sample, "offset", sortField, results.size());
+            return results;
+        }
+
+        // build pagination
+        final Pageable pageable = OffsetPageRequest.builder()
+                .offset(offset)
+                .limit(limit)
+                .sort(sortField)
+                .build();
+
+        // read straight into rows, in a read only transaction
+        final List<UserBean> results = userRepository.findRowsBySalary(min, max, pageable).stream()
+                .map(r -> new UserBean(r.getId(), r.getName(), r.getSalary()))
+                .collect(Collectors.toList());
+        recordQuery(sample, "offset", sortField, results.size());
+        return results;
+    }
+
+    /**
+     * Get users as a stream of rows, without loading all of them into memory.
+     * Parameters are checked when called, rows are read when the returned source is used.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start, lower bound
+     * @param limit number of users to get, upper bound
+     * @param sort sort by field ascending
+     * @return source of user rows
+     */
+    public UserRowSource streamUsers(final BigDecimal min, final BigDecimal max, final Integer offset,
+                                     final Integer limit, final String sort) {
+        final SortField sortField = checkUsersQuery(min, max, offset, limit, sort);
+
+        if(properties.getQuery().getEngine() == QueryEngine.MEMORY) {
+            return handler -> userIndex.forEachUser(min, max, offset, limit, sortField, handler);
+        }
+        return handler -> userJdbcRepository.findBySalary(min, max, offset, limit, sortField, handler);
+    }
+
+    /**
+     * Get users, a page at a time with keyset pagination.
+     * Each page continues after the last record of the previous page, so the cost of a page does not grow with how
+     * deep the client has paged.
+     * @param min min salary
+     * @param max max salary
+     * @param limit number of users to get per page
+     * @param sort sort by field ascending, then by id
+     * @param cursor cursor from previous page, empty for first page
+     * @return page of user beans, with cursor for next page
+     */
+    public UserPageBean getUsersPage(final BigDecimal min, final BigDecimal max, final Integer limit,
+                                     final String sort, final String cursor) {
+        if(min == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter min");
+        }
+        if(max == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter max");
+        }
+        final SortField sortField = getSortField(sort);
+
+        final Pageable pageable = OffsetPageRequest.builder()
+                .limit(limit)
+                .sortThenById(sortField)
+                .build();
+        final Timer.Sample sample = Timer.start(meterRegistry);
+
+        final List<UserEntity> results;
+        if(StringUtils.isEmpty(cursor)) {
+            // first page
+            results = userRepository.findBySalary(min, max, pageable);
+        } else {
+            final KeysetCursor after = KeysetCursor.decode(cursor);
+            if(after.getSort() != sortField) {
+                throw new IllegalArgumentException("Invalid cursor parameter");
+            }
+            switch(sortField) {
+                case NAME:
+                    results = userRepository.findBySalaryAfterName(min, max, after.getKey(), after.getId(), pageable);
+                    break;
+                case SALARY:
+                    // start range scan from last salary
+                    results = userRepository.findBySalaryAfterSalary(min.max(after.getSalary()), max,
+                            after.getSalary(), after.getId(), pageable);
+                    break;
+                default:
+                    results = userRepository.findBySalaryAfterId(min, max, after.getId(), pageable);
+            }
+        }
+
+        recordQuery(sample, "keyset", sortField, results.size());
+
+        String next = null;
+        if(limit != null && !results.isEmpty() && results.size() >= limit) {
+            final UserEntity last = results.get(results.size() - 1);
+            next = KeysetCursor.of(sortField, last.getId(), last.getName(), last.getSalary()).encode();
+        }
+        return UserPageBean.builder()
+                .results(results.stream().map(this::mapToBean).collect(Collectors.toList()))
+                .next(next)
+                .build();
+    }
+
+    /**
+     * Record query time and number of results, by pagination and sort field.
+     * @param sample timer sample, started before query
+     * @param pagination offset or keyset
+     * @param sortField sort field
+     * @param results number of results
+     */
+    private void recordQuery(final Timer.Sample sample, final String pagination, final SortField sortField,
+                             final int results) {
+        final String engine = properties.getQuery().getEngine().name();
+        sample.stop(meterRegistry.timer("dotsalary.query", "pagination", pagination, "sort", sortField.name(),
+                "engine", engine));
+        DistributionSummary.builder("dotsalary.query.results")
+                .description("Number of users returned per query")
+                .tags("pagination", pagination, "sort", sortField.name(), "engine", engine)
+                .register(meterRegistry)
+                .record(results);
+    }
+
+    /**
+     * Map to service bean.
+     * @param bean entity bean
+     * @return service bean
+     */
+    private UserBean mapToBean(final UserEntity bean) {
+        return UserBean.builder()
+                .id(bean.getId())
+                .name(bean.getName())
+                .salary(bean.getSalary())
+                .build();
+    }
+
+    /**
+     * Get sort field enum value.
+     * @param sort sort field name
+     * @return SortField
+     */
+    private SortField getSortField(final String sort) {
+        SortField sortField = SortField.NONE;
+        if(StringUtils.isNotEmpty((sort))) {
+            try {
+                sortField = SortField.valueOf(sort.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid sort parameter");
+            }
+        }
+        return sortField;
+    }
+}
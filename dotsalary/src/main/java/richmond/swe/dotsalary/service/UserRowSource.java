@@ -0,0 +1,17 @@
+package richmond.swe.dotsalary.service;
+
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+
+/**
+ * Source of user rows, supplied one row at a time.
+ * @author richmondchng
+ */
+@FunctionalInterface
+public interface UserRowSource {
+
+    /**
+     * Supply all rows to handler, in order.
+     * @param handler row handler
+     */
+    void forEachRow(UserRowHandler handler);
+}
@@ -1,133 +1,115 @@
 package richmond.swe.dotsalary.service;
 
 import lombok.AllArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import richmond.swe.dotsalary.data.SortField;
-import richmond.swe.dotsalary.data.entity.UserEntity;
-import richmond.swe.dotsalary.data.repository.OffsetPageRequest;
-import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
 import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.dedup.ExternalNameDedup;
 
-import java.math.BigDecimal;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
- * Service to manage users.
+ * Service to persist uploaded users.
+ * Users are queried through UserQueryService, and salary statistics through UserStatsService.
  * @author richmondchng
  */
 @Service
 @AllArgsConstructor
 public class UserService {
 
-    private final UserRepository userRepository;
-
-    /**
-     * Get users.
-     * @param min min salary
-     * @param max max salary
-     * @param offset offset to start, lower bound
-     * @param limit number of users to get, upper bound
-     * @param sort sort by field ascending
-     * @return collection of user beans
-     */
-    public Collection<UserBean> getUsers(final BigDecimal min, final BigDecimal max, final Integer offset,
-                                         final Integer limit, final String sort) {
-
-        if(min == null) {
-            throw new IllegalArgumentException("Missing mandatory parameter min");
-        }
-        if(max == null) {
-            throw new IllegalArgumentException("Missing mandatory parameter max");
-        }
-        if(offset == null) {
-            throw new IllegalArgumentException("Missing mandatory parameter offset");
-        }
-        final SortField sortField = getSortField(sort);
-
-        // build pagination
-        final Pageable pageable = OffsetPageRequest.builder()
-                .offset(offset)
-                .limit(limit)
-                .sort(sortField)
-                .build();
-
-        final List<UserEntity> results = userRepository.findBySalary(min, max, pageable);
-        return results.stream().map(this::mapToBean).collect(Collectors.toList());
-    }
+    private final EntityManager entityManager;
+    private final DotsalaryProperties properties;
+    private final UserWriter userWriter;
+    private final UploadLogService uploadLogService;
 
     /**
      * Bulk persist records.
+     * When the upload log is enabled, returns once records are written to the log and synced to disk, and records are
+     * applied to the database in the background, in log order.
      * @param records collection of UserBeans
      * @return 1 if successful, 0 if failure
      */
     @Transactional
     public int bulkPersistRecords(final Collection<UserBean> records) {
-        // get all names
-        final Set<String> names = records.stream().map(b -> b.getName().toUpperCase()).collect(Collectors.toSet());
-        // find existing records, put into map where key = name
-        final Map<String, UserEntity> existingUserMap = userRepository.findAllByNames(names)
-                .stream().collect(Collectors.toMap(k -> k.getName().toUpperCase(), Function.identity()));
-
-        for(UserBean record : records) {
-            if(BigDecimal.ZERO.compareTo(record.getSalary()) >= 0) {
-                // if less than or equal 0
-                continue;
-            }
-
-            final String key = record.getName().toUpperCase();
-            final UserEntity existingRecord = existingUserMap.get(key);
-            if(existingRecord == null) {
-                // new record
-                final UserEntity newRecord = new UserEntity();
-                newRecord.setName(record.getName());
-                newRecord.setSalary(record.getSalary());
-                // put back into map
-                existingUserMap.put(key, newRecord);
-                continue;
+        if(uploadLogService.isEnabled()) {
+            try {
+                uploadLogService.appendRecords(records);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
             }
-            // update salary for existing record
-            existingRecord.setSalary(record.getSalary());
+            return 1;
         }
-
-        userRepository.saveAllAndFlush(existingUserMap.values());
+        userWriter.persistRecords(records);
         return 1;
     }
 
     /**
-     * Map to service bean.
-     * @param bean entity bean
-     * @return service bean
+     * Bulk persist records supplied in chunks, within a single transaction.
+     * Persistence context is cleared after each chunk is flushed, so memory is bounded by chunk size rather than
+     * by the total number of records.
+     * When dedup run size is set, repeated names are removed on disk first, and each name is persisted once.
+     * When the upload log is enabled, chunks are spooled to disk as they are read, and appended to the log as one
+     * upload once the source is completely read, so a source that fails part way appends nothing.
+     * @param source source of record chunks
+     * @return 1 if successful, 0 if failure
+     * @throws IOException if records cannot be read from source
      */
-    private UserBean mapToBean(final UserEntity bean) {
-        return UserBean.builder()
-                .id(bean.getId())
-                .name(bean.getName())
-                .salary(bean.getSalary())
-                .build();
+    @Transactional(rollbackFor = Exception.class)
+    public int streamPersistRecords(final RecordChunkSource source) throws IOException {
+        if(uploadLogService.isEnabled()) {
+            uploadLogService.appendChunks(source);
+            return 1;
+        }
+        if(properties.getUpload().getDedupRunSize() > 0) {
+            return dedupPersistRecords(source);
+        }
+        source.forEachChunk(chunk -> {
+            userWriter.persistRecords(chunk);
+            // detach flushed entities
+            entityManager.clear();
+        });
+        return 1;
     }
 
     /**
-     * Get sort field enum value.
-     * @param sort sort field name
-     * @return SortField
+     * Remove repeated names on disk, then persist each name once in chunks, in name order.
+     * Records with salary less than or equal 0 are skipped before they are spilled.
+     * @param source source of record chunks
+     * @return 1 if successful, 0 if failure
+     * @throws IOException if records cannot be read from source, or spilled to disk
      */
-    private SortField getSortField(final String sort) {
-        SortField sortField = SortField.NONE;
-        if(StringUtils.isNotEmpty((sort))) {
+    private int dedupPersistRecords(final RecordChunkSource source) throws IOException {
+        final DotsalaryProperties.Upload upload = properties.getUpload();
+        try(final ExternalNameDedup dedup = new ExternalNameDedup(Paths.get(upload.getDedupSpillDir()),
+                upload.getDedupRunSize())) {
             try {
-                sortField = SortField.valueOf(sort.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Invalid sort parameter");
+                source.forEachChunk(chunk -> {
+                    final List<UserBean> valid = chunk.stream()
+                            .filter(b -> b.getSalary().signum() > 0)
+                            .collect(Collectors.toList());
+                    userWriter.countSkipped(chunk.size() - valid.size());
+                    try {
+                        dedup.addAll(valid);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
             }
+            dedup.merge(upload.getChunkSize(), chunk -> {
+                userWriter.persistRecords(chunk);
+                // detach flushed entities
+                entityManager.clear();
+            });
         }
-        return sortField;
+        return 1;
     }
 }
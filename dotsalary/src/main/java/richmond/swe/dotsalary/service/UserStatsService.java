@@ -0,0 +1,94 @@
+package richmond.swe.dotsalary.service;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.service.bean.SalaryBucketBean;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+import richmond.swe.dotsalary.service.stats.SalaryStats;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service to count users and get salary statistics between min and max salary.
+ * @author richmondchng
+ */
+@Service
+@AllArgsConstructor
+public class UserStatsService {
+
+    private final UserRepository userRepository;
+    private final SalaryStats salaryStats;
+
+    /**
+     * Count users between min and max salary, counted by the database.
+     * @param min min salary
+     * @param max max salary
+     * @return number of users
+     */
+    public long countUsers(final BigDecimal min, final BigDecimal max) {
+        if(min == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter min");
+        }
+        if(max == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter max");
+        }
+        return userRepository.countBySalary(min, max);
+    }
+
+    /**
+     * Count users between min and max salary in buckets of equal width, counted by the database.
+     * Buckets start from multiples of width, only buckets with users are returned.
+     * @param min min salary
+     * @param max max salary
+     * @param width bucket width
+     * @return buckets in ascending order
+     */
+    public List<SalaryBucketBean> getSalaryHistogram(final BigDecimal min, final BigDecimal max,
+                                                     final BigDecimal width) {
+        if(min == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter min");
+        }
+        if(max == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter max");
+        }
+        if(width == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter width");
+        }
+        if(BigDecimal.ZERO.compareTo(width) >= 0) {
+            throw new IllegalArgumentException("Invalid width parameter");
+        }
+        return userRepository.findSalaryHistogram(min, max, width).stream()
+                .map(b -> {
+                    final BigDecimal from = b.getBucket().multiply(width);
+                    return SalaryBucketBean.builder()
+                            .from(from)
+                            .to(from.add(width))
+                            .count(b.getUsers())
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get salary statistics of users between min and max salary.
+     * Answered in constant time from statistics kept in memory, up to date with each committed upload.
+     * Min, max, mean and percentiles are within 1% of the actual salary. Count and sum are exact apart from users with
+     * salaries within about 2% of min or max, which are estimated, unless exact edges are enabled, when those users are
+     * read from the salary index.
+     * @param min min salary
+     * @param max max salary
+     * @return salary statistics
+     */
+    public SalaryStatsBean getSalaryStats(final BigDecimal min, final BigDecimal max) {
+        if(min == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter min");
+        }
+        if(max == null) {
+            throw new IllegalArgumentException("Missing mandatory parameter max");
+        }
+        return salaryStats.getStats(min, max);
+    }
+}
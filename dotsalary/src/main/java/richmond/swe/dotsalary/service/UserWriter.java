@@ -0,0 +1,244 @@
+package richmond.swe.dotsalary.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.PersistenceEngine;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.event.UsersChangedPublisher;
+import richmond.swe.dotsalary.service.stats.SalaryHistogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes uploaded records to the users table, in the caller's transaction, and publishes the changes once it commits.
+ * Shared by direct uploads and by the upload log.
+ * @author richmondchng
+ */
+@Service
+@AllArgsConstructor
+public class UserWriter {
+
+    // transaction resource key of rows skipped in the transaction
+    private static final Object SKIPPED_ROWS = new Object();
+
+    private final UserRepository userRepository;
+    private final UserJdbcRepository userJdbcRepository;
+    private final DotsalaryProperties properties;
+    private final UsersChangedPublisher usersChangedPublisher;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Insert new records and update existing records, then flush.
+     * Skipped records are counted once the transaction commits.
+     * @param records collection of UserBeans
+     */
+    void persistRecords(final Collection<UserBean> records) {
+        countSkipped(records);
+        applyRecords(records);
+    }
+
+    /**
+     * Count records with salary less than or equal 0.
+     * @param records collection of UserBeans
+     */
+    void countSkipped(final Collection<UserBean> records) {
+        countSkipped(records.stream().filter(b -> b.getSalary().signum() <= 0).count());
+    }
+
+    /**
+     * Count skipped rows once the current transaction commits, or now if there is none.
+     * Rows of uploads that roll back are not counted.
+     * @param skipped number of skipped rows
+     */
+    void countSkipped(final long skipped) {
+        final Counter counter = meterRegistry.counter("dotsalary.upload.rows.skipped");
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment(skipped);
+            return;
+        }
+        // one count per transaction, added up over its chunks
+        final AtomicLong pending = (AtomicLong) TransactionSynchronizationManager.getResource(SKIPPED_ROWS);
+        if(pending != null) {
+            pending.addAndGet(skipped);
+            return;
+        }
+        final AtomicLong added = new AtomicLong(skipped);
+        TransactionSynchronizationManager.bindResource(SKIPPED_ROWS, added);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment(added.get());
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SKIPPED_ROWS);
+            }
+        });
+    }
+
+    /**
+     * Insert new records and update existing records, then flush, without counting skipped records.
+     * Used by the upload log, which counts skipped records when records are appended.
+     * @param records collection of UserBeans
+     */
+    void applyRecords(final Collection<UserBean> records) {
+        // names of records that are inserted or updated, published after commit
+        final Set<String> changedNames = records.stream()
+                .filter(b -> b.getSalary().signum() > 0)
+                .map(b -> b.getName().toUpperCase())
+                .collect(Collectors.toSet());
+        final SalaryHistogram salaryChanges = new SalaryHistogram();
+        if(properties.getPersistence().getEngine() == PersistenceEngine.JDBC) {
+            mergeRecords(records, salaryChanges);
+        } else {
+            saveRecords(records, salaryChanges);
+        }
+        usersChangedPublisher.changed(changedNames, salaryChanges);
+    }
+
+    /**
+     * Load existing entities, update them and save new and updated entities through JPA.
+     * Existing entities are locked when loaded, so the previous salaries removed from salary statistics are the ones
+     * updated. A new name inserted by two uploads at once fails one of them on the unique NAME_KEY index, which then
+     * rolls back and publishes no changes.
+     * @param records collection of UserBeans
+     * @param salaryChanges to add new salaries to, and remove previous salaries from
+     */
+    private void saveRecords(final Collection<UserBean> records, final SalaryHistogram salaryChanges) {
+        // get all names
+        final Set<String> names = records.stream().map(b -> b.getName().toUpperCase()).collect(Collectors.toSet());
+        // find existing records, put into map where key = name
+        final Map<String, UserEntity> existingUserMap = meterRegistry.timer("dotsalary.persist.lookup")
+                .record(() -> findAllByNames(names))
+                .stream().collect(Collectors.toMap(k -> k.getName().toUpperCase(), Function.identity()));
+
+        for(UserBean record : records) {
+            if(record.getSalary().signum() <= 0) {
+                // if less than or equal 0
+                continue;
+            }
+
+            final String key = record.getName().toUpperCase();
+            final UserEntity existingRecord = existingUserMap.get(key);
+            if(existingRecord == null) {
+                // new record
+                final UserEntity newRecord = new UserEntity();
+                newRecord.setName(record.getName());
+                newRecord.setSalary(record.getSalary().toBigDecimal());
+                // put back into map
+                existingUserMap.put(key, newRecord);
+                salaryChanges.add(newRecord.getSalary());
+                continue;
+            }
+            // update salary for existing record
+            salaryChanges.remove(existingRecord.getSalary());
+            existingRecord.setSalary(record.getSalary().toBigDecimal());
+            salaryChanges.add(existingRecord.getSalary());
+        }
+
+        meterRegistry.timer("dotsalary.persist.flush", "engine", PersistenceEngine.JPA.name())
+                .record(() -> userRepository.saveAllAndFlush(existingUserMap.values()));
+    }
+
+    /**
+     * Find and lock existing records by upper case names, splitting names into bounded IN clauses.
+     * Names are locked in order, so uploads locking the same names do not wait on each other in a cycle.
+     * @param names upper case names
+     * @return list of entity beans
+     */
+    private List<UserEntity> findAllByNames(final Set<String> names) {
+        final int lookupChunkSize = properties.getPersistence().getLookupChunkSize();
+        if(names.size() <= lookupChunkSize) {
+            return userRepository.findAllByNames(names);
+        }
+        final List<UserEntity> results = new ArrayList<>();
+        Set<String> chunk = new HashSet<>();
+        for(String name : new TreeSet<>(names)) {
+            chunk.add(name);
+            if(chunk.size() >= lookupChunkSize) {
+                results.addAll(userRepository.findAllByNames(chunk));
+                chunk = new HashSet<>();
+            }
+        }
+        if(!chunk.isEmpty()) {
+            results.addAll(userRepository.findAllByNames(chunk));
+        }
+        return results;
+    }
+
+    /**
+     * Read and lock salaries of existing records by upper case names, splitting names into bounded IN clauses.
+     * Names are locked in order, so uploads locking the same names do not wait on each other in a cycle.
+     * @param names upper case names
+     * @param consumer salary consumer
+     */
+    private void findSalariesByNames(final Set<String> names, final Consumer<Salary> consumer) {
+        final int lookupChunkSize = properties.getPersistence().getLookupChunkSize();
+        final UserRowHandler handler = (id, name, salary) -> consumer.accept(salary);
+        List<String> chunk = new ArrayList<>();
+        for(String name : new TreeSet<>(names)) {
+            chunk.add(name);
+            if(chunk.size() >= lookupChunkSize) {
+                userJdbcRepository.lockAllByNameKeys(chunk, handler);
+                chunk = new ArrayList<>();
+            }
+        }
+        if(!chunk.isEmpty()) {
+            userJdbcRepository.lockAllByNameKeys(chunk, handler);
+        }
+    }
+
+    /**
+     * Upsert records with JDBC MERGE statements, without loading existing entities.
+     * Same rules as JPA path, records with salary less than or equal 0 are skipped, and for repeated names the
+     * first name and the last salary are kept.
+     * Existing salaries are read and locked through JDBC before merging, to be removed from salary statistics, so
+     * another upload cannot change them in between. A new name inserted by two uploads at once fails one of them on the
+     * unique NAME_KEY index, which then rolls back and publishes no changes.
+     * @param records collection of UserBeans
+     * @param salaryChanges to add new salaries to, and remove previous salaries from
+     */
+    private void mergeRecords(final Collection<UserBean> records, final SalaryHistogram salaryChanges) {
+        final Map<String, UserEntity> mergeMap = new LinkedHashMap<>();
+        for(UserBean record : records) {
+            if(record.getSalary().signum() <= 0) {
+                // if less than or equal 0
+                continue;
+            }
+            final UserEntity mergeRecord = mergeMap.computeIfAbsent(record.getName().toUpperCase(), k -> {
+                final UserEntity newRecord = new UserEntity();
+                newRecord.setName(record.getName());
+                return newRecord;
+            });
+            mergeRecord.setSalary(record.getSalary().toBigDecimal());
+        }
+        meterRegistry.timer("dotsalary.persist.lookup").record(() ->
+                findSalariesByNames(mergeMap.keySet(), salary -> salaryChanges.remove(salary.toBigDecimal())));
+        mergeMap.values().forEach(r -> salaryChanges.add(r.getSalary()));
+        meterRegistry.timer("dotsalary.persist.flush", "engine", PersistenceEngine.JDBC.name())
+                .record(() -> userJdbcRepository.mergeAll(mergeMap.values(),
+                        properties.getPersistence().getBatchSize()));
+    }
+}
@@ -0,0 +1,20 @@
+package richmond.swe.dotsalary.service.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Salary histogram bucket service bean.
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class SalaryBucketBean {
+    // inclusive
+    private BigDecimal from;
+    // exclusive
+    private BigDecimal to;
+    private long count;
+}
@@ -0,0 +1,24 @@
+package richmond.swe.dotsalary.service.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Salary statistics service bean.
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class SalaryStatsBean {
+    private long count;
+    private BigDecimal sum;
+    // null when count is 0
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal mean;
+    // salary by percentile, in requested order
+    private Map<Integer, BigDecimal> percentiles;
+}
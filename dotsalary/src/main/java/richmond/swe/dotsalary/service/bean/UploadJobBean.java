@@ -0,0 +1,21 @@
+package richmond.swe.dotsalary.service.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import richmond.swe.dotsalary.service.job.UploadJobStatus;
+
+/**
+ * Upload job status service bean.
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class UploadJobBean {
+    private String id;
+    private UploadJobStatus status;
+    private long rowsParsed;
+    private long rowsPersisted;
+    private long rowsSkipped;
+    private long elapsedMillis;
+    private String error;
+}
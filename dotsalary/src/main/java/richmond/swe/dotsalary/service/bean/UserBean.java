@@ -1,7 +1,9 @@
 package richmond.swe.dotsalary.service.bean;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import richmond.swe.dotsalary.data.Salary;
 
 import java.math.BigDecimal;
 
@@ -11,8 +13,25 @@ import java.math.BigDecimal;
  */
 @Getter
 @Builder
+@AllArgsConstructor
 public class UserBean {
     private long id;
     private String name;
-    private BigDecimal salary;
+    private Salary salary;
+
+    public static class UserBeanBuilder {
+        /**
+         * Set salary from decimal, rounded half up to 8 decimal places.
+         * @param salary user salary
+         * @return builder
+         */
+        public UserBeanBuilder salary(final BigDecimal salary) {
+            return salary(Salary.valueOf(salary));
+        }
+
+        public UserBeanBuilder salary(final Salary salary) {
+            this.salary = salary;
+            return this;
+        }
+    }
 }
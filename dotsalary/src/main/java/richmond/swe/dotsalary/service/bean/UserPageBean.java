@@ -0,0 +1,18 @@
+package richmond.swe.dotsalary.service.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Page of user service beans, for keyset pagination.
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class UserPageBean {
+    private Collection<UserBean> results;
+    // cursor for next page, null if this is the last page
+    private String next;
+}
@@ -0,0 +1,136 @@
+package richmond.swe.dotsalary.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.QueryEngine;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.event.UsersChangedEvent;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of /users results, keyed on query parameters.
+ *
+ * Results are stamped with the data version read before the query was run. The version is bumped after each upload
+ * is committed, so results from before the commit, including queries that were still running, are never returned.
+ * With the MEMORY query engine, results are read from the in-memory index, which applies commits in the background,
+ * so the version is bumped by the index once the new snapshot is swapped in, and not on commit, when results read
+ * from the previous snapshot would be cached under the new version.
+ * Least recently used results are evicted when the cache is full.
+ *
+ * Version starts from the start up time, so versions are not repeated after a restart.
+ * @author richmondchng
+ */
+@Component
+public class UserQueryCache {
+
+    private final int maxEntries;
+    // version bumped by the index instead of on commit
+    private final boolean memoryEngine;
+    private final int maxResults;
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    // access ordered, guarded by itself
+    private final Map<UserQueryKey, UserQueryResult> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Create cache.
+     * @param properties application properties
+     * @param meterRegistry registry for hit and miss counters
+     */
+    public UserQueryCache(final DotsalaryProperties properties, final MeterRegistry meterRegistry) {
+        this.maxEntries = properties.getQuery().getCacheSize();
+        this.maxResults = properties.getQuery().getCacheMaxResults();
+        this.memoryEngine = properties.getQuery().getEngine() == QueryEngine.MEMORY;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UserQueryKey, UserQueryResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = meterRegistry.counter("dotsalary.query.cache", "result", "hit");
+        this.misses = meterRegistry.counter("dotsalary.query.cache", "result", "miss");
+    }
+
+    /**
+     * Current data version, to be read before running a query whose results are put into the cache.
+     * @return data version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Get cached results of current data version.
+     * @param key query key
+     * @return results, null if not cached
+     */
+    public UserQueryResult get(final UserQueryKey key) {
+        if(maxEntries <= 0) {
+            return null;
+        }
+        final UserQueryResult entry;
+        synchronized(entries) {
+            entry = entries.get(key);
+        }
+        if(entry == null || entry.getVersion() != version.get()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Cache results, unless data has changed since version was read or there are too many results.
+     * @param key query key
+     * @param queryVersion data version read before the query was run
+     * @param results query results
+     * @return results, with unmodifiable list
+     */
+    public UserQueryResult put(final UserQueryKey key, final long queryVersion, final List<UserBean> results) {
+        final UserQueryResult entry = new UserQueryResult(queryVersion, Collections.unmodifiableList(results));
+        if(maxEntries <= 0 || results.size() > maxResults || queryVersion != version.get()) {
+            return entry;
+        }
+        synchronized(entries) {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Bump data version and drop cached results, after users are committed, unless results are read from the
+     * in-memory index, which does so once it has applied the changes.
+     * Runs after other listeners, so other views of the data are updated before results are cached again.
+     * @param event changed users
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onUsersChanged(final UsersChangedEvent event) {
+        if(memoryEngine) {
+            return;
+        }
+        invalidate();
+    }
+
+    /**
+     * Bump data version and drop cached results, after a view that results are read from is updated.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        synchronized(entries) {
+            entries.clear();
+        }
+    }
+}
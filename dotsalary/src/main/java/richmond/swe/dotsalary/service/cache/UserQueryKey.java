@@ -0,0 +1,44 @@
+package richmond.swe.dotsalary.service.cache;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.SortField;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Normalized /users query parameters, used as cache key.
+ * Salaries are kept as the range of stored salaries they select, scaled to 8 decimal places like the SALARY column,
+ * so 4000 and 4000.00 are the same key.
+ * @author richmondchng
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class UserQueryKey {
+
+    // lowest and highest salary selected, scaled to 8 decimal places
+    long min;
+    long max;
+    int offset;
+    // null for no limit
+    Integer limit;
+    SortField sort;
+
+    /**
+     * Create key from query parameters.
+     * @param min min salary
+     * @param max max salary
+     * @param offset offset to start
+     * @param limit number of users to get, null for no limit
+     * @param sort sort field
+     * @return key
+     */
+    public static UserQueryKey of(final BigDecimal min, final BigDecimal max, final int offset, final Integer limit,
+                                  final SortField sort) {
+        return new UserQueryKey(Salary.toUnits(min, RoundingMode.CEILING), Salary.toUnits(max, RoundingMode.FLOOR),
+                offset, limit, sort);
+    }
+}
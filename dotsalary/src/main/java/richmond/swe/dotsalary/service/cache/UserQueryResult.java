@@ -0,0 +1,41 @@
+package richmond.swe.dotsalary.service.cache;
+
+import lombok.Getter;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Results of a /users query, with the data version they were read at.
+ * Results may be shared between requests, and serialized once for all of them.
+ * @author richmondchng
+ */
+@Getter
+public class UserQueryResult {
+
+    private final long version;
+    // unmodifiable
+    private final List<UserBean> results;
+    // set on first serialize, a racing request may serialize again with the same outcome
+    private volatile byte[] serialized;
+
+    public UserQueryResult(final long version, final List<UserBean> results) {
+        this.version = version;
+        this.results = results;
+    }
+
+    /**
+     * Get serialized results, serializing on first call.
+     * @param serializer function to serialize results, should give the same bytes for the same results
+     * @return serialized results, not to be modified
+     */
+    public byte[] serialize(final Function<List<UserBean>, byte[]> serializer) {
+        byte[] bytes = serialized;
+        if(bytes == null) {
+            bytes = serializer.apply(results);
+            serialized = bytes;
+        }
+        return bytes;
+    }
+}
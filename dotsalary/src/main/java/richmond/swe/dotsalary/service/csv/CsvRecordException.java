@@ -0,0 +1,52 @@
+package richmond.swe.dotsalary.service.csv;
+
+import java.text.MessageFormat;
+
+/**
+ * Invalid record in CSV content. Keeps the line number apart from the message, so that records parsed from a part of
+ * the content can be renumbered relative to the whole content.
+ * @author richmondchng
+ */
+public class CsvRecordException extends IllegalArgumentException {
+
+    private final String pattern;
+    private final int lineNumber;
+    private final Object[] arguments;
+
+    /**
+     * Create exception.
+     * @param pattern message pattern, {0} is the line number
+     * @param lineNumber line number of the record
+     * @param arguments other message arguments, from {1}
+     */
+    public CsvRecordException(final String pattern, final int lineNumber, final Object... arguments) {
+        super(format(pattern, lineNumber, arguments));
+        this.pattern = pattern;
+        this.lineNumber = lineNumber;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Get line number of the record.
+     * @return line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Create same exception with line number moved by the number of records before.
+     * @param linesBefore number of records before
+     * @return renumbered exception
+     */
+    public CsvRecordException renumber(final int linesBefore) {
+        return new CsvRecordException(pattern, lineNumber + linesBefore, arguments);
+    }
+
+    private static String format(final String pattern, final int lineNumber, final Object[] arguments) {
+        final Object[] values = new Object[arguments.length + 1];
+        values[0] = lineNumber;
+        System.arraycopy(arguments, 0, values, 1, arguments.length);
+        return MessageFormat.format(pattern, values);
+    }
+}
@@ -0,0 +1,461 @@
+package richmond.swe.dotsalary.service.csv;
+
+import org.apache.commons.lang3.StringUtils;
+import richmond.swe.dotsalary.data.Salary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Comma separated line tokenizer that works directly on bytes.
+ *
+ * Each call to {@link #nextLine()} finds the field boundaries of one line without creating any objects. Fields are
+ * only turned into Strings or numbers when asked for. Supports quoted fields (with "" as an escaped quote), and lines
+ * terminated by LF, CRLF or CR.
+ *
+ * Field count follows String.split(","), trailing empty fields are not counted.
+ *
+ * @author richmondchng
+ */
+public class CsvTokenizer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    // positions are only kept for the fields that are read, the rest are counted
+    private static final int TRACKED_FIELDS = 2;
+    // max digits that always fit into a long
+    private static final int MAX_LONG_DIGITS = 18;
+    // max digits before the point that always fit into a long scaled to salary scale
+    private static final int MAX_SALARY_DIGITS = MAX_LONG_DIGITS - Salary.SCALE;
+    private static final long[] POWERS_OF_TEN = new long[Salary.SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for(int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private boolean endOfInput;
+
+    // start of the next line
+    private int position;
+    // current line
+    private int fieldCount;
+    private boolean blankLine;
+    private final int[] fieldStarts = new int[TRACKED_FIELDS];
+    private final int[] fieldEnds = new int[TRACKED_FIELDS];
+    private final boolean[] fieldQuoted = new boolean[TRACKED_FIELDS];
+    private byte[] scratch = new byte[128];
+
+    /**
+     * Tokenize input stream, reading through a buffer of default size.
+     * @param inputStream input stream
+     */
+    public CsvTokenizer(final InputStream inputStream) {
+        this(Channels.newChannel(inputStream), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Tokenize channel, reading through a buffer of given size. Buffer grows if a line does not fit.
+     * @param channel input channel
+     * @param bufferSize initial buffer size
+     */
+    public CsvTokenizer(final ReadableByteChannel channel, final int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.limit(0);
+        this.endOfInput = false;
+    }
+
+    /**
+     * Tokenize bytes between position and limit of buffer, e.g. a memory mapped region of a file.
+     * @param buffer bytes to tokenize
+     */
+    public CsvTokenizer(final ByteBuffer buffer) {
+        this.channel = null;
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.endOfInput = true;
+    }
+
+    /**
+     * Advance to next line.
+     * @return true if there is a line, false if end of input
+     * @throws IOException if input cannot be read
+     */
+    public boolean nextLine() throws IOException {
+        while(true) {
+            if(position >= buffer.limit() && endOfInput) {
+                return false;
+            }
+            if(scanLine()) {
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Position in buffer of the start of the next line.
+     * For a tokenizer over a given buffer, this is the absolute position in that buffer.
+     * @return position
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Number of fields in current line, not counting trailing empty fields.
+     * @return field count
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Check if current line has only whitespace.
+     * @return true if blank
+     */
+    public boolean isBlankLine() {
+        return blankLine;
+    }
+
+    /**
+     * Check if field is empty or has only whitespace.
+     * @param field field index, 0 or 1
+     * @return true if blank
+     */
+    public boolean isBlank(final int field) {
+        checkField(field);
+        if(fieldQuoted[field]) {
+            return StringUtils.isBlank(getString(field));
+        }
+        for(int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            final byte b = buffer.get(i);
+            if(b < 0) {
+                // non ascii, let String decide
+                return StringUtils.isBlank(getString(field));
+            }
+            if(!isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get field as String.
+     * @param field field index, 0 or 1
+     * @return field value, without enclosing quotes
+     */
+    public String getString(final int field) {
+        checkField(field);
+        final int start = fieldStarts[field];
+        final int end = fieldEnds[field];
+        if(!fieldQuoted[field]) {
+            if(buffer.hasArray()) {
+                return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+            }
+            // e.g. memory mapped, copy out in bulk
+            final byte[] bytes = scratch(end - start);
+            final ByteBuffer region = buffer.duplicate();
+            region.limit(end).position(start);
+            region.get(bytes, 0, end - start);
+            return new String(bytes, 0, end - start, StandardCharsets.UTF_8);
+        }
+        // unquote, "" inside quotes is an escaped quote
+        final byte[] bytes = scratch(end - start);
+        int length = 0;
+        boolean inQuotes = false;
+        for(int i = start; i < end; i++) {
+            final byte b = buffer.get(i);
+            if(b == '"') {
+                if(inQuotes && i + 1 < end && buffer.get(i + 1) == '"') {
+                    bytes[length++] = '"';
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+                continue;
+            }
+            bytes[length++] = b;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get field as decimal, parsed directly from bytes.
+     * Accepts the same text as {@link BigDecimal#BigDecimal(String)}.
+     * @param field field index, 0 or 1
+     * @return decimal value, null if field is not numeric
+     */
+    public BigDecimal getDecimal(final int field) {
+        checkField(field);
+        if(!fieldQuoted[field]) {
+            final BigDecimal value = parseSimpleDecimal(fieldStarts[field], fieldEnds[field]);
+            if(value != null) {
+                return value;
+            }
+        }
+        // exponent, too many digits, quoted or not numeric
+        try {
+            return new BigDecimal(getString(field));
+        } catch(NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get field as salary, parsed directly from bytes into a long scaled to 8 decimal places.
+     * Accepts the same text as {@link #getDecimal}, values with more than 8 decimal places are rounded half up.
+     * @param field field index, 0 or 1
+     * @return salary, null if field is not numeric
+     * @throws ArithmeticException if value is out of range
+     */
+    public Salary getSalary(final int field) {
+        checkField(field);
+        if(!fieldQuoted[field]) {
+            final long units = parseSimpleSalary(fieldStarts[field], fieldEnds[field]);
+            if(units != Long.MIN_VALUE) {
+                return Salary.ofUnits(units);
+            }
+        }
+        // exponent, too many digits, quoted or not numeric
+        final BigDecimal value = getDecimal(field);
+        return value == null ? null : Salary.valueOf(value);
+    }
+
+    /**
+     * Parse [sign] digits [. digits] into a long scaled to 8 decimal places, without going through String.
+     * @param start start position, inclusive
+     * @param end end position, exclusive
+     * @return scaled salary, Long.MIN_VALUE if not in the simple form or more than 8 decimal places
+     */
+    private long parseSimpleSalary(final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if(i < end) {
+            final byte sign = buffer.get(i);
+            if(sign == '-' || sign == '+') {
+                negative = sign == '-';
+                i++;
+            }
+        }
+        long integer = 0;
+        long fraction = 0;
+        int integerDigits = 0;
+        int scale = 0;
+        boolean point = false;
+        for(; i < end; i++) {
+            final byte b = buffer.get(i);
+            if(b >= '0' && b <= '9') {
+                if(point) {
+                    if(++scale > Salary.SCALE) {
+                        return Long.MIN_VALUE;
+                    }
+                    fraction = fraction * 10 + (b - '0');
+                } else {
+                    if(++integerDigits > MAX_SALARY_DIGITS) {
+                        return Long.MIN_VALUE;
+                    }
+                    integer = integer * 10 + (b - '0');
+                }
+            } else if(b == '.' && !point) {
+                point = true;
+            } else {
+                return Long.MIN_VALUE;
+            }
+        }
+        if(integerDigits + scale == 0) {
+            return Long.MIN_VALUE;
+        }
+        final long units = integer * POWERS_OF_TEN[Salary.SCALE] + fraction * POWERS_OF_TEN[Salary.SCALE - scale];
+        return negative ? -units : units;
+    }
+
+    /**
+     * Parse [sign] digits [. digits] into a decimal without going through String.
+     * @param start start position, inclusive
+     * @param end end position, exclusive
+     * @return decimal value, null if not in the simple form
+     */
+    private BigDecimal parseSimpleDecimal(final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if(i < end) {
+            final byte sign = buffer.get(i);
+            if(sign == '-' || sign == '+') {
+                negative = sign == '-';
+                i++;
+            }
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for(; i < end; i++) {
+            final byte b = buffer.get(i);
+            if(b >= '0' && b <= '9') {
+                if(++digits > MAX_LONG_DIGITS) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if(point) {
+                    scale++;
+                }
+            } else if(b == '.' && !point) {
+                point = true;
+            } else {
+                return null;
+            }
+        }
+        if(digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * Find field boundaries of the line at position.
+     * @return true if line is complete, false if more input is needed
+     */
+    private boolean scanLine() {
+        final int limit = buffer.limit();
+        int p = position;
+        int fieldStart = p;
+        int field = 0;
+        int lastNonEmptyField = -1;
+        boolean quoted = false;
+        boolean inQuotes = false;
+        boolean blank = true;
+        while(true) {
+            if(p >= limit) {
+                if(!endOfInput) {
+                    return false;
+                }
+                // last line without line terminator
+                lastNonEmptyField = endField(field, fieldStart, p, quoted, lastNonEmptyField);
+                position = p;
+                break;
+            }
+            final byte b = buffer.get(p);
+            if(inQuotes) {
+                if(b == '"') {
+                    if(p + 1 >= limit && !endOfInput) {
+                        // cannot tell if this is an escaped quote yet
+                        return false;
+                    }
+                    if(p + 1 < limit && buffer.get(p + 1) == '"') {
+                        p = p + 2;
+                        continue;
+                    }
+                    inQuotes = false;
+                }
+                p++;
+                continue;
+            }
+            if(b == ',') {
+                lastNonEmptyField = endField(field, fieldStart, p, quoted, lastNonEmptyField);
+                field++;
+                p++;
+                fieldStart = p;
+                quoted = false;
+                blank = false;
+                continue;
+            }
+            if(b == '\n') {
+                lastNonEmptyField = endField(field, fieldStart, p, quoted, lastNonEmptyField);
+                position = p + 1;
+                break;
+            }
+            if(b == '\r') {
+                if(p + 1 >= limit && !endOfInput) {
+                    // cannot tell if this is CRLF yet
+                    return false;
+                }
+                lastNonEmptyField = endField(field, fieldStart, p, quoted, lastNonEmptyField);
+                position = p + 1 < limit && buffer.get(p + 1) == '\n' ? p + 2 : p + 1;
+                break;
+            }
+            if(b == '"' && p == fieldStart) {
+                inQuotes = true;
+                quoted = true;
+            }
+            if(blank && !isWhitespace(b)) {
+                blank = false;
+            }
+            p++;
+        }
+        fieldCount = lastNonEmptyField + 1;
+        blankLine = blank;
+        return true;
+    }
+
+    /**
+     * Record boundaries of a field.
+     * @return index of last non-empty field so far
+     */
+    private int endField(final int field, final int start, final int end, final boolean quoted,
+                         final int lastNonEmptyField) {
+        if(field < TRACKED_FIELDS) {
+            fieldStarts[field] = start;
+            fieldEnds[field] = end;
+            fieldQuoted[field] = quoted;
+        }
+        return end > start ? field : lastNonEmptyField;
+    }
+
+    /**
+     * Read more input into buffer, keeping the unfinished line.
+     * @throws IOException if input cannot be read
+     */
+    private void fill() throws IOException {
+        if(channel == null) {
+            endOfInput = true;
+            return;
+        }
+        // move unfinished line to start of buffer
+        buffer.position(position);
+        buffer.compact();
+        position = 0;
+        if(!buffer.hasRemaining()) {
+            // line longer than buffer
+            final ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        final int read = channel.read(buffer);
+        if(read < 0) {
+            endOfInput = true;
+        }
+        buffer.flip();
+    }
+
+    private byte[] scratch(final int length) {
+        if(scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+
+    private void checkField(final int field) {
+        if(field < 0 || field >= TRACKED_FIELDS) {
+            throw new IndexOutOfBoundsException("Field " + field + " is not available");
+        }
+    }
+
+    /**
+     * Same as Character.isWhitespace for ASCII.
+     */
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+    }
+}
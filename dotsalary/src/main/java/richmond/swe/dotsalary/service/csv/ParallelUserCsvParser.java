@@ -0,0 +1,284 @@
+package richmond.swe.dotsalary.service.csv;
+
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Parses a CSV file of user records on multiple threads.
+ *
+ * File is memory mapped and split into chunks on line boundaries, and chunks are parsed on a fork join pool. Records
+ * are handed to the consumer in file order, on the calling thread. Only a few chunks are parsed ahead of the
+ * consumer, so memory is bounded by chunk size rather than file size.
+ *
+ * Line numbers in error messages are counted across chunks, so they are the same as parsing on a single thread.
+ * A line break may be inside a quoted field, so files with quotes are parsed on a single thread.
+ * @author richmondchng
+ */
+public class ParallelUserCsvParser {
+
+    // a line is expected to fit in a mapped region
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    private static final int SCAN_BUFFER_SIZE = 4096;
+    private static final int SEQUENTIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    /**
+     * Create parser.
+     * @param pool pool to parse chunks on
+     * @param chunkBytes approximate number of bytes per chunk
+     */
+    public ParallelUserCsvParser(final ForkJoinPool pool, final int chunkBytes) {
+        if(chunkBytes < 1) {
+            throw new IllegalArgumentException("Chunk bytes should be at least 1");
+        }
+        this.pool = pool;
+        this.chunkBytes = Math.min(chunkBytes, MAX_CHUNK_BYTES);
+    }
+
+    /**
+     * Parse file, handing records to consumer in chunks.
+     * @param file csv file
+     * @param chunkSize maximum number of records per chunk handed to consumer
+     * @param consumer chunk consumer
+     * @return number of records parsed
+     * @throws IOException if file cannot be read
+     */
+    public int parse(final Path file, final int chunkSize, final Consumer<Collection<UserBean>> consumer)
+            throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            // header
+            final CsvTokenizer headerTokenizer = new CsvTokenizer(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_CHUNK_BYTES)));
+            new UserCsvReader(headerTokenizer).readHeader();
+            final long[] boundaries = split(channel, headerTokenizer.getPosition(), size);
+
+            try {
+                if(containsQuote(channel, boundaries)) {
+                    return parseSequential(channel, boundaries, chunkSize, consumer);
+                }
+                return parseParallel(channel, boundaries, chunkSize, consumer);
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Parse chunks ahead of the consumer, and hand records over in order.
+     */
+    private int parseParallel(final FileChannel channel, final long[] boundaries, final int chunkSize,
+                              final Consumer<Collection<UserBean>> consumer) {
+        final int chunks = boundaries.length - 1;
+        final int window = Math.max(2, pool.getParallelism() * 2);
+        final Deque<ForkJoinTask<ChunkResult>> pending = new ArrayDeque<>();
+        final Batcher batcher = new Batcher(chunkSize, consumer);
+        int submitted = 0;
+        int linesBefore = 0;
+        try {
+            while(submitted < chunks || !pending.isEmpty()) {
+                while(submitted < chunks && pending.size() < window) {
+                    final int chunk = submitted++;
+                    pending.add(pool.submit(() -> parseChunk(channel, boundaries[chunk], boundaries[chunk + 1])));
+                }
+                final ChunkResult result = pending.poll().join();
+                batcher.addAll(result.records);
+                if(result.error != null) {
+                    throw result.error.renumber(linesBefore);
+                }
+                linesBefore += result.records.size();
+                if(result.endOfRecords) {
+                    break;
+                }
+            }
+        } finally {
+            pending.forEach(task -> task.cancel(true));
+        }
+        batcher.flush();
+        return linesBefore;
+    }
+
+    /**
+     * Parse body on the calling thread, reading through the channel.
+     */
+    private int parseSequential(final FileChannel channel, final long[] boundaries, final int chunkSize,
+                                final Consumer<Collection<UserBean>> consumer) {
+        final Batcher batcher = new Batcher(chunkSize, consumer);
+        try {
+            final UserCsvReader reader = new UserCsvReader(
+                    new CsvTokenizer(channel.position(boundaries[0]), SEQUENTIAL_BUFFER_SIZE));
+            UserBean record;
+            while((record = reader.next()) != null) {
+                batcher.add(record);
+            }
+            batcher.flush();
+            return reader.getLineNumber();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse records of one chunk, numbering from 1.
+     */
+    private static ChunkResult parseChunk(final FileChannel channel, final long start, final long end) {
+        final CsvTokenizer tokenizer = new CsvTokenizer(map(channel, start, end - start));
+        final UserCsvReader reader = new UserCsvReader(tokenizer);
+        final ChunkResult result = new ChunkResult();
+        try {
+            UserBean record;
+            while((record = reader.next()) != null) {
+                result.records.add(record);
+            }
+            // stopped by blank line, rather than end of chunk
+            result.endOfRecords = tokenizer.isBlankLine();
+        } catch(CsvRecordException e) {
+            result.error = e;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Split body into chunks of about chunkBytes, each ending after a line terminator.
+     * @return chunk boundaries, from body start to file size
+     */
+    private long[] split(final FileChannel channel, final long start, final long size) throws IOException {
+        final List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        long position = start;
+        while(size - position > chunkBytes) {
+            position = findLineEnd(channel, position + chunkBytes, size);
+            boundaries.add(position);
+        }
+        if(position < size) {
+            boundaries.add(size);
+        }
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Find position after the first line terminator (LF, CRLF or CR) at or after from.
+     */
+    private static long findLineEnd(final FileChannel channel, final long from, final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        while(position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if(read <= 0) {
+                break;
+            }
+            for(int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if(b == '\n') {
+                    return position + i + 1;
+                }
+                if(b == '\r') {
+                    final long next = position + i + 1;
+                    if(next < size && readByte(channel, next) == '\n') {
+                        return next + 1;
+                    }
+                    return next;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static byte readByte(final FileChannel channel, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    /**
+     * Check for quote characters in body, in parallel.
+     */
+    private boolean containsQuote(final FileChannel channel, final long[] boundaries) {
+        return pool.submit(() -> IntStream.range(0, boundaries.length - 1).parallel().anyMatch(chunk -> {
+            final MappedByteBuffer region = map(channel, boundaries[chunk], boundaries[chunk + 1] - boundaries[chunk]);
+            for(int i = 0; i < region.limit(); i++) {
+                if(region.get(i) == '"') {
+                    return true;
+                }
+            }
+            return false;
+        })).join();
+    }
+
+    private static MappedByteBuffer map(final FileChannel channel, final long start, final long length) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records of one chunk.
+     */
+    private static class ChunkResult {
+        private final List<UserBean> records = new ArrayList<>();
+        // blank line found, no records after this chunk
+        private boolean endOfRecords;
+        private CsvRecordException error;
+    }
+
+    /**
+     * Regroups records into chunks of chunkSize for the consumer.
+     */
+    private static class Batcher {
+        private final int chunkSize;
+        private final Consumer<Collection<UserBean>> consumer;
+        private List<UserBean> batch = new ArrayList<>();
+
+        private Batcher(final int chunkSize, final Consumer<Collection<UserBean>> consumer) {
+            if(chunkSize < 1) {
+                throw new IllegalArgumentException("Chunk size should be at least 1");
+            }
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+        }
+
+        private void add(final UserBean record) {
+            batch.add(record);
+            if(batch.size() >= chunkSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        private void addAll(final List<UserBean> records) {
+            records.forEach(this::add);
+        }
+
+        private void flush() {
+            if(!batch.isEmpty()) {
+                consumer.accept(batch);
+                batch = new ArrayList<>();
+            }
+        }
+    }
+}
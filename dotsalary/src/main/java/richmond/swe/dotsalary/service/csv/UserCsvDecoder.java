@@ -0,0 +1,146 @@
+package richmond.swe.dotsalary.service.csv;
+
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes CSV content of user records incrementally, from buffers as they arrive.
+ *
+ * Bytes are kept until a line is complete, so only the unfinished line is held between buffers. Line terminators
+ * inside quoted fields do not end a line. Same rules and error messages as {@link UserCsvReader}: the first line is the
+ * header, and a blank line ends the records.
+ * @author richmondchng
+ */
+public class UserCsvDecoder {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    // bytes not yet decoded, from the start of an unfinished line
+    private byte[] pending = new byte[INITIAL_CAPACITY];
+    private int length;
+    // bytes of pending already scanned for line ends, and quote state at that point
+    private int scanned;
+    private boolean inQuote;
+    private boolean headerRead;
+    // blank line found, rest of the content is ignored
+    private boolean ended;
+    private int lineNumber;
+
+    /**
+     * Decode records of the lines completed by input.
+     * @param input next bytes of content, read from position to limit
+     * @return records of completed lines, in order
+     * @throws CsvRecordException if a record is invalid
+     * @throws IllegalArgumentException if the header is invalid
+     */
+    public List<UserBean> decode(final ByteBuffer input) {
+        if(ended) {
+            return new ArrayList<>();
+        }
+        append(input);
+        final int end = scanLineEnds();
+        if(end == 0) {
+            return new ArrayList<>();
+        }
+        final List<UserBean> records = read(end);
+        System.arraycopy(pending, end, pending, 0, length - end);
+        length -= end;
+        scanned -= end;
+        return records;
+    }
+
+    /**
+     * Decode records of the last line, which may not have a line terminator.
+     * @return remaining records
+     * @throws CsvRecordException if a record is invalid
+     * @throws IllegalArgumentException if the header is invalid, or there is no header
+     */
+    public List<UserBean> finish() {
+        if(ended) {
+            return new ArrayList<>();
+        }
+        final List<UserBean> records = read(length);
+        length = 0;
+        scanned = 0;
+        ended = true;
+        return records;
+    }
+
+    /**
+     * Get line number of the last record decoded.
+     * @return line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    private void append(final ByteBuffer input) {
+        final int size = input.remaining();
+        if(length + size > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, length + size));
+        }
+        input.get(pending, length, size);
+        length += size;
+    }
+
+    /**
+     * Scan new bytes for line terminators outside quotes.
+     * @return position after the last complete line, 0 if none
+     */
+    private int scanLineEnds() {
+        int end = 0;
+        int i = scanned;
+        while(i < length) {
+            final byte b = pending[i];
+            if(b == '"') {
+                // escaped quote "" toggles twice
+                inQuote = !inQuote;
+            } else if(!inQuote && b == '\n') {
+                end = i + 1;
+            } else if(!inQuote && b == '\r') {
+                if(i + 1 >= length) {
+                    // LF may follow in the next buffer, scan CR again then
+                    break;
+                }
+                if(pending[i + 1] == '\n') {
+                    i++;
+                }
+                end = i + 1;
+            }
+            i++;
+        }
+        scanned = i;
+        return end;
+    }
+
+    /**
+     * Read records of complete lines, up to end of pending bytes.
+     */
+    private List<UserBean> read(final int end) {
+        final CsvTokenizer tokenizer = new CsvTokenizer(ByteBuffer.wrap(pending, 0, end));
+        final UserCsvReader reader = new UserCsvReader(tokenizer, lineNumber);
+        final List<UserBean> records = new ArrayList<>();
+        try {
+            if(!headerRead) {
+                reader.readHeader();
+                headerRead = true;
+            }
+            UserBean record;
+            while((record = reader.next()) != null) {
+                records.add(record);
+            }
+        } catch(IOException e) {
+            // not thrown for a tokenizer over a buffer
+            throw new UncheckedIOException(e);
+        }
+        ended = tokenizer.isBlankLine();
+        lineNumber = reader.getLineNumber();
+        return records;
+    }
+}
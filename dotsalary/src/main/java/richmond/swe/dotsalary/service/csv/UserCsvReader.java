@@ -0,0 +1,104 @@
+package richmond.swe.dotsalary.service.csv;
+
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+
+/**
+ * Reads user records (NAME, SALARY) from a tokenizer.
+ * @author richmondchng
+ */
+public class UserCsvReader {
+
+    private static final String ERROR_NOT_TWO_HEADERS = "Expect 2 columns, but found {0} column(s)";
+    private static final String ERROR_FIRST_HEADER_NOT_NAME = "First column should be NAME";
+    private static final String ERROR_SECOND_HEADER_NOT_NAME = "Second column should be SALARY";
+
+    private static final String ERROR_NOT_TWO_FIELD = "{0}. Expect line to contain 2 fields, but found {1} field(s)";
+    private static final String ERROR_FIRST_FIELD_INVALID = "{0}. NAME field is blank";
+    private static final String ERROR_SECOND_FIELD_INVALID = "{0}. SALARY field is not numeric";
+    private static final String ERROR_SECOND_FIELD_OUT_OF_RANGE = "{0}. SALARY field is out of range";
+
+    private final CsvTokenizer tokenizer;
+    private int lineNumber;
+
+    /**
+     * Read records, numbering the first record as line 1.
+     * @param tokenizer tokenizer
+     */
+    public UserCsvReader(final CsvTokenizer tokenizer) {
+        this(tokenizer, 0);
+    }
+
+    /**
+     * Read records, numbering lines after the given number of lines already read.
+     * @param tokenizer tokenizer
+     * @param linesBefore number of records before the first record
+     */
+    public UserCsvReader(final CsvTokenizer tokenizer, final int linesBefore) {
+        this.tokenizer = tokenizer;
+        this.lineNumber = linesBefore;
+    }
+
+    /**
+     * Read and validate header line, which should be NAME, SALARY.
+     * @throws IOException if input cannot be read
+     */
+    public void readHeader() throws IOException {
+        if(!tokenizer.nextLine() || tokenizer.isBlankLine()) {
+            throw new IllegalArgumentException(MessageFormat.format(ERROR_NOT_TWO_HEADERS, 0));
+        }
+        if(tokenizer.getFieldCount() != 2) {
+            throw new IllegalArgumentException(MessageFormat.format(ERROR_NOT_TWO_HEADERS, tokenizer.getFieldCount()));
+        }
+        if(!"NAME".equalsIgnoreCase(tokenizer.getString(0))) {
+            throw new IllegalArgumentException(ERROR_FIRST_HEADER_NOT_NAME);
+        }
+        if(!"SALARY".equalsIgnoreCase(tokenizer.getString(1))) {
+            throw new IllegalArgumentException(ERROR_SECOND_HEADER_NOT_NAME);
+        }
+    }
+
+    /**
+     * Read next record. A blank line ends the records.
+     * @return user bean, null if there are no more records
+     * @throws IOException if input cannot be read
+     * @throws CsvRecordException if record is invalid
+     */
+    public UserBean next() throws IOException {
+        if(!tokenizer.nextLine() || tokenizer.isBlankLine()) {
+            // has no fields, this should be the end of file
+            return null;
+        }
+        lineNumber = lineNumber + 1;
+        if(tokenizer.getFieldCount() != 2) {
+            throw new CsvRecordException(ERROR_NOT_TWO_FIELD, lineNumber, tokenizer.getFieldCount());
+        }
+        if(tokenizer.isBlank(0)) {
+            throw new CsvRecordException(ERROR_FIRST_FIELD_INVALID, lineNumber);
+        }
+        final Salary salary;
+        try {
+            salary = tokenizer.getSalary(1);
+        } catch(ArithmeticException e) {
+            throw new CsvRecordException(ERROR_SECOND_FIELD_OUT_OF_RANGE, lineNumber);
+        }
+        if(salary == null) {
+            throw new CsvRecordException(ERROR_SECOND_FIELD_INVALID, lineNumber);
+        }
+        return UserBean.builder()
+                .name(tokenizer.getString(0))
+                .salary(salary)
+                .build();
+    }
+
+    /**
+     * Get line number of the last record read.
+     * @return line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,316 @@
+package richmond.swe.dotsalary.service.dedup;
+
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Removes repeated names from a stream of user records, in bounded memory.
+ *
+ * Records are buffered up to run size, sorted by upper case name and spilled to a run file on disk. Runs are then
+ * merged, so that each name is handed to the consumer once, in upper case name order. Same rules as persisting
+ * within one chunk: for repeated names, the first name and the last salary are kept.
+ *
+ * At most fan-in runs are open at a time. When there are more, consecutive runs are first merged in groups of fan-in
+ * into longer runs, in passes, until one merge reads them all. Memory is bounded by run size plus a read buffer per
+ * open run, rather than by the number of distinct names.
+ * @author richmondchng
+ */
+public class ExternalNameDedup implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_FAN_IN = 64;
+    private static final Comparator<UserBean> BY_KEY = Comparator.comparing(ExternalNameDedup::key);
+
+    private final Path directory;
+    private final int runSize;
+    private final int fanIn;
+    private final List<Path> runs = new ArrayList<>();
+    private List<UserBean> buffer = new ArrayList<>();
+
+    /**
+     * Create dedup stage.
+     * @param directory directory for run files
+     * @param runSize number of records sorted in memory per run
+     */
+    public ExternalNameDedup(final Path directory, final int runSize) {
+        this(directory, runSize, DEFAULT_FAN_IN);
+    }
+
+    /**
+     * Create dedup stage.
+     * @param directory directory for run files
+     * @param runSize number of records sorted in memory per run
+     * @param fanIn max number of runs merged at a time
+     */
+    ExternalNameDedup(final Path directory, final int runSize, final int fanIn) {
+        if(runSize < 1) {
+            throw new IllegalArgumentException("Run size should be at least 1");
+        }
+        if(fanIn < 2) {
+            throw new IllegalArgumentException("Fan in should be at least 2");
+        }
+        this.directory = directory;
+        this.runSize = runSize;
+        this.fanIn = fanIn;
+    }
+
+    /**
+     * Add records, spilling a sorted run to disk each time run size is reached.
+     * @param records records in file order
+     * @throws IOException if run cannot be written
+     */
+    public void addAll(final Collection<UserBean> records) throws IOException {
+        for(UserBean record : records) {
+            buffer.add(record);
+            if(buffer.size() >= runSize) {
+                spill();
+            }
+        }
+    }
+
+    /**
+     * Merge runs, handing records with distinct names to consumer in chunks.
+     * @param chunkSize maximum number of records per chunk
+     * @param consumer chunk consumer
+     * @return number of distinct names
+     * @throws IOException if runs cannot be read, or intermediate runs cannot be written
+     */
+    public int merge(final int chunkSize, final Consumer<Collection<UserBean>> consumer) throws IOException {
+        if(chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size should be at least 1");
+        }
+        if(!buffer.isEmpty()) {
+            spill();
+        }
+        while(runs.size() > fanIn) {
+            mergePass();
+        }
+        final ChunkWriter writer = new ChunkWriter(chunkSize, consumer);
+        final int count = mergeRuns(runs, writer);
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Number of runs spilled to disk.
+     * @return runs
+     */
+    public int getRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Delete run files.
+     */
+    @Override
+    public void close() throws IOException {
+        for(Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+
+    /**
+     * Merge each group of fan-in consecutive runs into one run, so later runs stay after earlier ones.
+     */
+    private void mergePass() throws IOException {
+        final List<Path> inputs = new ArrayList<>(runs);
+        final List<Path> merged = new ArrayList<>();
+        for(int from = 0; from < inputs.size(); from += fanIn) {
+            final List<Path> group = inputs.subList(from, Math.min(from + fanIn, inputs.size()));
+            if(group.size() == 1) {
+                merged.add(group.get(0));
+                continue;
+            }
+            final Path run = Files.createTempFile(directory, "dedup-", ".run");
+            // deleted on close if the pass fails
+            runs.add(run);
+            merged.add(run);
+            try(final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+                mergeRuns(group, (name, salary) -> {
+                    out.writeUTF(name);
+                    out.writeLong(salary);
+                });
+            }
+            for(Path input : group) {
+                Files.delete(input);
+                runs.remove(input);
+            }
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    /**
+     * Merge runs, writing one record per name, with the first name and the last salary.
+     * @param files runs in file order
+     * @param writer record writer
+     * @return number of distinct names
+     */
+    private static int mergeRuns(final List<Path> files, final RecordWriter writer) throws IOException {
+        // earliest run first among equal names, so file order is kept
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, files.size()),
+                Comparator.comparing((RunReader r) -> r.key).thenComparingInt(r -> r.run));
+        final List<RunReader> readers = new ArrayList<>();
+        try {
+            for(int i = 0; i < files.size(); i++) {
+                final RunReader reader = new RunReader(i, files.get(i));
+                readers.add(reader);
+                if(reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            int count = 0;
+            while(!queue.isEmpty()) {
+                final RunReader first = queue.poll();
+                final String key = first.key;
+                final String name = first.name;
+                long salary = first.salary;
+                advance(queue, first);
+                while(!queue.isEmpty() && queue.peek().key.equals(key)) {
+                    final RunReader same = queue.poll();
+                    salary = same.salary;
+                    advance(queue, same);
+                }
+                writer.write(name, salary);
+                count++;
+            }
+            return count;
+        } finally {
+            for(RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void advance(final PriorityQueue<RunReader> queue, final RunReader reader) throws IOException {
+        if(reader.next()) {
+            queue.add(reader);
+        }
+    }
+
+    /**
+     * Sort buffer by name, keeping file order of repeated names, and write one record per name.
+     */
+    private void spill() throws IOException {
+        // stable sort, repeated names stay in file order
+        buffer.sort(BY_KEY);
+        final Path run = Files.createTempFile(directory, "dedup-", ".run");
+        runs.add(run);
+        try(final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+            int i = 0;
+            while(i < buffer.size()) {
+                final UserBean first = buffer.get(i);
+                final String key = key(first);
+                Salary salary = first.getSalary();
+                while(++i < buffer.size() && key(buffer.get(i)).equals(key)) {
+                    salary = buffer.get(i).getSalary();
+                }
+                out.writeUTF(first.getName());
+                out.writeLong(salary.getUnits());
+            }
+        }
+        buffer = new ArrayList<>();
+    }
+
+    private static String key(final UserBean record) {
+        return record.getName().toUpperCase();
+    }
+
+    /**
+     * Takes merged records one at a time.
+     */
+    private interface RecordWriter {
+        /**
+         * Take record.
+         * @param name first name
+         * @param salary last salary, scaled to 8 decimal places
+         */
+        void write(String name, long salary) throws IOException;
+    }
+
+    /**
+     * Hands merged records to consumer in chunks.
+     */
+    private static class ChunkWriter implements RecordWriter {
+        private final int chunkSize;
+        private final Consumer<Collection<UserBean>> consumer;
+        private List<UserBean> chunk = new ArrayList<>();
+
+        private ChunkWriter(final int chunkSize, final Consumer<Collection<UserBean>> consumer) {
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void write(final String name, final long salary) {
+            chunk.add(UserBean.builder().name(name).salary(Salary.ofUnits(salary)).build());
+            if(chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if(!chunk.isEmpty()) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Reads one run file, one record at a time.
+     */
+    private static class RunReader implements Closeable {
+        private final int run;
+        private final DataInputStream in;
+        private String key;
+        private String name;
+        // scaled to 8 decimal places
+        private long salary;
+
+        private RunReader(final int run, final Path file) throws IOException {
+            this.run = run;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        /**
+         * Read next record.
+         * @return false at end of run
+         */
+        private boolean next() throws IOException {
+            try {
+                name = in.readUTF();
+            } catch(EOFException e) {
+                return false;
+            }
+            key = name.toUpperCase();
+            salary = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
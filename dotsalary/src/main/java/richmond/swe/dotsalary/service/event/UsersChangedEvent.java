@@ -0,0 +1,37 @@
+package richmond.swe.dotsalary.service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import richmond.swe.dotsalary.service.stats.SalaryHistogram;
+
+import java.util.Set;
+
+/**
+ * Published after user records are committed.
+ * @author richmondchng
+ */
+@Getter
+@AllArgsConstructor
+public class UsersChangedEvent {
+
+    // upper case names of users inserted or updated, null if too many to track
+    private final Set<String> nameKeys;
+    // salaries added, and previous salaries removed
+    private final SalaryHistogram salaryChanges;
+
+    /**
+     * Create event without salary changes.
+     * @param nameKeys upper case names of users inserted or updated
+     */
+    public UsersChangedEvent(final Set<String> nameKeys) {
+        this(nameKeys, new SalaryHistogram());
+    }
+
+    /**
+     * Check if changed users are not tracked, so any user may have changed.
+     * @return true if all users should be treated as changed
+     */
+    public boolean isAllChanged() {
+        return nameKeys == null;
+    }
+}
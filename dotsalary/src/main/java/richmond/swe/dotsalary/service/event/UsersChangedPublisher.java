@@ -0,0 +1,78 @@
+package richmond.swe.dotsalary.service.event;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import richmond.swe.dotsalary.service.stats.SalaryHistogram;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects changed users within a transaction, and publishes one UsersChangedEvent after the transaction commits.
+ * Nothing is published if the transaction rolls back.
+ * @author richmondchng
+ */
+@Component
+@AllArgsConstructor
+public class UsersChangedPublisher {
+
+    // beyond this, changed names are not kept and all users are treated as changed
+    static final int MAX_TRACKED_NAMES = 100_000;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Record changed users.
+     * @param nameKeys upper case names of users inserted or updated
+     * @param salaryChanges salaries added, and previous salaries removed, of changed users
+     */
+    public void changed(final Collection<String> nameKeys, final SalaryHistogram salaryChanges) {
+        if(nameKeys.isEmpty()) {
+            return;
+        }
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(new UsersChangedEvent(new HashSet<>(nameKeys), salaryChanges));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if(pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.add(nameKeys, salaryChanges);
+    }
+
+    /**
+     * Changes of the current transaction.
+     */
+    private class PendingChanges implements TransactionSynchronization {
+        private Set<String> nameKeys = new HashSet<>();
+        private final SalaryHistogram salaryChanges = new SalaryHistogram();
+
+        private void add(final Collection<String> changed, final SalaryHistogram changedSalaries) {
+            salaryChanges.merge(changedSalaries);
+            if(nameKeys == null) {
+                return;
+            }
+            nameKeys.addAll(changed);
+            if(nameKeys.size() > MAX_TRACKED_NAMES) {
+                nameKeys = null;
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            eventPublisher.publishEvent(new UsersChangedEvent(nameKeys, salaryChanges));
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UsersChangedPublisher.this);
+        }
+    }
+}
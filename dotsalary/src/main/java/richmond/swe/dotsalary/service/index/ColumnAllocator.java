@@ -0,0 +1,190 @@
+package richmond.swe.dotsalary.service.index;
+
+import richmond.swe.dotsalary.config.IndexStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Allocates fixed size columns of the user index, as arrays on heap, direct buffers or memory-mapped files.
+ *
+ * Columns are read and written by index only, so the same code works on each storage. Heap columns wrap primitive
+ * arrays. Off-heap columns of a snapshot are allocated together as {@link Columns}, and handed back once the snapshot
+ * is released by the index and all its readers, then reused for later snapshots, so off-heap memory stays at about two
+ * snapshots however often the index is refreshed, instead of waiting for superseded snapshots to be garbage collected.
+ * @author richmondchng
+ */
+final class ColumnAllocator {
+
+    private static final ColumnAllocator HEAP = new ColumnAllocator(IndexStorage.HEAP, null);
+    // released buffers kept for reuse, enough for the columns of a few snapshots
+    private static final int MAX_RELEASED = 32;
+    private static final int ZERO_CHUNK = 64 * 1024;
+
+    private final IndexStorage storage;
+    private final Path directory;
+    // released off-heap buffers by capacity, guarded by itself
+    private final TreeMap<Integer, Deque<ByteBuffer>> released = new TreeMap<>();
+    private int releasedCount;
+
+    private ColumnAllocator(final IndexStorage storage, final Path directory) {
+        this.storage = storage;
+        this.directory = directory;
+    }
+
+    /**
+     * Get allocator of columns on heap.
+     * @return heap allocator
+     */
+    static ColumnAllocator heap() {
+        return HEAP;
+    }
+
+    /**
+     * Get allocator for storage.
+     * @param storage where columns are kept
+     * @param directory directory of temporary files, for MAPPED storage
+     * @return allocator
+     */
+    static ColumnAllocator of(final IndexStorage storage, final Path directory) {
+        return storage == IndexStorage.HEAP ? HEAP : new ColumnAllocator(storage, directory);
+    }
+
+    /**
+     * Start columns of a new snapshot.
+     * @return columns, empty
+     */
+    Columns columns() {
+        return new Columns(this);
+    }
+
+    /**
+     * Get off-heap buffer of at least bytes, a released one if one is not much larger, with contents zeroed.
+     */
+    private ByteBuffer allocate(final long bytes) {
+        if(bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Index column larger than 2GB");
+        }
+        if(bytes == 0) {
+            return ByteBuffer.allocateDirect(0);
+        }
+        synchronized(released) {
+            final Map.Entry<Integer, Deque<ByteBuffer>> entry = released.ceilingEntry((int) bytes);
+            // not reused for a column less than half its size
+            if(entry != null && entry.getKey() / 2 <= bytes) {
+                final ByteBuffer buffer = entry.getValue().pop();
+                if(entry.getValue().isEmpty()) {
+                    released.remove(entry.getKey());
+                }
+                releasedCount--;
+                return zero(buffer);
+            }
+        }
+        // room to grow, so the column of the next snapshot fits after a few more users
+        final long capacity = Math.min(bytes + bytes / 8, Integer.MAX_VALUE);
+        if(storage == IndexStorage.DIRECT) {
+            return ByteBuffer.allocateDirect((int) capacity);
+        }
+        try {
+            final Path file = Files.createTempFile(directory, "user-index", ".col");
+            // file is removed when channel is closed, mapping stays valid until buffer is collected
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Keep buffers for reuse, up to a limit, the rest are freed when garbage collected.
+     */
+    private void release(final List<ByteBuffer> buffers) {
+        synchronized(released) {
+            for(ByteBuffer buffer : buffers) {
+                if(buffer.capacity() == 0 || releasedCount >= MAX_RELEASED) {
+                    continue;
+                }
+                released.computeIfAbsent(buffer.capacity(), k -> new ArrayDeque<>()).push(buffer);
+                releasedCount++;
+            }
+        }
+    }
+
+    private static ByteBuffer zero(final ByteBuffer buffer) {
+        final ByteBuffer out = buffer.duplicate();
+        out.clear();
+        final byte[] zeros = new byte[Math.min(ZERO_CHUNK, out.capacity())];
+        while(out.hasRemaining()) {
+            out.put(zeros, 0, Math.min(zeros.length, out.remaining()));
+        }
+        return buffer;
+    }
+
+    /**
+     * Columns of one snapshot, handed back to the allocator together when the snapshot is released.
+     * Not thread safe, columns are allocated by the thread building the snapshot.
+     */
+    static final class Columns {
+        private final ColumnAllocator allocator;
+        // off-heap buffers of the columns
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+
+        private Columns(final ColumnAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        LongBuffer longs(final int size) {
+            if(allocator.storage == IndexStorage.HEAP) {
+                return LongBuffer.wrap(new long[size]);
+            }
+            return allocate((long) size * Long.BYTES).asLongBuffer();
+        }
+
+        IntBuffer ints(final int size) {
+            if(allocator.storage == IndexStorage.HEAP) {
+                return IntBuffer.wrap(new int[size]);
+            }
+            return allocate((long) size * Integer.BYTES).asIntBuffer();
+        }
+
+        ByteBuffer bytes(final int size) {
+            if(allocator.storage == IndexStorage.HEAP) {
+                return ByteBuffer.wrap(new byte[size]);
+            }
+            return allocate(size);
+        }
+
+        /**
+         * Hand off-heap buffers back to the allocator, once no reader uses the columns.
+         */
+        void release() {
+            allocator.release(buffers);
+            buffers.clear();
+        }
+
+        private ByteBuffer allocate(final long bytes) {
+            final ByteBuffer buffer = allocator.allocate(bytes);
+            buffers.add(buffer);
+            // column of exactly bytes, buffer may be larger
+            final ByteBuffer column = buffer.duplicate();
+            column.limit((int) bytes);
+            return column.slice().order(ByteOrder.nativeOrder());
+        }
+    }
+}
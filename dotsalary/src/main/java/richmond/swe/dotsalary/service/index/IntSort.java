@@ -0,0 +1,55 @@
+package richmond.swe.dotsalary.service.index;
+
+/**
+ * Sort row numbers by comparator, without boxing.
+ * @author richmondchng
+ */
+final class IntSort {
+
+    /**
+     * Compare two row numbers.
+     */
+    @FunctionalInterface
+    interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private IntSort() {
+    }
+
+    /**
+     * Get row numbers 0 to size - 1, sorted by comparator. Stable merge sort.
+     * @param size number of rows
+     * @param comparator row comparator
+     * @return sorted row numbers
+     */
+    static int[] sort(final int size, final IntComparator comparator) {
+        int[] rows = new int[size];
+        for(int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        int[] work = new int[size];
+        for(int width = 1; width < size; width *= 2) {
+            for(int low = 0; low < size; low += 2 * width) {
+                final int mid = Math.min(low + width, size);
+                final int high = Math.min(low + 2 * width, size);
+                int a = low;
+                int b = mid;
+                int q = low;
+                while(a < mid && b < high) {
+                    work[q++] = comparator.compare(rows[a], rows[b]) <= 0 ? rows[a++] : rows[b++];
+                }
+                while(a < mid) {
+                    work[q++] = rows[a++];
+                }
+                while(b < high) {
+                    work[q++] = rows[b++];
+                }
+            }
+            final int[] swap = rows;
+            rows = work;
+            work = swap;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,143 @@
+package richmond.swe.dotsalary.service.index;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Column of names packed as UTF-8 bytes, one after the other, with the start offset of each name.
+ *
+ * Names are compared on their bytes, in the same order as String.compareTo, and only decoded to a String when a user
+ * is returned.
+ * @author richmondchng
+ */
+final class NameColumn {
+
+    private final ByteBuffer bytes;
+    // start of each name, and end of last name
+    private final IntBuffer offsets;
+
+    NameColumn(final ByteBuffer bytes, final IntBuffer offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Allocate column, to be filled in order with {@link #set(int, int, NameColumn, int)}.
+     * @param columns columns of the snapshot
+     * @param size number of names
+     * @param totalBytes total bytes of all names
+     * @return empty column
+     */
+    static NameColumn allocate(final ColumnAllocator.Columns columns, final int size, final int totalBytes) {
+        return new NameColumn(columns.bytes(totalBytes), columns.ints(size + 1));
+    }
+
+    /**
+     * Total bytes of a name.
+     * @param row row
+     * @return number of bytes
+     */
+    int length(final int row) {
+        return offsets.get(row + 1) - offsets.get(row);
+    }
+
+    /**
+     * End offset of a row, which is the total bytes of names up to and including the row.
+     * @param row row, or -1 for none
+     * @return end offset
+     */
+    int getEnd(final int row) {
+        return offsets.get(row + 1);
+    }
+
+    /**
+     * Copy name of source row into this row, rows must be set in order.
+     * @param row row
+     * @param start start offset of row, end offset of previous row
+     * @param source source column
+     * @param sourceRow source row
+     * @return end offset of row
+     */
+    int set(final int row, final int start, final NameColumn source, final int sourceRow) {
+        final int from = source.offsets.get(sourceRow);
+        final int length = source.length(sourceRow);
+        if(bytes.hasArray() && source.bytes.hasArray()) {
+            System.arraycopy(source.bytes.array(), from, bytes.array(), start, length);
+        } else {
+            for(int i = 0; i < length; i++) {
+                bytes.put(start + i, source.bytes.get(from + i));
+            }
+        }
+        offsets.put(row, start);
+        offsets.put(row + 1, start + length);
+        return start + length;
+    }
+
+    /**
+     * Decode name.
+     * @param row row
+     * @return name
+     */
+    String get(final int row) {
+        final int from = offsets.get(row);
+        final int length = length(row);
+        if(bytes.hasArray()) {
+            return new String(bytes.array(), from, length, StandardCharsets.UTF_8);
+        }
+        final byte[] copy = new byte[length];
+        for(int i = 0; i < length; i++) {
+            copy[i] = bytes.get(from + i);
+        }
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare names, in the same order as String.compareTo.
+     * @param a first column
+     * @param rowA row of first column
+     * @param b second column
+     * @param rowB row of second column
+     * @return negative, zero or positive as first name is less than, equal to or greater than second name
+     */
+    static int compare(final NameColumn a, final int rowA, final NameColumn b, final int rowB) {
+        final int fromA = a.offsets.get(rowA);
+        final int fromB = b.offsets.get(rowB);
+        final int lengthA = a.length(rowA);
+        final int lengthB = b.length(rowB);
+        final int length = Math.min(lengthA, lengthB);
+        if(a.bytes.hasArray() && b.bytes.hasArray()) {
+            final byte[] arrayA = a.bytes.array();
+            final byte[] arrayB = b.bytes.array();
+            for(int i = 0; i < length; i++) {
+                if(arrayA[fromA + i] != arrayB[fromB + i]) {
+                    return compareBytes(arrayA[fromA + i], arrayB[fromB + i]);
+                }
+            }
+        } else {
+            for(int i = 0; i < length; i++) {
+                final byte x = a.bytes.get(fromA + i);
+                final byte y = b.bytes.get(fromB + i);
+                if(x != y) {
+                    return compareBytes(x, y);
+                }
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * Compare first different bytes of two names.
+     */
+    private static int compareBytes(final byte a, final byte b) {
+        int x = a & 0xff;
+        int y = b & 0xff;
+        // UTF-8 bytes sort by code point, String sorts by UTF-16 char, where characters above U+FFFF
+        // (lead byte F0 to F4) are surrogates below U+E000 to U+FFFF (lead byte EE and EF)
+        if(x >= 0xee && y >= 0xee) {
+            x = x >= 0xf0 ? x - 0x10 : x;
+            y = y >= 0xf0 ? y - 0x10 : y;
+        }
+        return x - y;
+    }
+}
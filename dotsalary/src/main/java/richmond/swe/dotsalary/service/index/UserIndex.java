@@ -0,0 +1,229 @@
+package richmond.swe.dotsalary.service.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.QueryEngine;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.cache.UserQueryCache;
+import richmond.swe.dotsalary.service.event.UsersChangedEvent;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of users, for answering /users without querying the database.
+ *
+ * Loaded on start up, then kept in step with the database by applying the users changed by committed uploads.
+ * Each new snapshot copies all columns, so changes committed within the refresh interval are applied together on a
+ * background thread, instead of once per commit on the committing thread. Readers always see a complete snapshot, and
+ * the version of cached query results is bumped only after a new snapshot is swapped in, so results read from the
+ * previous snapshot are never cached under the new version. Columns of the snapshot are kept on heap
+ * or off heap, by index storage. Readers hold the snapshot they read, so the off-heap columns of a superseded snapshot
+ * are reused by later snapshots once its last reader is done.
+ * @author richmondchng
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserIndex {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final DotsalaryProperties properties;
+    private final UserQueryCache userQueryCache;
+
+    private final ScheduledExecutorService refreshExecutor =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("user-index-"));
+    // guarded by itself
+    private final Object pendingLock = new Object();
+    // upper case names changed since last refresh, null if all users changed
+    private Set<String> pendingNameKeys = new HashSet<>();
+    private boolean refreshScheduled;
+
+    // guarded by this, created on first load
+    private ColumnAllocator allocator;
+    // held by the index until replaced
+    private volatile UserIndexSnapshot snapshot = UserIndexSnapshot.empty(ColumnAllocator.heap());
+
+    /**
+     * Get users between min and max salary.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @param offset number of users to skip
+     * @param limit max number of users, null for no limit
+     * @param sort sort by field ascending
+     * @return user beans
+     */
+    public List<UserBean> getUsers(final BigDecimal min, final BigDecimal max, final int offset, final Integer limit,
+                                   final SortField sort) {
+        final UserIndexSnapshot current = acquire();
+        try {
+            return current.query(min, max, offset, limit == null ? Integer.MAX_VALUE : limit, sort);
+        } finally {
+            current.release();
+        }
+    }
+
+    /**
+     * Pass users between min and max salary to handler, one at a time, from the current snapshot.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @param offset number of users to skip
+     * @param limit max number of users, null for no limit
+     * @param sort sort by field ascending
+     * @param handler handler of each user
+     */
+    public void forEachUser(final BigDecimal min, final BigDecimal max, final int offset, final Integer limit,
+                            final SortField sort, final UserRowHandler handler) {
+        final UserIndexSnapshot current = acquire();
+        try {
+            current.forEach(min, max, offset, limit == null ? Integer.MAX_VALUE : limit, sort, handler);
+        } finally {
+            current.release();
+        }
+    }
+
+    /**
+     * Hold current snapshot for reading.
+     * @return snapshot, to be released when done
+     */
+    private UserIndexSnapshot acquire() {
+        while(true) {
+            final UserIndexSnapshot current = snapshot;
+            // fails only if replaced and released since read, then the next read gets the new one
+            if(current.retain()) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Replace current snapshot, releasing the previous one once its readers are done.
+     * @param next new snapshot
+     */
+    private void swap(final UserIndexSnapshot next) {
+        final UserIndexSnapshot previous = snapshot;
+        snapshot = next;
+        if(previous != next) {
+            previous.release();
+        }
+    }
+
+    /**
+     * Load all users, when index is enabled, then drop results cached before they were loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if(isEnabled()) {
+            reload();
+            userQueryCache.invalidate();
+        }
+    }
+
+    /**
+     * Queue committed changes, to be applied within the refresh interval, when index is enabled.
+     * @param event changed users
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onUsersChanged(final UsersChangedEvent event) {
+        if(!isEnabled()) {
+            return;
+        }
+        synchronized(pendingLock) {
+            if(event.isAllChanged()) {
+                pendingNameKeys = null;
+            } else if(pendingNameKeys != null) {
+                pendingNameKeys.addAll(event.getNameKeys());
+            }
+            if(!refreshScheduled) {
+                refreshScheduled = true;
+                refreshExecutor.schedule(this::refresh, properties.getQuery().getIndexRefreshInterval(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Apply changes queued since last refresh, then drop cached query results read from the previous snapshot.
+     * On failure, all users are reloaded on the next refresh.
+     */
+    void refresh() {
+        final Set<String> nameKeys;
+        synchronized(pendingLock) {
+            nameKeys = pendingNameKeys;
+            pendingNameKeys = new HashSet<>();
+            refreshScheduled = false;
+        }
+        try {
+            if(nameKeys == null) {
+                reload();
+            } else {
+                upsert(nameKeys);
+            }
+        } catch(RuntimeException e) {
+            log.error("Exception caught {}", e.getMessage(), e);
+            onUsersChanged(new UsersChangedEvent(null));
+            return;
+        }
+        userQueryCache.invalidate();
+    }
+
+    private synchronized void upsert(final Set<String> nameKeys) {
+        final int lookupChunkSize = properties.getPersistence().getLookupChunkSize();
+        final UserRows rows = new UserRows(nameKeys.size());
+        List<String> chunk = new ArrayList<>();
+        for(String nameKey : nameKeys) {
+            chunk.add(nameKey);
+            if(chunk.size() >= lookupChunkSize) {
+                userJdbcRepository.findAllByNameKeys(chunk, rows);
+                chunk = new ArrayList<>();
+            }
+        }
+        userJdbcRepository.findAllByNameKeys(chunk, rows);
+        swap(snapshot.upsert(rows));
+    }
+
+    /**
+     * Replace index with all users from database.
+     */
+    public synchronized void reload() {
+        final UserRows rows = new UserRows();
+        userJdbcRepository.findAll(rows);
+        if(allocator == null) {
+            final DotsalaryProperties.Query query = properties.getQuery();
+            allocator = ColumnAllocator.of(query.getIndexStorage(), Paths.get(query.getIndexDir()));
+        }
+        swap(UserIndexSnapshot.build(rows, allocator));
+        log.info("Loaded {} users into index, {} storage", snapshot.size(), properties.getQuery().getIndexStorage());
+    }
+
+    /**
+     * Stop applying changes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private boolean isEnabled() {
+        return properties.getQuery().getEngine() == QueryEngine.MEMORY;
+    }
+}
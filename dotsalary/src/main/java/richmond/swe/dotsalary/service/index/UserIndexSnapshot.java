@@ -0,0 +1,396 @@
+package richmond.swe.dotsalary.service.index;
+
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable, sorted in-memory copy of all users.
+ *
+ * Users are kept in parallel columns sorted by salary, then id. Salary is held as a long scaled to 8 decimal places,
+ * same as the SALARY column, so range lookup is a binary search over a column of longs. Names are packed as UTF-8
+ * bytes. Name order and id order are kept as permutations of the salary order.
+ *
+ * Columns are allocated by a {@link ColumnAllocator}, on heap or off heap, and each user takes a fixed 36 bytes plus
+ * the bytes of its name, with no object per user.
+ *
+ * A snapshot is held by its owner and by each reader while reading. Once it is released by all of them, its columns
+ * are handed back to the allocator, to be reused by a later snapshot, so a snapshot must not be read after release.
+ *
+ * @author richmondchng
+ */
+public final class UserIndexSnapshot {
+
+    private static final UserIndexSnapshot EMPTY = empty(ColumnAllocator.heap());
+
+    private final ColumnAllocator allocator;
+    private final ColumnAllocator.Columns columns;
+    // owner and readers holding snapshot, columns are released when none do
+    private final AtomicInteger holders = new AtomicInteger(1);
+    private final int size;
+    // by position, sorted by salary then id
+    private final LongBuffer ids;
+    private final LongBuffer salaries;
+    private final NameColumn names;
+    // positions sorted by name then id, and rank of each position in that order
+    private final IntBuffer nameOrder;
+    private final IntBuffer nameRanks;
+    // positions sorted by id, and rank of each position in that order
+    private final IntBuffer idOrder;
+    private final IntBuffer idRanks;
+
+    private UserIndexSnapshot(final ColumnAllocator allocator, final ColumnAllocator.Columns columns, final int size,
+                              final LongBuffer ids, final LongBuffer salaries, final NameColumn names,
+                              final IntBuffer nameOrder, final IntBuffer nameRanks, final IntBuffer idOrder,
+                              final IntBuffer idRanks) {
+        this.allocator = allocator;
+        this.columns = columns;
+        this.size = size;
+        this.ids = ids;
+        this.salaries = salaries;
+        this.names = names;
+        this.nameOrder = nameOrder;
+        this.nameRanks = nameRanks;
+        this.idOrder = idOrder;
+        this.idRanks = idRanks;
+    }
+
+    /**
+     * Get empty snapshot, with columns on heap, shared so never to be released.
+     * @return snapshot with no users
+     */
+    public static UserIndexSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Get empty snapshot.
+     * @param allocator allocator of columns of this and later snapshots
+     * @return snapshot with no users
+     */
+    static UserIndexSnapshot empty(final ColumnAllocator allocator) {
+        final ColumnAllocator.Columns columns = allocator.columns();
+        return new UserIndexSnapshot(allocator, columns, 0, columns.longs(0), columns.longs(0),
+                NameColumn.allocate(columns, 0, 0), columns.ints(0), columns.ints(0), columns.ints(0),
+                columns.ints(0));
+    }
+
+    /**
+     * Build snapshot from unsorted users, with columns on heap.
+     * @param users users
+     * @return snapshot
+     */
+    public static UserIndexSnapshot build(final UserRows users) {
+        return EMPTY.upsert(users);
+    }
+
+    /**
+     * Build snapshot from unsorted users.
+     * @param users users
+     * @param allocator allocator of columns of this and later snapshots
+     * @return snapshot
+     */
+    static UserIndexSnapshot build(final UserRows users, final ColumnAllocator allocator) {
+        return empty(allocator).upsert(users);
+    }
+
+    /**
+     * Number of users.
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Hold snapshot for reading, to be released when done.
+     * @return false if already released by all holders, when it must not be read
+     */
+    boolean retain() {
+        int count;
+        do {
+            count = holders.get();
+            if(count <= 0) {
+                return false;
+            }
+        } while(!holders.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Release snapshot, handing its columns back to the allocator once no holder is left.
+     */
+    void release() {
+        if(holders.decrementAndGet() == 0) {
+            columns.release();
+        }
+    }
+
+    /**
+     * Get users between min and max salary.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @param offset number of users to skip
+     * @param limit max number of users
+     * @param sort sort by field ascending, NONE is by id
+     * @return user beans
+     */
+    public List<UserBean> query(final BigDecimal min, final BigDecimal max, final int offset, final int limit,
+                                final SortField sort) {
+        final List<UserBean> results = new ArrayList<>();
+        forEach(min, max, offset, limit, sort, (id, name, salary) -> results.add(UserBean.builder()
+                .id(id)
+                .name(name)
+                .salary(salary)
+                .build()));
+        return results;
+    }
+
+    /**
+     * Pass users between min and max salary to handler, one at a time, without collecting them.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @param offset number of users to skip
+     * @param limit max number of users
+     * @param sort sort by field ascending, NONE is by id
+     * @param handler handler of each user
+     */
+    public void forEach(final BigDecimal min, final BigDecimal max, final int offset, final int limit,
+                        final SortField sort, final UserRowHandler handler) {
+        final int lo = lowerBound(Salary.toUnits(min, RoundingMode.CEILING));
+        final int hi = upperBound(Salary.toUnits(max, RoundingMode.FLOOR));
+        final int count = hi - lo;
+        if(count <= 0 || offset >= count || limit <= 0) {
+            return;
+        }
+        final int length = Math.min(limit, count - offset);
+        if(sort == SortField.SALARY) {
+            for(int p = lo + offset; p < lo + offset + length; p++) {
+                handle(p, handler);
+            }
+            return;
+        }
+        final IntBuffer order = sort == SortField.NAME ? nameOrder : idOrder;
+        final IntBuffer ranks = sort == SortField.NAME ? nameRanks : idRanks;
+        if((long) count * (32 - Integer.numberOfLeadingZeros(count)) < size) {
+            // small range, sort ranks of positions in range
+            final int[] rangeRanks = new int[count];
+            for(int p = lo; p < hi; p++) {
+                rangeRanks[p - lo] = ranks.get(p);
+            }
+            Arrays.sort(rangeRanks);
+            for(int i = offset; i < offset + length; i++) {
+                handle(order.get(rangeRanks[i]), handler);
+            }
+            return;
+        }
+        // large range, walk the order and keep positions in range
+        int skipped = 0;
+        int handled = 0;
+        for(int r = 0; r < size && handled < length; r++) {
+            final int p = order.get(r);
+            if(p < lo || p >= hi) {
+                continue;
+            }
+            if(skipped < offset) {
+                skipped++;
+                continue;
+            }
+            handle(p, handler);
+            handled++;
+        }
+    }
+
+    /**
+     * Create new snapshot with users inserted or updated, matched by id.
+     * Merges sorted arrays, so cost is linear in the number of users plus sorting the changed users.
+     * @param changed changed users
+     * @return new snapshot
+     */
+    public UserIndexSnapshot upsert(final UserRows changed) {
+        final UserRows rows = changed.distinctById();
+        final NameColumn rowNames = rows.getNames();
+        final int k = rows.size();
+        if(k == 0) {
+            return this;
+        }
+        // old positions replaced by changed users
+        final boolean[] removed = new boolean[size];
+        int removedCount = 0;
+        int removedBytes = 0;
+        for(int c = 0; c < k; c++) {
+            final int p = findById(rows.getId(c));
+            if(p >= 0) {
+                removed[p] = true;
+                removedCount++;
+                removedBytes += names.length(p);
+            }
+        }
+        final int n = size - removedCount + k;
+        final int nameBytes = Math.addExact(names.getEnd(size - 1) - removedBytes, rows.getNameBytes());
+        final ColumnAllocator.Columns newColumns = allocator.columns();
+        final LongBuffer newIds = newColumns.longs(n);
+        final LongBuffer newSalaries = newColumns.longs(n);
+        final NameColumn newNames = NameColumn.allocate(newColumns, n, nameBytes);
+        final int[] oldToNew = new int[size];
+        final int[] changedToNew = new int[k];
+
+        // merge by salary, then id
+        final int[] changedBySalary = IntSort.sort(k, (a, b) -> {
+            final int result = Long.compare(rows.getSalary(a), rows.getSalary(b));
+            return result != 0 ? result : Long.compare(rows.getId(a), rows.getId(b));
+        });
+        int p = 0;
+        int c = 0;
+        int q = 0;
+        int nameEnd = 0;
+        while(p < size || c < k) {
+            if(p < size && removed[p]) {
+                oldToNew[p++] = -1;
+                continue;
+            }
+            final boolean takeOld;
+            if(c >= k) {
+                takeOld = true;
+            } else if(p >= size) {
+                takeOld = false;
+            } else {
+                final int cc = changedBySalary[c];
+                final int result = Long.compare(salaries.get(p), rows.getSalary(cc));
+                takeOld = result < 0 || (result == 0 && ids.get(p) < rows.getId(cc));
+            }
+            if(takeOld) {
+                newIds.put(q, ids.get(p));
+                newSalaries.put(q, salaries.get(p));
+                nameEnd = newNames.set(q, nameEnd, names, p);
+                oldToNew[p++] = q++;
+            } else {
+                final int cc = changedBySalary[c++];
+                newIds.put(q, rows.getId(cc));
+                newSalaries.put(q, rows.getSalary(cc));
+                nameEnd = newNames.set(q, nameEnd, rowNames, cc);
+                changedToNew[cc] = q++;
+            }
+        }
+
+        // merge name order and id order, through new positions
+        final int[] changedByName = IntSort.sort(k, (a, b) -> compareByName(newNames, newIds,
+                changedToNew[a], changedToNew[b]));
+        final IntBuffer newNameOrder = mergeOrder(newColumns, nameOrder, oldToNew, changedByName, changedToNew, n,
+                (a, b) -> compareByName(newNames, newIds, a, b));
+        final int[] changedById = IntSort.sort(k, (a, b) -> Long.compare(rows.getId(a), rows.getId(b)));
+        final IntBuffer newIdOrder = mergeOrder(newColumns, idOrder, oldToNew, changedById, changedToNew, n,
+                (a, b) -> Long.compare(newIds.get(a), newIds.get(b)));
+
+        return new UserIndexSnapshot(allocator, newColumns, n, newIds, newSalaries, newNames, newNameOrder,
+                toRanks(newColumns, newNameOrder, n), newIdOrder, toRanks(newColumns, newIdOrder, n));
+    }
+
+    /**
+     * Merge old order (mapped to new positions) with changed users in the same order.
+     */
+    private IntBuffer mergeOrder(final ColumnAllocator.Columns newColumns, final IntBuffer oldOrder,
+                                 final int[] oldToNew, final int[] changedSorted, final int[] changedToNew, final int n,
+                                 final IntSort.IntComparator comparator) {
+        final IntBuffer order = newColumns.ints(n);
+        int r = 0;
+        int c = 0;
+        int q = 0;
+        while(q < n) {
+            if(r < size && oldToNew[oldOrder.get(r)] < 0) {
+                r++;
+                continue;
+            }
+            if(c >= changedSorted.length
+                    || (r < size && comparator.compare(oldToNew[oldOrder.get(r)], changedToNew[changedSorted[c]]) < 0)) {
+                order.put(q++, oldToNew[oldOrder.get(r++)]);
+            } else {
+                order.put(q++, changedToNew[changedSorted[c++]]);
+            }
+        }
+        return order;
+    }
+
+    private static int compareByName(final NameColumn names, final LongBuffer ids, final int a, final int b) {
+        final int result = NameColumn.compare(names, a, names, b);
+        return result != 0 ? result : Long.compare(ids.get(a), ids.get(b));
+    }
+
+    private static IntBuffer toRanks(final ColumnAllocator.Columns newColumns, final IntBuffer order, final int n) {
+        final IntBuffer ranks = newColumns.ints(n);
+        for(int r = 0; r < n; r++) {
+            ranks.put(order.get(r), r);
+        }
+        return ranks;
+    }
+
+    /**
+     * Find position of user by id.
+     * @param id user id
+     * @return position, -1 if not found
+     */
+    private int findById(final long id) {
+        int low = 0;
+        int high = size - 1;
+        while(low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midId = ids.get(idOrder.get(mid));
+            if(midId < id) {
+                low = mid + 1;
+            } else if(midId > id) {
+                high = mid - 1;
+            } else {
+                return idOrder.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First position with salary greater than or equal to value.
+     */
+    private int lowerBound(final long value) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(salaries.get(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position with salary greater than value.
+     */
+    private int upperBound(final long value) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(salaries.get(mid) <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void handle(final int p, final UserRowHandler handler) {
+        handler.handle(ids.get(p), names.get(p), Salary.ofUnits(salaries.get(p)));
+    }
+}
@@ -0,0 +1,140 @@
+package richmond.swe.dotsalary.service.index;
+
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Growable column buffer of user rows, used to load the index without creating a bean per user.
+ * Names are packed as UTF-8 bytes, so no String is kept per row.
+ * @author richmondchng
+ */
+public class UserRows implements UserRowHandler {
+
+    private long[] ids;
+    private long[] salaries;
+    private byte[] nameBytes;
+    // start of each name, and end of last name
+    private int[] nameOffsets;
+    private int size;
+
+    public UserRows() {
+        this(16);
+    }
+
+    public UserRows(final int capacity) {
+        ids = new long[Math.max(capacity, 1)];
+        salaries = new long[ids.length];
+        nameBytes = new byte[ids.length * 8];
+        nameOffsets = new int[ids.length + 1];
+    }
+
+    @Override
+    public void handle(final long id, final String name, final Salary salary) {
+        ensureRowCapacity();
+        final int start = nameOffsets[size];
+        ensureNameCapacity(start + name.length());
+        int end = start;
+        for(int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if(c >= 0x80) {
+                // not ASCII, encode whole name
+                final byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                ensureNameCapacity(start + encoded.length);
+                System.arraycopy(encoded, 0, nameBytes, start, encoded.length);
+                end = start + encoded.length;
+                break;
+            }
+            nameBytes[end++] = (byte) c;
+        }
+        addRow(id, salary.getUnits(), end);
+    }
+
+    /**
+     * Add row, copying name bytes from another buffer.
+     */
+    private void add(final UserRows source, final int row) {
+        ensureRowCapacity();
+        final int start = nameOffsets[size];
+        final int length = source.nameOffsets[row + 1] - source.nameOffsets[row];
+        ensureNameCapacity(start + length);
+        System.arraycopy(source.nameBytes, source.nameOffsets[row], nameBytes, start, length);
+        addRow(source.ids[row], source.salaries[row], start + length);
+    }
+
+    private void addRow(final long id, final long salary, final int nameEnd) {
+        ids[size] = id;
+        salaries[size] = salary;
+        nameOffsets[++size] = nameEnd;
+    }
+
+    private void ensureRowCapacity() {
+        if(size == ids.length) {
+            final int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        }
+    }
+
+    private void ensureNameCapacity(final int capacity) {
+        if(capacity > nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(capacity, nameBytes.length * 2));
+        }
+    }
+
+    /**
+     * Get rows with repeated ids removed, the last row of each id is kept.
+     * @return rows with unique ids
+     */
+    UserRows distinctById() {
+        final Map<Long, Integer> lastRow = new HashMap<>(size * 2);
+        for(int i = 0; i < size; i++) {
+            lastRow.put(ids[i], i);
+        }
+        if(lastRow.size() == size) {
+            return this;
+        }
+        final UserRows rows = new UserRows(lastRow.size());
+        for(int i = 0; i < size; i++) {
+            if(lastRow.get(ids[i]) == i) {
+                rows.add(this, i);
+            }
+        }
+        return rows;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    long getId(final int row) {
+        return ids[row];
+    }
+
+    long getSalary(final int row) {
+        return salaries[row];
+    }
+
+    /**
+     * Get names of all rows, valid until more rows are added.
+     * @return name column
+     */
+    NameColumn getNames() {
+        return new NameColumn(ByteBuffer.wrap(nameBytes), IntBuffer.wrap(nameOffsets));
+    }
+
+    /**
+     * Total bytes of names of all rows.
+     * @return number of bytes
+     */
+    int getNameBytes() {
+        return nameOffsets[size];
+    }
+}
@@ -0,0 +1,104 @@
+package richmond.swe.dotsalary.service.job;
+
+import lombok.Getter;
+import richmond.swe.dotsalary.service.bean.UploadJobBean;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of one upload job, updated by the worker thread and read by status queries.
+ * @author richmondchng
+ */
+class UploadJob {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final Path file;
+    private final long createdNanos = System.nanoTime();
+
+    private volatile UploadJobStatus status = UploadJobStatus.QUEUED;
+    private volatile long rowsParsed;
+    // committed, guarded by this for writes
+    private volatile long rowsPersisted;
+    private volatile long rowsSkipped;
+    // persisted in the transaction of the whole upload, counted once it commits
+    private long pendingPersisted;
+    private long pendingSkipped;
+    private volatile long finishedNanos;
+    private volatile String error;
+
+    UploadJob(final String id, final Path file) {
+        this.id = id;
+        this.file = file;
+    }
+
+    void started() {
+        status = UploadJobStatus.RUNNING;
+    }
+
+    /**
+     * Record chunk of parsed records. Only called by worker thread.
+     * @param parsed number of records parsed
+     */
+    void parsed(final int parsed) {
+        rowsParsed += parsed;
+    }
+
+    /**
+     * Record chunk of committed records. Called by worker thread, or the upload log apply thread.
+     * @param persisted number of records inserted or updated
+     * @param skipped number of records skipped
+     */
+    synchronized void persisted(final long persisted, final long skipped) {
+        rowsPersisted += persisted;
+        rowsSkipped += skipped;
+    }
+
+    /**
+     * Record chunk of records persisted in the transaction of the whole upload, counted once the job completes.
+     * Only called by worker thread.
+     * @param persisted number of records inserted or updated
+     * @param skipped number of records skipped
+     */
+    void pending(final int persisted, final int skipped) {
+        pendingPersisted += persisted;
+        pendingSkipped += skipped;
+    }
+
+    void completed() {
+        persisted(pendingPersisted, pendingSkipped);
+        finishedNanos = System.nanoTime();
+        status = UploadJobStatus.COMPLETED;
+    }
+
+    /**
+     * Mark job as failed. Pending records are rolled back, records committed before the failure stay counted.
+     * @param message error message
+     */
+    void failed(final String message) {
+        error = message;
+        finishedNanos = System.nanoTime();
+        status = UploadJobStatus.FAILED;
+    }
+
+    boolean isFinished() {
+        final UploadJobStatus current = status;
+        return current == UploadJobStatus.COMPLETED || current == UploadJobStatus.FAILED;
+    }
+
+    UploadJobBean toBean() {
+        final UploadJobStatus current = status;
+        final long end = isFinished() ? finishedNanos : System.nanoTime();
+        return UploadJobBean.builder()
+                .id(id)
+                .status(current)
+                .rowsParsed(rowsParsed)
+                .rowsPersisted(rowsPersisted)
+                .rowsSkipped(rowsSkipped)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(end - createdNanos))
+                .error(error)
+                .build();
+    }
+}
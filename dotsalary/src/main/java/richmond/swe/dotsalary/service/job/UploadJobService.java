@@ -0,0 +1,329 @@
+package richmond.swe.dotsalary.service.job;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.UploadMode;
+import richmond.swe.dotsalary.exception.BulkRecordProcessException;
+import richmond.swe.dotsalary.exception.UploadJobNotFoundException;
+import richmond.swe.dotsalary.exception.UploadJobRejectedException;
+import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.PipelinedUploadService;
+import richmond.swe.dotsalary.service.RecordChunkSource;
+import richmond.swe.dotsalary.service.ResumableUploadService;
+import richmond.swe.dotsalary.service.UploadLogService;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UploadJobBean;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Service to process uploaded files in the background.
+ *
+ * Uploaded file is spooled to local disk and a job id is returned straight away. Jobs are processed by a fixed number
+ * of worker threads, with a bounded queue; uploads beyond the queue capacity are rejected rather than held in memory.
+ * Each job is parsed and persisted in chunks within a single transaction, same as STREAMING upload mode; in PARALLEL
+ * upload mode the spooled file is parsed on multiple threads. In CHUNKED upload mode each chunk is committed with a
+ * checkpoint, so a failed job resumes when the same file is submitted again. In PIPELINED upload mode chunks are
+ * persisted on worker threads while the file is parsed. When the upload log is enabled, each chunk is appended to the
+ * log as it is parsed, in every upload mode, and the job completes once its chunks are applied, or fails if any chunk
+ * is quarantined or not applied before shutdown.
+ * @author richmondchng
+ */
+@Slf4j
+@Service
+public class UploadJobService {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final FileProcessorService fileProcessorService;
+    private final UserService userService;
+    private final ResumableUploadService resumableUploadService;
+    private final PipelinedUploadService pipelinedUploadService;
+    private final UploadLogService uploadLogService;
+    private final DotsalaryProperties properties;
+    private final ThreadPoolExecutor executor;
+    // jobs in order of submission, guarded by itself
+    private final Map<String, UploadJob> jobs = new LinkedHashMap<>();
+
+    public UploadJobService(final FileProcessorService fileProcessorService, final UserService userService,
+                            final ResumableUploadService resumableUploadService,
+                            final PipelinedUploadService pipelinedUploadService,
+                            final UploadLogService uploadLogService,
+                            final DotsalaryProperties properties) {
+        this.fileProcessorService = fileProcessorService;
+        this.userService = userService;
+        this.resumableUploadService = resumableUploadService;
+        this.pipelinedUploadService = pipelinedUploadService;
+        this.uploadLogService = uploadLogService;
+        this.properties = properties;
+        final DotsalaryProperties.Jobs jobProperties = properties.getJobs();
+        this.executor = new ThreadPoolExecutor(jobProperties.getThreads(), jobProperties.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(jobProperties.getQueueCapacity()),
+                new CustomizableThreadFactory("upload-job-"));
+    }
+
+    /**
+     * Spool uploaded file to disk and queue it for processing.
+     * @param file csv text file
+     * @return job status
+     * @throws IOException if file cannot be spooled
+     */
+    public UploadJobBean submit(final MultipartFile file) throws IOException {
+        if(!"text/csv".equalsIgnoreCase(file.getContentType())) {
+            throw new IllegalArgumentException("Not a CSV file");
+        }
+        final Path spoolDir = Paths.get(properties.getJobs().getSpoolDir());
+        Files.createDirectories(spoolDir);
+        final Path spoolFile = Files.createTempFile(spoolDir, "upload-", ".csv");
+        try(final InputStream inputStream = file.getInputStream()) {
+            Files.copy(inputStream, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            deleteQuietly(spoolFile);
+            throw e;
+        }
+
+        final UploadJob job = new UploadJob(UUID.randomUUID().toString(), spoolFile);
+        addJob(job);
+        try {
+            executor.execute(() -> run(job));
+        } catch(RejectedExecutionException e) {
+            removeJob(job);
+            deleteQuietly(spoolFile);
+            throw new UploadJobRejectedException("Too many upload jobs, try again later", e);
+        }
+        return job.toBean();
+    }
+
+    /**
+     * Get job status.
+     * @param id job id
+     * @return job status
+     */
+    public UploadJobBean getJob(final String id) {
+        final UploadJob job;
+        synchronized(jobs) {
+            job = jobs.get(id);
+        }
+        if(job == null) {
+            throw new UploadJobNotFoundException("Upload job not found");
+        }
+        return job.toBean();
+    }
+
+    /**
+     * Parse and persist spooled file.
+     * Rows are counted as persisted once their transaction commits: after each chunk in CHUNKED upload mode, once
+     * applied from the log when the upload log is enabled, otherwise when the whole upload commits.
+     * @param job upload job
+     */
+    private void run(final UploadJob job) {
+        job.started();
+        final int chunkSize = properties.getUpload().getChunkSize();
+        final Consumer<Collection<UserBean>> progress = chunk -> job.parsed(chunk.size());
+        try {
+            final RecordChunkSource source = persister -> {
+                final Consumer<Collection<UserBean>> consumer = progress.andThen(persister);
+                if(properties.getUpload().getMode() == UploadMode.PARALLEL) {
+                    return fileProcessorService.processParallel(job.getFile(), chunkSize,
+                            properties.getUpload().getParallelChunkBytes(), consumer);
+                }
+                try(final InputStream inputStream = Files.newInputStream(job.getFile())) {
+                    return fileProcessorService.process(inputStream, chunkSize, consumer);
+                }
+            };
+            if(uploadLogService.isEnabled()) {
+                appendToLog(job, source);
+            } else if(properties.getUpload().getMode() == UploadMode.CHUNKED) {
+                final String uploadId;
+                try(final InputStream inputStream = Files.newInputStream(job.getFile())) {
+                    uploadId = resumableUploadService.uploadId(inputStream);
+                }
+                // each chunk is committed with its checkpoint before the next is read
+                resumableUploadService.persistRecords(uploadId,
+                        persister -> source.forEachChunk(counting(job, persister, true)));
+            } else if(properties.getUpload().getMode() == UploadMode.PIPELINED) {
+                pipelinedUploadService.persistRecords(persister -> source.forEachChunk(counting(job, persister,
+                        false)));
+            } else {
+                userService.streamPersistRecords(persister -> source.forEachChunk(counting(job, persister,
+                        false)));
+            }
+            job.completed();
+        } catch(Exception e) {
+            log.error("Upload job {} failed {}", job.getId(), e.getMessage(), e);
+            job.failed(e.getMessage());
+        } finally {
+            deleteQuietly(job.getFile());
+        }
+    }
+
+    /**
+     * Persist each chunk, then count it as committed, or as pending until the whole upload commits.
+     * @param job upload job
+     * @param persister chunk persister
+     * @param committed true if the chunk is committed once persisted
+     * @return chunk consumer
+     */
+    private static Consumer<Collection<UserBean>> counting(final UploadJob job,
+                                                           final Consumer<Collection<UserBean>> persister,
+                                                           final boolean committed) {
+        return chunk -> {
+            persister.accept(chunk);
+            final int skipped = countSkipped(chunk);
+            if(committed) {
+                job.persisted(chunk.size() - skipped, skipped);
+            } else {
+                job.pending(chunk.size() - skipped, skipped);
+            }
+        };
+    }
+
+    /**
+     * Append each chunk to the upload log as it is parsed, in every upload mode, counting it once applied.
+     * Returns once all appended chunks are applied or quarantined, also when parsing fails, since appended chunks
+     * are applied regardless.
+     * @param job upload job
+     * @param source source of record chunks
+     * @throws IOException if records cannot be read, or written to the log
+     * @throws BulkRecordProcessException if any chunk is quarantined, or not applied before shutdown
+     */
+    private void appendToLog(final UploadJob job, final RecordChunkSource source) throws IOException {
+        final List<CompletableFuture<Void>> applied = new ArrayList<>();
+        final AtomicLong notApplied = new AtomicLong();
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        boolean done;
+        try {
+            source.forEachChunk(chunk -> {
+                final int skipped = countSkipped(chunk);
+                try {
+                    applied.add(uploadLogService.appendRecords(chunk).whenComplete((result, e) -> {
+                        if(e == null) {
+                            job.persisted(chunk.size() - skipped, skipped);
+                        } else {
+                            notApplied.addAndGet(chunk.size());
+                            firstFailure.compareAndSet(null, e);
+                        }
+                    }));
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            done = awaitApplied(applied);
+        }
+        if(!done) {
+            throw new BulkRecordProcessException("Interrupted before records were applied", null);
+        }
+        if(notApplied.get() > 0) {
+            final Throwable cause = firstFailure.get();
+            throw new BulkRecordProcessException(String.format("%d records not applied, %s", notApplied.get(),
+                    cause.getMessage()), cause);
+        }
+    }
+
+    /**
+     * Wait for all chunks to be applied, quarantined or dropped at shutdown.
+     * @param applied chunk futures
+     * @return false if interrupted while waiting
+     */
+    private static boolean awaitApplied(final List<CompletableFuture<Void>> applied) {
+        try {
+            CompletableFuture.allOf(applied.toArray(new CompletableFuture[0])).get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch(ExecutionException e) {
+            // counted by each chunk, reported once all are done
+        }
+        return true;
+    }
+
+    /**
+     * Count records that are not persisted, salary less than or equal 0.
+     * @param chunk records
+     * @return number of records skipped
+     */
+    private static int countSkipped(final Iterable<UserBean> chunk) {
+        int skipped = 0;
+        for(UserBean record : chunk) {
+            if(record.getSalary().signum() <= 0) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Add job, dropping the oldest finished jobs beyond max retained.
+     * @param job upload job
+     */
+    private void addJob(final UploadJob job) {
+        synchronized(jobs) {
+            jobs.put(job.getId(), job);
+            final Iterator<UploadJob> iterator = jobs.values().iterator();
+            while(jobs.size() > properties.getJobs().getMaxRetained() && iterator.hasNext()) {
+                if(iterator.next().isFinished()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void removeJob(final UploadJob job) {
+        synchronized(jobs) {
+            jobs.remove(job.getId());
+        }
+    }
+
+    private static void deleteQuietly(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch(IOException e) {
+            log.warn("Cannot delete spooled file {}", file, e);
+        }
+    }
+
+    /**
+     * Stop accepting jobs, and wait for running and queued jobs to finish, so spool files are removed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Upload jobs still running after {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package richmond.swe.dotsalary.service.job;
+
+/**
+ * Enum for upload job status.
+ * @author richmondchng
+ */
+public enum UploadJobStatus {
+    /**
+     * Waiting for a worker thread.
+     */
+    QUEUED,
+    /**
+     * File is being parsed and persisted.
+     */
+    RUNNING,
+    /**
+     * All records committed.
+     */
+    COMPLETED,
+    /**
+     * File or records could not be processed, nothing is committed.
+     */
+    FAILED
+}
@@ -0,0 +1,49 @@
+package richmond.swe.dotsalary.service.log;
+
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Records of one append, in memory, or in the log when an upload is too large to hold, handed out a chunk at a time.
+ * @author richmondchng
+ */
+interface LoggedRecords {
+
+    /**
+     * Number of records.
+     * @return number of records
+     */
+    int size();
+
+    /**
+     * Hand records to consumer, one chunk at a time, in log order.
+     * @param consumer chunk consumer
+     * @throws IOException if records cannot be read from the log
+     */
+    void forEachChunk(Consumer<Collection<UserBean>> consumer) throws IOException;
+
+    /**
+     * Records held in memory, handed out in one chunk.
+     * @param records records
+     * @return logged records
+     */
+    static LoggedRecords of(final List<UserBean> records) {
+        return new LoggedRecords() {
+            @Override
+            public int size() {
+                return records.size();
+            }
+
+            @Override
+            public void forEachChunk(final Consumer<Collection<UserBean>> consumer) {
+                if(!records.isEmpty()) {
+                    consumer.accept(records);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,706 @@
+package richmond.swe.dotsalary.service.log;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.projection.UploadLogPosition;
+import richmond.swe.dotsalary.data.repository.UploadLogPositionRepository;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.log.UploadLogFiles.SegmentRecords;
+import richmond.swe.dotsalary.service.log.UploadLogFiles.SnapshotReader;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of uploaded records, so uploads are acknowledged once written to disk, and applied to the database
+ * in the background.
+ *
+ * Records are checked against the limits of the users table before they are appended, since the upload is
+ * acknowledged before the database sees them. Records are appended to numbered segment files, in frames of up to
+ * chunk size records, each with a CRC. Appends that arrive while a sync runs are synced together by the next sync.
+ * Appends are applied in log order, on a single thread; appends queued while the previous transaction ran are applied
+ * together in one transaction, and one at a time if that fails. Appends wait when the apply queue is full, so the
+ * database is at most a bounded number of appends behind the log. If a write fails, the segment is truncated back to
+ * the start of the append. If a sync fails, or a failed write cannot be truncated, appends not known to be on disk
+ * are not applied, and later appends are rejected until restart, when the log is replayed.
+ *
+ * An append that cannot be applied on its own because of its data, such as a constraint violation, when appended or
+ * on replay, is written to a quarantine file in the log directory, in segment format, and skipped once the file is
+ * synced, so it neither rolls back other appends nor stops start up. Any other failure, such as the database being
+ * down, is retried with backoff, and later appends wait behind it.
+ *
+ * Each apply saves the log position after it in the database, in the same transaction, and start up applies only
+ * the appends after that position. When the database has no position, such as a new in-memory database, the last
+ * snapshot and all segments after it are applied.
+ *
+ * When a segment grows past the compaction size, later appends go to a new segment, and once its appends are applied
+ * the closed segments are merged with the last snapshot into a new snapshot sorted by upper case name, keeping the
+ * first name and the last salary of each user.
+ *
+ * An upload too large to hold in memory is written to a spool file in the log directory first, checked record by
+ * record, and appended once completely read, so a failing upload appends nothing. It is then applied a frame at a time
+ * from the segment, in one transaction.
+ * @author richmondchng
+ */
+@Slf4j
+@Component
+public class UploadLog {
+
+    // same as NAME VARCHAR(128)
+    static final int MAX_NAME_LENGTH = 128;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final long RETRY_MIN_MILLIS = 100;
+    private static final long RETRY_MAX_MILLIS = 30_000;
+    private static final String SPOOL_PREFIX = "spool-";
+
+    private final DotsalaryProperties properties;
+    private final TransactionOperations transactionOperations;
+    private final UploadLogPositionRepository positionRepository;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService applyExecutor;
+    private final ExecutorService compactExecutor;
+    // appends to be applied, in log order
+    private final BlockingQueue<PendingApply> pending = new LinkedBlockingQueue<>();
+    private final Semaphore applyPermits;
+
+    // guarded by itself, taken after syncLock
+    private final Object appendLock = new Object();
+    private FileChannel segment;
+    private long segmentNumber;
+    private long segmentBytes;
+    // total bytes written to all segments
+    private long written;
+
+    // guarded by itself
+    private final Object syncLock = new Object();
+    private long synced;
+    // set when a sync fails, or a failed write cannot be truncated, appends are then rejected until restart
+    private volatile IOException failure;
+
+    public UploadLog(final DotsalaryProperties properties, final TransactionOperations transactionOperations,
+                     final UploadLogPositionRepository positionRepository, final MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transactionOperations = transactionOperations;
+        this.positionRepository = positionRepository;
+        this.meterRegistry = meterRegistry;
+        this.applyExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("upload-log-apply-"));
+        this.compactExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("upload-log-compact-"));
+        this.applyPermits = new Semaphore(properties.getPersistence().getLogApplyQueueCapacity());
+        meterRegistry.gauge("dotsalary.log.apply.pending", pending, Collection::size);
+    }
+
+    /**
+     * Check if uploads are written to the log.
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return properties.getPersistence().isWriteAheadLog();
+    }
+
+    /**
+     * Apply appends after the position saved in the database, or the last snapshot and the segments after it if there
+     * is none, then open a new segment for appends.
+     * Does nothing if already done.
+     * @param applier applies records to the database, called in a transaction per append
+     * @throws IOException if log cannot be read
+     */
+    public void replay(final Consumer<Collection<UserBean>> applier) throws IOException {
+        synchronized(appendLock) {
+            if(segment != null) {
+                return;
+            }
+            final Path directory = directory();
+            Files.createDirectories(directory);
+            // left behind when compaction or a spooled upload stopped
+            for(Path temp : UploadLogFiles.list(directory, "", UploadLogFiles.TEMP_SUFFIX)) {
+                Files.delete(temp);
+            }
+            for(Path run : UploadLogFiles.list(directory, "dedup-", ".run")) {
+                Files.delete(run);
+            }
+            final long snapshot = UploadLogFiles.latestSnapshot(directory);
+            final UploadLogPosition position = positionRepository.findPosition();
+            // a snapshot holds only segments whose appends were applied before it was written
+            final boolean fromSnapshot = position == null || position.getSegment() < snapshot;
+            long last = snapshot;
+            int replayed = 0;
+            if(snapshot > 0 && fromSnapshot) {
+                try(SnapshotReader reader = new SnapshotReader(UploadLogFiles.snapshotFile(directory, snapshot))) {
+                    final int chunkSize = properties.getUpload().getChunkSize();
+                    List<UserBean> chunk = new ArrayList<>();
+                    while(reader.next()) {
+                        chunk.add(reader.toBean());
+                        replayed++;
+                        if(chunk.size() >= chunkSize) {
+                            applyOrThrow(LoggedRecords.of(chunk), applier,
+                                    UploadLogFiles.snapshotChunkName(snapshot, replayed), null);
+                            chunk = new ArrayList<>();
+                        }
+                    }
+                    applyOrThrow(LoggedRecords.of(chunk), applier,
+                            UploadLogFiles.snapshotChunkName(snapshot, replayed),
+                            new UploadLogPosition(snapshot, Long.MAX_VALUE));
+                }
+            }
+            for(long number : UploadLogFiles.segmentNumbers(directory)) {
+                if(number <= snapshot) {
+                    // already in snapshot, left behind when compaction stopped before deleting it
+                    Files.delete(UploadLogFiles.segmentFile(directory, number));
+                    continue;
+                }
+                last = number;
+                if(!fromSnapshot && number < position.getSegment()) {
+                    continue;
+                }
+                final long from = !fromSnapshot && number == position.getSegment() ? position.getPosition() : 0;
+                final Path file = UploadLogFiles.segmentFile(directory, number);
+                for(SegmentRecords append : UploadLogFiles.readAppends(file)) {
+                    if(append.getEnd() > from) {
+                        applyOrThrow(append, applier, UploadLogFiles.frameName(number, append.getEnd()),
+                                new UploadLogPosition(number, append.getEnd()));
+                        replayed += append.size();
+                    }
+                }
+            }
+            openSegment(directory, last + 1);
+            log.info("Replayed {} records from upload log", replayed);
+        }
+    }
+
+    /**
+     * Append records, and return once they are synced to disk.
+     * Records are then applied to the database, in log order, in a transaction.
+     * @param records records in upload order
+     * @param applier applies records to the database, called in a transaction
+     * @return completed once records are applied and committed, in log order, or exceptionally if they are
+     * quarantined or not applied before shutdown
+     * @throws IOException if records cannot be written or synced, or an earlier sync failed
+     * @throws IllegalArgumentException if a record to be persisted does not fit the users table
+     */
+    public CompletableFuture<Void> append(final Collection<UserBean> records,
+                                          final Consumer<Collection<UserBean>> applier) throws IOException {
+        if(records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        checkFailure();
+        for(UserBean record : records) {
+            if(!fitsColumns(record)) {
+                throw new IllegalArgumentException("Invalid record for user " + record.getName());
+            }
+        }
+        final List<UserBean> copy = new ArrayList<>(records);
+        final int chunkSize = properties.getUpload().getChunkSize();
+        return append(() -> {
+            for(int from = 0; from < copy.size(); from += chunkSize) {
+                final int to = Math.min(from + chunkSize, copy.size());
+                write(ByteBuffer.wrap(UploadLogFiles.encodeFrame(copy.subList(from, to), to < copy.size())));
+            }
+        }, copy, copy.size(), applier);
+    }
+
+    /**
+     * Create a spool in the log directory, for an upload too large to hold in memory.
+     * Spools left behind by a stop are deleted on replay.
+     * @return empty spool, to be closed by caller
+     * @throws IOException if spool cannot be created
+     */
+    public UploadSpool spool() throws IOException {
+        final Path directory = directory();
+        Files.createDirectories(directory);
+        return new UploadSpool(Files.createTempFile(directory, SPOOL_PREFIX, UploadLogFiles.TEMP_SUFFIX),
+                properties.getUpload().getChunkSize());
+    }
+
+    /**
+     * Append spooled records as one append, and return once they are synced to disk.
+     * The append is ended by a frame of its own, so replay applies none of its records unless all were written.
+     * Records are then applied to the database, in log order, in one transaction, read back from the log a frame at a
+     * time. Spool can be closed once this returns.
+     * @param spool records of one upload, checked against the limits of the users table when spooled
+     * @param applier applies records to the database, called in a transaction for each frame
+     * @return completed once records are applied and committed, in log order, or exceptionally if they are
+     * quarantined or not applied before shutdown
+     * @throws IOException if records cannot be written or synced, or an earlier sync failed
+     */
+    public CompletableFuture<Void> append(final UploadSpool spool, final Consumer<Collection<UserBean>> applier)
+            throws IOException {
+        if(spool.size() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        checkFailure();
+        return append(() -> {
+            final ByteBuffer buffer = ByteBuffer.allocate(UploadLogFiles.BUFFER_SIZE);
+            long position = 0;
+            int read;
+            while((read = spool.read(buffer, position)) >= 0) {
+                position += read;
+                buffer.flip();
+                write(buffer);
+                buffer.clear();
+            }
+            write(ByteBuffer.wrap(UploadLogFiles.encodeFrame(Collections.emptyList(), false)));
+        }, null, spool.size(), applier);
+    }
+
+    /**
+     * Write frames of one append, queue it to be applied, and sync.
+     * @param frames writes frames to the segment, called with append lock held
+     * @param records records of append, null to read them back from the segment when applied
+     * @param size number of records
+     * @param applier applies records to the database
+     * @return completed once records are applied and committed
+     */
+    private CompletableFuture<Void> append(final Frames frames, final List<UserBean> records, final int size,
+                                           final Consumer<Collection<UserBean>> applier) throws IOException {
+        // taken before append lock, the apply thread needs it to sync
+        applyPermits.acquireUninterruptibly();
+        final long end;
+        final boolean full;
+        final PendingApply apply;
+        synchronized(appendLock) {
+            try {
+                if(segment == null) {
+                    replay(applier);
+                }
+                final long startBytes = segmentBytes;
+                final long startWritten = written;
+                try {
+                    frames.write();
+                } catch(IOException e) {
+                    discardWrites(startBytes, startWritten, e);
+                    throw e;
+                }
+                end = written;
+                full = segmentBytes >= properties.getPersistence().getLogCompactBytes();
+                final LoggedRecords logged = records != null ? LoggedRecords.of(records)
+                        : new SegmentRecords(UploadLogFiles.segmentFile(directory(), segmentNumber), startBytes,
+                        segmentBytes, size);
+                // queued in log order
+                apply = new PendingApply(logged, end, new UploadLogPosition(segmentNumber, segmentBytes), applier);
+                pending.add(apply);
+                applyExecutor.execute(this::applyPending);
+            } catch(IOException | RuntimeException e) {
+                applyPermits.release();
+                throw e;
+            }
+        }
+        sync(end);
+        if(full) {
+            rollSegment();
+        }
+        return apply.applied;
+    }
+
+    /**
+     * Stop accepting appends, wait for queued records to be applied and compaction to finish, then close segment.
+     * Records not applied are applied on next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        applyExecutor.shutdown();
+        try {
+            if(!applyExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Upload log still applying after {} seconds, rest is applied on next start",
+                        SHUTDOWN_TIMEOUT_SECONDS);
+                // stops retries, and drops queued applies
+                applyExecutor.shutdownNow();
+                final List<PendingApply> applies = new ArrayList<>();
+                pending.drainTo(applies);
+                notApplied(applies);
+            }
+            // after apply thread, which hands compaction over
+            compactExecutor.shutdown();
+            if(!compactExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Upload log still compacting after {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized(syncLock) {
+            synchronized(appendLock) {
+                if(segment == null) {
+                    return;
+                }
+                try {
+                    segment.force(false);
+                    segment.close();
+                } catch(IOException e) {
+                    log.warn("Cannot close upload log segment", e);
+                }
+                segment = null;
+            }
+        }
+    }
+
+    /**
+     * Sync all bytes written up to position, together with any written since.
+     * Once a sync fails, bytes not synced before it are never synced, since the failed pages may already be dropped
+     * and a later sync could succeed without writing them.
+     */
+    private void sync(final long position) throws IOException {
+        synchronized(syncLock) {
+            if(synced >= position) {
+                return;
+            }
+            checkFailure();
+            final FileChannel channel;
+            final long target;
+            synchronized(appendLock) {
+                channel = segment;
+                target = written;
+            }
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            force(channel);
+            sample.stop(meterRegistry.timer("dotsalary.log.sync"));
+            synced = target;
+        }
+    }
+
+    /**
+     * Sync channel, failing the log if it cannot be synced.
+     */
+    private void force(final FileChannel channel) throws IOException {
+        try {
+            channel.force(false);
+        } catch(IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException cause = failure;
+        if(cause != null) {
+            throw new IOException("Upload log not synced, appends rejected until restart", cause);
+        }
+    }
+
+    /**
+     * Close full segment, start a new one, and compact closed segments in the background.
+     */
+    private void rollSegment() throws IOException {
+        synchronized(syncLock) {
+            synchronized(appendLock) {
+                if(segment == null || segmentBytes < properties.getPersistence().getLogCompactBytes()) {
+                    return;
+                }
+                checkFailure();
+                force(segment);
+                segment.close();
+                synced = written;
+                final long closed = segmentNumber;
+                openSegment(directory(), closed + 1);
+                // queued behind the appends of the closed segment, so the snapshot holds only applied appends
+                applyExecutor.execute(() -> compactExecutor.execute(() -> compactSafely(closed)));
+            }
+        }
+    }
+
+    /**
+     * Apply all queued appends in one transaction, nothing to do if an earlier call took them.
+     * If the transaction fails, appends are applied one at a time, so only appends that fail on their own are
+     * quarantined or retried.
+     */
+    private void applyPending() {
+        final List<PendingApply> applies = new ArrayList<>();
+        pending.drainTo(applies);
+        if(applies.isEmpty()) {
+            return;
+        }
+        try {
+            // not applied unless written to disk
+            sync(applies.get(applies.size() - 1).end);
+            if(applies.size() > 1) {
+                try {
+                    transactionOperations.executeWithoutResult(status -> {
+                        for(PendingApply apply : applies) {
+                            applyChunks(apply.records, apply.applier);
+                        }
+                        final UploadLogPosition position = applies.get(applies.size() - 1).position;
+                        positionRepository.save(position.getSegment(), position.getPosition());
+                    });
+                    applies.forEach(apply -> apply.applied.complete(null));
+                    return;
+                } catch(RuntimeException e) {
+                    log.warn("Cannot apply {} appends together, applying one at a time", applies.size(), e);
+                }
+            }
+            for(PendingApply apply : applies) {
+                final String frame = UploadLogFiles.frameName(apply.position.getSegment(),
+                        apply.position.getPosition());
+                if(!applyNow(apply.records, apply.applier, frame, apply.position, apply.applied)) {
+                    log.warn("Upload log apply interrupted, rest is applied on next start");
+                    return;
+                }
+            }
+        } catch(IOException e) {
+            // not known to be on disk, so not applied, and later appends are rejected
+            log.error("Upload log not synced, {} appends not applied until restart", applies.size(), e);
+        } finally {
+            notApplied(applies);
+            applyPermits.release(applies.size());
+        }
+    }
+
+    /**
+     * Complete appends not yet applied exceptionally, they are applied from the log on next start.
+     */
+    private static void notApplied(final List<PendingApply> applies) {
+        final IllegalStateException notApplied = new IllegalStateException("Records not applied until restart");
+        for(PendingApply apply : applies) {
+            // nothing to do if applied or quarantined
+            apply.applied.completeExceptionally(notApplied);
+        }
+    }
+
+    /**
+     * Apply records and save the log position after them in a transaction. If the records cannot be applied because
+     * of their data, they are quarantined, then the position is saved on its own. On any other failure, or if they
+     * cannot be quarantined, the position is left as it is and the apply is retried with backoff.
+     * @param records records of one append, or one chunk of snapshot
+     * @param applier applies records to the database
+     * @param frame name of records in the log, for the quarantine file
+     * @param position log position after records, null if not to be saved
+     * @param applied completed once applied, exceptionally once quarantined, null on replay
+     * @return true if applied or quarantined, false if interrupted while waiting to retry
+     */
+    private boolean applyNow(final LoggedRecords records, final Consumer<Collection<UserBean>> applier,
+                             final String frame, final UploadLogPosition position,
+                             final CompletableFuture<Void> applied) {
+        if(records.size() == 0 && position == null) {
+            return true;
+        }
+        long backoff = RETRY_MIN_MILLIS;
+        while(true) {
+            try {
+                transactionOperations.executeWithoutResult(status -> {
+                    applyChunks(records, applier);
+                    savePosition(position);
+                });
+                if(applied != null) {
+                    applied.complete(null);
+                }
+                return true;
+            } catch(RuntimeException e) {
+                if(records.size() > 0 && isDataError(e)) {
+                    try {
+                        quarantine(records, frame, e);
+                        transactionOperations.executeWithoutResult(status -> savePosition(position));
+                        if(applied != null) {
+                            applied.completeExceptionally(e);
+                        }
+                        return true;
+                    } catch(IOException | RuntimeException ex) {
+                        log.error("Cannot quarantine {} records from upload log, retrying in {} ms", records.size(),
+                                backoff, ex);
+                    }
+                } else {
+                    log.warn("Cannot apply {} records from upload log, retrying in {} ms", records.size(), backoff,
+                            e);
+                }
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(backoff * 2, RETRY_MAX_MILLIS);
+        }
+    }
+
+    /**
+     * Apply records as applyNow does, on replay.
+     * @throws InterruptedIOException if interrupted while waiting to retry
+     */
+    private void applyOrThrow(final LoggedRecords records, final Consumer<Collection<UserBean>> applier,
+                              final String frame, final UploadLogPosition position) throws InterruptedIOException {
+        if(!applyNow(records, applier, frame, position, null)) {
+            throw new InterruptedIOException("Interrupted while replaying upload log");
+        }
+    }
+
+    /**
+     * Check if records cannot be applied because of their data, so applying them again fails the same way.
+     */
+    static boolean isDataError(final Throwable e) {
+        for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if(cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException
+                    || cause instanceof DataException || cause instanceof SQLIntegrityConstraintViolationException
+                    || cause instanceof SQLDataException || cause instanceof IllegalArgumentException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void savePosition(final UploadLogPosition position) {
+        if(position != null) {
+            positionRepository.save(position.getSegment(), position.getPosition());
+        }
+    }
+
+    /**
+     * Write records that cannot be applied to a quarantine file, replacing the file of an earlier attempt, and sync it.
+     * @throws IOException if file cannot be written or synced
+     */
+    private void quarantine(final LoggedRecords records, final String frame, final RuntimeException cause)
+            throws IOException {
+        final Path file = UploadLogFiles.quarantineFile(directory(), frame);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            try {
+                records.forEachChunk(chunk -> writeFully(channel, new ArrayList<>(chunk), true));
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writeFully(channel, Collections.emptyList(), false);
+            channel.force(false);
+        }
+        log.error("Cannot apply {} records from upload log, quarantined in {}", records.size(), file, cause);
+        meterRegistry.counter("dotsalary.log.quarantined").increment(records.size());
+    }
+
+    /**
+     * Check record against the limits of the users table. Records with salary less than or equal 0 are skipped
+     * when applied, so are not checked.
+     */
+    static boolean fitsColumns(final UserBean record) {
+        if(record.getSalary().signum() <= 0) {
+            return true;
+        }
+        return record.getName() != null && record.getName().length() <= MAX_NAME_LENGTH
+                && record.getSalary().getUnits() <= Salary.MAX_COLUMN_UNITS;
+    }
+
+    private void write(final ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            final int count = segment.write(buffer);
+            segmentBytes += count;
+            written += count;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final List<UserBean> records, final boolean more) {
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(UploadLogFiles.encodeFrame(records, more));
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hand records to applier a chunk at a time, in the caller's transaction.
+     */
+    private static void applyChunks(final LoggedRecords records, final Consumer<Collection<UserBean>> applier) {
+        try {
+            records.forEachChunk(applier);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Truncate segment back to where a failed append started, so its frames, complete or torn, are not followed by
+     * later appends. If the segment cannot be truncated, the log is failed, since later appends would be lost on
+     * replay after the torn frame.
+     */
+    private void discardWrites(final long startBytes, final long startWritten, final IOException cause) {
+        try {
+            segment.truncate(startBytes);
+            segment.position(startBytes);
+            segmentBytes = startBytes;
+            written = startWritten;
+        } catch(IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+        }
+    }
+
+    private void openSegment(final Path directory, final long number) throws IOException {
+        segment = openChannel(UploadLogFiles.segmentFile(directory, number));
+        segmentNumber = number;
+        segmentBytes = 0;
+    }
+
+    /**
+     * Open new segment file for writing.
+     */
+    FileChannel openChannel(final Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private void compactSafely(final long lastSegment) {
+        try {
+            UploadLogCompactor.compact(directory(), lastSegment);
+        } catch(IOException | RuntimeException e) {
+            log.error("Cannot compact upload log, segments are kept", e);
+        }
+    }
+
+    private Path directory() {
+        return Paths.get(properties.getPersistence().getLogDir());
+    }
+
+    /**
+     * Writes the frames of one append.
+     */
+    private interface Frames {
+        void write() throws IOException;
+    }
+
+    /**
+     * Logged records waiting to be applied.
+     */
+    private static class PendingApply {
+        private final LoggedRecords records;
+        // bytes written to all segments after records, for sync
+        private final long end;
+        // segment and position in segment after records
+        private final UploadLogPosition position;
+        private final Consumer<Collection<UserBean>> applier;
+        private final CompletableFuture<Void> applied = new CompletableFuture<>();
+
+        private PendingApply(final LoggedRecords records, final long end, final UploadLogPosition position,
+                             final Consumer<Collection<UserBean>> applier) {
+            this.records = records;
+            this.end = end;
+            this.position = position;
+            this.applier = applier;
+        }
+    }
+}
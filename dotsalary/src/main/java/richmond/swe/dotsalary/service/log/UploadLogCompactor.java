@@ -0,0 +1,114 @@
+package richmond.swe.dotsalary.service.log;
+
+import lombok.extern.slf4j.Slf4j;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.dedup.ExternalNameDedup;
+import richmond.swe.dotsalary.service.log.UploadLogFiles.SnapshotReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Merges closed segments of the upload log with the last snapshot into a new snapshot sorted by upper case name,
+ * keeping the first name and the last salary of each user.
+ * @author richmondchng
+ */
+@Slf4j
+final class UploadLogCompactor {
+
+    // records sorted in memory per run, when compacting segments
+    private static final int COMPACT_RUN_SIZE = 100_000;
+
+    private UploadLogCompactor() {
+    }
+
+    /**
+     * Merge last snapshot with segments up to last segment into a new snapshot, then delete them.
+     * @param directory log directory
+     * @param lastSegment last closed segment
+     * @throws IOException if log cannot be read or snapshot cannot be written
+     */
+    static void compact(final Path directory, final long lastSegment) throws IOException {
+        final long previous = UploadLogFiles.latestSnapshot(directory);
+        final List<Long> segments = new ArrayList<>();
+        for(long number : UploadLogFiles.segmentNumbers(directory)) {
+            if(number > previous && number <= lastSegment) {
+                segments.add(number);
+            }
+        }
+        final Path temp = directory.resolve(UploadLogFiles.snapshotFile(directory, lastSegment).getFileName()
+                + UploadLogFiles.TEMP_SUFFIX);
+        try(ExternalNameDedup dedup = new ExternalNameDedup(directory, COMPACT_RUN_SIZE)) {
+            for(long number : segments) {
+                // a frame at a time, a spooled append may not fit in memory
+                for(LoggedRecords append : UploadLogFiles.readAppends(UploadLogFiles.segmentFile(directory, number))) {
+                    append.forEachChunk(records -> {
+                        try {
+                            // skipped when applied, or cannot be applied, so not kept
+                            dedup.addAll(records.stream()
+                                    .filter(r -> r.getSalary().signum() > 0 && UploadLog.fitsColumns(r))
+                                    .collect(Collectors.toList()));
+                        } catch(IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            }
+            try(FileOutputStream file = new FileOutputStream(temp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file,
+                        UploadLogFiles.BUFFER_SIZE));
+                SnapshotReader snapshot = previous > 0
+                        ? new SnapshotReader(UploadLogFiles.snapshotFile(directory, previous)) : null) {
+                final boolean[] hasSnapshot = { snapshot != null && snapshot.next() };
+                dedup.merge(COMPACT_RUN_SIZE, chunk -> {
+                    try {
+                        for(UserBean record : chunk) {
+                            final String key = record.getName().toUpperCase();
+                            while(hasSnapshot[0] && snapshot.getKey().compareTo(key) < 0) {
+                                UploadLogFiles.writeSnapshotRecord(out, snapshot.getName(), snapshot.getSalary());
+                                hasSnapshot[0] = snapshot.next();
+                            }
+                            if(hasSnapshot[0] && snapshot.getKey().equals(key)) {
+                                // name as first persisted, salary from log
+                                UploadLogFiles.writeSnapshotRecord(out, snapshot.getName(),
+                                        record.getSalary().getUnits());
+                                hasSnapshot[0] = snapshot.next();
+                            } else {
+                                UploadLogFiles.writeSnapshotRecord(out, record.getName(),
+                                        record.getSalary().getUnits());
+                            }
+                        }
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                while(hasSnapshot[0]) {
+                    UploadLogFiles.writeSnapshotRecord(out, snapshot.getName(), snapshot.getSalary());
+                    hasSnapshot[0] = snapshot.next();
+                }
+                out.writeBoolean(false);
+                out.flush();
+                file.getFD().sync();
+            }
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp, UploadLogFiles.snapshotFile(directory, lastSegment), StandardCopyOption.ATOMIC_MOVE);
+        if(previous > 0) {
+            Files.delete(UploadLogFiles.snapshotFile(directory, previous));
+        }
+        for(long number : segments) {
+            Files.delete(UploadLogFiles.segmentFile(directory, number));
+        }
+        log.info("Compacted upload log up to segment {}", lastSegment);
+    }
+}
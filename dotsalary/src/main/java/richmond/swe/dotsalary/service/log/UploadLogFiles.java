@@ -0,0 +1,351 @@
+package richmond.swe.dotsalary.service.log;
+
+import lombok.extern.slf4j.Slf4j;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Files of the upload log: numbered segment and snapshot files, frames of records in segments, and records in
+ * snapshots.
+ * @author richmondchng
+ */
+@Slf4j
+final class UploadLogFiles {
+
+    static final String SEGMENT_PREFIX = "upload-";
+    static final String SEGMENT_SUFFIX = ".log";
+    static final String SNAPSHOT_PREFIX = "users-";
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+    static final String TEMP_SUFFIX = ".tmp";
+    static final String QUARANTINE_PREFIX = "quarantine-";
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private UploadLogFiles() {
+    }
+
+    static Path segmentFile(final Path directory, final long number) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    static Path snapshotFile(final Path directory, final long number) {
+        return directory.resolve(String.format("%s%019d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+
+    static Path quarantineFile(final Path directory, final String frame) {
+        return directory.resolve(QUARANTINE_PREFIX + frame + SEGMENT_SUFFIX);
+    }
+
+    static String frameName(final long segment, final long end) {
+        return String.format("%019d-%019d", segment, end);
+    }
+
+    static String snapshotChunkName(final long snapshot, final long end) {
+        return String.format("%019d-snapshot-%019d", snapshot, end);
+    }
+
+    /**
+     * Numbers of segment files, in order.
+     */
+    static List<Long> segmentNumbers(final Path directory) throws IOException {
+        return new ArrayList<>(numbers(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).keySet());
+    }
+
+    /**
+     * Number of latest snapshot, 0 if none.
+     */
+    static long latestSnapshot(final Path directory) throws IOException {
+        final TreeMap<Long, Path> snapshots = numbers(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        return snapshots.isEmpty() ? 0 : snapshots.lastKey();
+    }
+
+    private static TreeMap<Long, Path> numbers(final Path directory, final String prefix, final String suffix)
+            throws IOException {
+        final TreeMap<Long, Path> numbers = new TreeMap<>();
+        for(Path file : list(directory, prefix, suffix)) {
+            final String name = file.getFileName().toString();
+            numbers.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+        }
+        return numbers;
+    }
+
+    static List<Path> list(final Path directory, final String prefix, final String suffix) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        if(!Files.isDirectory(directory)) {
+            return files;
+        }
+        try(Stream<Path> stream = Files.list(directory)) {
+            stream.filter(f -> f.getFileName().toString().startsWith(prefix)
+                    && f.getFileName().toString().endsWith(suffix)).forEach(files::add);
+        }
+        return files;
+    }
+
+    /**
+     * Frame of records: length and CRC of payload, then payload of more flag, count and records.
+     * @param records records
+     * @param more true if more frames of the same append follow
+     * @return frame bytes
+     */
+    static byte[] encodeFrame(final List<UserBean> records, final boolean more) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(Integer.BYTES * 2 + records.size() * 24);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        // placeholders for length and CRC
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeBoolean(more);
+        out.writeInt(records.size());
+        for(UserBean record : records) {
+            out.writeUTF(record.getName());
+            out.writeLong(record.getSalary().getUnits());
+        }
+        final byte[] frame = bytes.toByteArray();
+        final int length = frame.length - Integer.BYTES * 2;
+        final CRC32 crc = new CRC32();
+        crc.update(frame, Integer.BYTES * 2, length);
+        ByteBuffer.wrap(frame).putInt(length).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    /**
+     * Read segment, handing records of each complete append to consumer, with the segment position after them.
+     * Reading stops at a frame that was not completely written.
+     */
+    static void readSegment(final Path file, final BiConsumer<List<UserBean>, Long> consumer) throws IOException {
+        try(DataInputStream in = open(file, 0)) {
+            List<UserBean> records = new ArrayList<>();
+            long position = 0;
+            Frame frame;
+            while((frame = readFrame(in, file)) != null) {
+                position += frame.bytes;
+                records.addAll(frame.records);
+                if(!frame.more) {
+                    consumer.accept(records, position);
+                    records = new ArrayList<>();
+                }
+            }
+        }
+    }
+
+    /**
+     * Find complete appends in segment, without holding their records. Reading stops at a frame that was not
+     * completely written, so frames of an append that was not completed are not included.
+     * @param file segment file
+     * @return appends in log order
+     */
+    static List<SegmentRecords> readAppends(final Path file) throws IOException {
+        final List<SegmentRecords> appends = new ArrayList<>();
+        try(DataInputStream in = open(file, 0)) {
+            long start = 0;
+            long position = 0;
+            int count = 0;
+            Frame frame;
+            while((frame = readFrame(in, file)) != null) {
+                position += frame.bytes;
+                count += frame.records.size();
+                if(!frame.more) {
+                    appends.add(new SegmentRecords(file, start, position, count));
+                    start = position;
+                    count = 0;
+                }
+            }
+        }
+        return appends;
+    }
+
+    private static DataInputStream open(final Path file, final long position) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(position);
+        } catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+    }
+
+    /**
+     * Read next frame.
+     * @return frame, null at end of file or at a frame that was not completely written
+     */
+    private static Frame readFrame(final DataInputStream in, final Path file) throws IOException {
+        final int length;
+        try {
+            length = in.readInt();
+        } catch(EOFException e) {
+            return null;
+        }
+        final byte[] payload;
+        final int checksum;
+        try {
+            checksum = in.readInt();
+            if(length < 0) {
+                throw new EOFException();
+            }
+            payload = in.readNBytes(length);
+            if(payload.length < length) {
+                throw new EOFException();
+            }
+        } catch(EOFException e) {
+            log.warn("Ignoring incomplete record at end of upload log {}", file);
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        if((int) crc.getValue() != checksum) {
+            log.warn("Ignoring corrupt record at end of upload log {}", file);
+            return null;
+        }
+        final DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload));
+        final boolean more = frame.readBoolean();
+        final int count = frame.readInt();
+        final List<UserBean> records = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            final String name = frame.readUTF();
+            records.add(UserBean.builder().name(name).salary(Salary.ofUnits(frame.readLong())).build());
+        }
+        return new Frame(more, records, Integer.BYTES * 2 + length);
+    }
+
+    /**
+     * Write snapshot record, after a flag that a record follows. Snapshot ends with a false flag.
+     */
+    static void writeSnapshotRecord(final DataOutputStream out, final String name, final long salary)
+            throws IOException {
+        out.writeBoolean(true);
+        out.writeUTF(name);
+        out.writeLong(salary);
+    }
+
+    /**
+     * Reads snapshot file, one record at a time, in upper case name order.
+     */
+    static class SnapshotReader implements Closeable {
+        private final DataInputStream in;
+        private String key;
+        private String name;
+        // scaled to 8 decimal places
+        private long salary;
+
+        SnapshotReader(final Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        /**
+         * Read next record.
+         * @return false at end of snapshot
+         */
+        boolean next() throws IOException {
+            if(!in.readBoolean()) {
+                return false;
+            }
+            name = in.readUTF();
+            key = name.toUpperCase();
+            salary = in.readLong();
+            return true;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getSalary() {
+            return salary;
+        }
+
+        UserBean toBean() {
+            return UserBean.builder().name(name).salary(Salary.ofUnits(salary)).build();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Frame read from a segment.
+     */
+    private static class Frame {
+        private final boolean more;
+        private final List<UserBean> records;
+        // bytes of frame, with length and CRC
+        private final int bytes;
+
+        private Frame(final boolean more, final List<UserBean> records, final int bytes) {
+            this.more = more;
+            this.records = records;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Records of one complete append in a segment, read a frame at a time when used.
+     */
+    static class SegmentRecords implements LoggedRecords {
+        private final Path file;
+        private final long start;
+        // segment position after append
+        private final long end;
+        private final int size;
+
+        SegmentRecords(final Path file, final long start, final long end, final int size) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.size = size;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void forEachChunk(final Consumer<Collection<UserBean>> consumer) throws IOException {
+            try(DataInputStream in = open(file, start)) {
+                long position = start;
+                while(position < end) {
+                    final Frame frame = readFrame(in, file);
+                    if(frame == null) {
+                        throw new IOException("Upload log append incomplete in " + file);
+                    }
+                    position += frame.bytes;
+                    if(!frame.records.isEmpty()) {
+                        consumer.accept(frame.records);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package richmond.swe.dotsalary.service.log;
+
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records of one upload, written to a file in the log directory as they are read, in log frames.
+ * Once the upload is completely read, the spool is appended to the log as one append; an upload that fails to read
+ * is not appended at all. The file is deleted on close.
+ * @author richmondchng
+ */
+public class UploadSpool implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int chunkSize;
+    private int size;
+    private long bytes;
+
+    UploadSpool(final Path file, final int chunkSize) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Write records to the spool, after checking them against the limits of the users table.
+     * @param records records in upload order
+     * @throws IOException if records cannot be written
+     * @throws IllegalArgumentException if a record to be persisted does not fit the users table
+     */
+    public void addAll(final Collection<UserBean> records) throws IOException {
+        for(UserBean record : records) {
+            if(!UploadLog.fitsColumns(record)) {
+                throw new IllegalArgumentException("Invalid record for user " + record.getName());
+            }
+        }
+        final List<UserBean> list = new ArrayList<>(records);
+        for(int from = 0; from < list.size(); from += chunkSize) {
+            final int to = Math.min(from + chunkSize, list.size());
+            // the log ends the append with a frame of its own
+            final ByteBuffer buffer = ByteBuffer.wrap(UploadLogFiles.encodeFrame(list.subList(from, to), true));
+            while(buffer.hasRemaining()) {
+                bytes += channel.write(buffer);
+            }
+        }
+        size += list.size();
+    }
+
+    /**
+     * Number of records written.
+     * @return number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Read spooled frames from position into buffer.
+     * @return bytes read, -1 at end of spool
+     */
+    int read(final ByteBuffer buffer, final long position) throws IOException {
+        if(position >= bytes) {
+            return -1;
+        }
+        return channel.read(buffer, position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
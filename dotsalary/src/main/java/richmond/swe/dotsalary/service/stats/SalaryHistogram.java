@@ -0,0 +1,264 @@
+package richmond.swe.dotsalary.service.stats;
+
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Histogram of salaries in logarithmic buckets, with count and sum of each bucket.
+ *
+ * Each bucket covers salaries within 1% of its representative value, as in DDSketch, so percentiles are within 1% of
+ * the actual salary. Unlike a quantile sketch, salaries can be removed as well as added, so the histogram is kept up
+ * to date when users are updated. Salaries from 0.00000001 to 10000 (SALARY DECIMAL(12,8)) fit in about 1400 buckets;
+ * anything outside is kept in the first or last bucket.
+ *
+ * Statistics of a range are answered from the histogram alone, interpolating the buckets of the range bounds, or with
+ * the salaries of those two buckets read from the salary index, when count and sum must be exact.
+ *
+ * Not thread safe.
+ * @author richmondchng
+ */
+public final class SalaryHistogram {
+
+    // relative accuracy of representative values
+    static final double RELATIVE_ACCURACY = 0.01;
+    // same scale as SALARY DECIMAL(12,8)
+    private static final int SCALE = 8;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MIN_INDEX = index(1e-8);
+    // largest salary, up to SALARY DECIMAL(12,8)
+    private static final double MAX_SALARY = 1e4;
+    private static final int BUCKETS = index(MAX_SALARY) - MIN_INDEX + 1;
+    private static final BigDecimal[] REPRESENTATIVES = new BigDecimal[BUCKETS];
+
+    static {
+        for(int b = 0; b < BUCKETS; b++) {
+            // between bucket bounds gamma^(i-1) and gamma^i, within relative accuracy of both
+            REPRESENTATIVES[b] = BigDecimal.valueOf(2 * Math.pow(GAMMA, b + MIN_INDEX) / (GAMMA + 1))
+                    .setScale(SCALE, RoundingMode.HALF_UP);
+        }
+    }
+
+    private final long[] counts = new long[BUCKETS];
+    // null when bucket sum is zero
+    private final BigDecimal[] sums = new BigDecimal[BUCKETS];
+
+    /**
+     * Add salary.
+     * @param salary salary
+     */
+    public void add(final BigDecimal salary) {
+        final int b = bucket(salary);
+        counts[b]++;
+        sums[b] = sums[b] == null ? salary : sums[b].add(salary);
+    }
+
+    /**
+     * Remove salary that was added before.
+     * @param salary salary
+     */
+    public void remove(final BigDecimal salary) {
+        final int b = bucket(salary);
+        counts[b]--;
+        sums[b] = sums[b] == null ? salary.negate() : sums[b].subtract(salary);
+    }
+
+    /**
+     * Add counts and sums of other histogram, which may hold removals.
+     * @param other histogram
+     */
+    public void merge(final SalaryHistogram other) {
+        for(int b = 0; b < BUCKETS; b++) {
+            if(other.counts[b] == 0 && other.sums[b] == null) {
+                continue;
+            }
+            counts[b] += other.counts[b];
+            if(other.sums[b] != null) {
+                sums[b] = sums[b] == null ? other.sums[b] : sums[b].add(other.sums[b]);
+            }
+        }
+    }
+
+    /**
+     * Get statistics of salaries between min and max, from the histogram only, in time independent of the number of
+     * salaries.
+     * Buckets between the buckets of min and max are wholly in range. The buckets of min and max are partly in range,
+     * and their salaries are taken as spread evenly over the bucket, so they are counted in proportion to the part of
+     * the bucket in range, with the mean salary of the bucket. Those buckets hold the salaries within about 2% of min
+     * and max, so count and sum are exact apart from those salaries, and exact when min and max are outside all
+     * salaries. Min, max, mean and percentiles are within 1% of the actual salary.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @param percentiles percentiles to get, from 0 to 100
+     * @return statistics, without min, max, mean and percentiles when there are no salaries in range
+     */
+    public SalaryStatsBean stats(final BigDecimal min, final BigDecimal max, final int... percentiles) {
+        final int low = bucket(min);
+        final int high = bucket(max);
+        if(min.compareTo(max) > 0) {
+            return stats(low, high, new Edge(), new Edge(), percentiles);
+        }
+        return stats(low, high, interpolate(low, min, max), high != low ? interpolate(high, min, max) : new Edge(),
+                percentiles);
+    }
+
+    /**
+     * Get statistics of salaries between min and max, with count and sum exact.
+     * Buckets between the buckets of min and max are wholly in range, and are counted from the histogram. The
+     * buckets of min and max are partly in range, and their salaries are read through the reader, so count, sum and
+     * mean are exact, and the cost grows with the number of salaries in those two buckets. Min, max and percentiles
+     * are within 1% of the actual salary.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @param reader reader of salaries in the buckets of min and max
+     * @param percentiles percentiles to get, from 0 to 100
+     * @return statistics, without min, max, mean and percentiles when there are no salaries in range
+     */
+    public SalaryStatsBean stats(final BigDecimal min, final BigDecimal max, final SalaryRangeReader reader,
+                                 final int... percentiles) {
+        final int low = bucket(min);
+        final int high = bucket(max);
+        final Edge lower = new Edge();
+        final Edge upper = new Edge();
+        if(min.compareTo(max) <= 0) {
+            // salaries of a bucket are between the representatives of its neighbours, then filtered by bucket
+            reader.read(min, low + 1 < BUCKETS ? max.min(REPRESENTATIVES[low + 1]) : max, salary -> {
+                if(bucket(salary) == low) {
+                    lower.add(salary);
+                }
+            });
+            if(high != low) {
+                reader.read(high > 0 ? min.max(REPRESENTATIVES[high - 1]) : min, max, salary -> {
+                    if(bucket(salary) == high) {
+                        upper.add(salary);
+                    }
+                });
+            }
+        }
+        return stats(low, high, lower, upper, percentiles);
+    }
+
+    /**
+     * Statistics of the salaries in range of the buckets of min and max, and all salaries of the buckets between.
+     */
+    private SalaryStatsBean stats(final int low, final int high, final Edge lower, final Edge upper,
+                                  final int... percentiles) {
+        // no buckets between when min is above max
+        long count = lower.count + upper.count;
+        BigDecimal sum = lower.sum.add(upper.sum);
+        for(int b = low + 1; b < high; b++) {
+            if(counts[b] <= 0) {
+                continue;
+            }
+            count += counts[b];
+            if(sums[b] != null) {
+                sum = sum.add(sums[b]);
+            }
+        }
+        final SalaryStatsBean.SalaryStatsBeanBuilder builder = SalaryStatsBean.builder()
+                .count(count)
+                .sum(sum.setScale(SCALE, RoundingMode.HALF_UP));
+        if(count == 0) {
+            return builder.percentiles(new LinkedHashMap<>()).build();
+        }
+        final Map<Integer, BigDecimal> values = new LinkedHashMap<>();
+        for(int percentile : percentiles) {
+            values.put(percentile, valueAtRank(low, high, lower, upper,
+                    (long) Math.floor(percentile / 100.0 * (count - 1))));
+        }
+        return builder
+                .min(lower.count > 0 ? lower.min
+                        : count == upper.count ? upper.min : valueAtRank(low, high, lower, upper, 0))
+                .max(upper.count > 0 ? upper.max
+                        : count == lower.count ? lower.max : valueAtRank(low, high, lower, upper, count - 1))
+                .mean(sum.divide(BigDecimal.valueOf(count), SCALE, RoundingMode.HALF_UP))
+                .percentiles(values)
+                .build();
+    }
+
+    /**
+     * Estimate salaries of bucket between min and max, taking its salaries as spread evenly between its bounds.
+     */
+    private Edge interpolate(final int b, final BigDecimal min, final BigDecimal max) {
+        final Edge edge = new Edge();
+        if(counts[b] <= 0) {
+            return edge;
+        }
+        // first and last buckets also hold salaries down to 0 and up to the largest salary
+        final double lowerBound = b == 0 ? 0 : Math.pow(GAMMA, b + MIN_INDEX - 1);
+        final double upperBound = b == BUCKETS - 1 ? MAX_SALARY : Math.pow(GAMMA, b + MIN_INDEX);
+        final double from = Math.max(min.doubleValue(), lowerBound);
+        final double to = Math.min(max.doubleValue(), upperBound);
+        final double fraction = from <= lowerBound && to >= upperBound ? 1
+                : Math.max(to - from, 0) / (upperBound - lowerBound);
+        edge.count = Math.min(Math.round(counts[b] * fraction), counts[b]);
+        if(edge.count <= 0) {
+            return edge;
+        }
+        edge.sum = sums[b] == null ? BigDecimal.ZERO : sums[b].multiply(BigDecimal.valueOf(edge.count))
+                .divide(BigDecimal.valueOf(counts[b]), SCALE, RoundingMode.HALF_UP);
+        // salaries in range are between min and max, and within relative accuracy of the representative
+        edge.min = REPRESENTATIVES[b].max(min).min(max);
+        edge.max = edge.min;
+        return edge;
+    }
+
+    /**
+     * Approximate salary at rank, counting from 0 in ascending order: the representative value of its bucket,
+     * within the actual salaries read for the buckets of min and max.
+     */
+    private BigDecimal valueAtRank(final int low, final int high, final Edge lower, final Edge upper,
+                                   final long rank) {
+        long seen = lower.count;
+        if(seen > rank) {
+            return lower.representative(low);
+        }
+        for(int b = low + 1; b < high; b++) {
+            if(counts[b] <= 0) {
+                continue;
+            }
+            seen += counts[b];
+            if(seen > rank) {
+                return REPRESENTATIVES[b];
+            }
+        }
+        return upper.count > 0 ? upper.representative(high) : lower.representative(low);
+    }
+
+    private static int bucket(final BigDecimal salary) {
+        final double value = salary.doubleValue();
+        if(value <= 0) {
+            return 0;
+        }
+        return Math.min(Math.max(index(value) - MIN_INDEX, 0), BUCKETS - 1);
+    }
+
+    private static int index(final double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    /**
+     * Salaries of the bucket of min or max that are in range, read or interpolated.
+     */
+    private static final class Edge {
+        private long count;
+        private BigDecimal sum = BigDecimal.ZERO;
+        private BigDecimal min;
+        private BigDecimal max;
+
+        private void add(final BigDecimal salary) {
+            count++;
+            sum = sum.add(salary);
+            min = min == null ? salary : min.min(salary);
+            max = max == null ? salary : max.max(salary);
+        }
+
+        private BigDecimal representative(final int bucket) {
+            return REPRESENTATIVES[bucket].max(min).min(max);
+        }
+    }
+}
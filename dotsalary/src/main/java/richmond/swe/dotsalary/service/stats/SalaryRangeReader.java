@@ -0,0 +1,20 @@
+package richmond.swe.dotsalary.service.stats;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+/**
+ * Reads salaries within a range, for salaries of histogram buckets that are only partly in range.
+ * @author richmondchng
+ */
+@FunctionalInterface
+public interface SalaryRangeReader {
+
+    /**
+     * Read salaries between from and to.
+     * @param from min salary (inclusive)
+     * @param to max salary (inclusive)
+     * @param handler salary handler
+     */
+    void read(BigDecimal from, BigDecimal to, Consumer<BigDecimal> handler);
+}
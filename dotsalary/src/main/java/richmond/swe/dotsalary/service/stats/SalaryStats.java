@@ -0,0 +1,83 @@
+package richmond.swe.dotsalary.service.stats;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+import richmond.swe.dotsalary.service.event.UsersChangedEvent;
+
+import java.math.BigDecimal;
+
+/**
+ * Salary statistics of all users, for answering statistics without scanning the users table.
+ *
+ * Loaded on start up, then kept in step with the database by applying the salary changes of each committed upload.
+ * Statistics of a range are answered from memory, without reading the users table, unless exact edges are enabled.
+ * @author richmondchng
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SalaryStats {
+
+    private static final int[] PERCENTILES = { 50, 90, 95, 99 };
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final DotsalaryProperties properties;
+
+    // guarded by this
+    private SalaryHistogram histogram = new SalaryHistogram();
+
+    /**
+     * Get statistics of salaries between min and max.
+     * Answered from the histogram in constant time, with salaries near min and max estimated, unless exact edges are
+     * enabled, when salaries in the histogram buckets of min and max are read from the salary index on every call.
+     * @param min min salary (inclusive)
+     * @param max max salary (inclusive)
+     * @return statistics, with 50th, 90th, 95th and 99th percentiles
+     */
+    public SalaryStatsBean getStats(final BigDecimal min, final BigDecimal max) {
+        if(!properties.getQuery().isStatsExactEdges()) {
+            synchronized(this) {
+                return histogram.stats(min, max, PERCENTILES);
+            }
+        }
+        // copied, so committed changes are not blocked while salaries are read
+        final SalaryHistogram copy = new SalaryHistogram();
+        synchronized(this) {
+            copy.merge(histogram);
+        }
+        return copy.stats(min, max, userJdbcRepository::findSalaries, PERCENTILES);
+    }
+
+    /**
+     * Load all salaries.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Apply committed salary changes.
+     * @param event changed users
+     */
+    @EventListener
+    public synchronized void onUsersChanged(final UsersChangedEvent event) {
+        histogram.merge(event.getSalaryChanges());
+    }
+
+    /**
+     * Replace statistics with all salaries from database.
+     */
+    public synchronized void reload() {
+        final SalaryHistogram loaded = new SalaryHistogram();
+        userJdbcRepository.findAllSalaries(loaded::add);
+        histogram = loaded;
+        log.info("Loaded salary statistics");
+    }
+}
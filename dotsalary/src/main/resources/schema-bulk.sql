@@ -0,0 +1,8 @@
+-- Ids for the bulk profile, taken 50 at a time by the pooled optimizer of UserEntity.
+-- Each value is the last id of a block, so the sequence restarts a block above the highest id in use, and rows
+-- inserted without JPA take ids from the same sequence, a whole block each. ID is widened to BIGINT, so rows
+-- inserted one at a time, such as by the JDBC MERGE, do not run out of ids after about 43 million rows.
+ALTER TABLE users ALTER COLUMN ID SET DATA TYPE BIGINT;
+CREATE SEQUENCE IF NOT EXISTS USERS_SEQ INCREMENT BY 50;
+ALTER SEQUENCE USERS_SEQ RESTART WITH (SELECT COALESCE(MAX(ID), 0) + 50 FROM users);
+ALTER TABLE users ALTER COLUMN ID SET DEFAULT NEXT VALUE FOR USERS_SEQ;
@@ -1,6 +1,38 @@
-CREATE TABLE users (
+CREATE TABLE IF NOT EXISTS users (
     ID INTEGER NOT NULL AUTO_INCREMENT,
     NAME VARCHAR(128) NOT NULL,
     SALARY DECIMAL(12,8) NOT NULL,
     PRIMARY KEY (id)
-);
\ No newline at end of file
+);
+
+-- Upper case name, for case insensitive lookup and upsert.
+-- Computed column, so existing rows are filled in when the column is added.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS NAME_KEY VARCHAR(128) AS UPPER(NAME);
+CREATE UNIQUE INDEX IF NOT EXISTS IDX_USERS_NAME_KEY ON users(NAME_KEY);
+
+-- Range scan and sort for /users, with ID for keyset pagination.
+CREATE INDEX IF NOT EXISTS IDX_USERS_SALARY ON users(SALARY, ID);
+CREATE INDEX IF NOT EXISTS IDX_USERS_NAME ON users(NAME, ID);
+
+-- Last committed data line of each upload in CHUNKED mode, by SHA-256 of the file, so a failed upload of the
+-- same file resumes after it. Row is deleted when the upload completes.
+CREATE TABLE IF NOT EXISTS upload_checkpoint (
+    UPLOAD_ID VARCHAR(64) NOT NULL,
+    LINE_NUMBER INTEGER NOT NULL,
+    UPDATED_AT TIMESTAMP NOT NULL,
+    PRIMARY KEY (UPLOAD_ID)
+);
+
+-- Attempt that has claimed the upload, null once released by a failed attempt. A claim is stale, and can be taken
+-- over, when UPDATED_AT is older than the claim timeout; rows older than the checkpoint TTL are purged.
+ALTER TABLE upload_checkpoint ADD COLUMN IF NOT EXISTS OWNER VARCHAR(36);
+CREATE INDEX IF NOT EXISTS IDX_UPLOAD_CHECKPOINT_UPDATED_AT ON upload_checkpoint(UPDATED_AT);
+
+-- Position in the upload log after the last append applied to users, saved in the same transaction as the append,
+-- so start up replays only appends after it.
+CREATE TABLE IF NOT EXISTS upload_log_position (
+    ID INTEGER NOT NULL,
+    SEGMENT_NUMBER BIGINT NOT NULL,
+    SEGMENT_POSITION BIGINT NOT NULL,
+    PRIMARY KEY (ID)
+);
@@ -0,0 +1,122 @@
+package richmond.swe.dotsalary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test application with bulk profile.
+ * @author richmondchng
+ */
+class BulkProfileTests {
+
+	@TempDir
+	Path storageDir;
+
+	/**
+	 * Test bulk persist.
+	 *
+	 * New users take ids from the sequence, after sample users and users inserted without JPA.
+	 */
+	@Test
+	void givenSampleUsers_whenBulkPersistRecords_insertNewUsers() {
+		try(ConfigurableApplicationContext context = start("--spring.datasource.url=jdbc:h2:mem:bulk_profile")) {
+			final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			final int sampleUsers = count(jdbcTemplate);
+			final UserService userService = context.getBean(UserService.class);
+
+			userService.bulkPersistRecords(users("First ", 120));
+			jdbcTemplate.update("INSERT INTO users (NAME, SALARY) VALUES ('Direct', 100)");
+			userService.bulkPersistRecords(users("Second ", 120));
+
+			// ids up to the end of the last block taken by JPA are skipped
+			final long lastFirstId = jdbcTemplate.queryForObject(
+					"SELECT MAX(ID) FROM users WHERE NAME LIKE 'First %'", Long.class);
+			final long directId = jdbcTemplate.queryForObject("SELECT ID FROM users WHERE NAME = 'Direct'", Long.class);
+			assertTrue(directId > lastFirstId + 1);
+
+			assertEquals(sampleUsers + 241, count(jdbcTemplate));
+			assertEquals(sampleUsers + 241, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT ID) FROM users",
+					Integer.class));
+		}
+	}
+
+	/**
+	 * Test bulk persist past the INTEGER range.
+	 *
+	 * Ids are BIGINT, so JPA and rows inserted without JPA keep taking ids from the sequence.
+	 */
+	@Test
+	void givenSequencePastIntegerRange_whenBulkPersistRecords_insertNewUsers() {
+		try(ConfigurableApplicationContext context = start("--spring.datasource.url=jdbc:h2:mem:bulk_profile_bigint")) {
+			final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			final int sampleUsers = count(jdbcTemplate);
+			jdbcTemplate.update("ALTER SEQUENCE USERS_SEQ RESTART WITH 3000000000");
+
+			jdbcTemplate.update("INSERT INTO users (NAME, SALARY) VALUES ('Direct', 100)");
+			context.getBean(UserService.class).bulkPersistRecords(users("First ", 10));
+
+			assertEquals(sampleUsers + 11, count(jdbcTemplate));
+			assertEquals(10, jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM users WHERE NAME LIKE 'First %' AND ID > 3000000000", Integer.class));
+			assertTrue(jdbcTemplate.queryForObject("SELECT ID FROM users WHERE NAME = 'Direct'", Long.class)
+					>= 3000000000L);
+		}
+	}
+
+	/**
+	 * Test restart.
+	 *
+	 * Ids handed out before restart are not handed out again.
+	 */
+	@Test
+	void givenPersistedUsers_whenRestarted_insertNewUsers() {
+		try(ConfigurableApplicationContext context = startPersistent()) {
+			context.getBean(UserService.class).bulkPersistRecords(users("First ", 10));
+		}
+
+		try(ConfigurableApplicationContext context = startPersistent()) {
+			context.getBean(UserService.class).bulkPersistRecords(users("Second ", 120));
+			assertEquals(130, count(context.getBean(JdbcTemplate.class)));
+		}
+	}
+
+	private static List<UserBean> users(final String prefix, final int count) {
+		final List<UserBean> users = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			users.add(UserBean.builder().name(prefix + i).salary(BigDecimal.valueOf(1000 + i)).build());
+		}
+		return users;
+	}
+
+	private static int count(final JdbcTemplate jdbcTemplate) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+	}
+
+	private ConfigurableApplicationContext startPersistent() {
+		return new SpringApplicationBuilder(DotsalaryApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("persistent", "bulk")
+				.run("--dotsalary.storage-dir=" + storageDir);
+	}
+
+	private static ConfigurableApplicationContext start(final String... args) {
+		return new SpringApplicationBuilder(DotsalaryApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("bulk")
+				.run(args);
+	}
+}
@@ -0,0 +1,103 @@
+package richmond.swe.dotsalary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import richmond.swe.dotsalary.config.PersistenceEngine;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.UserStatsService;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test application with uploads running at the same time.
+ * @author richmondchng
+ */
+class ConcurrentUploadTests {
+
+	private static final int UPLOADERS = 4;
+	private static final int UPLOADS = 20;
+
+	/**
+	 * Test bulk persist with JPA engine, with uploads updating the same users at the same time.
+	 *
+	 * Salary statistics count and sum match the users table once all uploads have committed.
+	 */
+	@Test
+	void givenConcurrentJpaUploadsOfSameUsers_whenGetSalaryStats_matchUsersTable() throws Exception {
+		uploadConcurrently(PersistenceEngine.JPA);
+	}
+
+	/**
+	 * Test bulk persist with JDBC engine, with uploads updating the same users at the same time.
+	 *
+	 * Salary statistics count and sum match the users table once all uploads have committed.
+	 */
+	@Test
+	void givenConcurrentJdbcUploadsOfSameUsers_whenGetSalaryStats_matchUsersTable() throws Exception {
+		uploadConcurrently(PersistenceEngine.JDBC);
+	}
+
+	private static void uploadConcurrently(final PersistenceEngine engine) throws Exception {
+		try(ConfigurableApplicationContext context = start(
+				"--spring.datasource.url=jdbc:h2:mem:concurrent_" + engine.name().toLowerCase(),
+				"--dotsalary.persistence.engine=" + engine.name())) {
+			final UserService userService = context.getBean(UserService.class);
+			// inserted first, so concurrent uploads only update
+			userService.bulkPersistRecords(users(0));
+
+			final ExecutorService executor = Executors.newFixedThreadPool(UPLOADERS);
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for(int uploader = 1; uploader <= UPLOADERS; uploader++) {
+					final int offset = uploader;
+					futures.add(executor.submit(() -> {
+						for(int upload = 0; upload < UPLOADS; upload++) {
+							userService.bulkPersistRecords(users(offset * 100 + upload));
+						}
+					}));
+				}
+				for(Future<?> future : futures) {
+					future.get(60, TimeUnit.SECONDS);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			final SalaryStatsBean stats = context.getBean(UserStatsService.class)
+					.getSalaryStats(BigDecimal.ZERO, BigDecimal.valueOf(10000));
+			final long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+			assertEquals(count, stats.getCount());
+			assertEquals(0, jdbcTemplate.queryForObject("SELECT SUM(SALARY) FROM users", BigDecimal.class)
+					.compareTo(stats.getSum()));
+		}
+	}
+
+	private static List<UserBean> users(final int salaryOffset) {
+		final List<UserBean> users = new ArrayList<>();
+		for(int i = 0; i < 50; i++) {
+			users.add(UserBean.builder().name("Concurrent " + i).salary(BigDecimal.valueOf(1000 + salaryOffset + i))
+					.build());
+		}
+		return users;
+	}
+
+	private static ConfigurableApplicationContext start(final String... args) {
+		return new SpringApplicationBuilder(DotsalaryApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(args);
+	}
+}
@@ -0,0 +1,60 @@
+package richmond.swe.dotsalary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test application with persistent profile.
+ * @author richmondchng
+ */
+class PersistentProfileTests {
+
+	@TempDir
+	Path storageDir;
+
+	/**
+	 * Test restart.
+	 *
+	 * Uploaded users are kept, sample users are not loaded.
+	 */
+	@Test
+	void givenUploadedUsers_whenRestarted_returnSameUsers() {
+		try(ConfigurableApplicationContext context = start()) {
+			final UserService userService = context.getBean(UserService.class);
+			assertEquals(0, context.getBean(UserQueryService.class)
+					.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, null, null).size());
+			userService.bulkPersistRecords(List.of(
+					UserBean.builder().name("John").salary(BigDecimal.valueOf(2500.05)).build(),
+					UserBean.builder().name("Ryan").salary(BigDecimal.valueOf(4000)).build()));
+		}
+
+		try(ConfigurableApplicationContext context = start()) {
+			final Collection<UserBean> results = context.getBean(UserQueryService.class)
+					.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, null, "SALARY");
+			final List<String> names = new ArrayList<>();
+			results.forEach(u -> names.add(u.getName()));
+			assertEquals(List.of("John", "Ryan"), names);
+		}
+	}
+
+	private ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(DotsalaryApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("persistent")
+				.run("--dotsalary.storage-dir=" + storageDir);
+	}
+}
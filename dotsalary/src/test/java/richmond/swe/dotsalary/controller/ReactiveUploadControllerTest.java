@@ -0,0 +1,138 @@
+package richmond.swe.dotsalary.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import richmond.swe.dotsalary.exception.FileProcessException;
+import richmond.swe.dotsalary.service.RecordChunkSource;
+import richmond.swe.dotsalary.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test "/upload" as a reactive web application.
+ * @author richmondchng
+ */
+@WebFluxTest(controllers = { ReactiveUploadController.class }, properties = {
+        "dotsalary.upload.chunk-size=2"
+})
+class ReactiveUploadControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @MockBean
+    private UserService userService;
+
+    private WebTestClient.ResponseSpec upload(final String content, final MediaType contentType) {
+        final MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("description", "salaries");
+        builder.part("file", new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "hello.csv";
+            }
+        }).contentType(contentType);
+        return webTestClient.post().uri("/upload")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange();
+    }
+
+    /**
+     * Test /upload.
+     *
+     * File decoded as it arrives, records persisted in chunks of chunk size, all in one call within a transaction.
+     */
+    @Test
+    void givenFile_whenUpload_persistInChunksOfOneTransaction() throws Exception {
+        final List<List<String>> chunks = new ArrayList<>();
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            assertEquals(3, source.forEachChunk(chunk -> {
+                final List<String> names = new ArrayList<>();
+                chunk.forEach(r -> names.add(r.getName()));
+                chunks.add(names);
+            }));
+            return 1;
+        });
+
+        upload("NAME,SALARY\nJohn,3000.0\nJane,3500.0\nRyan,1000\n", MediaType.valueOf("text/csv"))
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.success").isEqualTo(1);
+
+        assertEquals(List.of(List.of("John", "Jane"), List.of("Ryan")), chunks);
+        verify(userService, times(1)).streamPersistRecords(any());
+        verify(userService, never()).bulkPersistRecords(any());
+    }
+
+    /**
+     * Test /upload.
+     *
+     * Not a CSV file, return failed without persisting.
+     */
+    @Test
+    void givenNotCsvFile_whenUpload_returnFailed() throws Exception {
+        upload("NAME,SALARY\nJohn,3000.0\n", MediaType.TEXT_PLAIN)
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.success").isEqualTo(0);
+
+        verify(userService, never()).streamPersistRecords(any());
+    }
+
+    /**
+     * Test /upload.
+     *
+     * Invalid record, decode error thrown within the transaction, so it rolls back, return failed.
+     */
+    @Test
+    void givenInvalidRecord_whenUpload_returnFailed() throws Exception {
+        final List<Exception> errors = new ArrayList<>();
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            try {
+                return source.forEachChunk(chunk -> { });
+            } catch(RuntimeException e) {
+                // rolls back the transaction
+                errors.add(e);
+                throw e;
+            }
+        });
+
+        upload("NAME,SALARY\nJohn,3000.0\nJane,3500.0\nRyan,abc\n", MediaType.valueOf("text/csv"))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.success").isEqualTo(0);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof FileProcessException);
+    }
+
+    /**
+     * Test /upload.
+     *
+     * Exception when persisting, return failed.
+     */
+    @Test
+    void givenPersistFailed_whenUpload_returnFailed() throws Exception {
+        when(userService.streamPersistRecords(any())).thenThrow(new RuntimeException("Error"));
+
+        upload("NAME,SALARY\nJohn,3000.0\n", MediaType.valueOf("text/csv"))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.success").isEqualTo(0);
+    }
+}
@@ -0,0 +1,138 @@
+package richmond.swe.dotsalary.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.bean.UserPageBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test "/users" as a reactive web application.
+ * @author richmondchng
+ */
+@WebFluxTest(controllers = { ReactiveUsersController.class })
+class ReactiveUsersControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @MockBean
+    private UserQueryService userQueryService;
+
+    private static UserPageBean page(final int from, final int to, final String next) {
+        final List<UserBean> results = new ArrayList<>();
+        for(int i = from; i <= to; i++) {
+            results.add(UserBean.builder().name("User" + i).salary(BigDecimal.valueOf(i)).build());
+        }
+        return UserPageBean.builder().results(results).next(next).build();
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Return empty collection.
+     */
+    @Test
+    void givenNoUsers_whenGetUsers_returnEmptyData() {
+        when(userQueryService.getUsersPage(any(), any(), eq(ReactiveUsersController.PAGE_SIZE), isNull(), eq("")))
+                .thenReturn(page(1, 0, null));
+
+        webTestClient.get().uri("/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"results\":[]}");
+
+        verify(userQueryService, times(1)).getUsersPage(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+                eq(ReactiveUsersController.PAGE_SIZE), isNull(), eq(""));
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Pages read by cursor until the last page, without "next" after the last page.
+     */
+    @Test
+    void givenPages_whenGetUsers_returnUsersAcrossPages() {
+        when(userQueryService.getUsersPage(any(), any(), eq(ReactiveUsersController.PAGE_SIZE), eq("NAME"), eq("")))
+                .thenReturn(page(1, 2, "c1"));
+        when(userQueryService.getUsersPage(any(), any(), eq(ReactiveUsersController.PAGE_SIZE), eq("NAME"), eq("c1")))
+                .thenReturn(page(3, 3, null));
+
+        webTestClient.get().uri("/users?min=1&max=10&sort=NAME")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"results\":["
+                        + "{\"name\":\"User1\",\"salary\":1},{\"name\":\"User2\",\"salary\":2},"
+                        + "{\"name\":\"User3\",\"salary\":3}]}", true);
+
+        verify(userQueryService, times(1)).getUsersPage(eq(BigDecimal.ONE), eq(BigDecimal.TEN),
+                eq(ReactiveUsersController.PAGE_SIZE), eq("NAME"), eq("c1"));
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Continue from cursor, pages sized to end at limit, cursor of the last page read returned as "next".
+     */
+    @Test
+    void givenCursorAndLimit_whenGetUsers_returnUsersUpToLimitWithNext() {
+        when(userQueryService.getUsersPage(any(), any(), eq(5), eq("NAME"), eq("c0")))
+                .thenReturn(page(4, 6, "c1"));
+        when(userQueryService.getUsersPage(any(), any(), eq(2), eq("NAME"), eq("c1")))
+                .thenReturn(page(7, 8, "c2"));
+
+        webTestClient.get().uri("/users?min=1&max=10&limit=5&sort=NAME&cursor=c0")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"results\":["
+                        + "{\"name\":\"User4\",\"salary\":4},{\"name\":\"User5\",\"salary\":5},"
+                        + "{\"name\":\"User6\",\"salary\":6},{\"name\":\"User7\",\"salary\":7},"
+                        + "{\"name\":\"User8\",\"salary\":8}],\"next\":\"c2\"}", true);
+
+        // limit reached on second page
+        verify(userQueryService, never()).getUsersPage(any(), any(), any(), anyString(), eq("c2"));
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Invalid request parameters, return error.
+     */
+    @Test
+    void givenInvalidRequestParams_whenGetUsers_throwException() {
+        webTestClient.get().uri("/users?offset=2")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Offset not supported, use cursor");
+
+        webTestClient.get().uri("/users?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Invalid limit parameter");
+
+        when(userQueryService.getUsersPage(any(), any(), any(), eq("AGE"), eq("")))
+                .thenThrow(new IllegalArgumentException("Invalid sort parameter"));
+
+        webTestClient.get().uri("/users?sort=AGE")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Invalid sort parameter");
+
+        verify(userQueryService, never()).getUsersPage(any(), any(), any(), isNull(), any());
+    }
+}
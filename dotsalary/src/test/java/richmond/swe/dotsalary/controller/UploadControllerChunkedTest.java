@@ -0,0 +1,124 @@
+package richmond.swe.dotsalary.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.PipelinedUploadService;
+import richmond.swe.dotsalary.service.RecordChunkSource;
+import richmond.swe.dotsalary.service.ResumableUploadService;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test "/upload" in CHUNKED mode.
+ * @author richmondchng
+ */
+@WebMvcTest(controllers = { UploadController.class }, properties = {
+        "dotsalary.upload.mode=CHUNKED",
+        "dotsalary.upload.chunk-size=500"
+})
+class UploadControllerChunkedTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private FileProcessorService fileProcessorService;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private ResumableUploadService resumableUploadService;
+    @MockBean
+    private PipelinedUploadService pipelinedUploadService;
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "hello.csv",
+            MediaType.TEXT_PLAIN_VALUE,
+            "NAME, SALARY\nJohn,3000.0\nJohn 2,3500.0".getBytes()
+    );
+
+    /**
+     * Test /upload.
+     *
+     * File parsed in chunks, chunks handed to resumable persistence by upload id of the file.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenFile_whenUploadFile_persistChunksByUploadId() throws Exception {
+        when(resumableUploadService.uploadId(any())).thenReturn("abc");
+        when(fileProcessorService.process(eq(file), anyInt(), any())).thenAnswer(invocation -> {
+            final Consumer<Collection<UserBean>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(UserBean.builder().name("JOHN").salary(BigDecimal.valueOf(1000)).build()));
+            return 1;
+        });
+        final List<Collection<UserBean>> persisted = new ArrayList<>();
+        when(resumableUploadService.persistRecords(eq("abc"), any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(1);
+            source.forEachChunk(persisted::add);
+            return 1;
+        });
+
+        mockMvc.perform(multipart("/upload")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(1)));
+
+        verify(fileProcessorService, times(1)).process(eq(file), eq(500), any());
+        verify(userService, never()).streamPersistRecords(any());
+        verify(userService, never()).bulkPersistRecords(any());
+
+        assertEquals(1, persisted.size());
+        assertEquals("JOHN", persisted.get(0).iterator().next().getName());
+    }
+
+    /**
+     * Test /upload.
+     *
+     * Chunk failed persisting, return failed.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenPersistFailed_whenUploadFile_returnFailed() throws Exception {
+        when(resumableUploadService.uploadId(any())).thenReturn("abc");
+        when(fileProcessorService.process(eq(file), anyInt(), any())).thenAnswer(invocation -> {
+            final Consumer<Collection<UserBean>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(UserBean.builder().name("JOHN").salary(BigDecimal.valueOf(1000)).build()));
+            return 1;
+        });
+        when(resumableUploadService.persistRecords(eq("abc"), any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(1);
+            return source.forEachChunk(chunk -> {
+                throw new RuntimeException("Error");
+            });
+        });
+
+        mockMvc.perform(multipart("/upload")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().is4xxClientError())
+                .andExpect(jsonPath("$.success", is(0)));
+    }
+}
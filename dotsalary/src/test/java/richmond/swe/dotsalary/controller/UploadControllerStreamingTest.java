@@ -0,0 +1,143 @@
+package richmond.swe.dotsalary.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.PipelinedUploadService;
+import richmond.swe.dotsalary.service.RecordChunkSource;
+import richmond.swe.dotsalary.service.ResumableUploadService;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test "/upload" in STREAMING mode.
+ * @author richmondchng
+ */
+@WebMvcTest(controllers = { UploadController.class }, properties = {
+        "dotsalary.upload.mode=STREAMING",
+        "dotsalary.upload.chunk-size=500"
+})
+class UploadControllerStreamingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private FileProcessorService fileProcessorService;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private ResumableUploadService resumableUploadService;
+    @MockBean
+    private PipelinedUploadService pipelinedUploadService;
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "hello.csv",
+            MediaType.TEXT_PLAIN_VALUE,
+            "NAME, SALARY\nJohn,3000.0\nJohn 2,3500.0".getBytes()
+    );
+
+    /**
+     * Test /upload.
+     *
+     * File parsed in chunks, each chunk handed to persistence.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenFile_whenUploadFile_persistChunks() throws Exception {
+        when(fileProcessorService.process(eq(file), anyInt(), any())).thenAnswer(invocation -> {
+            final Consumer<Collection<UserBean>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(UserBean.builder().name("JOHN").salary(BigDecimal.valueOf(1000)).build()));
+            return 1;
+        });
+        final List<Collection<UserBean>> persisted = new ArrayList<>();
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            source.forEachChunk(persisted::add);
+            return 1;
+        });
+
+        mockMvc.perform(multipart("/upload")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(1)));
+
+        verify(fileProcessorService, times(1)).process(eq(file), eq(500), any());
+        verify(fileProcessorService, never()).process(file);
+        verify(userService, never()).bulkPersistRecords(any());
+
+        assertEquals(1, persisted.size());
+        final UserBean userBean = persisted.get(0).iterator().next();
+        assertEquals("JOHN", userBean.getName());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(userBean.getSalary().toBigDecimal()));
+    }
+
+    /**
+     * Test /upload.
+     *
+     * File failed parsing part way, return failed.
+     */
+    @Test
+    void givenFileFailed_whenUploadFile_returnFailed() throws Exception {
+        when(fileProcessorService.process(eq(file), anyInt(), any())).thenThrow(new IllegalArgumentException("error"));
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            return source.forEachChunk(chunk -> {});
+        });
+
+        mockMvc.perform(multipart("/upload")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().is4xxClientError())
+                .andExpect(jsonPath("$.success", is(0)));
+    }
+
+    /**
+     * Test /upload.
+     *
+     * Chunk failed persisting, return failed.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenPersistFailed_whenUploadFile_returnFailed() throws Exception {
+        when(fileProcessorService.process(eq(file), anyInt(), any())).thenAnswer(invocation -> {
+            final Consumer<Collection<UserBean>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(UserBean.builder().name("JOHN").salary(BigDecimal.valueOf(1000)).build()));
+            return 1;
+        });
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            return source.forEachChunk(chunk -> {
+                throw new RuntimeException("Error");
+            });
+        });
+
+        mockMvc.perform(multipart("/upload")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().is4xxClientError())
+                .andExpect(jsonPath("$.success", is(0)));
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.PipelinedUploadService;
+import richmond.swe.dotsalary.service.ResumableUploadService;
 import richmond.swe.dotsalary.service.UserService;
 import richmond.swe.dotsalary.service.bean.UserBean;
 
@@ -41,6 +43,10 @@ class UploadControllerTest {
     private FileProcessorService fileProcessorService;
     @MockBean
     private UserService userService;
+    @MockBean
+    private ResumableUploadService resumableUploadService;
+    @MockBean
+    private PipelinedUploadService pipelinedUploadService;
 
     @Captor
     private ArgumentCaptor<Collection<UserBean>> captor;
@@ -77,7 +83,7 @@ class UploadControllerTest {
         assertEquals(1, captured.size());
         final UserBean userBean = captured.iterator().next();
         assertEquals("JOHN", userBean.getName());
-        assertEquals(0, BigDecimal.valueOf(1000).compareTo(userBean.getSalary()));
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(userBean.getSalary().toBigDecimal()));
     }
 
     /**
@@ -0,0 +1,116 @@
+package richmond.swe.dotsalary.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import richmond.swe.dotsalary.exception.UploadJobNotFoundException;
+import richmond.swe.dotsalary.exception.UploadJobRejectedException;
+import richmond.swe.dotsalary.service.bean.UploadJobBean;
+import richmond.swe.dotsalary.service.job.UploadJobService;
+import richmond.swe.dotsalary.service.job.UploadJobStatus;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test "/upload/jobs".
+ * @author richmondchng
+ */
+@WebMvcTest(controllers = { UploadJobsController.class })
+class UploadJobsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private UploadJobService uploadJobService;
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "hello.csv",
+            "text/csv",
+            "NAME,SALARY\nJohn,3000.0\n".getBytes()
+    );
+
+    /**
+     * Test POST /upload/jobs.
+     *
+     * Job accepted, return job id.
+     */
+    @Test
+    void givenFile_whenSubmitJob_returnAccepted() throws Exception {
+        when(uploadJobService.submit(any())).thenReturn(UploadJobBean.builder()
+                .id("job-1").status(UploadJobStatus.QUEUED).build());
+
+        mockMvc.perform(multipart("/upload/jobs")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId", is("job-1")))
+                .andExpect(jsonPath("$.status", is("QUEUED")))
+                .andExpect(jsonPath("$.error").doesNotExist());
+
+        verify(uploadJobService, times(1)).submit(file);
+    }
+
+    /**
+     * Test POST /upload/jobs.
+     *
+     * Job queue full, return service unavailable.
+     */
+    @Test
+    void givenQueueFull_whenSubmitJob_returnServiceUnavailable() throws Exception {
+        when(uploadJobService.submit(any())).thenThrow(new UploadJobRejectedException("Too many upload jobs", null));
+
+        mockMvc.perform(multipart("/upload/jobs")
+                        .file(file).contentType(MediaType.MULTIPART_FORM_DATA_VALUE))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error", is("Too many upload jobs")));
+    }
+
+    /**
+     * Test GET /upload/jobs/{id}.
+     *
+     * Return job status and row counts.
+     */
+    @Test
+    void givenJob_whenGetJob_returnStatus() throws Exception {
+        when(uploadJobService.getJob(eq("job-1"))).thenReturn(UploadJobBean.builder()
+                .id("job-1").status(UploadJobStatus.COMPLETED)
+                .rowsParsed(10).rowsPersisted(8).rowsSkipped(2).elapsedMillis(15)
+                .build());
+
+        mockMvc.perform(get("/upload/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobId", is("job-1")))
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.rowsParsed", is(10)))
+                .andExpect(jsonPath("$.rowsPersisted", is(8)))
+                .andExpect(jsonPath("$.rowsSkipped", is(2)))
+                .andExpect(jsonPath("$.elapsedMillis", is(15)));
+    }
+
+    /**
+     * Test GET /upload/jobs/{id}.
+     *
+     * Unknown job, return not found.
+     */
+    @Test
+    void givenUnknownJob_whenGetJob_returnNotFound() throws Exception {
+        when(uploadJobService.getJob(any())).thenThrow(new UploadJobNotFoundException("Upload job not found"));
+
+        mockMvc.perform(get("/upload/jobs/unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error", is("Upload job not found")));
+    }
+}
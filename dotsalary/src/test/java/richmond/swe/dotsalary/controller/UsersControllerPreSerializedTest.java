@@ -0,0 +1,156 @@
+package richmond.swe.dotsalary.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.UserStatsService;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.cache.UserQueryResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test "/users" with pre-serialized responses.
+ * @author richmondchng
+ */
+@WebMvcTest(controllers = { UsersController.class }, properties = {
+        "dotsalary.query.pre-serialized=true"
+})
+class UsersControllerPreSerializedTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private UserQueryService userQueryService;
+    @MockBean
+    private UserStatsService userStatsService;
+
+    /**
+     * Test GET "/users".
+     *
+     * Return users serialized once, with ETag of data version.
+     */
+    @Test
+    void givenHasUsers_whenGetUsers_returnSerializedUsersWithETag() throws Exception {
+
+        final UserQueryResult result = new UserQueryResult(255L, List.of(
+                UserBean.builder().name("John").salary(BigDecimal.valueOf(3000)).build(),
+                UserBean.builder().name("Ryan").salary(new BigDecimal("3500.50")).build()));
+        when(userQueryService.getDataVersion()).thenReturn(255L);
+        when(userQueryService.getUsersResult(any(), any(), anyInt(), isNull(), isNull())).thenReturn(result);
+
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"ff\""))
+                .andExpect((jsonPath("$.results", hasSize(2))))
+                .andExpect(jsonPath("$.results[0].name", is("John")))
+                .andExpect(jsonPath("$.results[0].salary", is(3000.0)))
+                .andExpect(jsonPath("$.results[1].name", is("Ryan")))
+                .andExpect(jsonPath("$.results[1].salary", is(3500.50)));
+
+        // second request writes the same bytes
+        final byte[] serialized = result.serialize(results -> {
+            throw new AssertionError("Expect results to be serialized once");
+        });
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(serialized));
+
+        verify(userQueryService, times(2)).getUsersResult(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+                eq(0), isNull(), isNull());
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Client has current data version, return 304 without querying.
+     */
+    @Test
+    void givenCurrentETag_whenGetUsers_returnNotModified() throws Exception {
+
+        when(userQueryService.getDataVersion()).thenReturn(255L);
+
+        mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, "\"ff\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"ff\""))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(userQueryService, times(0)).getUsersResult(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Client has current data version as weak tag, in a list, or any version, return 304 without querying.
+     */
+    @Test
+    void givenMatchingIfNoneMatch_whenGetUsers_returnNotModified() throws Exception {
+
+        when(userQueryService.getDataVersion()).thenReturn(255L);
+
+        for(String ifNoneMatch : List.of("W/\"ff\"", "\"aa\", \"ff\"", "*")) {
+            mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"ff\""));
+        }
+
+        verify(userQueryService, times(0)).getUsersResult(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Client has current data version, invalid parameter, return 400.
+     */
+    @Test
+    void givenCurrentETagAndInvalidLimit_whenGetUsers_returnBadRequest() throws Exception {
+
+        when(userQueryService.checkUsersQuery(any(), any(), anyInt(), eq(0), isNull()))
+                .thenThrow(new IllegalArgumentException("Invalid limit parameter"));
+
+        mockMvc.perform(get("/users?limit=0").header(HttpHeaders.IF_NONE_MATCH, "\"ff\""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Invalid limit parameter")));
+
+        verify(userQueryService, times(0)).getDataVersion();
+    }
+
+    /**
+     * Test GET "/users".
+     *
+     * Client has previous data version, return users.
+     */
+    @Test
+    void givenPreviousETag_whenGetUsers_returnUsers() throws Exception {
+
+        final UserQueryResult result = new UserQueryResult(256L, List.of(
+                UserBean.builder().name("John").salary(BigDecimal.valueOf(3000)).build()));
+        when(userQueryService.getDataVersion()).thenReturn(256L);
+        when(userQueryService.getUsersResult(any(), any(), anyInt(), isNull(), isNull())).thenReturn(result);
+
+        mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, "\"ff\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"100\""))
+                .andExpect((jsonPath("$.results", hasSize(1))));
+    }
+}
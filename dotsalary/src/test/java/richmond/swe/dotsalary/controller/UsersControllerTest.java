@@ -5,13 +5,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
-import richmond.swe.dotsalary.service.UserService;
+import org.springframework.test.web.servlet.MvcResult;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.service.UserRowSource;
+import richmond.swe.dotsalary.service.UserQueryService;
+import richmond.swe.dotsalary.service.UserStatsService;
+import richmond.swe.dotsalary.service.bean.SalaryBucketBean;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
 import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.bean.UserPageBean;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -23,8 +32,10 @@ import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -37,7 +48,9 @@ class UsersControllerTest {
     @Autowired
     private MockMvc mockMvc;
     @MockBean
-    private UserService userService;
+    private UserQueryService userQueryService;
+    @MockBean
+    private UserStatsService userStatsService;
 
     /**
      * Test GET "/users".
@@ -47,14 +60,14 @@ class UsersControllerTest {
     @Test
     void givenNoUsers_whenGetUsers_returnEmptyData() throws Exception {
 
-        when(userService.getUsers(any(), any(), anyInt(), isNull(), isNull())).thenReturn(new ArrayList<>());
+        when(userQueryService.getUsers(any(), any(), anyInt(), isNull(), isNull())).thenReturn(new ArrayList<>());
 
         mockMvc.perform(get("/users"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.results").isArray())
                 .andExpect((jsonPath("$.results", hasSize(0))));
 
-        verify(userService, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+        verify(userQueryService, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
                 eq(0), isNull(), isNull());
     }
 
@@ -69,7 +82,7 @@ class UsersControllerTest {
         final Collection<UserBean> results = Arrays.asList(
                 UserBean.builder().name("John").salary(BigDecimal.valueOf(3000)).build(),
                 UserBean.builder().name("Ryan").salary(BigDecimal.valueOf(3500)).build());
-        when(userService.getUsers(any(), any(), anyInt(), isNull(), isNull())).thenReturn(results);
+        when(userQueryService.getUsers(any(), any(), anyInt(), isNull(), isNull())).thenReturn(results);
 
         mockMvc.perform(get("/users"))
                 .andExpect(status().isOk())
@@ -77,11 +90,11 @@ class UsersControllerTest {
                 .andExpect((jsonPath("$.results", hasSize(2))))
                 // same order as service results
                 .andExpect(jsonPath("$.results[0].name", is("John")))
-                .andExpect(jsonPath("$.results[0].salary", is(3000)))
+                .andExpect(jsonPath("$.results[0].salary", is(3000.0)))
                 .andExpect(jsonPath("$.results[1].name", is("Ryan")))
-                .andExpect(jsonPath("$.results[1].salary", is(3500))) ;
+                .andExpect(jsonPath("$.results[1].salary", is(3500.0))) ;
 
-        verify(userService, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+        verify(userQueryService, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
                 eq(0), isNull(), isNull());
     }
 
@@ -96,7 +109,7 @@ class UsersControllerTest {
         final Collection<UserBean> results = Arrays.asList(
                 UserBean.builder().name("John").salary(BigDecimal.valueOf(3000)).build(),
                 UserBean.builder().name("Ryan").salary(BigDecimal.valueOf(3500)).build());
-        when(userService.getUsers(any(), any(), anyInt(), anyInt(), anyString())).thenReturn(results);
+        when(userQueryService.getUsers(any(), any(), anyInt(), anyInt(), anyString())).thenReturn(results);
 
         mockMvc.perform(get("/users?min=100&max=5000&offset=10&limit=99&sort=name"))
                 .andExpect(status().isOk())
@@ -104,11 +117,11 @@ class UsersControllerTest {
                 .andExpect((jsonPath("$.results", hasSize(2))))
                 // same order as service results
                 .andExpect(jsonPath("$.results[0].name", is("John")))
-                .andExpect(jsonPath("$.results[0].salary", is(3000)))
+                .andExpect(jsonPath("$.results[0].salary", is(3000.0)))
                 .andExpect(jsonPath("$.results[1].name", is("Ryan")))
-                .andExpect(jsonPath("$.results[1].salary", is(3500))) ;
+                .andExpect(jsonPath("$.results[1].salary", is(3500.0))) ;
 
-        verify(userService, times(1)).getUsers(eq(BigDecimal.valueOf(100)),
+        verify(userQueryService, times(1)).getUsers(eq(BigDecimal.valueOf(100)),
                 eq(BigDecimal.valueOf(5000)), eq(10), eq(99), eq("name"));
     }
 
@@ -120,13 +133,171 @@ class UsersControllerTest {
     @Test
     void givenInvalidRequestParams_whenGetUsers_throwException() throws Exception {
 
-        when(userService.getUsers(any(), any(), anyInt(), isNull(), anyString())).thenThrow(new RuntimeException("Invalid parameter"));
+        when(userQueryService.getUsers(any(), any(), anyInt(), isNull(), anyString())).thenThrow(new RuntimeException("Invalid parameter"));
 
         mockMvc.perform(get("/users?sort=gender"))
                 .andExpect(status().is4xxClientError())
                 .andExpect(jsonPath("$.error", is("Invalid parameter")));
 
-        verify(userService, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+        verify(userQueryService, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
                 eq(0), isNull(), eq("gender"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test GET "/users" with keyset pagination.
+     *
+     * Return page of users with cursor for next page.
+     */
+    @Test
+    void givenCursor_whenGetUsers_returnPageWithNextCursor() throws Exception {
+
+        final UserPageBean page = UserPageBean.builder()
+                .results(List.of(UserBean.builder().name("John").salary(BigDecimal.valueOf(3000)).build()))
+                .next("abc")
+                .build();
+        when(userQueryService.getUsersPage(any(), any(), anyInt(), anyString(), anyString())).thenReturn(page);
+
+        mockMvc.perform(get("/users?limit=1&sort=name&cursor="))
+                .andExpect(status().isOk())
+                .andExpect((jsonPath("$.results", hasSize(1))))
+                .andExpect(jsonPath("$.results[0].name", is("John")))
+                .andExpect(jsonPath("$.next", is("abc")));
+
+        verify(userQueryService, times(1)).getUsersPage(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+                eq(1), eq("name"), eq(""));
+        verify(userQueryService, times(0)).getUsers(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Test GET "/users" without keyset pagination.
+     *
+     * Next cursor not in response.
+     */
+    @Test
+    void givenNoCursor_whenGetUsers_returnNoNextCursor() throws Exception {
+
+        when(userQueryService.getUsers(any(), any(), anyInt(), isNull(), isNull())).thenReturn(new ArrayList<>());
+
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    /**
+     * Test GET "/users/count".
+     *
+     * Return number of users.
+     */
+    @Test
+    void givenHasUsers_whenCountUsers_returnCount() throws Exception {
+
+        when(userStatsService.countUsers(any(), any())).thenReturn(5L);
+
+        mockMvc.perform(get("/users/count?max=3500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(5)));
+
+        verify(userStatsService, times(1)).countUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(3500)));
+    }
+
+    /**
+     * Test GET "/users/histogram".
+     *
+     * Return buckets with default width.
+     */
+    @Test
+    void givenHasUsers_whenGetSalaryHistogram_returnBuckets() throws Exception {
+
+        when(userStatsService.getSalaryHistogram(any(), any(), any())).thenReturn(List.of(SalaryBucketBean.builder()
+                .from(BigDecimal.valueOf(3000))
+                .to(BigDecimal.valueOf(3100))
+                .count(4)
+                .build()));
+
+        mockMvc.perform(get("/users/histogram"))
+                .andExpect(status().isOk())
+                .andExpect((jsonPath("$.buckets", hasSize(1))))
+                .andExpect(jsonPath("$.buckets[0].from", is(3000)))
+                .andExpect(jsonPath("$.buckets[0].to", is(3100)))
+                .andExpect(jsonPath("$.buckets[0].count", is(4)));
+
+        verify(userStatsService, times(1)).getSalaryHistogram(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+                eq(BigDecimal.valueOf(100)));
+    }
+
+    /**
+     * Test GET "/users/stats".
+     *
+     * Return salary statistics, percentiles keyed by name.
+     */
+    @Test
+    void givenHasUsers_whenGetSalaryStats_returnStats() throws Exception {
+
+        final SalaryStatsBean stats = SalaryStatsBean.builder()
+                .count(2)
+                .sum(BigDecimal.valueOf(6500))
+                .min(BigDecimal.valueOf(3000))
+                .max(BigDecimal.valueOf(3500))
+                .mean(BigDecimal.valueOf(3250))
+                .percentiles(Map.of(50, BigDecimal.valueOf(3000)))
+                .build();
+        when(userStatsService.getSalaryStats(any(), any())).thenReturn(stats);
+
+        mockMvc.perform(get("/users/stats?min=100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(2)))
+                .andExpect(jsonPath("$.sum", is(6500)))
+                .andExpect(jsonPath("$.min", is(3000)))
+                .andExpect(jsonPath("$.max", is(3500)))
+                .andExpect(jsonPath("$.mean", is(3250)))
+                .andExpect(jsonPath("$.percentiles.p50", is(3000)));
+
+        verify(userStatsService, times(1)).getSalaryStats(eq(BigDecimal.valueOf(100)), eq(BigDecimal.valueOf(4000)));
+    }
+
+    /**
+     * Test GET "/users" with streaming.
+     *
+     * Return users written from row source, same format as non-streaming response.
+     */
+    @Test
+    void givenStream_whenGetUsers_returnStreamedUsers() throws Exception {
+
+        final UserRowSource source = handler -> {
+            handler.handle(1L, "John", Salary.valueOf(BigDecimal.valueOf(3000)));
+            handler.handle(2L, "Ryan", Salary.valueOf(new BigDecimal("3500.50")));
+        };
+        when(userQueryService.streamUsers(any(), any(), anyInt(), anyInt(), anyString())).thenReturn(source);
+
+        final MvcResult result = mockMvc.perform(get("/users?stream=true&offset=1&limit=2&sort=name"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect((jsonPath("$.results", hasSize(2))))
+                .andExpect(jsonPath("$.results[0].name", is("John")))
+                .andExpect(jsonPath("$.results[0].salary", is(3000.0)))
+                .andExpect(jsonPath("$.results[1].name", is("Ryan")))
+                .andExpect(jsonPath("$.results[1].salary", is(3500.50)));
+
+        verify(userQueryService, times(1)).streamUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+                eq(1), eq(2), eq("name"));
+        verify(userQueryService, times(0)).getUsers(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Test GET "/users" with streaming.
+     *
+     * Invalid request param, throws exception before response is started.
+     */
+    @Test
+    void givenStreamInvalidRequestParams_whenGetUsers_throwException() throws Exception {
+
+        when(userQueryService.streamUsers(any(), any(), anyInt(), isNull(), anyString()))
+                .thenThrow(new IllegalArgumentException("Invalid sort parameter"));
+
+        mockMvc.perform(get("/users?stream=true&sort=gender"))
+                .andExpect(status().is4xxClientError())
+                .andExpect(jsonPath("$.error", is("Invalid sort parameter")));
+    }
+}
@@ -0,0 +1,93 @@
+package richmond.swe.dotsalary.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test Salary.
+ * @author richmondchng
+ */
+class SalaryTest {
+
+    /**
+     * Test valueOf.
+     *
+     * Decimal rounded half up to 8 decimal places, same value back as decimal.
+     */
+    @Test
+    void givenDecimal_whenValueOf_roundToScale() {
+        assertEquals(300_050_000_000L, Salary.valueOf(new BigDecimal("3000.5")).getUnits());
+        assertEquals(1L, Salary.valueOf(new BigDecimal("0.000000005")).getUnits());
+        assertEquals(-1L, Salary.valueOf(new BigDecimal("-0.000000005")).getUnits());
+        assertEquals(new BigDecimal("3000.50000000"), Salary.valueOf(new BigDecimal("3000.5")).toBigDecimal());
+        assertEquals(Salary.valueOf(new BigDecimal("4000")), Salary.valueOf(new BigDecimal("4000.000")));
+        assertEquals(Salary.ZERO, Salary.valueOf(new BigDecimal("-0.000000001")));
+    }
+
+    /**
+     * Test valueOf.
+     *
+     * Value too large for a scaled long, throws exception.
+     */
+    @Test
+    void givenOutOfRange_whenValueOf_throwException() {
+        try {
+            Salary.valueOf(new BigDecimal("100000000000"));
+            fail("Expect exception to be thrown");
+        } catch(ArithmeticException e) {
+            assertEquals("Salary out of range", e.getMessage());
+        }
+    }
+
+    /**
+     * Test toUnits.
+     *
+     * Decimal rounded by rounding mode, clamped to range of long.
+     */
+    @Test
+    void givenDecimal_whenToUnits_roundAndClamp() {
+        assertEquals(2L, Salary.toUnits(new BigDecimal("0.000000011"), RoundingMode.CEILING));
+        assertEquals(1L, Salary.toUnits(new BigDecimal("0.000000019"), RoundingMode.FLOOR));
+        assertEquals(Long.MAX_VALUE, Salary.toUnits(new BigDecimal("1e30"), RoundingMode.FLOOR));
+        assertEquals(Long.MIN_VALUE, Salary.toUnits(new BigDecimal("-1e30"), RoundingMode.CEILING));
+    }
+
+    /**
+     * Test toString.
+     *
+     * Formatted with 8 decimal places, same as plain decimal of the SALARY column.
+     */
+    @Test
+    void givenSalary_whenToString_sameAsPlainDecimal() {
+        final long[] values = {0L, 1L, -1L, 99_999_999L, 100_000_000L, 300_050_000_000L, -300_050_000_000L,
+                Long.MAX_VALUE, Long.MIN_VALUE};
+        for(long value : values) {
+            final Salary salary = Salary.ofUnits(value);
+            assertEquals(BigDecimal.valueOf(value, Salary.SCALE).toPlainString(), salary.toString());
+            assertTrue(salary.toString().length() <= Salary.MAX_CHARS);
+        }
+    }
+
+    /**
+     * Test compareTo and signum.
+     *
+     * Compared by value.
+     */
+    @Test
+    void givenSalaries_whenCompareTo_compareByValue() {
+        final Salary low = Salary.valueOf(new BigDecimal("-1.5"));
+        final Salary high = Salary.valueOf(new BigDecimal("2500"));
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(low) > 0);
+        assertEquals(0, high.compareTo(Salary.ofUnits(high.getUnits())));
+        assertEquals(-1, low.signum());
+        assertEquals(0, Salary.ZERO.signum());
+        assertEquals(1, high.signum());
+    }
+}
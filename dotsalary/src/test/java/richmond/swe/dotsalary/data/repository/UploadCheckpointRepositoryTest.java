@@ -0,0 +1,118 @@
+package richmond.swe.dotsalary.data.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test UploadCheckpointRepository.
+ * @author richmondchng
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(UploadCheckpointRepository.class)
+class UploadCheckpointRepositoryTest {
+
+    @Autowired
+    private UploadCheckpointRepository uploadCheckpointRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test findLineNumber.
+     *
+     * No checkpoint, return 0.
+     */
+    @Test
+    void givenNoCheckpoint_whenFindLineNumber_returnZero() {
+        assertEquals(0, uploadCheckpointRepository.findLineNumber("abc"));
+    }
+
+    /**
+     * Test save.
+     *
+     * Checkpoint claimed, then updated by its owner, then deleted.
+     */
+    @Test
+    void givenClaimedCheckpoint_whenSaveAndDelete_returnLastLineNumber() {
+        assertTrue(uploadCheckpointRepository.claim("abc", "owner1", 60000));
+        assertEquals(0, uploadCheckpointRepository.findLineNumber("abc"));
+        assertTrue(uploadCheckpointRepository.save("abc", "owner1", 1000));
+        assertEquals(1000, uploadCheckpointRepository.findLineNumber("abc"));
+
+        assertTrue(uploadCheckpointRepository.save("abc", "owner1", 2000));
+        assertTrue(uploadCheckpointRepository.claim("def", "owner2", 60000));
+        assertTrue(uploadCheckpointRepository.save("def", "owner2", 500));
+        assertEquals(2000, uploadCheckpointRepository.findLineNumber("abc"));
+        assertEquals(500, uploadCheckpointRepository.findLineNumber("def"));
+
+        uploadCheckpointRepository.delete("abc", "owner1");
+        assertEquals(0, uploadCheckpointRepository.findLineNumber("abc"));
+        assertEquals(500, uploadCheckpointRepository.findLineNumber("def"));
+    }
+
+    /**
+     * Test claim.
+     *
+     * Checkpoint claimed by another attempt, not claimed, and not saved or deleted by that attempt.
+     */
+    @Test
+    void givenClaimedByOther_whenClaim_returnFalse() {
+        assertTrue(uploadCheckpointRepository.claim("abc", "owner1", 60000));
+        assertTrue(uploadCheckpointRepository.save("abc", "owner1", 1000));
+
+        assertFalse(uploadCheckpointRepository.claim("abc", "owner2", 60000));
+        assertFalse(uploadCheckpointRepository.save("abc", "owner2", 2000));
+        uploadCheckpointRepository.delete("abc", "owner2");
+        assertEquals(1000, uploadCheckpointRepository.findLineNumber("abc"));
+    }
+
+    /**
+     * Test claim.
+     *
+     * Checkpoint released, or not saved within claim timeout, taken over with its line number, previous owner cannot
+     * save.
+     */
+    @Test
+    void givenReleasedOrStaleClaim_whenClaim_takeOver() {
+        assertTrue(uploadCheckpointRepository.claim("abc", "owner1", 60000));
+        assertTrue(uploadCheckpointRepository.save("abc", "owner1", 1000));
+        uploadCheckpointRepository.release("abc", "owner1");
+
+        assertTrue(uploadCheckpointRepository.claim("abc", "owner2", 60000));
+        assertEquals(1000, uploadCheckpointRepository.findLineNumber("abc"));
+        assertFalse(uploadCheckpointRepository.save("abc", "owner1", 2000));
+
+        jdbcTemplate.update("UPDATE upload_checkpoint SET UPDATED_AT = DATEADD('HOUR', -1, CURRENT_TIMESTAMP)");
+        assertTrue(uploadCheckpointRepository.claim("abc", "owner3", 60000));
+        assertFalse(uploadCheckpointRepository.save("abc", "owner2", 2000));
+        assertTrue(uploadCheckpointRepository.save("abc", "owner3", 2000));
+        assertEquals(2000, uploadCheckpointRepository.findLineNumber("abc"));
+    }
+
+    /**
+     * Test deleteExpired.
+     *
+     * Checkpoints not saved within TTL deleted, others kept.
+     */
+    @Test
+    void givenExpiredCheckpoint_whenDeleteExpired_deleteOnlyExpired() {
+        assertTrue(uploadCheckpointRepository.claim("abc", "owner1", 60000));
+        assertTrue(uploadCheckpointRepository.save("abc", "owner1", 1000));
+        assertTrue(uploadCheckpointRepository.claim("def", "owner2", 60000));
+        assertTrue(uploadCheckpointRepository.save("def", "owner2", 500));
+        jdbcTemplate.update("UPDATE upload_checkpoint SET UPDATED_AT = DATEADD('DAY', -8, CURRENT_TIMESTAMP)"
+                + " WHERE UPLOAD_ID = 'abc'");
+
+        assertEquals(1, uploadCheckpointRepository.deleteExpired(7L * 24 * 60 * 60 * 1000));
+        assertEquals(0, uploadCheckpointRepository.findLineNumber("abc"));
+        assertEquals(500, uploadCheckpointRepository.findLineNumber("def"));
+    }
+}
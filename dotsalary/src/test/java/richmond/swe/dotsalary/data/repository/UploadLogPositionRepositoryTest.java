@@ -0,0 +1,49 @@
+package richmond.swe.dotsalary.data.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import richmond.swe.dotsalary.data.projection.UploadLogPosition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test UploadLogPositionRepository.
+ * @author richmondchng
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(UploadLogPositionRepository.class)
+class UploadLogPositionRepositoryTest {
+
+    @Autowired
+    private UploadLogPositionRepository uploadLogPositionRepository;
+
+    /**
+     * Test findPosition.
+     *
+     * Nothing applied, return null.
+     */
+    @Test
+    void givenNoPosition_whenFindPosition_returnNull() {
+        assertNull(uploadLogPositionRepository.findPosition());
+    }
+
+    /**
+     * Test save.
+     *
+     * Position inserted, then updated.
+     */
+    @Test
+    void givenPosition_whenSave_returnLastPosition() {
+        uploadLogPositionRepository.save(1, 100);
+        uploadLogPositionRepository.save(2, 50);
+
+        final UploadLogPosition position = uploadLogPositionRepository.findPosition();
+        assertEquals(2, position.getSegment());
+        assertEquals(50, position.getPosition());
+    }
+}
@@ -0,0 +1,110 @@
+package richmond.swe.dotsalary.data.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.entity.UserEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test UserJdbcRepository.
+ * @author richmondchng
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(UserJdbcRepository.class)
+class UserJdbcRepositoryTest {
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserEntity newEntity(final String name, final long salary) {
+        final UserEntity entity = new UserEntity();
+        entity.setName(name);
+        entity.setSalary(BigDecimal.valueOf(salary));
+        return entity;
+    }
+
+    /**
+     * Test mergeAll.
+     *
+     * Existing name (different case) updated, keeping existing name. New name inserted.
+     */
+    @Test
+    void givenExistingAndNewRecords_whenMergeAll_updateAndInsert() {
+        final int result = userJdbcRepository.mergeAll(Arrays.asList(
+                newEntity("JOHN", 4010),
+                newEntity("Jared", 1000)
+        ), 1);
+        assertEquals(2, result);
+
+        final List<UserEntity> results = userRepository.findAllByNames(Set.of("JOHN", "JARED"));
+        assertEquals(2, results.size());
+
+        final UserEntity john = results.stream().filter(u -> u.getId() == 1).findFirst().orElseThrow();
+        assertEquals("John", john.getName());
+        assertEquals(0, BigDecimal.valueOf(4010).compareTo(john.getSalary()));
+
+        final UserEntity jared = results.stream().filter(u -> u.getId() != 1).findFirst().orElseThrow();
+        assertEquals("Jared", jared.getName());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(jared.getSalary()));
+
+        assertEquals(11, userRepository.count());
+    }
+
+    /**
+     * Test findBySalary.
+     *
+     * Rows between min and max salary, sorted by field then id, after offset and up to limit.
+     */
+    @Test
+    void givenSalaryRange_whenFindBySalary_returnRowsInOrder() {
+        final List<Long> ids = new ArrayList<>();
+        userJdbcRepository.findBySalary(BigDecimal.valueOf(3020), BigDecimal.valueOf(3070), 1, 3,
+                SortField.SALARY, (id, name, salary) -> ids.add(id));
+        assertEquals(List.of(7L, 5L, 3L), ids);
+
+        final List<String> names = new ArrayList<>();
+        userJdbcRepository.findBySalary(BigDecimal.valueOf(3020), BigDecimal.valueOf(3070), 0, null,
+                SortField.NAME, (id, name, salary) -> names.add(name));
+        assertEquals(List.of("Betty", "Eric", "Jackie", "Michael", "Ryan", "Steven"), names);
+    }
+
+    /**
+     * Test findAllSalaries.
+     *
+     * Salaries of all rows, in salary order.
+     */
+    @Test
+    void givenRows_whenFindAllSalaries_returnAllSalaries() {
+        final List<Long> salaries = new ArrayList<>();
+        userJdbcRepository.findAllSalaries(salary -> salaries.add(salary.longValueExact()));
+        assertEquals(List.of(3010L, 3020L, 3025L, 3030L, 3050L, 3060L, 3070L, 3072L, 3075L, 3080L), salaries);
+    }
+
+    /**
+     * Test findSalaries.
+     *
+     * Salaries of rows between from and to, inclusive.
+     */
+    @Test
+    void givenRows_whenFindSalaries_returnSalariesInRange() {
+        final List<Long> salaries = new ArrayList<>();
+        userJdbcRepository.findSalaries(BigDecimal.valueOf(3025), BigDecimal.valueOf(3060),
+                salary -> salaries.add(salary.longValueExact()));
+        salaries.sort(null);
+        assertEquals(List.of(3025L, 3030L, 3050L, 3060L), salaries);
+    }
+}
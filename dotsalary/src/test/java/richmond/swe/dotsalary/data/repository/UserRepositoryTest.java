@@ -7,12 +7,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import richmond.swe.dotsalary.data.SortField;
 import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.projection.SalaryBucket;
+import richmond.swe.dotsalary.data.projection.UserRow;
 
 import java.math.BigDecimal;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -338,6 +341,7 @@ class UserRepositoryTest {
         final UserEntity result1 = iterator.next();
         assertEquals(3, result1.getId());
         assertEquals("Betty", result1.getName());
+        assertEquals("BETTY", result1.getNameKey());
         assertEquals(0, BigDecimal.valueOf(3050).compareTo(result1.getSalary()));
 
         final UserEntity result2 = iterator.next();
@@ -363,4 +367,101 @@ class UserRepositoryTest {
         final List<UserEntity> results = userRepository.findAllByNames(names);
         assertEquals(0, results.size());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test findBySalaryAfterSalary.
+     *
+     * Return records after the given salary and id, sorted by salary then id.
+     */
+    @Test
+    void givenLastSalaryAndId_whenFindBySalaryAfterSalary_returnNextRecords() {
+        final Pageable pageable = OffsetPageRequest.builder().limit(2).sortThenById(SortField.SALARY).build();
+
+        final List<UserEntity> results = userRepository.findBySalaryAfterSalary(BigDecimal.valueOf(3050),
+                BigDecimal.valueOf(3080), BigDecimal.valueOf(3050), 3L, pageable);
+        assertEquals(2, results.size());
+        assertEquals("Eric", results.get(0).getName());
+        assertEquals("Michael", results.get(1).getName());
+    }
+
+    /**
+     * Test findBySalaryAfterName.
+     *
+     * Return records after the given name and id, sorted by name then id.
+     */
+    @Test
+    void givenLastNameAndId_whenFindBySalaryAfterName_returnNextRecords() {
+        final Pageable pageable = OffsetPageRequest.builder().limit(2).sortThenById(SortField.NAME).build();
+
+        final List<UserEntity> results = userRepository.findBySalaryAfterName(BigDecimal.valueOf(3000),
+                BigDecimal.valueOf(3070), "Jackie", 7L, pageable);
+        assertEquals(2, results.size());
+        assertEquals("John", results.get(0).getName());
+        assertEquals("Michael", results.get(1).getName());
+    }
+
+    /**
+     * Test findBySalaryAfterId.
+     *
+     * Return records after the given id, sorted by id.
+     */
+    @Test
+    void givenLastId_whenFindBySalaryAfterId_returnNextRecords() {
+        final Pageable pageable = OffsetPageRequest.builder().limit(2).sortThenById(SortField.NONE).build();
+
+        final List<UserEntity> results = userRepository.findBySalaryAfterId(BigDecimal.valueOf(3000),
+                BigDecimal.valueOf(3070), 4L, pageable);
+        assertEquals(2, results.size());
+        assertEquals(5, results.get(0).getId());
+        assertEquals(6, results.get(1).getId());
+    }
+
+    /**
+     * Test findRowsBySalary.
+     *
+     * Records between min and max read into rows, sorted and paged by pageable.
+     */
+    @Test
+    void givenOffsetLimitSort_whenFindRowsBySalary_returnRows() {
+        final Pageable pageable = OffsetPageRequest.builder().offset(1).limit(2).sort(SortField.SALARY).build();
+
+        final List<UserRow> results = userRepository.findRowsBySalary(BigDecimal.valueOf(3070),
+                BigDecimal.valueOf(3080), pageable);
+
+        assertEquals(List.of(9L, 8L), results.stream().map(UserRow::getId).collect(Collectors.toList()));
+        assertEquals("Kitty", results.get(0).getName());
+        assertEquals(0, BigDecimal.valueOf(3072).compareTo(results.get(0).getSalary().toBigDecimal()));
+    }
+
+    /**
+     * Test countBySalary.
+     *
+     * Count records between min and max.
+     */
+    @Test
+    void givenMinMax_whenCountBySalary_returnCount() {
+        assertEquals(5, userRepository.countBySalary(BigDecimal.valueOf(3020), BigDecimal.valueOf(3060)));
+        assertEquals(0, userRepository.countBySalary(BigDecimal.valueOf(5000), BigDecimal.valueOf(6000)));
+    }
+
+    /**
+     * Test findSalaryHistogram.
+     *
+     * Records between min and max counted by bucket, empty buckets not returned.
+     */
+    @Test
+    void givenWidth_whenFindSalaryHistogram_returnBuckets() {
+        final List<SalaryBucket> results = userRepository.findSalaryHistogram(BigDecimal.valueOf(3000),
+                BigDecimal.valueOf(3100), BigDecimal.valueOf(25));
+
+        assertEquals(4, results.size());
+        assertEquals(0, BigDecimal.valueOf(120).compareTo(results.get(0).getBucket()));
+        assertEquals(2, results.get(0).getUsers());
+        assertEquals(0, BigDecimal.valueOf(121).compareTo(results.get(1).getBucket()));
+        assertEquals(2, results.get(1).getUsers());
+        assertEquals(0, BigDecimal.valueOf(122).compareTo(results.get(2).getBucket()));
+        assertEquals(4, results.get(2).getUsers());
+        assertEquals(0, BigDecimal.valueOf(123).compareTo(results.get(3).getBucket()));
+        assertEquals(2, results.get(3).getUsers());
+    }
+}
@@ -1,5 +1,6 @@
 package richmond.swe.dotsalary.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,10 +14,13 @@ import richmond.swe.dotsalary.service.bean.UserBean;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -30,10 +34,12 @@ class FileProcessorServiceTest {
 
     // test instance
     private FileProcessorService fileProcessorService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
-        fileProcessorService = new FileProcessorService();
+        meterRegistry = new SimpleMeterRegistry();
+        fileProcessorService = new FileProcessorService(meterRegistry);
     }
 
     @AfterEach
@@ -240,10 +246,86 @@ class FileProcessorServiceTest {
 
         final UserBean result1 = iterator.next();
         assertEquals("JOHN", result1.getName());
-        assertEquals(0, BigDecimal.valueOf(3000.80).compareTo(result1.getSalary()));
+        assertEquals(0, BigDecimal.valueOf(3000.80).compareTo(result1.getSalary().toBigDecimal()));
 
         final UserBean result2 = iterator.next();
         assertEquals("BRUCE", result2.getName());
-        assertEquals(0, BigDecimal.valueOf(5000).compareTo(result2.getSalary()));
+        assertEquals(0, BigDecimal.valueOf(5000).compareTo(result2.getSalary().toBigDecimal()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test process with chunks.
+     *
+     * CSV file in correct format, records handed to consumer in chunks of given size.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    void givenCsvFileCorrectFormat_whenProcessInChunks_consumeChunks() throws IOException {
+        final MultipartFile file = toMultipartFile(ResourceUtils.getFile("classpath:data/data-file-success.csv"), "text/csv");
+
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+        final int count = fileProcessorService.process(file, 1, chunks::add);
+
+        assertEquals(2, count);
+        assertEquals(2, chunks.size());
+
+        final UserBean result1 = chunks.get(0).iterator().next();
+        assertEquals("JOHN", result1.getName());
+        assertEquals(0, BigDecimal.valueOf(3000.80).compareTo(result1.getSalary().toBigDecimal()));
+
+        final UserBean result2 = chunks.get(1).iterator().next();
+        assertEquals("BRUCE", result2.getName());
+        assertEquals(0, BigDecimal.valueOf(5000).compareTo(result2.getSalary().toBigDecimal()));
+
+        assertEquals(1, meterRegistry.get("dotsalary.upload.parse").tag("parser", "sequential").timer().count());
+        assertEquals(2, meterRegistry.get("dotsalary.upload.rows").counter().count());
+    }
+
+    /**
+     * Test process.
+     *
+     * CSV file with CRLF line terminators and quoted name, return list of beans.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    void givenCsvFileQuotedCrlf_whenProcess_returnRecords() throws IOException {
+        final MultipartFile file = new MockMultipartFile("file", "quoted.csv", "text/csv",
+                "NAME,SALARY\r\n\"SMITH, JOHN\",3000.80\r\nBRUCE,5000\r\n".getBytes(StandardCharsets.UTF_8));
+
+        final Collection<UserBean> results = fileProcessorService.process(file);
+
+        assertEquals(2, results.size());
+
+        final Iterator<UserBean> iterator = results.iterator();
+
+        final UserBean result1 = iterator.next();
+        assertEquals("SMITH, JOHN", result1.getName());
+        assertEquals(0, BigDecimal.valueOf(3000.80).compareTo(result1.getSalary().toBigDecimal()));
+
+        final UserBean result2 = iterator.next();
+        assertEquals("BRUCE", result2.getName());
+        assertEquals(0, BigDecimal.valueOf(5000).compareTo(result2.getSalary().toBigDecimal()));
+    }
+
+    /**
+     * Test processParallel.
+     *
+     * CSV file in correct format, records handed to consumer in file order.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    void givenCsvFileCorrectFormat_whenProcessParallel_consumeChunks() throws IOException {
+        final MultipartFile file = toMultipartFile(ResourceUtils.getFile("classpath:data/data-file-success.csv"), "text/csv");
+
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+        final int count = fileProcessorService.processParallel(file, 1, 8, chunks::add);
+
+        assertEquals(2, count);
+        assertEquals(2, chunks.size());
+        assertEquals("JOHN", chunks.get(0).iterator().next().getName());
+        assertEquals("BRUCE", chunks.get(1).iterator().next().getName());
+    }
+}
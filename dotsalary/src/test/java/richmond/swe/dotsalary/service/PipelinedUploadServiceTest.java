@@ -0,0 +1,347 @@
+package richmond.swe.dotsalary.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.exception.BulkRecordProcessException;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.log.UploadLog;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test PipelinedUploadService.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class PipelinedUploadServiceTest {
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private UploadLog uploadLog;
+
+    private DotsalaryProperties properties;
+    // records persisted by each worker transaction
+    private final List<List<UserBean>> persisted = Collections.synchronizedList(new ArrayList<>());
+
+    // test instance
+    private PipelinedUploadService pipelinedUploadService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new DotsalaryProperties();
+        properties.getUpload().setPipelineWorkers(3);
+        properties.getUpload().setPipelineQueueCapacity(2);
+        properties.getUpload().setChunkSize(10);
+        // not used when upload log is enabled
+        lenient().when(transactionManager.getTransaction(any()))
+                .thenAnswer(invocation -> new SimpleTransactionStatus());
+        pipelinedUploadService = new PipelinedUploadService(userService, new TransactionTemplate(transactionManager),
+                properties, uploadLog);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipelinedUploadService.shutdown();
+    }
+
+    private void givenWorkersPersist() throws IOException {
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            final List<UserBean> records = new ArrayList<>();
+            source.forEachChunk(records::addAll);
+            persisted.add(records);
+            return 1;
+        });
+    }
+
+    private static RecordChunkSource source(final int records) {
+        return consumer -> {
+            for(int i = 0; i < records; i += 7) {
+                final List<UserBean> chunk = new ArrayList<>();
+                for(int j = i; j < Math.min(i + 7, records); j++) {
+                    // 50 names, upper and lower case
+                    final String name = (j % 2 == 0 ? "user" : "USER") + (j % 50);
+                    chunk.add(UserBean.builder().name(name).salary(BigDecimal.valueOf(j + 1)).build());
+                }
+                consumer.accept(chunk);
+            }
+            return records;
+        };
+    }
+
+    private List<TransactionStatus> committed() {
+        final ArgumentCaptor<TransactionStatus> statusCaptor = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(3)).commit(statusCaptor.capture());
+        return statusCaptor.getAllValues();
+    }
+
+    /**
+     * Test persistRecords with upload log.
+     *
+     * Records handed to UserService to be appended to the log, no workers or transactions started.
+     */
+    @Test
+    void givenUploadLog_whenPersistRecords_appendThroughUserService() throws IOException {
+        when(uploadLog.isEnabled()).thenReturn(true);
+        final RecordChunkSource source = source(100);
+        when(userService.streamPersistRecords(source)).thenReturn(1);
+
+        assertEquals(1, pipelinedUploadService.persistRecords(source));
+
+        verify(userService, times(1)).streamPersistRecords(source);
+        verifyNoInteractions(transactionManager);
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * All records persisted by workers, each name by one worker in file order, all workers committed.
+     */
+    @Test
+    void givenRecords_whenPersistRecords_persistByNameOnWorkers() throws IOException {
+        givenWorkersPersist();
+
+        final int result = pipelinedUploadService.persistRecords(source(500));
+        assertEquals(1, result);
+
+        assertEquals(3, persisted.size());
+        assertEquals(500, persisted.stream().mapToInt(List::size).sum());
+        final Map<String, Integer> workerByName = new HashMap<>();
+        for(int worker = 0; worker < persisted.size(); worker++) {
+            long lastSalary = 0;
+            final Map<String, Long> lastSalaryByName = new HashMap<>();
+            for(UserBean record : persisted.get(worker)) {
+                final String key = record.getName().toUpperCase();
+                final Integer previous = workerByName.put(key, worker);
+                assertTrue(previous == null || previous == worker);
+                final long salary = record.getSalary().toBigDecimal().longValue();
+                assertTrue(salary > lastSalaryByName.getOrDefault(key, lastSalary));
+                lastSalaryByName.put(key, salary);
+            }
+        }
+        assertEquals(50, workerByName.size());
+        committed().forEach(status -> assertTrue(!status.isRollbackOnly()));
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Worker failed, throws exception and other workers rolled back.
+     */
+    @Test
+    void givenWorkerFailed_whenPersistRecords_rollbackAllWorkers() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            final boolean failing = calls.getAndIncrement() == 0;
+            source.forEachChunk(chunk -> {
+                if(failing) {
+                    throw new RuntimeException("Error");
+                }
+            });
+            return 1;
+        });
+
+        try {
+            pipelinedUploadService.persistRecords(source(500));
+            fail("Expect exception to be thrown");
+        } catch(BulkRecordProcessException e) {
+            assertEquals("Error", e.getMessage());
+        }
+
+        verify(transactionManager, times(1)).rollback(any());
+        final ArgumentCaptor<TransactionStatus> statusCaptor = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(2)).commit(statusCaptor.capture());
+        statusCaptor.getAllValues().forEach(status -> assertTrue(status.isRollbackOnly()));
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Worker failed on its last batch after parsing completed, other workers wait for it and roll back.
+     */
+    @Test
+    void givenWorkerFailedAfterParsing_whenPersistRecords_rollbackAllWorkers() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            final boolean failing = calls.getAndIncrement() == 0;
+            source.forEachChunk(chunk -> { });
+            if(failing) {
+                // queue ended, so parsing completed; give other workers time to reach commit
+                Thread.sleep(200);
+                throw new RuntimeException("Error");
+            }
+            return 1;
+        });
+
+        try {
+            pipelinedUploadService.persistRecords(source(500));
+            fail("Expect exception to be thrown");
+        } catch(BulkRecordProcessException e) {
+            assertEquals("Error", e.getMessage());
+        }
+
+        verify(transactionManager, times(1)).rollback(any());
+        final ArgumentCaptor<TransactionStatus> statusCaptor = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(2)).commit(statusCaptor.capture());
+        statusCaptor.getAllValues().forEach(status -> assertTrue(status.isRollbackOnly()));
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Source failed, throws source exception and all workers rolled back.
+     */
+    @Test
+    void givenSourceFailed_whenPersistRecords_rollbackAllWorkers() throws IOException {
+        givenWorkersPersist();
+
+        try {
+            pipelinedUploadService.persistRecords(consumer -> {
+                source(100).forEachChunk(consumer);
+                throw new IOException("Bad file");
+            });
+            fail("Expect exception to be thrown");
+        } catch(IOException e) {
+            assertEquals("Bad file", e.getMessage());
+        }
+
+        verify(transactionManager, never()).rollback(any());
+        committed().forEach(status -> assertTrue(status.isRollbackOnly()));
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Workers of a running upload hold all pipeline connections, next upload starts no worker transaction until the
+     * running upload has finished.
+     */
+    @Test
+    void givenConnectionsHeld_whenPersistRecords_waitForRunningUpload() throws Exception {
+        properties.getUpload().setPipelineConnections(3);
+        pipelinedUploadService.shutdown();
+        pipelinedUploadService = new PipelinedUploadService(userService, new TransactionTemplate(transactionManager),
+                properties, uploadLog);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            source.forEachChunk(chunk -> { });
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return 1;
+        });
+
+        final ExecutorService uploads = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Integer> first = uploads.submit(() -> pipelinedUploadService.persistRecords(source(100)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            final Future<Integer> second = uploads.submit(() -> pipelinedUploadService.persistRecords(source(100)));
+            Thread.sleep(200);
+            assertFalse(second.isDone());
+            verify(transactionManager, times(3)).getTransaction(any());
+
+            release.countDown();
+            assertEquals(1, first.get(10, TimeUnit.SECONDS));
+            assertEquals(1, second.get(10, TimeUnit.SECONDS));
+            verify(transactionManager, times(6)).getTransaction(any());
+        } finally {
+            release.countDown();
+            uploads.shutdownNow();
+        }
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * More workers than pipeline connections, throws exception and no worker started.
+     */
+    @Test
+    void givenWorkersAboveConnections_whenPersistRecords_throwException() throws IOException {
+        properties.getUpload().setPipelineConnections(2);
+
+        try {
+            pipelinedUploadService.persistRecords(source(100));
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Pipeline workers should be at most pipeline connections", e.getMessage());
+        }
+        verifyNoInteractions(transactionManager);
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Slow worker, parser does not run ahead by more than the queue capacity.
+     */
+    @Test
+    void givenSlowWorker_whenPersistRecords_parserWaits() throws IOException {
+        properties.getUpload().setPipelineWorkers(1);
+        properties.getUpload().setPipelineQueueCapacity(1);
+        properties.getUpload().setChunkSize(1);
+        final AtomicInteger persistedRecords = new AtomicInteger();
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            source.forEachChunk(chunk -> {
+                try {
+                    Thread.sleep(5);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                persistedRecords.addAndGet(chunk.size());
+            });
+            return 1;
+        });
+
+        final int[] maxAhead = new int[1];
+        pipelinedUploadService.persistRecords(consumer -> {
+            for(int i = 0; i < 30; i++) {
+                consumer.accept(List.of(UserBean.builder().name("User" + i).salary(BigDecimal.ONE).build()));
+                maxAhead[0] = Math.max(maxAhead[0], i + 1 - persistedRecords.get());
+            }
+            return 30;
+        });
+
+        assertEquals(30, persistedRecords.get());
+        // one queued, one being persisted, one being queued
+        assertTrue(maxAhead[0] <= 3, "Parser ahead by " + maxAhead[0]);
+    }
+}
@@ -0,0 +1,248 @@
+package richmond.swe.dotsalary.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.data.repository.UploadCheckpointRepository;
+import richmond.swe.dotsalary.exception.BulkRecordProcessException;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test ResumableUploadService.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class ResumableUploadServiceTest {
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private UploadCheckpointRepository uploadCheckpointRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Captor
+    private ArgumentCaptor<Collection<UserBean>> recordsCaptor;
+    @Captor
+    private ArgumentCaptor<String> ownerCaptor;
+
+    private DotsalaryProperties properties;
+
+    // test instance
+    private ResumableUploadService resumableUploadService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        resumableUploadService = new ResumableUploadService(userService, uploadCheckpointRepository,
+                new TransactionTemplate(transactionManager), properties);
+    }
+
+    private static List<UserBean> users(final int from, final int to) {
+        final List<UserBean> users = new ArrayList<>();
+        for(int i = from; i <= to; i++) {
+            users.add(UserBean.builder().name("User" + i).salary(BigDecimal.valueOf(i)).build());
+        }
+        return users;
+    }
+
+    private static RecordChunkSource source() {
+        return consumer -> {
+            consumer.accept(users(1, 2));
+            consumer.accept(users(3, 4));
+            consumer.accept(users(5, 5));
+            return 5;
+        };
+    }
+
+    private static List<String> names(final Collection<UserBean> records) {
+        return records.stream().map(UserBean::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * No checkpoint, checkpoint claimed, each chunk persisted and checkpointed by the owner of the claim, checkpoint
+     * deleted when completed.
+     */
+    @Test
+    void givenNoCheckpoint_whenPersistRecords_persistAndCheckpointEachChunk() throws IOException {
+        when(uploadCheckpointRepository.claim(eq("abc"), ownerCaptor.capture(), eq(300000L))).thenReturn(true);
+        when(uploadCheckpointRepository.findLineNumber("abc")).thenReturn(0);
+        when(uploadCheckpointRepository.save(eq("abc"), any(), anyInt())).thenReturn(true);
+
+        final int result = resumableUploadService.persistRecords("abc", source());
+        assertEquals(1, result);
+
+        verify(userService, times(3)).bulkPersistRecords(recordsCaptor.capture());
+        assertEquals(List.of("User1", "User2"), names(recordsCaptor.getAllValues().get(0)));
+        assertEquals(List.of("User5"), names(recordsCaptor.getAllValues().get(2)));
+        final String owner = ownerCaptor.getValue();
+        verify(uploadCheckpointRepository, times(1)).save("abc", owner, 2);
+        verify(uploadCheckpointRepository, times(1)).save("abc", owner, 4);
+        verify(uploadCheckpointRepository, times(1)).save("abc", owner, 5);
+        verify(uploadCheckpointRepository, times(1)).delete("abc", owner);
+        verify(uploadCheckpointRepository, never()).release(any(), any());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Checkpoint part way through a chunk, lines up to checkpoint not persisted again.
+     */
+    @Test
+    void givenCheckpoint_whenPersistRecords_resumeAfterCheckpoint() throws IOException {
+        when(uploadCheckpointRepository.claim(eq("abc"), ownerCaptor.capture(), eq(300000L))).thenReturn(true);
+        when(uploadCheckpointRepository.findLineNumber("abc")).thenReturn(3);
+        when(uploadCheckpointRepository.save(eq("abc"), any(), anyInt())).thenReturn(true);
+
+        final int result = resumableUploadService.persistRecords("abc", source());
+        assertEquals(1, result);
+
+        verify(userService, times(2)).bulkPersistRecords(recordsCaptor.capture());
+        assertEquals(List.of("User4"), names(recordsCaptor.getAllValues().get(0)));
+        assertEquals(List.of("User5"), names(recordsCaptor.getAllValues().get(1)));
+        final String owner = ownerCaptor.getValue();
+        verify(uploadCheckpointRepository, never()).save("abc", owner, 2);
+        verify(uploadCheckpointRepository, times(1)).save("abc", owner, 4);
+        verify(uploadCheckpointRepository, times(1)).save("abc", owner, 5);
+        verify(uploadCheckpointRepository, times(1)).delete("abc", owner);
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Chunk failed persisting, earlier chunks stay checkpointed and checkpoint is kept, with its claim released.
+     */
+    @Test
+    void givenPersistFailed_whenPersistRecords_keepCheckpoint() throws IOException {
+        when(uploadCheckpointRepository.claim(eq("abc"), ownerCaptor.capture(), eq(300000L))).thenReturn(true);
+        when(uploadCheckpointRepository.findLineNumber("abc")).thenReturn(0);
+        when(uploadCheckpointRepository.save(eq("abc"), any(), anyInt())).thenReturn(true);
+        when(userService.bulkPersistRecords(any())).thenReturn(1).thenThrow(new RuntimeException("Error"));
+
+        try {
+            resumableUploadService.persistRecords("abc", source());
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Error", e.getMessage());
+        }
+
+        final String owner = ownerCaptor.getValue();
+        verify(uploadCheckpointRepository, times(1)).save(eq("abc"), any(), anyInt());
+        verify(uploadCheckpointRepository, times(1)).save("abc", owner, 2);
+        verify(uploadCheckpointRepository, never()).delete(any(), any());
+        verify(uploadCheckpointRepository, times(1)).release("abc", owner);
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Checkpoint claimed by another attempt, rejected without persisting.
+     */
+    @Test
+    void givenCheckpointClaimed_whenPersistRecords_throwException() throws IOException {
+        when(uploadCheckpointRepository.claim(eq("abc"), any(), eq(300000L))).thenReturn(false);
+
+        try {
+            resumableUploadService.persistRecords("abc", source());
+            fail("Expect exception to be thrown");
+        } catch(BulkRecordProcessException e) {
+            assertEquals("Upload abc is already in progress", e.getMessage());
+        }
+
+        verify(userService, never()).bulkPersistRecords(any());
+        verify(uploadCheckpointRepository, never()).save(any(), any(), anyInt());
+        verify(uploadCheckpointRepository, never()).release(any(), any());
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Claim taken over by another attempt, chunk rolled back and upload stopped.
+     */
+    @Test
+    void givenClaimTakenOver_whenPersistRecords_rollbackChunk() throws IOException {
+        when(uploadCheckpointRepository.claim(eq("abc"), ownerCaptor.capture(), eq(300000L))).thenReturn(true);
+        when(uploadCheckpointRepository.findLineNumber("abc")).thenReturn(0);
+        when(uploadCheckpointRepository.save(eq("abc"), any(), anyInt())).thenReturn(true).thenReturn(false);
+
+        try {
+            resumableUploadService.persistRecords("abc", source());
+            fail("Expect exception to be thrown");
+        } catch(BulkRecordProcessException e) {
+            assertEquals("Upload abc was taken over by another attempt", e.getMessage());
+        }
+
+        verify(userService, times(2)).bulkPersistRecords(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(uploadCheckpointRepository, never()).delete(any(), any());
+    }
+
+    /**
+     * Test persistRecords.
+     *
+     * Checkpoints older than the configured TTL deleted before claiming.
+     */
+    @Test
+    void givenCheckpointTtl_whenPersistRecords_deleteExpiredCheckpoints() throws IOException {
+        properties.getUpload().setCheckpointTtl(60000L);
+        when(uploadCheckpointRepository.claim(eq("abc"), any(), eq(300000L))).thenReturn(true);
+        when(uploadCheckpointRepository.save(eq("abc"), any(), anyInt())).thenReturn(true);
+
+        resumableUploadService.persistRecords("abc", source());
+
+        verify(uploadCheckpointRepository, times(1)).deleteExpired(60000L);
+    }
+
+    /**
+     * Test uploadId.
+     *
+     * Same content has same id, different content has different id.
+     */
+    @Test
+    void givenContent_whenUploadId_returnSha256Hex() throws IOException {
+        final String id1 = resumableUploadService.uploadId(
+                new ByteArrayInputStream("NAME,SALARY\nJohn,1".getBytes(StandardCharsets.UTF_8)));
+        final String id2 = resumableUploadService.uploadId(
+                new ByteArrayInputStream("NAME,SALARY\nJohn,1".getBytes(StandardCharsets.UTF_8)));
+        final String id3 = resumableUploadService.uploadId(
+                new ByteArrayInputStream("NAME,SALARY\nJohn,2".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(64, id1.length());
+        assertEquals(id1, id2);
+        assertNotEquals(id1, id3);
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                resumableUploadService.uploadId(new ByteArrayInputStream(new byte[0])));
+    }
+}
@@ -0,0 +1,371 @@
+package richmond.swe.dotsalary.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.QueryEngine;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.projection.UserRow;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.bean.UserPageBean;
+import richmond.swe.dotsalary.service.cache.UserQueryCache;
+import richmond.swe.dotsalary.service.event.UsersChangedEvent;
+import richmond.swe.dotsalary.service.index.UserIndex;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test UserQueryService.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class UserQueryServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+    @Mock
+    private UserIndex userIndex;
+
+    private DotsalaryProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private UserQueryCache userQueryCache;
+
+    // test instance
+    private UserQueryService userQueryService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        userQueryCache = new UserQueryCache(properties, meterRegistry);
+        userQueryService = new UserQueryService(userRepository, userJdbcRepository, properties, userIndex,
+                meterRegistry, userQueryCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userQueryService = null;
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test mandatory parameter, missing min parameter.
+     */
+    @Test
+    void givenMinParamNull_whenGetUsers_throwException() {
+        try {
+            userQueryService.getUsers(null, BigDecimal.valueOf(4000), 0, null, "name");
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            verifyNoInteractions(userRepository);
+            assertEquals("Missing mandatory parameter min", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test mandatory parameter, missing max parameter.
+     */
+    @Test
+    void givenMaxParamNull_whenGetUsers_throwException() {
+        try {
+            userQueryService.getUsers(BigDecimal.ZERO, null, 0, null, "name");
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            verifyNoInteractions(userRepository);
+            assertEquals("Missing mandatory parameter max", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test mandatory parameter, missing offset parameter.
+     */
+    @Test
+    void givenOffsetParamNull_whenGetUsers_throwException() {
+        try {
+            userQueryService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), null, null, "name");
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            verifyNoInteractions(userRepository);
+            assertEquals("Missing mandatory parameter offset", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test invalid sort parameter value.
+     */
+    @Test
+    void givenInvalidSortValue_whenGetUsers_throwException() {
+        try {
+            userQueryService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, null, "gender");
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            verifyNoInteractions(userRepository);
+            assertEquals("Invalid sort parameter", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test invalid limit parameter value.
+     */
+    @Test
+    void givenInvalidLimitValue_whenGetUsers_throwException() {
+        try {
+            userQueryService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, 0, null);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            verifyNoInteractions(userRepository);
+            assertEquals("Invalid limit parameter", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test no records returned from repository.
+     */
+    @Test
+    void givenNoRecordsFromRepository_whenGetUsers_returnEmptyList() {
+        // return empty list
+        when(userRepository.findRowsBySalary(any(), any(), any())).thenReturn(Collections.emptyList());
+
+        final Collection<UserBean> results = userQueryService.getUsers(BigDecimal.valueOf(0), BigDecimal.valueOf(4000),
+                0, null, "name");
+
+        verify(userRepository, times(1)).findRowsBySalary(eq(BigDecimal.ZERO),
+                eq(BigDecimal.valueOf(4000)), any());
+
+        assertEquals(0, results.size());
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Test records returned.
+     */
+    @Test
+    void givenValidParameters_whenGetUsers_returnRecords() {
+        // return
+        when(userRepository.findRowsBySalary(any(), any(), any())).thenReturn(Arrays.asList(
+                new UserRow(1L, "John", BigDecimal.valueOf(3010)),
+                new UserRow(2L, "Ryan", BigDecimal.valueOf(3020))));
+
+        final Collection<UserBean> results = userQueryService.getUsers(BigDecimal.valueOf(0), BigDecimal.valueOf(4000),
+                0, null, "name");
+
+        verify(userRepository, times(1)).findRowsBySalary(eq(BigDecimal.ZERO),
+                eq(BigDecimal.valueOf(4000)), any());
+
+        assertEquals(2, results.size());
+
+        // get record as returned
+        final Iterator<UserBean> iterator = results.iterator();
+
+        final UserBean result1 = iterator.next();
+        assertEquals(1, result1.getId());
+        assertEquals("John", result1.getName());
+        assertEquals(0, BigDecimal.valueOf(3010).compareTo(result1.getSalary().toBigDecimal()));
+
+        final UserBean result2 = iterator.next();
+        assertEquals(2, result2.getId());
+        assertEquals("Ryan", result2.getName());
+        assertEquals(0, BigDecimal.valueOf(3020).compareTo(result2.getSalary().toBigDecimal()));
+    }
+
+    /**
+     * Test getUsers.
+     *
+     * Same parameters repeated, results from cache until users change.
+     */
+    @Test
+    void givenRepeatedParameters_whenGetUsers_returnCachedRecordsUntilUsersChanged() {
+        when(userRepository.findRowsBySalary(any(), any(), any()))
+                .thenReturn(List.of(new UserRow(1L, "John", BigDecimal.valueOf(3010))));
+
+        final Collection<UserBean> results1 = userQueryService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                0, 10, "name");
+        // same value, different scale
+        final Collection<UserBean> results2 = userQueryService.getUsers(BigDecimal.ZERO, new BigDecimal("4000.00"),
+                0, 10, "NAME");
+        assertSame(results1, results2);
+        verify(userRepository, times(1)).findRowsBySalary(any(), any(), any());
+
+        userQueryCache.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+
+        final Collection<UserBean> results3 = userQueryService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                0, 10, "name");
+        assertEquals(1, results3.size());
+        verify(userRepository, times(2)).findRowsBySalary(any(), any(), any());
+    }
+
+    /**
+     * Test getUsers with MEMORY engine.
+     *
+     * Records returned from index, database not queried.
+     */
+    @Test
+    void givenMemoryEngine_whenGetUsers_returnRecordsFromIndex() {
+        properties.getQuery().setEngine(QueryEngine.MEMORY);
+        final List<UserBean> indexed = List.of(
+                UserBean.builder().id(1L).name("John").salary(BigDecimal.valueOf(3010)).build());
+        when(userIndex.getUsers(any(), any(), eq(5), eq(10), eq(SortField.SALARY))).thenReturn(indexed);
+
+        final Collection<UserBean> results = userQueryService.getUsers(BigDecimal.valueOf(0), BigDecimal.valueOf(4000),
+                5, 10, "salary");
+
+        assertEquals(indexed, results);
+        verify(userIndex, times(1)).getUsers(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)), eq(5), eq(10),
+                eq(SortField.SALARY));
+        verifyNoInteractions(userRepository);
+
+        assertEquals(1, meterRegistry.get("dotsalary.query").tag("sort", "SALARY").tag("engine", "MEMORY")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("dotsalary.query.results").tag("pagination", "offset")
+                .summary().totalAmount());
+    }
+
+    /**
+     * Test streamUsers.
+     *
+     * Invalid offset or limit, throws exception without reading rows.
+     */
+    @Test
+    void givenInvalidOffsetOrLimit_whenStreamUsers_throwException() {
+        try {
+            userQueryService.streamUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), -1, null, null);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Invalid offset parameter", e.getMessage());
+        }
+        try {
+            userQueryService.streamUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, 0, null);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Invalid limit parameter", e.getMessage());
+        }
+        verifyNoInteractions(userJdbcRepository);
+    }
+
+    /**
+     * Test streamUsers.
+     *
+     * Rows read from JDBC repository only when source is used.
+     */
+    @Test
+    void givenValidParameters_whenStreamUsers_readRowsFromRepository() {
+        final UserRowSource source = userQueryService.streamUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 5, 10,
+                "salary");
+        verifyNoInteractions(userJdbcRepository);
+
+        final UserRowHandler handler = (id, name, salary) -> { };
+        source.forEachRow(handler);
+        verify(userJdbcRepository, times(1)).findBySalary(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)),
+                eq(5), eq(10), eq(SortField.SALARY), eq(handler));
+    }
+
+    /**
+     * Test streamUsers with MEMORY engine.
+     *
+     * Rows passed from index to handler, without collecting users or reading database.
+     */
+    @Test
+    void givenMemoryEngine_whenStreamUsers_passRowsFromIndex() {
+        properties.getQuery().setEngine(QueryEngine.MEMORY);
+        final UserRowSource source = userQueryService.streamUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 5, 10,
+                "salary");
+        verifyNoInteractions(userIndex);
+
+        final UserRowHandler handler = (id, name, salary) -> { };
+        source.forEachRow(handler);
+        verify(userIndex, times(1)).forEachUser(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)), eq(5), eq(10),
+                eq(SortField.SALARY), eq(handler));
+        verifyNoInteractions(userJdbcRepository);
+    }
+
+    /**
+     * Test getUsersPage.
+     *
+     * First page full, return cursor of last record. Cursor used to get next page.
+     */
+    @Test
+    void givenFullPage_whenGetUsersPage_returnNextCursor() {
+        final UserEntity user1 = new UserEntity();
+        user1.setId(1L);
+        user1.setName("John");
+        user1.setSalary(BigDecimal.valueOf(3010));
+
+        when(userRepository.findBySalary(any(), any(), any())).thenReturn(List.of(user1));
+
+        final UserPageBean page = userQueryService.getUsersPage(BigDecimal.ZERO, BigDecimal.valueOf(4000), 1,
+                "salary", "");
+        assertEquals(1, page.getResults().size());
+        assertNotNull(page.getNext());
+
+        when(userRepository.findBySalaryAfterSalary(any(), any(), any(), anyLong(), any()))
+                .thenReturn(Collections.emptyList());
+
+        final UserPageBean nextPage = userQueryService.getUsersPage(BigDecimal.ZERO, BigDecimal.valueOf(4000), 1,
+                "salary", page.getNext());
+        assertEquals(0, nextPage.getResults().size());
+        assertNull(nextPage.getNext());
+
+        // range scan starts from last salary
+        verify(userRepository, times(1)).findBySalaryAfterSalary(eq(BigDecimal.valueOf(3010)),
+                eq(BigDecimal.valueOf(4000)), eq(BigDecimal.valueOf(3010)), eq(1L), any());
+    }
+
+    /**
+     * Test getUsersPage.
+     *
+     * Cursor from a different sort, throw exception.
+     */
+    @Test
+    void givenCursorOfDifferentSort_whenGetUsersPage_throwException() {
+        final String cursor = KeysetCursor.of(SortField.NAME, 1L, "John", BigDecimal.TEN).encode();
+        try {
+            userQueryService.getUsersPage(BigDecimal.ZERO, BigDecimal.valueOf(4000), 1, "salary", cursor);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            verifyNoInteractions(userRepository);
+            assertEquals("Invalid cursor parameter", e.getMessage());
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package richmond.swe.dotsalary.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.PersistenceEngine;
+import richmond.swe.dotsalary.data.Salary;
 import richmond.swe.dotsalary.data.entity.UserEntity;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
 import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
 import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.event.UsersChangedPublisher;
+import richmond.swe.dotsalary.service.log.UploadLog;
+import richmond.swe.dotsalary.service.log.UploadSpool;
+import richmond.swe.dotsalary.service.stats.SalaryHistogram;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -20,6 +38,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -27,6 +46,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -41,13 +63,35 @@ class UserServiceTest {
 
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+    @Mock
+    private UsersChangedPublisher usersChangedPublisher;
+    @Mock
+    private UploadLog uploadLog;
+    @Mock
+    private UploadSpool uploadSpool;
+    @Captor
+    private ArgumentCaptor<SalaryHistogram> salaryChangesCaptor;
+
+    private DotsalaryProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    @TempDir
+    Path tempDir;
 
     // test instance
     private UserService userService;
 
     @BeforeEach
     void setUp() {
-        userService = new UserService(userRepository);
+        properties = new DotsalaryProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        final UserWriter userWriter = new UserWriter(userRepository, userJdbcRepository, properties,
+                usersChangedPublisher, meterRegistry);
+        userService = new UserService(entityManager, properties, userWriter,
+                new UploadLogService(uploadLog, userWriter));
     }
 
     @AfterEach
@@ -55,131 +99,6 @@ class UserServiceTest {
         userService = null;
     }
 
-    /**
-     * Test getUsers.
-     *
-     * Test mandatory parameter, missing min parameter.
-     */
-    @Test
-    void givenMinParamNull_whenGetUsers_throwException() {
-        try {
-            userService.getUsers(null, BigDecimal.valueOf(4000), 0, null, "name");
-            fail("Expect exception to be thrown");
-        } catch(IllegalArgumentException e) {
-            verifyNoInteractions(userRepository);
-            assertEquals("Missing mandatory parameter min", e.getMessage());
-        }
-    }
-
-    /**
-     * Test getUsers.
-     *
-     * Test mandatory parameter, missing max parameter.
-     */
-    @Test
-    void givenMaxParamNull_whenGetUsers_throwException() {
-        try {
-            userService.getUsers(BigDecimal.ZERO, null, 0, null, "name");
-            fail("Expect exception to be thrown");
-        } catch(IllegalArgumentException e) {
-            verifyNoInteractions(userRepository);
-            assertEquals("Missing mandatory parameter max", e.getMessage());
-        }
-    }
-
-    /**
-     * Test getUsers.
-     *
-     * Test mandatory parameter, missing offset parameter.
-     */
-    @Test
-    void givenOffsetParamNull_whenGetUsers_throwException() {
-        try {
-            userService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), null, null, "name");
-            fail("Expect exception to be thrown");
-        } catch(IllegalArgumentException e) {
-            verifyNoInteractions(userRepository);
-            assertEquals("Missing mandatory parameter offset", e.getMessage());
-        }
-    }
-
-    /**
-     * Test getUsers.
-     *
-     * Test invalid sort parameter value.
-     */
-    @Test
-    void givenInvalidSortValue_whenGetUsers_throwException() {
-        try {
-            userService.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, null, "gender");
-            fail("Expect exception to be thrown");
-        } catch(IllegalArgumentException e) {
-            verifyNoInteractions(userRepository);
-            assertEquals("Invalid sort parameter", e.getMessage());
-        }
-    }
-
-    /**
-     * Test getUsers.
-     *
-     * Test no records returned from repository.
-     */
-    @Test
-    void givenNoRecordsFromRepository_whenGetUsers_returnEmptyList() {
-        // return empty list
-        when(userRepository.findBySalary(any(), any(), any())).thenReturn(Collections.emptyList());
-
-        final Collection<UserBean> results = userService.getUsers(BigDecimal.valueOf(0), BigDecimal.valueOf(4000),
-                0, null, "name");
-
-        verify(userRepository, times(1)).findBySalary(eq(BigDecimal.ZERO),
-                eq(BigDecimal.valueOf(4000)), any());
-
-        assertEquals(0, results.size());
-    }
-
-    /**
-     * Test getUsers.
-     *
-     * Test records returned.
-     */
-    @Test
-    void givenValidParameters_whenGetUsers_returnRecords() {
-        // return
-        final UserEntity user1 = new UserEntity();
-        user1.setId(1L);
-        user1.setName("John");
-        user1.setSalary(BigDecimal.valueOf(3010));
-
-        final UserEntity user2 = new UserEntity();
-        user2.setId(2L);
-        user2.setName("Ryan");
-        user2.setSalary(BigDecimal.valueOf(3020));
-
-        when(userRepository.findBySalary(any(), any(), any())).thenReturn(Arrays.asList(user1, user2));
-
-        final Collection<UserBean> results = userService.getUsers(BigDecimal.valueOf(0), BigDecimal.valueOf(4000),
-                0, null, "name");
-
-        verify(userRepository, times(1)).findBySalary(eq(BigDecimal.ZERO),
-                eq(BigDecimal.valueOf(4000)), any());
-
-        assertEquals(2, results.size());
-
-        // get record as returned
-        final Iterator<UserBean> iterator = results.iterator();
-
-        final UserBean result1 = iterator.next();
-        assertEquals(1, result1.getId());
-        assertEquals("John", result1.getName());
-        assertEquals(0, BigDecimal.valueOf(3010).compareTo(result1.getSalary()));
-
-        final UserBean result2 = iterator.next();
-        assertEquals(2, result2.getId());
-        assertEquals("Ryan", result2.getName());
-        assertEquals(0, BigDecimal.valueOf(3020).compareTo(result2.getSalary()));
-    }
-
     @Captor
     private ArgumentCaptor<Set<String>> setNamesCaptor;
 
@@ -318,6 +237,45 @@ class UserServiceTest {
         verify(userRepository, times(1)).saveAllAndFlush(collectionEntitiesCaptor.capture());
         final Collection<UserEntity> capturedEntities = collectionEntitiesCaptor.getValue();
         assertEquals(0, capturedEntities.size());
+
+        assertEquals(2, meterRegistry.get("dotsalary.upload.rows.skipped").counter().count());
+        assertEquals(1, meterRegistry.get("dotsalary.persist.flush").tag("engine", "JPA").timer().count());
+    }
+
+    /**
+     * Test streamPersistRecords within a transaction.
+     *
+     * Skipped rows counted once after commit, not counted when rolled back.
+     */
+    @Test
+    void givenTransaction_whenStreamPersistRecords_countSkippedAfterCommit() throws IOException {
+        when(userRepository.findAllByNames(any())).thenReturn(Collections.emptyList());
+        final RecordChunkSource source = consumer -> {
+            consumer.accept(List.of(UserBean.builder().name("Jared").salary(BigDecimal.valueOf(-5)).build()));
+            consumer.accept(List.of(UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(0)).build()));
+            return 2;
+        };
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.streamPersistRecords(source);
+            assertEquals(0, meterRegistry.counter("dotsalary.upload.rows.skipped").count());
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            userService.streamPersistRecords(source);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(2, meterRegistry.counter("dotsalary.upload.rows.skipped").count());
+    }
+
+    private static void complete(final int status) {
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+        TransactionSynchronizationManager.initSynchronization();
     }
 
     /**
@@ -371,4 +329,313 @@ class UserServiceTest {
         assertEquals("jared", result2.getName());
         assertEquals(0, BigDecimal.valueOf(1000).compareTo(result2.getSalary()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test bulkPersistRecords with upload log.
+     *
+     * Records appended to log, database not written until applied by log.
+     */
+    @Test
+    void givenUploadLog_whenBulkPersistRecords_appendToLog() throws IOException {
+        when(uploadLog.isEnabled()).thenReturn(true);
+
+        final Collection<UserBean> records = Collections.singletonList(
+                UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build()
+        );
+
+        final int result = userService.bulkPersistRecords(records);
+        assertEquals(1, result);
+
+        verify(uploadLog, times(1)).append(eq(records), any());
+        verifyNoInteractions(userRepository, userJdbcRepository, usersChangedPublisher);
+    }
+
+    /**
+     * Test streamPersistRecords with upload log.
+     *
+     * Chunks spooled as they are read, and appended to log as one upload once source is read, database not written
+     * until applied by log.
+     */
+    @Test
+    void givenUploadLog_whenStreamPersistRecords_appendSpoolOnceRead() throws IOException {
+        when(uploadLog.isEnabled()).thenReturn(true);
+        when(uploadLog.spool()).thenReturn(uploadSpool);
+        final UserBean jared = UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build();
+        final UserBean ryan = UserBean.builder().name("Ryan").salary(BigDecimal.valueOf(2000)).build();
+
+        final int result = userService.streamPersistRecords(consumer -> {
+            consumer.accept(List.of(jared));
+            verify(uploadSpool, times(1)).addAll(List.of(jared));
+            consumer.accept(List.of(ryan));
+            verify(uploadLog, never()).append(any(UploadSpool.class), any());
+            return 2;
+        });
+        assertEquals(1, result);
+
+        verify(uploadSpool, times(1)).addAll(List.of(ryan));
+        verify(uploadLog, times(1)).append(eq(uploadSpool), any());
+        verify(uploadSpool, times(1)).close();
+        verifyNoInteractions(userRepository, userJdbcRepository, usersChangedPublisher, entityManager);
+    }
+
+    /**
+     * Test streamPersistRecords with upload log.
+     *
+     * Source fails on its last row, nothing appended to log and no users applied.
+     */
+    @Test
+    void givenBadLastRow_whenStreamPersistRecords_appendNothing() throws IOException {
+        when(uploadLog.isEnabled()).thenReturn(true);
+        when(uploadLog.spool()).thenReturn(uploadSpool);
+        final UserBean jared = UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build();
+
+        try {
+            userService.streamPersistRecords(consumer -> {
+                consumer.accept(List.of(jared));
+                throw new IOException("Invalid row 2");
+            });
+            fail("Expect exception to be thrown");
+        } catch(IOException e) {
+            assertEquals("Invalid row 2", e.getMessage());
+        }
+
+        verify(uploadLog, never()).append(any(UploadSpool.class), any());
+        verify(uploadSpool, times(1)).close();
+        verifyNoInteractions(userRepository, userJdbcRepository, usersChangedPublisher, entityManager);
+    }
+
+    /**
+     * Test streamPersistRecords with upload log.
+     *
+     * Spool cannot be written to log, throws exception.
+     */
+    @Test
+    void givenLogWriteFailed_whenStreamPersistRecords_throwException() throws IOException {
+        when(uploadLog.isEnabled()).thenReturn(true);
+        when(uploadLog.spool()).thenReturn(uploadSpool);
+        final UserBean jared = UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build();
+        doThrow(new IOException("Disk full")).when(uploadLog).append(eq(uploadSpool), any());
+
+        try {
+            userService.streamPersistRecords(consumer -> {
+                consumer.accept(List.of(jared));
+                return 1;
+            });
+            fail("Expect exception to be thrown");
+        } catch(IOException e) {
+            assertEquals("Disk full", e.getMessage());
+        }
+        verify(uploadSpool, times(1)).close();
+    }
+
+    /**
+     * Test streamPersistRecords.
+     *
+     * Records supplied in chunks, persist each chunk and clear persistence context after each chunk.
+     */
+    @Test
+    void givenRecordChunks_whenStreamPersistRecords_persistEachChunk() throws IOException {
+
+        when(userRepository.findAllByNames(any())).thenReturn(Collections.emptyList());
+
+        final int result = userService.streamPersistRecords(consumer -> {
+            consumer.accept(List.of(UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build()));
+            consumer.accept(List.of(UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(2000)).build()));
+            return 2;
+        });
+        assertEquals(1, result);
+
+        verify(userRepository, times(2)).findAllByNames(setNamesCaptor.capture());
+        assertTrue(setNamesCaptor.getAllValues().get(0).contains("JARED"));
+        assertTrue(setNamesCaptor.getAllValues().get(1).contains("BOBBY"));
+
+        verify(userRepository, times(2)).saveAllAndFlush(collectionEntitiesCaptor.capture());
+        final UserEntity result1 = collectionEntitiesCaptor.getAllValues().get(0).iterator().next();
+        assertEquals("Jared", result1.getName());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(result1.getSalary()));
+        final UserEntity result2 = collectionEntitiesCaptor.getAllValues().get(1).iterator().next();
+        assertEquals("Bobby", result2.getName());
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(result2.getSalary()));
+
+        verify(entityManager, times(2)).clear();
+    }
+
+    /**
+     * Test streamPersistRecords with dedup run size.
+     *
+     * Repeated names across chunks persisted once, first name and last salary kept, salary less than
+     * or equal 0 skipped.
+     */
+    @Test
+    void givenDedupRunSize_whenStreamPersistRecords_persistEachNameOnce() throws IOException {
+        properties.getUpload().setDedupRunSize(2);
+        properties.getUpload().setDedupSpillDir(tempDir.toString());
+
+        when(userRepository.findAllByNames(any())).thenReturn(Collections.emptyList());
+
+        final int result = userService.streamPersistRecords(consumer -> {
+            consumer.accept(List.of(UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build(),
+                    UserBean.builder().name("Kenny").salary(BigDecimal.valueOf(3000)).build()));
+            consumer.accept(List.of(UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(2000)).build(),
+                    UserBean.builder().name("JARED").salary(BigDecimal.valueOf(1500)).build(),
+                    UserBean.builder().name("jared").salary(BigDecimal.valueOf(-5)).build()));
+            return 5;
+        });
+        assertEquals(1, result);
+
+        verify(userRepository, times(1)).saveAllAndFlush(collectionEntitiesCaptor.capture());
+        final Iterator<UserEntity> saved = collectionEntitiesCaptor.getValue().stream()
+                .sorted(Comparator.comparing(UserEntity::getName)).iterator();
+        final UserEntity result1 = saved.next();
+        assertEquals("Bobby", result1.getName());
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(result1.getSalary()));
+        final UserEntity result2 = saved.next();
+        assertEquals("Jared", result2.getName());
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(result2.getSalary()));
+        final UserEntity result3 = saved.next();
+        assertEquals("Kenny", result3.getName());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(result3.getSalary()));
+
+        assertEquals(1, meterRegistry.counter("dotsalary.upload.rows.skipped").count());
+        // run files deleted
+        try(final Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Test bulkPersistRecords.
+     *
+     * More names than lookup chunk size, look up existing records in chunks.
+     */
+    @Test
+    void givenMoreNamesThanLookupChunkSize_whenBulkPersistRecords_lookupInChunks() {
+        properties.getPersistence().setLookupChunkSize(2);
+
+        when(userRepository.findAllByNames(any())).thenReturn(Collections.emptyList());
+
+        final Collection<UserBean> records = Arrays.asList(
+                UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build(),
+                UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(2000)).build(),
+                UserBean.builder().name("Kenny").salary(BigDecimal.valueOf(3000)).build()
+        );
+
+        final int result = userService.bulkPersistRecords(records);
+        assertEquals(1, result);
+
+        verify(userRepository, times(2)).findAllByNames(setNamesCaptor.capture());
+        final List<Set<String>> capturedNames = setNamesCaptor.getAllValues();
+        assertEquals(2, capturedNames.get(0).size());
+        assertEquals(1, capturedNames.get(1).size());
+
+        verify(userRepository, times(1)).saveAllAndFlush(collectionEntitiesCaptor.capture());
+        assertEquals(3, collectionEntitiesCaptor.getValue().size());
+    }
+
+    /**
+     * Test bulkPersistRecords with JDBC engine.
+     *
+     * Records merged through JDBC, skip salary less than or equal 0, keep first name and last salary of duplicates.
+     */
+    @Test
+    void givenJdbcEngine_whenBulkPersistRecords_mergeRecords() {
+        properties.getPersistence().setEngine(PersistenceEngine.JDBC);
+        properties.getPersistence().setBatchSize(50);
+
+        final Collection<UserBean> records = Arrays.asList(
+                UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build(),
+                UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(-5)).build(),
+                UserBean.builder().name("JARED").salary(BigDecimal.valueOf(1500)).build(),
+                UserBean.builder().name("jared").salary(BigDecimal.ZERO).build()
+        );
+
+        final int result = userService.bulkPersistRecords(records);
+        assertEquals(1, result);
+
+        verify(userJdbcRepository, times(1)).mergeAll(collectionEntitiesCaptor.capture(), eq(50));
+        final Collection<UserEntity> capturedEntities = collectionEntitiesCaptor.getValue();
+        assertEquals(1, capturedEntities.size());
+
+        final UserEntity result1 = capturedEntities.iterator().next();
+        assertEquals("Jared", result1.getName());
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(result1.getSalary()));
+        assertNull(result1.getId());
+
+        verify(userRepository, times(0)).findAllByNames(any());
+        verify(userRepository, times(0)).saveAllAndFlush(any());
+    }
+
+    /**
+     * Test bulkPersistRecords.
+     *
+     * Upper case names of inserted or updated records are published, skipped records are not.
+     */
+    @Test
+    void givenRecords_whenBulkPersistRecords_publishChangedNames() {
+        final Collection<UserBean> records = Arrays.asList(
+                UserBean.builder().name("Jared").salary(BigDecimal.valueOf(1000)).build(),
+                UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(-5)).build(),
+                UserBean.builder().name("jared").salary(BigDecimal.valueOf(1500)).build()
+        );
+        when(userRepository.findAllByNames(any())).thenReturn(Collections.emptyList());
+
+        userService.bulkPersistRecords(records);
+
+        verify(usersChangedPublisher, times(1)).changed(eq(Set.of("JARED")), any());
+    }
+
+    /**
+     * Test bulkPersistRecords.
+     *
+     * Previous salary of updated record removed from salary changes, new salaries added.
+     */
+    @Test
+    void givenRecordExists_whenBulkPersistRecords_publishSalaryChanges() {
+        final UserEntity existingRecord = new UserEntity();
+        existingRecord.setId(100L);
+        existingRecord.setName("Jared");
+        existingRecord.setSalary(BigDecimal.valueOf(1000));
+        when(userRepository.findAllByNames(any())).thenReturn(List.of(existingRecord));
+
+        userService.bulkPersistRecords(Arrays.asList(
+                UserBean.builder().name("Jared").salary(BigDecimal.valueOf(2000)).build(),
+                UserBean.builder().name("Bobby").salary(BigDecimal.valueOf(3000)).build()));
+
+        verify(usersChangedPublisher, times(1)).changed(any(), salaryChangesCaptor.capture());
+        final SalaryHistogram histogram = new SalaryHistogram();
+        histogram.add(BigDecimal.valueOf(1000));
+        histogram.merge(salaryChangesCaptor.getValue());
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                (from, to, handler) -> { });
+        assertEquals(2, stats.getCount());
+        assertEquals(0, BigDecimal.valueOf(5000).compareTo(stats.getSum()));
+    }
+
+    /**
+     * Test bulkPersistRecords with JDBC engine.
+     *
+     * Previous salaries read through JDBC and removed from salary changes.
+     */
+    @Test
+    void givenJdbcEngine_whenBulkPersistRecords_publishSalaryChanges() {
+        properties.getPersistence().setEngine(PersistenceEngine.JDBC);
+        doAnswer(invocation -> {
+            final UserRowHandler handler = invocation.getArgument(1);
+            handler.handle(100L, "Jared", Salary.valueOf(BigDecimal.valueOf(1000)));
+            return null;
+        }).when(userJdbcRepository).lockAllByNameKeys(any(), any());
+
+        userService.bulkPersistRecords(List.of(
+                UserBean.builder().name("Jared").salary(BigDecimal.valueOf(2000)).build()));
+
+        verify(userJdbcRepository, times(1)).lockAllByNameKeys(eq(List.of("JARED")), any());
+        verify(usersChangedPublisher, times(1)).changed(any(), salaryChangesCaptor.capture());
+        final SalaryHistogram histogram = new SalaryHistogram();
+        histogram.add(BigDecimal.valueOf(1000));
+        histogram.merge(salaryChangesCaptor.getValue());
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                (from, to, handler) -> { });
+        assertEquals(1, stats.getCount());
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(stats.getSum()));
+    }
+}
@@ -0,0 +1,113 @@
+package richmond.swe.dotsalary.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import richmond.swe.dotsalary.data.projection.SalaryBucket;
+import richmond.swe.dotsalary.data.repository.UserRepository;
+import richmond.swe.dotsalary.service.bean.SalaryBucketBean;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+import richmond.swe.dotsalary.service.stats.SalaryStats;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test UserStatsService.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private SalaryStats salaryStats;
+
+    // test instance
+    private UserStatsService userStatsService;
+
+    @BeforeEach
+    void setUp() {
+        userStatsService = new UserStatsService(userRepository, salaryStats);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userStatsService = null;
+    }
+
+    /**
+     * Test countUsers.
+     *
+     * Count from repository.
+     */
+    @Test
+    void givenMinMax_whenCountUsers_returnCount() {
+        when(userRepository.countBySalary(any(), any())).thenReturn(5L);
+
+        assertEquals(5, userStatsService.countUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000)));
+        verify(userRepository, times(1)).countBySalary(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)));
+    }
+
+    /**
+     * Test getSalaryHistogram.
+     *
+     * Bucket numbers from repository mapped to salary bounds; width not more than 0, throws exception.
+     */
+    @Test
+    void givenWidth_whenGetSalaryHistogram_returnBuckets() {
+        final SalaryBucket bucket = mock(SalaryBucket.class);
+        when(bucket.getBucket()).thenReturn(BigDecimal.valueOf(120));
+        when(bucket.getUsers()).thenReturn(2L);
+        when(userRepository.findSalaryHistogram(any(), any(), any())).thenReturn(List.of(bucket));
+
+        final List<SalaryBucketBean> results = userStatsService.getSalaryHistogram(BigDecimal.ZERO,
+                BigDecimal.valueOf(4000), BigDecimal.valueOf(25));
+        assertEquals(1, results.size());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(results.get(0).getFrom()));
+        assertEquals(0, BigDecimal.valueOf(3025).compareTo(results.get(0).getTo()));
+        assertEquals(2, results.get(0).getCount());
+
+        try {
+            userStatsService.getSalaryHistogram(BigDecimal.ZERO, BigDecimal.valueOf(4000), BigDecimal.ZERO);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Invalid width parameter", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getSalaryStats.
+     *
+     * Missing min, throws exception; otherwise statistics from salary statistics.
+     */
+    @Test
+    void givenParameters_whenGetSalaryStats_returnStats() {
+        try {
+            userStatsService.getSalaryStats(null, BigDecimal.valueOf(4000));
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Missing mandatory parameter min", e.getMessage());
+        }
+
+        final SalaryStatsBean stats = SalaryStatsBean.builder().count(1).build();
+        when(salaryStats.getStats(any(), any())).thenReturn(stats);
+
+        assertSame(stats, userStatsService.getSalaryStats(BigDecimal.ZERO, BigDecimal.valueOf(4000)));
+        verify(salaryStats, times(1)).getStats(eq(BigDecimal.ZERO), eq(BigDecimal.valueOf(4000)));
+    }
+}
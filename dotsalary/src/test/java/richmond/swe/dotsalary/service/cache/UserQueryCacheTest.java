@@ -0,0 +1,132 @@
+package richmond.swe.dotsalary.service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.QueryEngine;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.service.bean.UserBean;
+import richmond.swe.dotsalary.service.event.UsersChangedEvent;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit test UserQueryCache.
+ * @author richmondchng
+ */
+class UserQueryCacheTest {
+
+    private static final List<UserBean> RESULTS = List.of(
+            UserBean.builder().id(1L).name("John").salary(BigDecimal.valueOf(3010)).build(),
+            UserBean.builder().id(2L).name("Ryan").salary(BigDecimal.valueOf(3020)).build());
+
+    private DotsalaryProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    // test instance
+    private UserQueryCache userQueryCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        properties.getQuery().setCacheSize(2);
+        properties.getQuery().setCacheMaxResults(2);
+        meterRegistry = new SimpleMeterRegistry();
+        userQueryCache = new UserQueryCache(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userQueryCache = null;
+    }
+
+    private static UserQueryKey key(final int offset) {
+        return UserQueryKey.of(BigDecimal.ZERO, BigDecimal.valueOf(4000), offset, 10, SortField.NAME);
+    }
+
+    /**
+     * Test get.
+     *
+     * Users changed after results are cached, results not returned.
+     */
+    @Test
+    void givenUsersChanged_whenGet_returnNull() {
+        userQueryCache.put(key(0), userQueryCache.getVersion(), RESULTS);
+        assertNotNull(userQueryCache.get(key(0)));
+
+        userQueryCache.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+
+        assertNull(userQueryCache.get(key(0)));
+        assertEquals(1, meterRegistry.get("dotsalary.query.cache").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("dotsalary.query.cache").tag("result", "miss").counter().count());
+    }
+
+    /**
+     * Test put.
+     *
+     * Users changed while query was running, results not cached.
+     */
+    @Test
+    void givenUsersChangedDuringQuery_whenPut_notCached() {
+        final long version = userQueryCache.getVersion();
+        userQueryCache.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+
+        final UserQueryResult result = userQueryCache.put(key(0), version, RESULTS);
+
+        assertEquals(RESULTS, result.getResults());
+        assertEquals(version, result.getVersion());
+        assertNull(userQueryCache.get(key(0)));
+    }
+
+    /**
+     * Test onUsersChanged with MEMORY query engine.
+     *
+     * Version kept on commit, results cached until the index swaps in the changes and invalidates the cache.
+     */
+    @Test
+    void givenMemoryEngine_whenUsersChanged_keepVersionUntilInvalidated() {
+        properties.getQuery().setEngine(QueryEngine.MEMORY);
+        userQueryCache = new UserQueryCache(properties, meterRegistry);
+        final long version = userQueryCache.getVersion();
+        userQueryCache.put(key(0), version, RESULTS);
+
+        userQueryCache.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+        assertEquals(version, userQueryCache.getVersion());
+        assertNotNull(userQueryCache.get(key(0)));
+
+        userQueryCache.invalidate();
+        assertNotEquals(version, userQueryCache.getVersion());
+        assertNull(userQueryCache.get(key(0)));
+    }
+
+    /**
+     * Test put.
+     *
+     * Cache full, least recently used results evicted; too many results, not cached.
+     */
+    @Test
+    void givenCacheFull_whenPut_evictLeastRecentlyUsed() {
+        final long version = userQueryCache.getVersion();
+        userQueryCache.put(key(0), version, RESULTS);
+        userQueryCache.put(key(1), version, RESULTS);
+        // key 0 used more recently than key 1
+        userQueryCache.get(key(0));
+        userQueryCache.put(key(2), version, RESULTS);
+
+        assertNotNull(userQueryCache.get(key(0)));
+        assertNull(userQueryCache.get(key(1)));
+        assertNotNull(userQueryCache.get(key(2)));
+
+        userQueryCache.put(key(3), version, List.of(RESULTS.get(0), RESULTS.get(1), RESULTS.get(0)));
+        assertNull(userQueryCache.get(key(3)));
+    }
+}
@@ -0,0 +1,218 @@
+package richmond.swe.dotsalary.service.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test CsvTokenizer.
+ * @author richmondchng
+ */
+class CsvTokenizerTest {
+
+    private CsvTokenizer tokenize(final String text) {
+        return new CsvTokenizer(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Test nextLine.
+     *
+     * Lines terminated by LF, CRLF and CR, all read as separate lines.
+     */
+    @Test
+    void givenMixedLineTerminators_whenNextLine_splitLines() throws IOException {
+        final CsvTokenizer tokenizer = tokenize("A,1\r\nB,2\rC,3\nD,4");
+
+        assertTrue(tokenizer.nextLine());
+        assertEquals("A", tokenizer.getString(0));
+        assertEquals("1", tokenizer.getString(1));
+        assertTrue(tokenizer.nextLine());
+        assertEquals("B", tokenizer.getString(0));
+        assertEquals("2", tokenizer.getString(1));
+        assertTrue(tokenizer.nextLine());
+        assertEquals("C", tokenizer.getString(0));
+        assertTrue(tokenizer.nextLine());
+        assertEquals("D", tokenizer.getString(0));
+        assertEquals("4", tokenizer.getString(1));
+        assertFalse(tokenizer.nextLine());
+    }
+
+    /**
+     * Test nextLine.
+     *
+     * Quoted fields may contain delimiter, line terminator and escaped quote.
+     */
+    @Test
+    void givenQuotedFields_whenNextLine_unquoteFields() throws IOException {
+        final CsvTokenizer tokenizer = tokenize("\"Smith, \"\"Jo\"\"\r\nhn\",\"3000.5\"\r\n");
+
+        assertTrue(tokenizer.nextLine());
+        assertEquals(2, tokenizer.getFieldCount());
+        assertEquals("Smith, \"Jo\"\r\nhn", tokenizer.getString(0));
+        assertEquals(0, new BigDecimal("3000.5").compareTo(tokenizer.getDecimal(1)));
+        assertFalse(tokenizer.nextLine());
+    }
+
+    /**
+     * Test getFieldCount.
+     *
+     * Trailing empty fields are not counted, same as String.split.
+     */
+    @Test
+    void givenTrailingEmptyFields_whenGetFieldCount_sameAsSplit() throws IOException {
+        final String[] lines = {"JOHN,", "JOHN,3000,", ",3000", ",,", "JOHN,3000,20", "JOHN,,20"};
+        final CsvTokenizer tokenizer = tokenize(String.join("\n", lines));
+
+        for(String line : lines) {
+            assertTrue(tokenizer.nextLine());
+            assertEquals(line.split(",").length, tokenizer.getFieldCount(), line);
+        }
+    }
+
+    /**
+     * Test isBlankLine.
+     *
+     * Whitespace only line is blank.
+     */
+    @Test
+    void givenWhitespaceLine_whenIsBlankLine_returnTrue() throws IOException {
+        final CsvTokenizer tokenizer = tokenize("A,1\n \t\r\n,\n");
+
+        assertTrue(tokenizer.nextLine());
+        assertFalse(tokenizer.isBlankLine());
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.isBlankLine());
+        assertTrue(tokenizer.nextLine());
+        assertFalse(tokenizer.isBlankLine());
+        assertEquals(0, tokenizer.getFieldCount());
+    }
+
+    /**
+     * Test getDecimal.
+     *
+     * Same values as BigDecimal(String), including scale, null if not numeric.
+     */
+    @Test
+    void givenNumbers_whenGetDecimal_sameAsBigDecimal() throws IOException {
+        final String[] values = {"3000.80", "5000", "-1.50", "+7", ".5", "5.", "1e3", "12345678901234567890.5"};
+        final StringBuilder text = new StringBuilder();
+        for(String value : values) {
+            text.append("A,").append(value).append('\n');
+        }
+        final CsvTokenizer tokenizer = tokenize(text.toString());
+
+        for(String value : values) {
+            assertTrue(tokenizer.nextLine());
+            assertEquals(new BigDecimal(value), tokenizer.getDecimal(1), value);
+        }
+    }
+
+    /**
+     * Test getSalary.
+     *
+     * Same values as BigDecimal(String) rounded half up to 8 decimal places, null if not numeric.
+     */
+    @Test
+    void givenNumbers_whenGetSalary_sameAsRoundedBigDecimal() throws IOException {
+        final String[] values = {"3000.80", "5000", "-1.50", "+7", ".5", "5.", "1e3", "0.000000005", "9999.99999999",
+                "1234567890.12345678", "\"42.5\""};
+        final StringBuilder text = new StringBuilder();
+        for(String value : values) {
+            text.append("A,").append(value).append('\n');
+        }
+        text.append("A,30ab.80\n");
+        final CsvTokenizer tokenizer = tokenize(text.toString());
+
+        for(String value : values) {
+            assertTrue(tokenizer.nextLine());
+            final BigDecimal expected = new BigDecimal(value.replace("\"", "")).setScale(8, RoundingMode.HALF_UP);
+            assertEquals(expected, tokenizer.getSalary(1).toBigDecimal(), value);
+        }
+        assertTrue(tokenizer.nextLine());
+        assertNull(tokenizer.getSalary(1));
+    }
+
+    /**
+     * Test getSalary.
+     *
+     * Value too large for a scaled long, throws exception.
+     */
+    @Test
+    void givenOutOfRange_whenGetSalary_throwException() throws IOException {
+        final CsvTokenizer tokenizer = tokenize("A,12345678901234567890.5\n");
+        assertTrue(tokenizer.nextLine());
+        try {
+            tokenizer.getSalary(1);
+            fail("Expect exception to be thrown");
+        } catch(ArithmeticException e) {
+            assertEquals("Salary out of range", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getDecimal.
+     *
+     * Not numeric values return null.
+     */
+    @Test
+    void givenNotNumeric_whenGetDecimal_returnNull() throws IOException {
+        final CsvTokenizer tokenizer = tokenize("A,30ab.80\nA, 3000\nA,-\nA,1.2.3");
+
+        while(tokenizer.nextLine()) {
+            assertNull(tokenizer.getDecimal(1));
+        }
+    }
+
+    /**
+     * Test nextLine.
+     *
+     * Small buffer, lines span refills and buffer grows for long lines.
+     */
+    @Test
+    void givenSmallBuffer_whenNextLine_readAcrossRefills() throws IOException {
+        final String longName = "N".repeat(50);
+        final byte[] bytes = ("\"Q,\"\"\",1\r\n" + longName + ",2\r\nC,3").getBytes(StandardCharsets.UTF_8);
+        final CsvTokenizer tokenizer = new CsvTokenizer(Channels.newChannel(new ByteArrayInputStream(bytes)), 4);
+
+        assertTrue(tokenizer.nextLine());
+        assertEquals("Q,\"", tokenizer.getString(0));
+        assertEquals("1", tokenizer.getString(1));
+        assertTrue(tokenizer.nextLine());
+        assertEquals(longName, tokenizer.getString(0));
+        assertEquals("2", tokenizer.getString(1));
+        assertTrue(tokenizer.nextLine());
+        assertEquals("C", tokenizer.getString(0));
+        assertFalse(tokenizer.nextLine());
+    }
+
+    /**
+     * Test nextLine.
+     *
+     * Direct buffer region, read fields without backing array.
+     */
+    @Test
+    void givenDirectBuffer_whenNextLine_readFields() throws IOException {
+        final byte[] bytes = "Zoë,10.25\n".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        final CsvTokenizer tokenizer = new CsvTokenizer(buffer);
+
+        assertTrue(tokenizer.nextLine());
+        assertEquals("Zoë", tokenizer.getString(0));
+        assertFalse(tokenizer.isBlank(0));
+        assertEquals(new BigDecimal("10.25"), tokenizer.getDecimal(1));
+        assertFalse(tokenizer.nextLine());
+    }
+}
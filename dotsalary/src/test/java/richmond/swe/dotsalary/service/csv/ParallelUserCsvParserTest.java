@@ -0,0 +1,151 @@
+package richmond.swe.dotsalary.service.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test ParallelUserCsvParser.
+ * @author richmondchng
+ */
+class ParallelUserCsvParserTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(final String content) throws IOException {
+        final Path file = Files.createTempFile(tempDir, "upload-", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String body(final int records, final String lineEnd) {
+        final StringBuilder builder = new StringBuilder("NAME,SALARY").append(lineEnd);
+        for(int i = 1; i <= records; i++) {
+            builder.append("User").append(i).append(',').append(i).append('.').append(i % 100).append(lineEnd);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parse on a single thread, for expected results.
+     */
+    private static List<String> parseSequential(final String content) throws IOException {
+        final UserCsvReader reader = new UserCsvReader(new CsvTokenizer(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+        reader.readHeader();
+        final List<String> records = new ArrayList<>();
+        UserBean record;
+        while((record = reader.next()) != null) {
+            records.add(record.getName() + "=" + record.getSalary());
+        }
+        return records;
+    }
+
+    private static List<String> toStrings(final List<Collection<UserBean>> chunks) {
+        final List<String> records = new ArrayList<>();
+        chunks.forEach(chunk -> chunk.forEach(r -> records.add(r.getName() + "=" + r.getSalary())));
+        return records;
+    }
+
+    /**
+     * Test parse.
+     *
+     * Records in file order, regrouped into chunks of chunk size, for each line terminator.
+     */
+    @Test
+    void givenSmallChunks_whenParse_returnRecordsInOrder() throws IOException {
+        for(String lineEnd : List.of("\n", "\r\n", "\r")) {
+            final String content = body(500, lineEnd);
+            final List<Collection<UserBean>> chunks = new ArrayList<>();
+
+            final int count = new ParallelUserCsvParser(POOL, 37).parse(write(content), 100, chunks::add);
+
+            assertEquals(500, count);
+            assertEquals(5, chunks.size());
+            chunks.forEach(chunk -> assertEquals(100, chunk.size()));
+            assertEquals(parseSequential(content), toStrings(chunks));
+        }
+    }
+
+    /**
+     * Test parse.
+     *
+     * Invalid record in a later chunk, line number counted across chunks.
+     */
+    @Test
+    void givenInvalidRecord_whenParse_throwExceptionWithLineNumber() throws IOException {
+        final String content = body(300, "\n") + "User301,abc\n" + body(10, "\n").substring(12);
+        try {
+            new ParallelUserCsvParser(POOL, 50).parse(write(content), 1000, chunk -> { });
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("301. SALARY field is not numeric", e.getMessage());
+        }
+    }
+
+    /**
+     * Test parse.
+     *
+     * Blank line ends records, later chunks are ignored, including invalid records.
+     */
+    @Test
+    void givenBlankLine_whenParse_ignoreRecordsAfter() throws IOException {
+        final String content = body(200, "\n") + "\n" + "User201,abc\n" + body(200, "\n").substring(12);
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+
+        final int count = new ParallelUserCsvParser(POOL, 64).parse(write(content), 1000, chunks::add);
+
+        assertEquals(200, count);
+        assertEquals(parseSequential(content), toStrings(chunks));
+    }
+
+    /**
+     * Test parse.
+     *
+     * Quoted field with line break, parsed on a single thread with same results.
+     */
+    @Test
+    void givenQuotedLineBreak_whenParse_returnRecords() throws IOException {
+        final String content = "NAME,SALARY\n" + "\"Smith,\nJohn\",3000\n" + body(100, "\n").substring(12);
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+
+        final int count = new ParallelUserCsvParser(POOL, 16).parse(write(content), 1000, chunks::add);
+
+        assertEquals(101, count);
+        final List<String> records = toStrings(chunks);
+        assertEquals(parseSequential(content), records);
+        assertTrue(records.get(0).startsWith("Smith,\nJohn="));
+    }
+
+    /**
+     * Test parse.
+     *
+     * Invalid header, throws exception.
+     */
+    @Test
+    void givenInvalidHeader_whenParse_throwException() throws IOException {
+        try {
+            new ParallelUserCsvParser(POOL, 16).parse(write("NAME,AGE\nJohn,3000\n"), 1000, chunk -> { });
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Second column should be SALARY", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package richmond.swe.dotsalary.service.csv;
+
+import org.junit.jupiter.api.Test;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test UserCsvDecoder.
+ * @author richmondchng
+ */
+class UserCsvDecoderTest {
+
+    private static String body(final int records, final String lineEnd) {
+        final StringBuilder builder = new StringBuilder("NAME,SALARY").append(lineEnd);
+        for(int i = 1; i <= records; i++) {
+            builder.append("User").append(i).append(',').append(i).append('.').append(i % 100).append(lineEnd);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parse in one read, for expected results.
+     */
+    private static List<String> parseSequential(final String content) throws IOException {
+        final UserCsvReader reader = new UserCsvReader(new CsvTokenizer(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+        reader.readHeader();
+        final List<String> records = new ArrayList<>();
+        UserBean record;
+        while((record = reader.next()) != null) {
+            records.add(record.getName() + "=" + record.getSalary());
+        }
+        return records;
+    }
+
+    /**
+     * Decode content split into buffers of buffer size.
+     */
+    private static List<String> decode(final String content, final int bufferSize) {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final UserCsvDecoder decoder = new UserCsvDecoder();
+        final List<String> records = new ArrayList<>();
+        for(int i = 0; i < bytes.length; i += bufferSize) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, i, Math.min(bufferSize, bytes.length - i));
+            decoder.decode(buffer).forEach(r -> records.add(r.getName() + "=" + r.getSalary()));
+        }
+        decoder.finish().forEach(r -> records.add(r.getName() + "=" + r.getSalary()));
+        return records;
+    }
+
+    /**
+     * Test decode.
+     *
+     * Content split at every position, same records as read in one pass, for each line terminator.
+     */
+    @Test
+    void givenSplitBuffers_whenDecode_returnRecordsInOrder() throws IOException {
+        for(String lineEnd : List.of("\n", "\r\n", "\r")) {
+            final String content = body(30, lineEnd);
+            final List<String> expected = parseSequential(content);
+            assertEquals(30, expected.size());
+            for(int bufferSize = 1; bufferSize <= content.length(); bufferSize++) {
+                assertEquals(expected, decode(content, bufferSize), "Buffer size " + bufferSize);
+            }
+        }
+    }
+
+    /**
+     * Test decode.
+     *
+     * Last line without line terminator, returned on finish.
+     */
+    @Test
+    void givenNoLastLineEnd_whenFinish_returnLastRecord() {
+        final UserCsvDecoder decoder = new UserCsvDecoder();
+
+        final List<UserBean> records = decoder.decode(ByteBuffer.wrap(
+                "NAME,SALARY\nJohn,1000\nJane,2000".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, records.size());
+        assertEquals("John", records.get(0).getName());
+
+        final List<UserBean> last = decoder.finish();
+        assertEquals(1, last.size());
+        assertEquals("Jane", last.get(0).getName());
+        assertTrue(decoder.finish().isEmpty());
+    }
+
+    /**
+     * Test decode.
+     *
+     * Quoted field with line break split across buffers, returned as one record.
+     */
+    @Test
+    void givenQuotedLineBreak_whenDecode_returnRecord() throws IOException {
+        final String content = "NAME,SALARY\n\"Smith,\r\nJohn\",3000\n\"Lee \"\"Jr\"\"\",2000\n";
+        final List<String> expected = parseSequential(content);
+        assertEquals(2, expected.size());
+        for(int bufferSize = 1; bufferSize <= content.length(); bufferSize++) {
+            assertEquals(expected, decode(content, bufferSize), "Buffer size " + bufferSize);
+        }
+    }
+
+    /**
+     * Test decode.
+     *
+     * Blank line ends records, records after are ignored, including invalid records.
+     */
+    @Test
+    void givenBlankLine_whenDecode_ignoreRecordsAfter() {
+        final String content = body(20, "\n") + "\n" + "User21,abc\n" + body(20, "\n").substring(12);
+        for(int bufferSize : List.of(1, 7, 64, content.length())) {
+            assertEquals(20, decode(content, bufferSize).size(), "Buffer size " + bufferSize);
+        }
+    }
+
+    /**
+     * Test decode.
+     *
+     * Invalid record after several buffers, line number counted across buffers.
+     */
+    @Test
+    void givenInvalidRecord_whenDecode_throwExceptionWithLineNumber() {
+        final String content = body(300, "\n") + "User301,abc\n";
+        try {
+            decode(content, 50);
+            fail("Expect exception to be thrown");
+        } catch(CsvRecordException e) {
+            assertEquals("301. SALARY field is not numeric", e.getMessage());
+        }
+    }
+
+    /**
+     * Test decode.
+     *
+     * Invalid header, throws exception.
+     */
+    @Test
+    void givenInvalidHeader_whenDecode_throwException() {
+        try {
+            decode("NAME,AGE\nJohn,3000\n", 4);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Second column should be SALARY", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package richmond.swe.dotsalary.service.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test ExternalNameDedup.
+ * @author richmondchng
+ */
+class ExternalNameDedupTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static UserBean user(final String name, final long salary) {
+        return UserBean.builder().name(name).salary(BigDecimal.valueOf(salary)).build();
+    }
+
+    private static List<String> toStrings(final List<Collection<UserBean>> chunks) {
+        final List<String> records = new ArrayList<>();
+        chunks.forEach(chunk -> chunk.forEach(r -> records.add(r.getName() + "=" + r.getSalary())));
+        return records;
+    }
+
+    /**
+     * Test merge.
+     *
+     * Repeated names within and across runs handed over once in name order, first name and last salary kept.
+     */
+    @Test
+    void givenRepeatedNames_whenMerge_returnFirstNameLastSalary() throws IOException {
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+        try(final ExternalNameDedup dedup = new ExternalNameDedup(tempDir, 3)) {
+            dedup.addAll(List.of(user("Kenny", 3000), user("Jared", 1000), user("JARED", 1100)));
+            dedup.addAll(List.of(user("Bobby", 2000), user("kenny", 3100)));
+            dedup.addAll(List.of(user("jared", 1200)));
+            assertEquals(2, dedup.getRuns());
+
+            final int count = dedup.merge(2, chunks::add);
+
+            assertEquals(3, count);
+        }
+        assertEquals(2, chunks.size());
+        assertEquals(List.of("Bobby=2000.00000000", "Jared=1200.00000000", "Kenny=3100.00000000"), toStrings(chunks));
+        // run files deleted
+        try(final Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Test merge.
+     *
+     * Same results as an in-memory map keyed on upper case name, for many runs.
+     */
+    @Test
+    void givenManyRuns_whenMerge_returnSameAsInMemory() throws IOException {
+        final List<UserBean> records = new ArrayList<>();
+        for(int i = 0; i < 5000; i++) {
+            final int n = (i * 7919) % 1000;
+            records.add(user((i % 2 == 0 ? "User" : "USER") + n, i + 1));
+        }
+        final Map<String, UserBean> expected = new LinkedHashMap<>();
+        for(UserBean record : records) {
+            final UserBean first = expected.get(record.getName().toUpperCase());
+            expected.put(record.getName().toUpperCase(),
+                    first == null ? record : user(first.getName(), record.getSalary().toBigDecimal().longValue()));
+        }
+        final List<String> expectedStrings = expected.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getValue().getName() + "=" + e.getValue().getSalary())
+                .collect(Collectors.toList());
+
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+        try(final ExternalNameDedup dedup = new ExternalNameDedup(tempDir, 97)) {
+            for(int i = 0; i < records.size(); i += 250) {
+                dedup.addAll(records.subList(i, i + 250));
+            }
+            assertTrue(dedup.getRuns() > 50);
+            assertEquals(1000, dedup.merge(100, chunks::add));
+        }
+        assertEquals(10, chunks.size());
+        assertEquals(expectedStrings, toStrings(chunks));
+    }
+
+    /**
+     * Test merge.
+     *
+     * More runs than fan in, runs merged in passes until at most fan in are left, then same results as an in-memory
+     * map keyed on upper case name.
+     */
+    @Test
+    void givenRunsAboveFanIn_whenMerge_mergeInPasses() throws IOException {
+        final List<UserBean> records = new ArrayList<>();
+        for(int i = 0; i < 5000; i++) {
+            final int n = (i * 7919) % 1000;
+            records.add(user((i % 2 == 0 ? "User" : "USER") + n, i + 1));
+        }
+        final List<String> expected;
+        try(final ExternalNameDedup dedup = new ExternalNameDedup(tempDir, 97)) {
+            dedup.addAll(records);
+            final List<Collection<UserBean>> chunks = new ArrayList<>();
+            dedup.merge(100, chunks::add);
+            expected = toStrings(chunks);
+        }
+
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+        final long[] runFiles = new long[1];
+        try(final ExternalNameDedup dedup = new ExternalNameDedup(tempDir, 97, 4)) {
+            dedup.addAll(records);
+            assertTrue(dedup.getRuns() > 16);
+            assertEquals(1000, dedup.merge(100, chunk -> {
+                try(final Stream<Path> files = Files.list(tempDir)) {
+                    runFiles[0] = Math.max(runFiles[0], files.count());
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                chunks.add(chunk);
+            }));
+            assertTrue(dedup.getRuns() <= 4);
+        }
+        assertTrue(runFiles[0] <= 4, "Run files " + runFiles[0]);
+        assertEquals(expected, toStrings(chunks));
+        try(final Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Test merge.
+     *
+     * No records, consumer not called.
+     */
+    @Test
+    void givenNoRecords_whenMerge_returnZero() throws IOException {
+        final List<Collection<UserBean>> chunks = new ArrayList<>();
+        try(final ExternalNameDedup dedup = new ExternalNameDedup(tempDir, 10)) {
+            assertEquals(0, dedup.merge(10, chunks::add));
+        }
+        assertEquals(0, chunks.size());
+    }
+
+    /**
+     * Test constructor.
+     *
+     * Run size less than 1, throws exception.
+     */
+    @Test
+    void givenInvalidRunSize_whenCreate_throwException() {
+        try {
+            new ExternalNameDedup(tempDir, 0);
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Run size should be at least 1", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package richmond.swe.dotsalary.service.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import richmond.swe.dotsalary.config.IndexStorage;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test UserIndexSnapshot.
+ * @author richmondchng
+ */
+class UserIndexSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test query.
+     *
+     * Records filtered by inclusive salary range, sorted by field then id.
+     */
+    @Test
+    void givenUsers_whenQuery_returnRangeSorted() {
+        final UserRows rows = new UserRows();
+        rows.handle(1L, "John", Salary.valueOf(BigDecimal.valueOf(3000)));
+        rows.handle(2L, "Adam", Salary.valueOf(BigDecimal.valueOf(2500)));
+        rows.handle(3L, "Ryan", Salary.valueOf(BigDecimal.valueOf(1000)));
+        rows.handle(4L, "Adam", Salary.valueOf(BigDecimal.valueOf(3000)));
+        rows.handle(5L, "Zack", Salary.valueOf(new BigDecimal("4000.5")));
+        final UserIndexSnapshot snapshot = UserIndexSnapshot.build(rows);
+
+        assertEquals(List.of(2L, 1L, 4L), ids(snapshot.query(BigDecimal.valueOf(2500), BigDecimal.valueOf(4000),
+                0, Integer.MAX_VALUE, SortField.SALARY)));
+        assertEquals(List.of(2L, 4L, 1L), ids(snapshot.query(BigDecimal.valueOf(2500), BigDecimal.valueOf(4000),
+                0, Integer.MAX_VALUE, SortField.NAME)));
+        assertEquals(List.of(1L, 2L, 4L), ids(snapshot.query(BigDecimal.valueOf(2500), BigDecimal.valueOf(4000),
+                0, Integer.MAX_VALUE, SortField.NONE)));
+        // offset and limit
+        assertEquals(List.of(4L), ids(snapshot.query(BigDecimal.valueOf(2500), BigDecimal.valueOf(4000),
+                1, 1, SortField.NAME)));
+        // fractional bounds
+        assertEquals(List.of(5L), ids(snapshot.query(new BigDecimal("4000.5"), new BigDecimal("4000.500000001"),
+                0, Integer.MAX_VALUE, SortField.NONE)));
+        assertEquals(0, snapshot.query(BigDecimal.valueOf(4001), BigDecimal.valueOf(5000),
+                0, Integer.MAX_VALUE, SortField.NONE).size());
+
+        final UserBean result = snapshot.query(BigDecimal.ZERO, BigDecimal.valueOf(1000),
+                0, Integer.MAX_VALUE, SortField.NONE).get(0);
+        assertEquals(3L, result.getId());
+        assertEquals("Ryan", result.getName());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(result.getSalary().toBigDecimal()));
+    }
+
+    /**
+     * Test upsert.
+     *
+     * Updated users move to their new position, new users are added.
+     */
+    @Test
+    void givenChangedUsers_whenUpsert_returnUpdatedSnapshot() {
+        final UserRows rows = new UserRows();
+        rows.handle(1L, "John", Salary.valueOf(BigDecimal.valueOf(3000)));
+        rows.handle(2L, "Adam", Salary.valueOf(BigDecimal.valueOf(2500)));
+        final UserIndexSnapshot snapshot = UserIndexSnapshot.build(rows);
+
+        final UserRows changed = new UserRows();
+        changed.handle(2L, "Adam", Salary.valueOf(BigDecimal.valueOf(3500)));
+        changed.handle(3L, "Bart", Salary.valueOf(BigDecimal.valueOf(100)));
+        final UserIndexSnapshot updated = snapshot.upsert(changed);
+
+        assertEquals(3, updated.size());
+        assertEquals(List.of(3L, 1L, 2L), ids(updated.query(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                0, Integer.MAX_VALUE, SortField.SALARY)));
+        assertEquals(List.of(2L, 3L, 1L), ids(updated.query(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                0, Integer.MAX_VALUE, SortField.NAME)));
+        // previous snapshot not changed
+        assertEquals(List.of(2L, 1L), ids(snapshot.query(BigDecimal.ZERO, BigDecimal.valueOf(4000),
+                0, Integer.MAX_VALUE, SortField.SALARY)));
+    }
+
+    /**
+     * Test query after repeated upserts.
+     *
+     * Same results as sorting all users, for narrow and wide ranges.
+     */
+    @Test
+    void givenRandomUpserts_whenQuery_returnSameAsSortedList() {
+        assertRandomUpserts(UserIndexSnapshot.empty(), random -> "N" + random.nextInt(100));
+    }
+
+    /**
+     * Test query after repeated upserts, for each storage, with names that are not ASCII.
+     *
+     * Same results as sorting all users, names in the same order as String.compareTo.
+     */
+    @Test
+    void givenStorageAndUnicodeNames_whenQuery_returnSameAsSortedList() {
+        final String[] names = {"Amy", "Amy Farrah", "\u00c1my", "Zo\u00eb", "\u674e\u96f7", "\uff21 Wide",
+                "\ud83d\ude00 Smile", "\ud83d\ude00", "\ue000 Private"};
+        for(IndexStorage storage : IndexStorage.values()) {
+            assertRandomUpserts(UserIndexSnapshot.empty(ColumnAllocator.of(storage, tempDir)),
+                    random -> names[random.nextInt(names.length)]);
+        }
+    }
+
+    /**
+     * Test upsert after previous snapshots are released, for each off-heap storage.
+     *
+     * Columns of released snapshots are reused with the same results as sorting all users, and a snapshot still held
+     * by a reader keeps its users until the reader releases it.
+     */
+    @Test
+    void givenReleasedSnapshots_whenUpsert_reuseColumnsAndKeepHeldSnapshot() {
+        for(IndexStorage storage : List.of(IndexStorage.DIRECT, IndexStorage.MAPPED)) {
+            final Random random = new Random(42);
+            final UserRows rows = new UserRows();
+            for(long id = 0; id < 100; id++) {
+                rows.handle(id, "N" + id, Salary.valueOf(BigDecimal.valueOf(1000 + id)));
+            }
+            UserIndexSnapshot snapshot = UserIndexSnapshot.build(rows, ColumnAllocator.of(storage, tempDir));
+            final UserIndexSnapshot held = snapshot;
+            assertTrue(held.retain());
+            final List<Long> heldIds = ids(held.query(BigDecimal.ZERO, BigDecimal.valueOf(5000), 0,
+                    Integer.MAX_VALUE, SortField.NAME));
+
+            final Map<Long, UserBean> users = new HashMap<>();
+            held.forEach(BigDecimal.ZERO, BigDecimal.valueOf(5000), 0, Integer.MAX_VALUE, SortField.NONE,
+                    (id, name, salary) -> users.put(id, UserBean.builder().id(id).name(name).salary(salary).build()));
+            for(int round = 0; round < 10; round++) {
+                final UserRows changed = new UserRows();
+                for(int i = 0; i < 20; i++) {
+                    final long id = random.nextInt(150);
+                    final UserBean user = UserBean.builder()
+                            .id(id)
+                            .name("N" + random.nextInt(1000))
+                            .salary(BigDecimal.valueOf(random.nextInt(500_000), 2))
+                            .build();
+                    users.put(id, user);
+                    changed.handle(id, user.getName(), user.getSalary());
+                }
+                final UserIndexSnapshot next = snapshot.upsert(changed);
+                snapshot.release();
+                snapshot = next;
+
+                final List<Long> expected = users.values().stream()
+                        .sorted(Comparator.comparing((UserBean u) -> u.getSalary().toBigDecimal())
+                                .thenComparing(UserBean::getId))
+                        .map(UserBean::getId)
+                        .collect(Collectors.toList());
+                assertEquals(expected, ids(snapshot.query(BigDecimal.ZERO, BigDecimal.valueOf(5000), 0,
+                        Integer.MAX_VALUE, SortField.SALARY)));
+                assertEquals(heldIds, ids(held.query(BigDecimal.ZERO, BigDecimal.valueOf(5000), 0,
+                        Integer.MAX_VALUE, SortField.NAME)));
+            }
+            held.release();
+            assertFalse(held.retain());
+            snapshot.release();
+        }
+    }
+
+    private static void assertRandomUpserts(final UserIndexSnapshot empty, final Function<Random, String> nextName) {
+        final Random random = new Random(42);
+        final Map<Long, UserBean> users = new HashMap<>();
+        UserIndexSnapshot snapshot = empty;
+        for(int round = 0; round < 20; round++) {
+            final UserRows changed = new UserRows();
+            for(int i = 0; i < 50; i++) {
+                final long id = random.nextInt(300);
+                final UserBean user = UserBean.builder()
+                        .id(id)
+                        .name(nextName.apply(random))
+                        .salary(BigDecimal.valueOf(random.nextInt(500_000), 2))
+                        .build();
+                users.put(id, user);
+                changed.handle(id, user.getName(), user.getSalary());
+            }
+            snapshot = snapshot.upsert(changed);
+            assertEquals(users.size(), snapshot.size());
+
+            for(SortField sort : SortField.values()) {
+                final BigDecimal min = BigDecimal.valueOf(random.nextInt(5000));
+                final BigDecimal max = min.add(BigDecimal.valueOf(round % 2 == 0 ? 100 : 4000));
+                final List<Long> expected = users.values().stream()
+                        .filter(u -> u.getSalary().toBigDecimal().compareTo(min) >= 0
+                                && u.getSalary().toBigDecimal().compareTo(max) <= 0)
+                        .sorted(comparator(sort))
+                        .skip(3)
+                        .limit(20)
+                        .map(UserBean::getId)
+                        .collect(Collectors.toList());
+                final List<UserBean> results = snapshot.query(min, max, 3, 20, sort);
+                assertEquals(expected, ids(results));
+                final List<Long> streamed = new ArrayList<>();
+                snapshot.forEach(min, max, 3, 20, sort, (id, name, salary) -> streamed.add(id));
+                assertEquals(expected, streamed);
+                results.forEach(u -> assertEquals(users.get(u.getId()).getName(), u.getName()));
+            }
+        }
+    }
+
+    private static Comparator<UserBean> comparator(final SortField sort) {
+        final Comparator<UserBean> byId = Comparator.comparingLong(UserBean::getId);
+        switch(sort) {
+            case NAME:
+                return Comparator.comparing(UserBean::getName).thenComparing(byId);
+            case SALARY:
+                return Comparator.comparing(UserBean::getSalary).thenComparing(byId);
+            default:
+                return byId;
+        }
+    }
+
+    private static List<Long> ids(final List<UserBean> users) {
+        final List<Long> ids = new ArrayList<>();
+        users.forEach(u -> ids.add(u.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,158 @@
+package richmond.swe.dotsalary.service.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.QueryEngine;
+import richmond.swe.dotsalary.data.Salary;
+import richmond.swe.dotsalary.data.SortField;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.data.repository.UserRowHandler;
+import richmond.swe.dotsalary.service.cache.UserQueryCache;
+import richmond.swe.dotsalary.service.event.UsersChangedEvent;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Unit test UserIndex.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class UserIndexTest {
+
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+    @Mock
+    private UserQueryCache userQueryCache;
+    @Captor
+    private ArgumentCaptor<Collection<String>> namesCaptor;
+
+    private DotsalaryProperties properties;
+
+    // test instance
+    private UserIndex userIndex;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        properties.getQuery().setEngine(QueryEngine.MEMORY);
+        properties.getQuery().setIndexRefreshInterval(300);
+        userIndex = new UserIndex(userJdbcRepository, properties, userQueryCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userIndex.shutdown();
+        userIndex = null;
+    }
+
+    /**
+     * Test onUsersChanged.
+     *
+     * Changes committed within refresh interval are read once, off the committing thread, then cache is dropped.
+     */
+    @Test
+    void givenChangesWithinInterval_whenOnUsersChanged_applyTogether() {
+        final AtomicReference<String> refreshThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            refreshThread.set(Thread.currentThread().getName());
+            final Collection<String> names = invocation.getArgument(0);
+            final UserRowHandler handler = invocation.getArgument(1);
+            long id = 0;
+            for(String name : names) {
+                handler.handle(++id, name, Salary.valueOf(BigDecimal.valueOf(1000)));
+            }
+            return null;
+        }).when(userJdbcRepository).findAllByNameKeys(any(), any());
+
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("RYAN")));
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("JOHN", "ADAM")));
+        verifyNoInteractions(userJdbcRepository);
+
+        verify(userQueryCache, timeout(5000)).invalidate();
+        verify(userJdbcRepository, times(1)).findAllByNameKeys(namesCaptor.capture(), any());
+        assertEquals(Set.of("JOHN", "RYAN", "ADAM"), new HashSet<>(namesCaptor.getValue()));
+        assertTrue(refreshThread.get().startsWith("user-index-"));
+        assertEquals(3, userIndex.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, null, SortField.NONE)
+                .size());
+    }
+
+    /**
+     * Test onUsersChanged.
+     *
+     * Cache invalidated only after the new snapshot is swapped in, so queries after the version is bumped see the
+     * changes.
+     */
+    @Test
+    void givenChanges_whenRefresh_invalidateCacheAfterSwap() throws Exception {
+        doAnswer(invocation -> {
+            final UserRowHandler handler = invocation.getArgument(1);
+            handler.handle(1L, "John", Salary.valueOf(BigDecimal.valueOf(1000)));
+            return null;
+        }).when(userJdbcRepository).findAllByNameKeys(any(), any());
+        final CompletableFuture<Integer> seenAtInvalidate = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            seenAtInvalidate.complete(userIndex.getUsers(BigDecimal.ZERO, BigDecimal.valueOf(4000), 0, null,
+                    SortField.NONE).size());
+            return null;
+        }).when(userQueryCache).invalidate();
+
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+
+        assertEquals(1, seenAtInvalidate.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test onUsersChanged.
+     *
+     * All users changed within refresh interval, all users reloaded once.
+     */
+    @Test
+    void givenAllChanged_whenOnUsersChanged_reloadOnce() {
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+        userIndex.onUsersChanged(new UsersChangedEvent(null));
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("RYAN")));
+
+        verify(userQueryCache, timeout(5000)).invalidate();
+        verify(userJdbcRepository, times(1)).findAll(any());
+        verify(userJdbcRepository, never()).findAllByNameKeys(any(), any());
+    }
+
+    /**
+     * Test onUsersChanged.
+     *
+     * DATABASE engine, changes not applied.
+     */
+    @Test
+    void givenDatabaseEngine_whenOnUsersChanged_ignoreChanges() throws InterruptedException {
+        properties.getQuery().setEngine(QueryEngine.DATABASE);
+
+        userIndex.onUsersChanged(new UsersChangedEvent(Set.of("JOHN")));
+        Thread.sleep(500);
+
+        verifyNoInteractions(userJdbcRepository, userQueryCache);
+    }
+}
@@ -0,0 +1,306 @@
+package richmond.swe.dotsalary.service.job;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.config.UploadMode;
+import richmond.swe.dotsalary.exception.UploadJobNotFoundException;
+import richmond.swe.dotsalary.exception.UploadJobRejectedException;
+import richmond.swe.dotsalary.service.FileProcessorService;
+import richmond.swe.dotsalary.service.PipelinedUploadService;
+import richmond.swe.dotsalary.service.ResumableUploadService;
+import richmond.swe.dotsalary.service.RecordChunkSource;
+import richmond.swe.dotsalary.service.UploadLogService;
+import richmond.swe.dotsalary.service.UserService;
+import richmond.swe.dotsalary.service.bean.UploadJobBean;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test UploadJobService.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class UploadJobServiceTest {
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private ResumableUploadService resumableUploadService;
+    @Mock
+    private PipelinedUploadService pipelinedUploadService;
+    @Mock
+    private UploadLogService uploadLogService;
+    @TempDir
+    Path spoolDir;
+
+    private DotsalaryProperties properties;
+
+    // test instance
+    private UploadJobService uploadJobService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        properties.getJobs().setSpoolDir(spoolDir.toString());
+        properties.getJobs().setThreads(1);
+        properties.getJobs().setQueueCapacity(1);
+        properties.getUpload().setChunkSize(2);
+        uploadJobService = new UploadJobService(new FileProcessorService(new SimpleMeterRegistry()), userService,
+                resumableUploadService, pipelinedUploadService, uploadLogService, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadJobService.shutdown();
+        uploadJobService = null;
+    }
+
+    private static MockMultipartFile csv(final String content) {
+        return new MockMultipartFile("file", "hello.csv", "text/csv", content.getBytes());
+    }
+
+    private UploadJobBean awaitFinished(final String id) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(System.currentTimeMillis() < deadline) {
+            final UploadJobBean job = uploadJobService.getJob(id);
+            if(job.getStatus() == UploadJobStatus.COMPLETED || job.getStatus() == UploadJobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job did not finish");
+    }
+
+    /**
+     * Test submit.
+     *
+     * File processed in background, row counts reported and spooled file removed.
+     */
+    @Test
+    void givenFile_whenSubmit_processInBackground() throws Exception {
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            source.forEachChunk(chunk -> { });
+            return 1;
+        });
+
+        final UploadJobBean submitted = uploadJobService.submit(
+                csv("NAME,SALARY\nJohn,3000\nRyan,-1\nBetty,0\nEric,10\nSteven,20\n"));
+
+        final UploadJobBean job = awaitFinished(submitted.getId());
+        assertEquals(UploadJobStatus.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRowsParsed());
+        assertEquals(3, job.getRowsPersisted());
+        assertEquals(2, job.getRowsSkipped());
+        try(var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Test submit.
+     *
+     * Invalid record, job failed with error and nothing persisted.
+     */
+    @Test
+    void givenInvalidRecord_whenSubmit_jobFailed() throws Exception {
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(0);
+            source.forEachChunk(chunk -> { });
+            return 1;
+        });
+
+        final UploadJobBean submitted = uploadJobService.submit(csv("NAME,SALARY\nJohn,3000\nRyan,3000\nEric,abc\n"));
+
+        final UploadJobBean job = awaitFinished(submitted.getId());
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertEquals(2, job.getRowsParsed());
+        assertEquals(0, job.getRowsPersisted());
+        assertEquals("3. SALARY field is not numeric", job.getError());
+    }
+
+    /**
+     * Test submit in CHUNKED upload mode.
+     *
+     * Invalid record, job failed with error, and chunks committed before it stay counted.
+     */
+    @Test
+    void givenChunkedModeAndInvalidRecord_whenSubmit_countCommittedChunks() throws Exception {
+        properties.getUpload().setMode(UploadMode.CHUNKED);
+        when(resumableUploadService.uploadId(any())).thenReturn("id");
+        when(resumableUploadService.persistRecords(eq("id"), any())).thenAnswer(invocation -> {
+            final RecordChunkSource source = invocation.getArgument(1);
+            source.forEachChunk(chunk -> { });
+            return 1;
+        });
+
+        final UploadJobBean submitted = uploadJobService.submit(
+                csv("NAME,SALARY\nJohn,3000\nRyan,-1\nEric,10\nBetty,abc\n"));
+
+        final UploadJobBean job = awaitFinished(submitted.getId());
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertEquals(2, job.getRowsParsed());
+        assertEquals(1, job.getRowsPersisted());
+        assertEquals(1, job.getRowsSkipped());
+    }
+
+    /**
+     * Test submit with upload log.
+     *
+     * Each chunk appended to log as it is parsed, rows counted once applied, job completed once all are applied.
+     */
+    @Test
+    void givenUploadLog_whenSubmit_countRowsOnceApplied() throws Exception {
+        when(uploadLogService.isEnabled()).thenReturn(true);
+        final List<CompletableFuture<Void>> applied = Collections.synchronizedList(new ArrayList<>());
+        when(uploadLogService.appendRecords(any())).thenAnswer(invocation -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            applied.add(future);
+            return future;
+        });
+
+        final UploadJobBean submitted = uploadJobService.submit(
+                csv("NAME,SALARY\nJohn,3000\nRyan,-1\nEric,10\n"));
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(applied.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, applied.size());
+        UploadJobBean job = uploadJobService.getJob(submitted.getId());
+        assertEquals(UploadJobStatus.RUNNING, job.getStatus());
+        assertEquals(3, job.getRowsParsed());
+        assertEquals(0, job.getRowsPersisted());
+
+        applied.get(0).complete(null);
+        job = uploadJobService.getJob(submitted.getId());
+        assertEquals(UploadJobStatus.RUNNING, job.getStatus());
+        assertEquals(1, job.getRowsPersisted());
+        assertEquals(1, job.getRowsSkipped());
+
+        applied.get(1).complete(null);
+        job = awaitFinished(submitted.getId());
+        assertEquals(UploadJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getRowsPersisted());
+        assertEquals(1, job.getRowsSkipped());
+        verify(userService, never()).streamPersistRecords(any());
+    }
+
+    /**
+     * Test submit with upload log, when a chunk cannot be applied because of its data.
+     *
+     * Chunk quarantined, job failed with error once all chunks are done, and applied chunks stay counted.
+     */
+    @Test
+    void givenUploadLogAndChunkQuarantined_whenSubmit_jobFailed() throws Exception {
+        when(uploadLogService.isEnabled()).thenReturn(true);
+        final List<CompletableFuture<Void>> applied = Collections.synchronizedList(new ArrayList<>());
+        when(uploadLogService.appendRecords(any())).thenAnswer(invocation -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            applied.add(future);
+            return future;
+        });
+
+        final UploadJobBean submitted = uploadJobService.submit(
+                csv("NAME,SALARY\nJohn,3000\nRyan,-1\nEric,10\nAmy,20\nBob,30\n"));
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(applied.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, applied.size());
+        // applier throws a data error, so the first chunk is quarantined
+        applied.get(0).completeExceptionally(new DataIntegrityViolationException("Cannot apply"));
+        applied.get(1).complete(null);
+        UploadJobBean job = uploadJobService.getJob(submitted.getId());
+        assertEquals(UploadJobStatus.RUNNING, job.getStatus());
+
+        applied.get(2).complete(null);
+        job = awaitFinished(submitted.getId());
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertEquals(5, job.getRowsParsed());
+        assertEquals(3, job.getRowsPersisted());
+        assertEquals(0, job.getRowsSkipped());
+        assertEquals("2 records not applied, Cannot apply", job.getError());
+    }
+
+    /**
+     * Test submit.
+     *
+     * Worker busy and queue full, job rejected.
+     */
+    @Test
+    void givenQueueFull_whenSubmit_throwException() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        when(userService.streamPersistRecords(any())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return 1;
+        });
+        try {
+            // one running, one queued
+            uploadJobService.submit(csv("NAME,SALARY\nJohn,3000\n"));
+            uploadJobService.submit(csv("NAME,SALARY\nJohn,3000\n"));
+            try {
+                uploadJobService.submit(csv("NAME,SALARY\nJohn,3000\n"));
+                fail("Expect exception to be thrown");
+            } catch(UploadJobRejectedException e) {
+                assertEquals("Too many upload jobs, try again later", e.getMessage());
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Test submit.
+     *
+     * Not a CSV file, throws exception.
+     */
+    @Test
+    void givenNotCsv_whenSubmit_throwException() throws IOException {
+        try {
+            uploadJobService.submit(new MockMultipartFile("file", "hello.txt", "text/plain", new byte[0]));
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Not a CSV file", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getJob.
+     *
+     * Unknown job id, throws exception.
+     */
+    @Test
+    void givenUnknownJob_whenGetJob_throwException() {
+        try {
+            uploadJobService.getJob("unknown");
+            fail("Expect exception to be thrown");
+        } catch(UploadJobNotFoundException e) {
+            assertEquals("Upload job not found", e.getMessage());
+        }
+    }
+}
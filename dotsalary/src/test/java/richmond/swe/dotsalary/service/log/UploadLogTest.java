@@ -0,0 +1,627 @@
+package richmond.swe.dotsalary.service.log;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.support.TransactionOperations;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.data.projection.UploadLogPosition;
+import richmond.swe.dotsalary.data.repository.UploadLogPositionRepository;
+import richmond.swe.dotsalary.service.bean.UserBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test UploadLog.
+ * @author richmondchng
+ */
+class UploadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DotsalaryProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        properties.getPersistence().setWriteAheadLog(true);
+        properties.getPersistence().setLogDir(tempDir.toString());
+    }
+
+    /**
+     * Test append and replay.
+     *
+     * Appends are applied in log order, and applied again in the same order after restart. Appends larger than
+     * chunk size are written in several frames, applied as one, and replayed a frame at a time.
+     */
+    @Test
+    void givenAppends_whenReplay_applyInLogOrder() throws IOException {
+        properties.getUpload().setChunkSize(2);
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(records -> applied.add(toString(records)));
+        uploadLog.append(List.of(user("John", 1000), user("Ryan", 2000), user("Amy", 2500)),
+                records -> applied.add(toString(records)));
+        uploadLog.append(List.of(user("JOHN", 3000)), records -> applied.add(toString(records)));
+        uploadLog.shutdown();
+        assertEquals(List.of("John=1000, Ryan=2000, Amy=2500", "JOHN=3000"), applied);
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(List.of("John=1000, Ryan=2000", "Amy=2500", "JOHN=3000"), replayed);
+    }
+
+    /**
+     * Test append of a spool.
+     *
+     * Spooled records are appended as one append, applied a frame at a time with one position saved after them, and
+     * replayed after restart. Spool file is deleted on close.
+     */
+    @Test
+    void givenSpool_whenAppend_applyAsOneAppend() throws IOException {
+        properties.getUpload().setChunkSize(2);
+        final PositionRepository positionRepository = new PositionRepository();
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final UploadLog uploadLog = newLog(positionRepository);
+        uploadLog.replay(records -> applied.add(toString(records)));
+        try(UploadSpool spool = uploadLog.spool()) {
+            spool.addAll(List.of(user("John", 1000), user("Ryan", 2000), user("Amy", 2500)));
+            spool.addAll(List.of(user("Bob", 3000)));
+            assertEquals(4, spool.size());
+            uploadLog.append(spool, records -> applied.add(toString(records)));
+        }
+        uploadLog.shutdown();
+        assertEquals(List.of("John=1000, Ryan=2000", "Amy=2500", "Bob=3000"), applied);
+        assertEquals(0, count("spool-", ".tmp"));
+        final Path segment;
+        try(Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("upload-")).sorted()
+                    .findFirst().orElseThrow();
+        }
+        final List<Long> ends = new ArrayList<>();
+        UploadLogFiles.readSegment(segment, (records, end) -> ends.add(end));
+        assertEquals(List.of(Files.size(segment)), ends);
+        assertEquals(Files.size(segment), positionRepository.position.getPosition());
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(applied, replayed);
+    }
+
+    /**
+     * Test append of a spool, when the last row of the upload does not fit the users table.
+     *
+     * Spool throws exception on the bad row, and is closed without being appended, so no users are applied, then or
+     * after restart.
+     */
+    @Test
+    void givenSpoolWithBadLastRow_whenClose_appendNothing() throws IOException {
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(records -> applied.add(toString(records)));
+        try(UploadSpool spool = uploadLog.spool()) {
+            spool.addAll(List.of(user("John", 1000), user("Ryan", 2000)));
+            try {
+                spool.addAll(List.of(user("Amy", 2500), user("Rich", 10000)));
+                fail("Expect exception to be thrown");
+            } catch(IllegalArgumentException e) {
+                assertEquals("Invalid record for user Rich", e.getMessage());
+            }
+        }
+        uploadLog.append(List.of(user("Bob", 3000)), records -> applied.add(toString(records)));
+        uploadLog.shutdown();
+        assertEquals(List.of("Bob=3000"), applied);
+        assertEquals(0, count("spool-", ".tmp"));
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(List.of("Bob=3000"), replayed);
+    }
+
+    /**
+     * Test compaction.
+     *
+     * Full segments are merged into a snapshot sorted by upper case name, keeping the first name and the last salary,
+     * and skipping salaries less than or equal 0. Restart applies the snapshot, and later appends are merged into the
+     * next snapshot.
+     */
+    @Test
+    void givenFullSegments_whenCompact_replaySortedSnapshot() throws IOException {
+        properties.getPersistence().setLogCompactBytes(1);
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(records -> { });
+        uploadLog.append(List.of(user("Bob", 100), user("alice", 200)), records -> { });
+        uploadLog.append(List.of(user("BOB", 300), user("Zed", -5)), records -> { });
+        uploadLog.append(List.of(user("Carl", 50), user("ALICE", 250)), records -> { });
+        uploadLog.shutdown();
+        assertEquals(1, count(".snapshot"));
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.append(List.of(user("Dave", 10)), records -> { });
+        restarted.shutdown();
+        assertEquals(List.of("alice=250, Bob=300, Carl=50"), replayed);
+
+        replayed.clear();
+        final UploadLog again = newLog();
+        again.replay(records -> replayed.add(toString(records)));
+        again.shutdown();
+        assertEquals(List.of("alice=250, Bob=300, Carl=50, Dave=10"), replayed);
+    }
+
+    /**
+     * Test replay after a record was partly written.
+     *
+     * Complete records are applied, the incomplete record is ignored.
+     */
+    @Test
+    void givenIncompleteRecord_whenReplay_ignoreIncompleteRecord() throws IOException {
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(records -> { });
+        uploadLog.append(List.of(user("John", 1000)), records -> { });
+        uploadLog.shutdown();
+        final Path segment;
+        try(Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(f -> f.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(segment, ByteBuffer.allocate(6).putInt(100).array(), StandardOpenOption.APPEND);
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(List.of("John=1000"), replayed);
+    }
+
+    /**
+     * Test append.
+     *
+     * Salary or name too large for the users table, throws exception and nothing is written or applied.
+     */
+    @Test
+    void givenRecordNotFittingColumns_whenAppend_throwException() throws IOException {
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(records -> applied.add(toString(records)));
+        try {
+            uploadLog.append(List.of(user("John", 1000), user("Rich", 10000)),
+                    records -> applied.add(toString(records)));
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Invalid record for user Rich", e.getMessage());
+        }
+        final String longName = "N".repeat(UploadLog.MAX_NAME_LENGTH + 1);
+        try {
+            uploadLog.append(List.of(user(longName, 1000)), records -> applied.add(toString(records)));
+            fail("Expect exception to be thrown");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Invalid record for user " + longName, e.getMessage());
+        }
+        // skipped when applied, so not checked
+        uploadLog.append(List.of(user("Zed", -20000)), records -> applied.add(toString(records)));
+        uploadLog.shutdown();
+        assertEquals(List.of("Zed=-20000"), applied);
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(List.of("Zed=-20000"), replayed);
+    }
+
+    /**
+     * Test append and replay, when an append cannot be applied because of its data.
+     *
+     * Other appends are applied, the failed append is quarantined, and replay after restart quarantines it again
+     * instead of failing.
+     */
+    @Test
+    void givenAppendFailedToApply_whenReplay_quarantineAppend() throws IOException {
+        final Set<String> applied = Collections.synchronizedSet(new LinkedHashSet<>());
+        final Consumer<Collection<UserBean>> applier = records -> {
+            if(records.stream().anyMatch(r -> r.getName().startsWith("Bad"))) {
+                throw new DataIntegrityViolationException("Cannot apply");
+            }
+            applied.add(toString(records));
+        };
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(applier);
+        final CompletableFuture<Void> john = uploadLog.append(List.of(user("John", 1000)), applier);
+        final CompletableFuture<Void> bad = uploadLog.append(List.of(user("Bad", 2000), user("Amy", 2500)), applier);
+        uploadLog.append(List.of(user("Ryan", 3000)), applier);
+        uploadLog.shutdown();
+        assertEquals(Set.of("John=1000", "Ryan=3000"), applied);
+        assertFalse(john.isCompletedExceptionally());
+        assertTrue(john.isDone());
+        assertTrue(bad.isCompletedExceptionally());
+        assertEquals(1, count(".log") - count("upload-", ".log"));
+
+        final Path quarantined;
+        try(Stream<Path> files = Files.list(tempDir)) {
+            quarantined = files.filter(f -> f.getFileName().toString().startsWith("quarantine-"))
+                    .findFirst().orElseThrow();
+        }
+        final List<String> records = new ArrayList<>();
+        UploadLogFiles.readSegment(quarantined, (chunk, end) -> records.add(toString(chunk)));
+        assertEquals(List.of("Bad=2000, Amy=2500"), records);
+
+        applied.clear();
+        final UploadLog restarted = newLog();
+        restarted.replay(applier);
+        restarted.shutdown();
+        assertEquals(Set.of("John=1000", "Ryan=3000"), applied);
+        // same append, same quarantine file
+        assertEquals(1, count(".log") - count("upload-", ".log"));
+    }
+
+    /**
+     * Test append, when an append cannot be applied for a reason other than its data.
+     *
+     * Append is retried until applied, not quarantined, and later appends are applied after it.
+     */
+    @Test
+    void givenApplyFailedOnce_whenAppend_retryUntilApplied() throws IOException {
+        final PositionRepository positionRepository = new PositionRepository();
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger failures = new AtomicInteger();
+        final Consumer<Collection<UserBean>> applier = records -> {
+            if(records.stream().anyMatch(r -> r.getName().equals("Ryan")) && failures.getAndIncrement() < 2) {
+                throw new TransientDataAccessResourceException("Database down");
+            }
+            applied.add(toString(records));
+        };
+        final UploadLog uploadLog = newLog(positionRepository);
+        uploadLog.replay(applier);
+        uploadLog.append(List.of(user("Ryan", 3000)), applier);
+        uploadLog.append(List.of(user("John", 1000)), applier);
+        uploadLog.shutdown();
+
+        assertEquals(List.of("Ryan=3000", "John=1000"), applied);
+        assertEquals(3, failures.get());
+        assertEquals(0, count("quarantine-", ".log"));
+        final Path segment;
+        try(Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("upload-")).sorted()
+                    .findFirst().orElseThrow();
+        }
+        assertEquals(Files.size(segment), positionRepository.position.getPosition());
+    }
+
+    /**
+     * Test replay, when an append cannot be applied because of its data, and the quarantine file cannot be written.
+     *
+     * Position is not saved until the quarantine file is written.
+     */
+    @Test
+    void givenQuarantineNotWritten_whenReplay_keepPositionUntilWritten() throws Exception {
+        final UploadLog uploadLog = newLog();
+        uploadLog.replay(records -> { });
+        uploadLog.append(List.of(user("Bad", 2000)), records -> { });
+        uploadLog.shutdown();
+        final Path segment;
+        try(Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("upload-")).sorted()
+                    .findFirst().orElseThrow();
+        }
+        final List<Long> ends = new ArrayList<>();
+        UploadLogFiles.readSegment(segment, (records, end) -> ends.add(end));
+        // a directory in place of the quarantine file, so it cannot be written
+        final Path quarantine = tempDir.resolve(String.format("quarantine-%019d-%019d.log", 1, ends.get(0)));
+        Files.createDirectory(quarantine);
+
+        final PositionRepository positionRepository = new PositionRepository();
+        final UploadLog restarted = newLog(positionRepository);
+        final Thread replay = new Thread(() -> {
+            try {
+                restarted.replay(records -> {
+                    throw new DataIntegrityViolationException("Cannot apply");
+                });
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        replay.start();
+        Thread.sleep(500);
+        assertTrue(replay.isAlive());
+        assertNull(positionRepository.position);
+
+        Files.delete(quarantine);
+        replay.join(TimeUnit.SECONDS.toMillis(10));
+        restarted.shutdown();
+        assertFalse(replay.isAlive());
+        assertTrue(Files.isRegularFile(quarantine));
+        assertEquals(1, positionRepository.position.getSegment());
+        assertEquals(ends.get(0), positionRepository.position.getPosition());
+    }
+
+    /**
+     * Test replay, when the database has the position of the last applied append.
+     *
+     * Only appends after the position are applied, or none if all were applied.
+     */
+    @Test
+    void givenAppliedPosition_whenReplay_applyOnlyAppendsAfterPosition() throws IOException {
+        final PositionRepository positionRepository = new PositionRepository();
+        final UploadLog uploadLog = newLog(positionRepository);
+        uploadLog.replay(records -> { });
+        uploadLog.append(List.of(user("John", 1000)), records -> { });
+        uploadLog.append(List.of(user("Ryan", 2000)), records -> { });
+        uploadLog.shutdown();
+        final Path segment;
+        try(Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("upload-")).sorted()
+                    .findFirst().orElseThrow();
+        }
+        final List<Long> ends = new ArrayList<>();
+        UploadLogFiles.readSegment(segment, (records, end) -> ends.add(end));
+        assertEquals(1, positionRepository.position.getSegment());
+        assertEquals(Files.size(segment), positionRepository.position.getPosition());
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog(positionRepository);
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(List.of(), replayed);
+
+        // database saw only the first append
+        positionRepository.position = new UploadLogPosition(1, ends.get(0));
+        final UploadLog again = newLog(positionRepository);
+        again.replay(records -> replayed.add(toString(records)));
+        again.shutdown();
+        assertEquals(List.of("Ryan=2000"), replayed);
+        assertEquals(1, positionRepository.position.getSegment());
+        assertEquals(ends.get(1), positionRepository.position.getPosition());
+    }
+
+    /**
+     * Test append, when the segment fails partway through writing an append of several frames.
+     *
+     * Append throws exception, its frames are truncated, and later appends are applied, and replayed after restart.
+     */
+    @Test
+    void givenWriteFailedMidFrame_whenAppend_truncateAndKeepLaterAppends() throws IOException {
+        properties.getUpload().setChunkSize(1);
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final FailingChannel[] channel = new FailingChannel[1];
+        final UploadLog uploadLog = new UploadLog(properties, TransactionOperations.withoutTransaction(),
+                new PositionRepository(), new SimpleMeterRegistry()) {
+            @Override
+            FileChannel openChannel(final Path file) throws IOException {
+                channel[0] = new FailingChannel(super.openChannel(file));
+                return channel[0];
+            }
+        };
+        uploadLog.replay(records -> applied.add(toString(records)));
+        uploadLog.append(List.of(user("John", 1000)), records -> applied.add(toString(records)));
+        // frames of 26 bytes, first written, second torn
+        channel[0].failAfter = 36;
+        try {
+            uploadLog.append(List.of(user("Amy", 2500), user("Bob", 3000)), records -> applied.add(toString(records)));
+            fail("Expect exception to be thrown");
+        } catch(IOException e) {
+            assertEquals("Disk full", e.getMessage());
+        }
+        channel[0].failAfter = -1;
+        uploadLog.append(List.of(user("Ryan", 2000)), records -> applied.add(toString(records)));
+        uploadLog.shutdown();
+        assertEquals(List.of("John=1000", "Ryan=2000"), applied);
+
+        final List<String> replayed = new ArrayList<>();
+        final UploadLog restarted = newLog();
+        restarted.replay(records -> replayed.add(toString(records)));
+        restarted.shutdown();
+        assertEquals(applied, replayed);
+    }
+
+    /**
+     * New log with a new database, which has no position.
+     */
+    private UploadLog newLog() {
+        return newLog(new PositionRepository());
+    }
+
+    private UploadLog newLog(final PositionRepository positionRepository) {
+        return new UploadLog(properties, TransactionOperations.withoutTransaction(), positionRepository,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Position kept in memory, in place of the database.
+     */
+    private static class PositionRepository extends UploadLogPositionRepository {
+        private volatile UploadLogPosition position;
+
+        private PositionRepository() {
+            super(null);
+        }
+
+        @Override
+        public UploadLogPosition findPosition() {
+            return position;
+        }
+
+        @Override
+        public void save(final long segment, final long position) {
+            this.position = new UploadLogPosition(segment, position);
+        }
+    }
+
+    /**
+     * Segment channel that writes only part of the bytes given, then fails, once told to.
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        // bytes written before failing, -1 to not fail
+        private volatile int failAfter = -1;
+        private int total;
+
+        private FailingChannel(final FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            if(failAfter < 0) {
+                return delegate.write(src);
+            }
+            final int remaining = failAfter - total;
+            if(remaining < src.remaining()) {
+                final ByteBuffer part = src.slice();
+                part.limit(Math.max(remaining, 0));
+                delegate.write(part);
+                total = 0;
+                throw new IOException("Disk full");
+            }
+            final int count = delegate.write(src);
+            total += count;
+            return count;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(final long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(final long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(final boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(final long position, final long count, final WritableByteChannel target)
+                throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(final ReadableByteChannel src, final long position, final long count)
+                throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst, final long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(final ByteBuffer src, final long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(final MapMode mode, final long position, final long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(final long position, final long size, final boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(final long position, final long size, final boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private long count(final String suffix) throws IOException {
+        try(Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(f -> f.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private long count(final String prefix, final String suffix) throws IOException {
+        try(Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix)
+                    && f.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private static UserBean user(final String name, final long salary) {
+        return UserBean.builder().name(name).salary(BigDecimal.valueOf(salary)).build();
+    }
+
+    private static String toString(final Collection<UserBean> records) {
+        return records.stream()
+                .map(r -> r.getName() + "=" + r.getSalary().toBigDecimal().stripTrailingZeros().toPlainString())
+                .collect(Collectors.joining(", "));
+    }
+}
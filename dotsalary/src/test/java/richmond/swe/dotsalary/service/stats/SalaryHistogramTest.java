@@ -0,0 +1,275 @@
+package richmond.swe.dotsalary.service.stats;
+
+import org.junit.jupiter.api.Test;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test SalaryHistogram.
+ * @author richmondchng
+ */
+class SalaryHistogramTest {
+
+    /**
+     * Test stats.
+     *
+     * Count and sum exact when range covers all salaries, min, max and percentiles within relative accuracy.
+     */
+    @Test
+    void givenRandomSalaries_whenStats_returnWithinRelativeAccuracy() {
+        final Random random = new Random(42);
+        final List<BigDecimal> salaries = new ArrayList<>();
+        final SalaryHistogram histogram = new SalaryHistogram();
+        BigDecimal sum = BigDecimal.ZERO;
+        for(int i = 0; i < 10_000; i++) {
+            final BigDecimal salary = BigDecimal.valueOf(1000 + random.nextInt(300000), 2);
+            salaries.add(salary);
+            histogram.add(salary);
+            sum = sum.add(salary);
+        }
+        Collections.sort(salaries);
+
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.ZERO, BigDecimal.valueOf(4000), reader(salaries),
+                50, 99);
+
+        assertEquals(10_000, stats.getCount());
+        assertEquals(0, sum.compareTo(stats.getSum()));
+        assertEquals(0, sum.divide(BigDecimal.valueOf(10_000), 8, RoundingMode.HALF_UP).compareTo(stats.getMean()));
+        assertWithinAccuracy(salaries.get(0), stats.getMin());
+        assertWithinAccuracy(salaries.get(salaries.size() - 1), stats.getMax());
+        assertWithinAccuracy(salaries.get(4999), stats.getPercentiles().get(50));
+        assertWithinAccuracy(salaries.get(9899), stats.getPercentiles().get(99));
+    }
+
+    /**
+     * Test stats.
+     *
+     * Updated salaries removed and added again, statistics same as only new salaries.
+     */
+    @Test
+    void givenRemovedSalaries_whenStats_returnWithoutRemoved() {
+        final SalaryHistogram histogram = new SalaryHistogram();
+        histogram.add(BigDecimal.valueOf(1000));
+        histogram.add(BigDecimal.valueOf(2000));
+
+        final SalaryHistogram changes = new SalaryHistogram();
+        changes.remove(BigDecimal.valueOf(1000));
+        changes.add(BigDecimal.valueOf(3000));
+        histogram.merge(changes);
+        final List<BigDecimal> salaries = List.of(BigDecimal.valueOf(2000), BigDecimal.valueOf(3000));
+
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.ZERO, BigDecimal.valueOf(4000), reader(salaries), 50);
+        assertEquals(2, stats.getCount());
+        assertEquals(0, BigDecimal.valueOf(5000).compareTo(stats.getSum()));
+        assertWithinAccuracy(BigDecimal.valueOf(2000), stats.getMin());
+        assertWithinAccuracy(BigDecimal.valueOf(3000), stats.getMax());
+
+        // only salaries in range
+        final SalaryStatsBean ranged = histogram.stats(BigDecimal.valueOf(2500), BigDecimal.valueOf(4000),
+                reader(salaries), 50);
+        assertEquals(1, ranged.getCount());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(ranged.getSum()));
+    }
+
+    /**
+     * Test stats.
+     *
+     * No salaries in range, return count 0 without min, max and mean.
+     */
+    @Test
+    void givenNoSalariesInRange_whenStats_returnEmpty() {
+        final SalaryHistogram histogram = new SalaryHistogram();
+        histogram.add(BigDecimal.valueOf(1000));
+
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.valueOf(2000), BigDecimal.valueOf(4000),
+                reader(List.of(BigDecimal.valueOf(1000))), 50);
+        assertEquals(0, stats.getCount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(stats.getSum()));
+        assertNull(stats.getMin());
+        assertNull(stats.getMax());
+        assertNull(stats.getMean());
+        assertTrue(stats.getPercentiles().isEmpty());
+    }
+
+    /**
+     * Test stats.
+     *
+     * Bounds within a bucket, salaries of the buckets of min and max read exactly, count and sum exact.
+     */
+    @Test
+    void givenBoundsWithinBucket_whenStats_returnExactCountAndSum() {
+        final List<BigDecimal> salaries = new ArrayList<>();
+        final SalaryHistogram histogram = new SalaryHistogram();
+        for(String salary : List.of("2029", "2030.35", "2050", "2060", "2070.9", "2072.1", "2075.55", "2080")) {
+            salaries.add(new BigDecimal(salary));
+            histogram.add(new BigDecimal(salary));
+        }
+
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.valueOf(2030), BigDecimal.valueOf(2070),
+                reader(salaries), 50);
+        assertEquals(3, stats.getCount());
+        assertEquals(0, new BigDecimal("6140.35").compareTo(stats.getSum()));
+        assertEquals(0, new BigDecimal("2030.35").compareTo(stats.getMin()));
+        assertEquals(0, new BigDecimal("2060").compareTo(stats.getMax()));
+    }
+
+    /**
+     * Test stats.
+     *
+     * Random ranges, count and sum same as summing salaries in range, min and max within relative accuracy.
+     */
+    @Test
+    void givenRandomRanges_whenStats_returnExactCountAndSum() {
+        final Random random = new Random(42);
+        final List<BigDecimal> salaries = new ArrayList<>();
+        final SalaryHistogram histogram = new SalaryHistogram();
+        for(int i = 0; i < 5000; i++) {
+            final BigDecimal salary = BigDecimal.valueOf(1 + random.nextInt(400000), 2);
+            salaries.add(salary);
+            histogram.add(salary);
+        }
+
+        for(int i = 0; i < 200; i++) {
+            final BigDecimal min = BigDecimal.valueOf(random.nextInt(400000), 2);
+            final BigDecimal max = min.add(BigDecimal.valueOf(random.nextInt(i % 2 == 0 ? 5000 : 200000), 2));
+            final List<BigDecimal> inRange = new ArrayList<>();
+            BigDecimal sum = BigDecimal.ZERO;
+            for(BigDecimal salary : salaries) {
+                if(salary.compareTo(min) >= 0 && salary.compareTo(max) <= 0) {
+                    inRange.add(salary);
+                    sum = sum.add(salary);
+                }
+            }
+
+            final SalaryStatsBean stats = histogram.stats(min, max, reader(salaries), 50);
+            assertEquals(inRange.size(), stats.getCount());
+            assertEquals(0, sum.compareTo(stats.getSum()));
+            if(!inRange.isEmpty()) {
+                assertWithinAccuracy(Collections.min(inRange), stats.getMin());
+                assertWithinAccuracy(Collections.max(inRange), stats.getMax());
+            }
+        }
+    }
+
+    /**
+     * Test stats from histogram only.
+     *
+     * Range covers all salaries, count and sum exact, min, max and percentiles within relative accuracy.
+     */
+    @Test
+    void givenRangeCoveringAllSalaries_whenStatsFromHistogram_returnExactCountAndSum() {
+        final Random random = new Random(42);
+        final List<BigDecimal> salaries = new ArrayList<>();
+        final SalaryHistogram histogram = new SalaryHistogram();
+        BigDecimal sum = BigDecimal.ZERO;
+        for(int i = 0; i < 10_000; i++) {
+            final BigDecimal salary = BigDecimal.valueOf(1000 + random.nextInt(300000), 2);
+            salaries.add(salary);
+            histogram.add(salary);
+            sum = sum.add(salary);
+        }
+        Collections.sort(salaries);
+
+        final SalaryStatsBean stats = histogram.stats(BigDecimal.ZERO, BigDecimal.valueOf(10000), 50, 99);
+
+        assertEquals(10_000, stats.getCount());
+        assertEquals(0, sum.compareTo(stats.getSum()));
+        assertWithinAccuracy(salaries.get(0), stats.getMin());
+        assertWithinAccuracy(salaries.get(salaries.size() - 1), stats.getMax());
+        assertWithinAccuracy(salaries.get(4999), stats.getPercentiles().get(50));
+        assertWithinAccuracy(salaries.get(9899), stats.getPercentiles().get(99));
+    }
+
+    /**
+     * Test stats from histogram only.
+     *
+     * Random ranges, count and sum differ from summing salaries in range by at most the salaries within 2% of min
+     * and max, which are estimated.
+     */
+    @Test
+    void givenRandomRanges_whenStatsFromHistogram_estimateOnlyNearBounds() {
+        final Random random = new Random(42);
+        final List<BigDecimal> salaries = new ArrayList<>();
+        final SalaryHistogram histogram = new SalaryHistogram();
+        for(int i = 0; i < 5000; i++) {
+            final BigDecimal salary = BigDecimal.valueOf(1 + random.nextInt(400000), 2);
+            salaries.add(salary);
+            histogram.add(salary);
+        }
+
+        for(int i = 0; i < 200; i++) {
+            final BigDecimal min = BigDecimal.valueOf(1 + random.nextInt(400000), 2);
+            final BigDecimal max = min.add(BigDecimal.valueOf(random.nextInt(i % 2 == 0 ? 5000 : 200000), 2));
+            long count = 0;
+            long nearCount = 0;
+            BigDecimal sum = BigDecimal.ZERO;
+            BigDecimal nearSum = BigDecimal.ZERO;
+            for(BigDecimal salary : salaries) {
+                if(salary.compareTo(min) >= 0 && salary.compareTo(max) <= 0) {
+                    count++;
+                    sum = sum.add(salary);
+                }
+                if(isNear(salary, min) || isNear(salary, max)) {
+                    nearCount++;
+                    nearSum = nearSum.add(salary);
+                }
+            }
+
+            final SalaryStatsBean stats = histogram.stats(min, max, 50);
+            assertTrue(Math.abs(count - stats.getCount()) <= nearCount,
+                    "Expect count " + stats.getCount() + " within " + nearCount + " of " + count);
+            assertTrue(sum.subtract(stats.getSum()).abs().compareTo(nearSum) <= 0,
+                    "Expect sum " + stats.getSum() + " within " + nearSum + " of " + sum);
+        }
+    }
+
+    /**
+     * Test stats from histogram only.
+     *
+     * Bounds within a bucket, salaries of the bucket counted in proportion to the part of the bucket in range.
+     */
+    @Test
+    void givenBoundsWithinBucket_whenStatsFromHistogram_interpolateBucket() {
+        final SalaryHistogram histogram = new SalaryHistogram();
+        for(int i = 0; i < 100; i++) {
+            histogram.add(BigDecimal.valueOf(2050));
+        }
+
+        final SalaryStatsBean whole = histogram.stats(BigDecimal.valueOf(2000), BigDecimal.valueOf(2100), 50);
+        assertEquals(100, whole.getCount());
+        assertEquals(0, BigDecimal.valueOf(205000).compareTo(whole.getSum()));
+
+        final SalaryStatsBean part = histogram.stats(BigDecimal.valueOf(2050), BigDecimal.valueOf(2100), 50);
+        assertTrue(part.getCount() > 0 && part.getCount() < 100, "Expect part of bucket, was " + part.getCount());
+        assertEquals(0, BigDecimal.valueOf(2050L * part.getCount()).compareTo(part.getSum()));
+        assertWithinAccuracy(BigDecimal.valueOf(2050), part.getPercentiles().get(50));
+    }
+
+    private static boolean isNear(final BigDecimal salary, final BigDecimal bound) {
+        return Math.abs(salary.doubleValue() - bound.doubleValue()) <= 0.021 * bound.doubleValue();
+    }
+
+    /**
+     * Reader of salaries in range, as read from the salary index.
+     */
+    private static SalaryRangeReader reader(final List<BigDecimal> salaries) {
+        return (from, to, handler) -> salaries.stream()
+                .filter(s -> s.compareTo(from) >= 0 && s.compareTo(to) <= 0)
+                .forEach(handler);
+    }
+
+    private static void assertWithinAccuracy(final BigDecimal expected, final BigDecimal actual) {
+        final double error = Math.abs(actual.doubleValue() - expected.doubleValue()) / expected.doubleValue();
+        assertTrue(error <= SalaryHistogram.RELATIVE_ACCURACY, "Expect " + actual + " within 1% of " + expected);
+    }
+}
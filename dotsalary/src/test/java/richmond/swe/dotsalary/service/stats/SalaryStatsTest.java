@@ -0,0 +1,99 @@
+package richmond.swe.dotsalary.service.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import richmond.swe.dotsalary.config.DotsalaryProperties;
+import richmond.swe.dotsalary.data.repository.UserJdbcRepository;
+import richmond.swe.dotsalary.service.bean.SalaryStatsBean;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test SalaryStats.
+ * @author richmondchng
+ */
+@ExtendWith(MockitoExtension.class)
+class SalaryStatsTest {
+
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+
+    private DotsalaryProperties properties;
+
+    // test instance
+    private SalaryStats salaryStats;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DotsalaryProperties();
+        salaryStats = new SalaryStats(userJdbcRepository, properties);
+        doAnswer(invocation -> {
+            final Consumer<BigDecimal> handler = invocation.getArgument(0);
+            handler.accept(BigDecimal.valueOf(1000));
+            handler.accept(BigDecimal.valueOf(2000));
+            return null;
+        }).when(userJdbcRepository).findAllSalaries(any());
+        salaryStats.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        salaryStats = null;
+    }
+
+    /**
+     * Test getStats.
+     *
+     * Answered from loaded salaries, without reading salaries from the database.
+     */
+    @Test
+    void givenLoadedSalaries_whenGetStats_answerFromMemory() {
+        final SalaryStatsBean stats = salaryStats.getStats(BigDecimal.ZERO, BigDecimal.valueOf(4000));
+        assertEquals(2, stats.getCount());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(stats.getSum()));
+
+        final SalaryStatsBean ranged = salaryStats.getStats(BigDecimal.valueOf(1500), BigDecimal.valueOf(4000));
+        assertEquals(1, ranged.getCount());
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(ranged.getSum()));
+
+        verify(userJdbcRepository, times(1)).findAllSalaries(any());
+        verify(userJdbcRepository, never()).findSalaries(any(), any(), any());
+    }
+
+    /**
+     * Test getStats with exact edges.
+     *
+     * Salaries in the buckets of min and max read from the database.
+     */
+    @Test
+    void givenExactEdges_whenGetStats_readSalariesNearBounds() {
+        properties.getQuery().setStatsExactEdges(true);
+        doAnswer(invocation -> {
+            final BigDecimal from = invocation.getArgument(0);
+            final BigDecimal to = invocation.getArgument(1);
+            final Consumer<BigDecimal> handler = invocation.getArgument(2);
+            if(from.compareTo(BigDecimal.valueOf(1000)) <= 0 && to.compareTo(BigDecimal.valueOf(1000)) >= 0) {
+                handler.accept(BigDecimal.valueOf(1000));
+            }
+            return null;
+        }).when(userJdbcRepository).findSalaries(any(), any(), any());
+
+        final SalaryStatsBean stats = salaryStats.getStats(BigDecimal.valueOf(995), BigDecimal.valueOf(1005));
+        assertEquals(1, stats.getCount());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(stats.getSum()));
+        verify(userJdbcRepository, atLeastOnce()).findSalaries(any(), any(), any());
+    }
+}